@@ -5,6 +5,7 @@ plugins {
 }
 
 dependencies {
+    api(project(":commons-units"))
     implementation("org.apache.commons:commons-math3:3.6.1")
 }
 
@@ -12,6 +13,9 @@ dependencies {
 tasks.named<Test>("test") {
     useJUnitPlatform()
 
+    // Runs the VectorMetrics tests against the Vector API kernels (see VectorizedMetrics)
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+
     testLogging {
         events("SKIPPED", "FAILED") // Options are: "PASSED", "SKIPPED", "FAILED"
     }
@@ -25,6 +29,7 @@ tasks {
 //        options.compilerArgs.add("-Xdoclint:all,-missing")
 //        options.compilerArgs.add("-Xlint:deprecation")
         options.compilerArgs.add("-Xlint:unchecked")
+        options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
     }
 }
 
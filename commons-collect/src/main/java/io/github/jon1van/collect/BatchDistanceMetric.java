@@ -0,0 +1,29 @@
+package io.github.jon1van.collect;
+
+import java.util.List;
+
+/// A BatchDistanceMetric is a DistanceMetric that can also measure the distance from one query key
+/// to many candidate keys in a single call.
+///
+/// Searches of a MetricTree or MetricSet use the batch method when they scan the points inside a
+/// leaf sphere. This gives the metric a chance to amortize per-query work (e.g. computing the
+/// norm of the query vector once), keep a tight loop over the candidates, and skip the
+/// megamorphic call to distanceBtw for every candidate.
+///
+/// The batch method must produce exactly the same distances as distanceBtw.
+///
+/// @param <KEY> The type of key being compared
+public interface BatchDistanceMetric<KEY> extends DistanceMetric<KEY> {
+
+    /// Measure the distance between a query key and each candidate key.
+    ///
+    /// @param query      The key all distances are measured from
+    /// @param candidates The keys to measure the distance to
+    /// @param out        Receives distanceBtw(query, candidates.get(i)) at out[i] (this array can be
+    ///                   longer than the candidate list, extra entries are left untouched)
+    default void distancesFrom(KEY query, List<? extends KEY> candidates, double[] out) {
+        for (int i = 0; i < candidates.size(); i++) {
+            out[i] = distanceBtw(query, candidates.get(i));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.jon1van.collect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/// BatchQueries executes a batch of independent queries using the threads of a ForkJoinPool.
+///
+/// The batch is divided into a few chunks per thread, and each chunk is forked into the pool as its
+/// own ForkJoinTask. Each chunk is executed by one thread that creates a single "scratch" object
+/// (e.g. a Search) and reuses it for every query in the chunk. This avoids allocating new scratch
+/// state for each query.
+///
+/// This class is package private because it is an implementation detail of the MetricTree and
+/// MetricSet classes.
+final class BatchQueries {
+
+    /// More chunks than threads helps balance the load when some queries are slower than others.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private BatchQueries() {}
+
+    /// @param queries The input to each query
+    /// @param pool    The ForkJoinPool that executes the queries
+    /// @param scratch Creates the scratch object each chunk of queries reuses
+    /// @param query   Executes one query using a scratch object
+    ///
+    /// @return The result of each query, in the same order as the input queries
+    @SuppressWarnings("unchecked")
+    static <Q, S, R> List<R> executeInOrder(
+            List<? extends Q> queries, ForkJoinPool pool, Supplier<S> scratch, BiFunction<S, Q, R> query) {
+
+        Object[] inputs = queries.toArray();
+        Object[] outputs = new Object[inputs.length];
+
+        int numChunks = Math.min(inputs.length, pool.getParallelism() * CHUNKS_PER_THREAD);
+
+        List<ForkJoinTask<?>> chunks = new ArrayList<>(numChunks);
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            int from = (int) ((long) inputs.length * chunk / numChunks);
+            int to = (int) ((long) inputs.length * (chunk + 1) / numChunks);
+
+            chunks.add(ForkJoinTask.adapt(() -> {
+                S reusable = scratch.get();
+                for (int i = from; i < to; i++) {
+                    outputs[i] = query.apply(reusable, (Q) inputs[i]);
+                }
+            }));
+        }
+
+        // invokeAll forks the chunks into the pool that runs the calling task (i.e. this pool)
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(chunks)));
+
+        return Collections.unmodifiableList((List<R>) Arrays.asList(outputs));
+    }
+}
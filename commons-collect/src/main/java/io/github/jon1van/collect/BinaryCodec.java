@@ -0,0 +1,31 @@
+package io.github.jon1van.collect;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/// A BinaryCodec converts objects to and from bytes so the keys and values of a MetricTree or
+/// MetricSet can be written to a file (see MetricTree.writeTo and MetricSet.writeTo) and later read
+/// back from a memory-mapped copy of that file (see MappedMetricTree and MappedMetricSet).
+///
+/// Common codecs are provided by BinaryCodecs.
+///
+/// @param <T> The type being encoded
+public interface BinaryCodec<T> {
+
+    /// Write the bytes that represent this item.
+    ///
+    /// @param item The item being encoded
+    /// @param out  The destination of the encoded bytes
+    ///
+    /// @throws IOException When the bytes cannot be written
+    void encode(T item, DataOutput out) throws IOException;
+
+    /// Read an item that was written by encode. Implementations should use the relative "get"
+    /// methods so that the buffer's position is left immediately after the decoded item.
+    ///
+    /// @param in A buffer positioned at the first byte of an encoded item
+    ///
+    /// @return The decoded item
+    T decode(ByteBuffer in);
+}
@@ -0,0 +1,115 @@
+package io.github.jon1van.collect;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import io.github.jon1van.units.LatLong;
+import io.github.jon1van.units.LatLongPath;
+
+/// This class provides BinaryCodecs for common key and value types.
+public final class BinaryCodecs {
+
+    private BinaryCodecs() {}
+
+    /// @return A BinaryCodec that writes each String as a 4-byte length followed by UTF-8 bytes.
+    public static BinaryCodec<String> strings() {
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(String item, DataOutput out) throws IOException {
+                byte[] bytes = item.getBytes(UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public String decode(ByteBuffer in) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                return new String(bytes, UTF_8);
+            }
+        };
+    }
+
+    /// @return A BinaryCodec that writes each Integer as 4 bytes.
+    public static BinaryCodec<Integer> integers() {
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(Integer item, DataOutput out) throws IOException {
+                out.writeInt(item);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer in) {
+                return in.getInt();
+            }
+        };
+    }
+
+    /// @return A BinaryCodec that writes each Long as 8 bytes.
+    public static BinaryCodec<Long> longs() {
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(Long item, DataOutput out) throws IOException {
+                out.writeLong(item);
+            }
+
+            @Override
+            public Long decode(ByteBuffer in) {
+                return in.getLong();
+            }
+        };
+    }
+
+    /// @return A BinaryCodec that writes each Double as 8 bytes.
+    public static BinaryCodec<Double> doubles() {
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(Double item, DataOutput out) throws IOException {
+                out.writeDouble(item);
+            }
+
+            @Override
+            public Double decode(ByteBuffer in) {
+                return in.getDouble();
+            }
+        };
+    }
+
+    /// @return A BinaryCodec that writes each LatLong as 8 bytes (see LatLong.toPrimitiveLong()).
+    public static BinaryCodec<LatLong> latLongs() {
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(LatLong item, DataOutput out) throws IOException {
+                out.writeLong(item.toPrimitiveLong());
+            }
+
+            @Override
+            public LatLong decode(ByteBuffer in) {
+                return LatLong.fromPrimitiveLong(in.getLong());
+            }
+        };
+    }
+
+    /// @return A BinaryCodec that writes each LatLongPath as a 4-byte length followed by 8 bytes per
+    ///     location (see LatLongPath.toBytes()).
+    public static BinaryCodec<LatLongPath> latLongPaths() {
+        return new BinaryCodec<>() {
+            @Override
+            public void encode(LatLongPath item, DataOutput out) throws IOException {
+                byte[] bytes = item.toBytes();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            @Override
+            public LatLongPath decode(ByteBuffer in) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                return LatLongPath.fromBytes(bytes);
+            }
+        };
+    }
+}
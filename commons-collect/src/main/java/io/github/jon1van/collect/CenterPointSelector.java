@@ -5,6 +5,9 @@ import java.util.List;
 /// A CenterPointSelector selects two keys from a List of keys. The selected key are used as the
 /// "Center Points" for the multi-dimensional spheres use in the MetricTree and MetricSet classes.
 ///
+/// Implementations do not need to be thread-safe. MetricTree and MetricSet synchronize on the
+/// selector before calling it, even when several trees (or parallel build tasks) share it.
+///
 /// @param <K> The Key class
 public interface CenterPointSelector<K> {
 
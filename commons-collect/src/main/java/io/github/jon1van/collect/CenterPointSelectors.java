@@ -5,11 +5,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.util.List;
 import java.util.Random;
 
-/// This class provides access to two implementations of a CenterPointSelector.
+/// This class provides access to several implementations of a CenterPointSelector.
 ///
-/// Of these two implementations the "maxOfRandomSamples()" is preferred because it generates fewer
-/// spheres when used (i.e. spheres aren't wasted). It also requires relatively few distance
-/// computations.
+/// The "maxOfRandomSamples()" selector is the default because it generates fewer spheres than
+/// "singleRandomSample" (i.e. spheres aren't wasted) while requiring relatively few distance
+/// computations. The "farthestPair", "kMeansPlusPlus", and "maxVarianceSample" selectors spend
+/// more distance computations when a sphere is split in exchange for child spheres that overlap
+/// less, which can make searches cheaper. Which selector works best depends on the data, so
+/// measure the cost of searching your data (see SearchStats) before switching.
 public class CenterPointSelectors {
 
     /// Provides a CenterPointSelector that immediately finds two sphere center points (because the
@@ -84,6 +87,206 @@ public class CenterPointSelectors {
         }
     }
 
+    /// Provides a CenterPointSelector that approximates the two keys that are farthest apart. A
+    /// random key is chosen, then the key farthest from it, then the key farthest from that key.
+    /// The last two keys become the center points. This requires 2n distance computations.
+    ///
+    /// @param <K> The Key Type
+    /// @param randomSeed The randomSeed used to pick the first key
+    ///
+    /// @return A `CenterPointSelector<K>`
+    public static <K> CenterPointSelector<K> farthestPair(long randomSeed) {
+        return new FarthestPairSelector<>(randomSeed);
+    }
+
+    /// Provides a CenterPointSelector that picks center points like the k-means++ seeding algorithm
+    /// (with k = 2). The first center point is a random key. The second center point is a random
+    /// key chosen with probability proportional to its squared distance from the first center point.
+    /// This requires n distance computations.
+    ///
+    /// @param <K> The Key Type
+    /// @param randomSeed The randomSeed used to make the random choices
+    ///
+    /// @return A `CenterPointSelector<K>`
+    public static <K> CenterPointSelector<K> kMeansPlusPlus(long randomSeed) {
+        return new KMeansPlusPlusSelector<>(randomSeed);
+    }
+
+    /// Provides a CenterPointSelector that picks the first center point from sqrt(n) random
+    /// candidates by choosing the candidate whose distances to a random sample of keys have the
+    /// largest variance (i.e. the candidate that "sees" the data most spread out, a good vantage
+    /// point). The second center point is the sampled key farthest from the first center point.
+    /// This requires roughly n distance computations.
+    ///
+    /// @param <K> The Key Type
+    /// @param randomSeed The randomSeed used to draw the random samples
+    ///
+    /// @return A `CenterPointSelector<K>`
+    public static <K> CenterPointSelector<K> maxVarianceSample(long randomSeed) {
+        return new MaxVarianceSelector<>(randomSeed);
+    }
+
+    /// This Selector picks a random Key, then the Key farthest from it, then the Key farthest from
+    /// that.
+    private static class FarthestPairSelector<K> implements CenterPointSelector<K> {
+
+        private final Random rng;
+
+        private FarthestPairSelector(long seed) {
+            this.rng = new Random(seed);
+        }
+
+        @Override
+        public Pair<K> selectNewCenterPoints(List<K> keys, DistanceMetric<K> metric) {
+            checkArgument(keys.size() >= 2);
+
+            int start = rng.nextInt(keys.size());
+            int first = indexOfFarthestKey(keys, start, metric);
+            int second = indexOfFarthestKey(keys, first, metric);
+
+            return new Pair<>(keys.get(first), keys.get(second));
+        }
+    }
+
+    /// This Selector picks 2 Keys using the k-means++ seeding algorithm.
+    private static class KMeansPlusPlusSelector<K> implements CenterPointSelector<K> {
+
+        private final Random rng;
+
+        private KMeansPlusPlusSelector(long seed) {
+            this.rng = new Random(seed);
+        }
+
+        @Override
+        public Pair<K> selectNewCenterPoints(List<K> keys, DistanceMetric<K> metric) {
+            checkArgument(keys.size() >= 2);
+
+            int n = keys.size();
+            int first = rng.nextInt(n);
+            K firstKey = keys.get(first);
+
+            double[] cumulativeWeight = new double[n];
+            double totalWeight = 0;
+            for (int i = 0; i < n; i++) {
+                double dist = (i == first) ? 0 : metric.distanceBtw(firstKey, keys.get(i));
+                totalWeight += dist * dist;
+                cumulativeWeight[i] = totalWeight;
+            }
+
+            if (totalWeight == 0) {
+                // every key is at the same location, any other key will do
+                return selectRandomPairOfKeys(keys, rng);
+            }
+
+            // find the first key whose cumulative weight exceeds a random threshold
+            double threshold = rng.nextDouble() * totalWeight;
+            int second = 0;
+            while (second < n - 1 && cumulativeWeight[second] <= threshold) {
+                second++;
+            }
+
+            // the first key has zero weight, it can only be found when rounding put it at the end
+            if (second == first) {
+                second = indexOfFarthestKey(keys, first, metric);
+            }
+
+            return new Pair<>(firstKey, keys.get(second));
+        }
+    }
+
+    /// This Selector picks the sampled Key whose distances to other sampled Keys vary the most.
+    private static class MaxVarianceSelector<K> implements CenterPointSelector<K> {
+
+        private final Random rng;
+
+        private MaxVarianceSelector(long seed) {
+            this.rng = new Random(seed);
+        }
+
+        @Override
+        public Pair<K> selectNewCenterPoints(List<K> keys, DistanceMetric<K> metric) {
+            checkArgument(keys.size() >= 2);
+
+            int n = keys.size();
+            int sampleSize = Math.max(2, (int) Math.sqrt(n)); // sqrt keeps the cost near n
+            int[] candidates = randomIndices(n, sampleSize, rng);
+            int[] sample = randomIndices(n, sampleSize, rng);
+
+            int bestCandidate = candidates[0];
+            double bestVariance = -1;
+            for (int candidate : candidates) {
+                K candidateKey = keys.get(candidate);
+
+                // compute the variance of the distances in one pass
+                double sum = 0;
+                double sumOfSquares = 0;
+                for (int i : sample) {
+                    double dist = metric.distanceBtw(candidateKey, keys.get(i));
+                    sum += dist;
+                    sumOfSquares += dist * dist;
+                }
+                double mean = sum / sample.length;
+                double variance = sumOfSquares / sample.length - mean * mean;
+
+                if (variance > bestVariance) {
+                    bestCandidate = candidate;
+                    bestVariance = variance;
+                }
+            }
+
+            // the second center is the sampled key farthest from the first center
+            K firstKey = keys.get(bestCandidate);
+            int second = -1;
+            double biggestDistance = -1;
+            for (int i : sample) {
+                if (i == bestCandidate) {
+                    continue;
+                }
+                double dist = metric.distanceBtw(firstKey, keys.get(i));
+                if (dist > biggestDistance) {
+                    second = i;
+                    biggestDistance = dist;
+                }
+            }
+
+            // the sample can only be exhausted when it contains nothing but the first center
+            if (second == -1) {
+                second = indexOfFarthestKey(keys, bestCandidate, metric);
+            }
+
+            return new Pair<>(firstKey, keys.get(second));
+        }
+    }
+
+    /// @return The index of the key that is farthest from keys.get(from). The returned index never
+    ///     equals "from" (even when every key is at the same location).
+    private static <KEY> int indexOfFarthestKey(List<KEY> keys, int from, DistanceMetric<KEY> metric) {
+
+        KEY fromKey = keys.get(from);
+        int farthest = -1;
+        double biggestDistance = -1;
+        for (int i = 0; i < keys.size(); i++) {
+            if (i == from) {
+                continue;
+            }
+            double dist = metric.distanceBtw(fromKey, keys.get(i));
+            if (dist > biggestDistance) {
+                farthest = i;
+                biggestDistance = dist;
+            }
+        }
+        return farthest;
+    }
+
+    /// @return "count" random indices in the range [0, n) (duplicates are possible).
+    private static int[] randomIndices(int n, int count, Random rng) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = rng.nextInt(n);
+        }
+        return indices;
+    }
+
     private static <KEY> Pair<KEY> selectRandomPairOfKeys(List<KEY> keys, Random rng) {
 
         // pick 2 random -- and unique -- index values
@@ -0,0 +1,361 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.github.jon1van.collect.CenterPointSelectors.maxOfRandomSamples;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/// A ConcurrentMetricTree is a thread-safe version of a MetricTree.
+///
+/// A ConcurrentMetricTree is designed for "read-mostly" workloads in which many threads perform
+/// searches (getClosest, getNClosest, getAllWithinRange) while a few threads insert or remove
+/// entries. Any number of searches can run at the same time because searches only acquire the read
+/// lock of a StampedLock. Operations that modify the tree (put, remove, clear) acquire the write
+/// lock, so a search waits while a modification is in progress (and a StampedLock makes newly
+/// arriving searches wait behind a waiting writer). These modifications are brief (the typical put
+/// visits one path from the root to a leaf), so searches are only blocked briefly.
+///
+/// Rebalancing is the exception. Rebuilding a large tree can take a long time, so rebalance() does
+/// not hold any lock while the replacement tree is built. It copies the entries while holding the
+/// read lock (this copy does not compute any distances), builds the replacement tree without a
+/// lock, and then acquires the write lock to replay the modifications that were made during the
+/// build and to swap the new tree in. Searches and modifications continue while the new tree is
+/// built.
+///
+/// Note: The optimistic read mode of the StampedLock is purposefully not used. The Spheres and
+/// HashMaps inside a MetricTree are not safe to read while they are being modified, even when the
+/// result of the read would eventually be discarded.
+///
+/// @param <K> The Keys, these keys are stored in HashMaps, so their hashcode() and equals() methods
+///            must be defined correctly.
+/// @param <V> The Values
+public class ConcurrentMetricTree<K, V> {
+
+    private static final int DEFAULT_SPHERE_SIZE = 50;
+
+    private final StampedLock lock = new StampedLock();
+
+    /// The tree being protected, this reference is replaced when the tree is rebalanced.
+    private MetricTree<K, V> tree;
+
+    /// Only one rebalance can run at a time.
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    /// The modifications made while rebalance() builds a replacement tree (null when no rebalance is
+    /// running). Guarded by the write lock.
+    private List<Consumer<MetricTree<K, V>>> writesDuringRebalance = null;
+
+    /// Create a new ConcurrentMetricTree that uses the default values for the maxSphereSize and
+    /// centerPointSelector.
+    ///
+    /// @param metric A DistanceMetric that can measure the distance between two Keys. This
+    ///               DistanceMetric must be thread-safe.
+    public ConcurrentMetricTree(DistanceMetric<K> metric) {
+        this(metric, DEFAULT_SPHERE_SIZE);
+    }
+
+    public ConcurrentMetricTree(DistanceMetric<K> metric, int maxSphereSize) {
+        this(metric, maxSphereSize, maxOfRandomSamples());
+    }
+
+    public ConcurrentMetricTree(DistanceMetric<K> metric, int maxSphereSize, CenterPointSelector<K> selector) {
+        this(new MetricTree<>(metric, maxSphereSize, selector));
+    }
+
+    private ConcurrentMetricTree(MetricTree<K, V> tree) {
+        this.tree = tree;
+    }
+
+    /// Build a ConcurrentMetricTree that contains every entry in a Map (see MetricTree.bulkLoad).
+    ///
+    /// @param data   The entries to put in the new ConcurrentMetricTree
+    /// @param metric A DistanceMetric that can measure the distance between two Keys. This
+    ///               DistanceMetric must be thread-safe.
+    ///
+    /// @return A balanced ConcurrentMetricTree
+    public static <K, V> ConcurrentMetricTree<K, V> bulkLoad(
+            Map<? extends K, ? extends V> data, DistanceMetric<K> metric) {
+        return new ConcurrentMetricTree<>(MetricTree.bulkLoad(data, metric));
+    }
+
+    public final DistanceMetric<K> metric() {
+        return read(() -> tree.metric());
+    }
+
+    /// Associates the specified value with the specified key in this map (see MetricTree.put).
+    ///
+    /// @param key   key with which the specified value is to be associated
+    /// @param value value to be associated with the specified key
+    ///
+    /// @return the previous value associated with key, or null if there was no prior mapping for the
+    ///     key.
+    public V put(K key, V value) {
+        return write(t -> t.put(key, value));
+    }
+
+    /// Put every entry in this map while holding the write lock once.
+    ///
+    /// @param map A Map of valid input.
+    public void putAll(Map<? extends K, ? extends V> map) {
+        checkNotNull(map);
+        // copied because a rebalance may need to replay this putAll after it returns
+        Map<K, V> entries = new LinkedHashMap<>(map);
+        write(t -> {
+            t.putAll(entries);
+            return null;
+        });
+    }
+
+    /// Remove the value associated with a particular Key (see MetricTree.remove).
+    ///
+    /// @param exactKey Cannot be null
+    ///
+    /// @return The Value paired with the exact key (or null if no match is found).
+    public V remove(K exactKey) {
+        return write(t -> t.remove(exactKey));
+    }
+
+    public void clear() {
+        write(t -> {
+            t.clear();
+            return null;
+        });
+    }
+
+    /// @return The number of entries in this Map.
+    public int size() {
+        return read(() -> tree.size());
+    }
+
+    public boolean isEmpty() {
+        return read(() -> tree.isEmpty());
+    }
+
+    public boolean containsKey(K key) {
+        return read(() -> tree.containsKey(key));
+    }
+
+    /// Search for an exact key match.
+    ///
+    /// @param exactKey The exact key being searched for. Null is not permitted.
+    ///
+    /// @return The value paired with the exact key or null.
+    public V get(K exactKey) {
+        return read(() -> tree.get(exactKey));
+    }
+
+    /// Perform a kNN search where k = 1.
+    ///
+    /// @param searchKey The point-in-space from which the closest entry is found
+    ///
+    /// @return The Key/Value Result with the minimum distance to the search key
+    public SearchResult<K, V> getClosest(K searchKey) {
+        return read(() -> tree.getClosest(searchKey));
+    }
+
+    /// Perform a kNN search with arbitrary k.
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    ///
+    /// @return A collection of n Key/Value Results with the smallest distances to the search key
+    public SearchResults<K, V> getNClosest(K searchKey, int n) {
+        return read(() -> tree.getNClosest(searchKey, n));
+    }
+
+    /// Perform a kNN search that writes its results into a reusable buffer (see
+    /// MetricTree.getNClosest(searchKey, n, results)).
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    /// @param results   A buffer that is cleared and then filled with (up to) n entries sorted by
+    ///                  distance (closest first)
+    public void getNClosest(K searchKey, int n, ResultBuffer<K, V> results) {
+        read(() -> {
+            tree.getNClosest(searchKey, n, results);
+            return null;
+        });
+    }
+
+    /// Perform an approximate kNN search (see MetricTree.getNClosestApprox).
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    /// @param epsilon   The allowed relative error (0 = an exact search)
+    ///
+    /// @return Up to n Key/Value Results, SearchResults.isExact() reports if the results are
+    ///     guaranteed to be exact
+    public SearchResults<K, V> getNClosestApprox(K searchKey, int n, double epsilon) {
+        return read(() -> tree.getNClosestApprox(searchKey, n, epsilon));
+    }
+
+    /// Perform an approximate kNN search with a bounded amount of work (see
+    /// MetricTree.getNClosestApprox).
+    ///
+    /// @param searchKey        The point-in-space from which the closest entries are found
+    /// @param n                The number of entries to search for
+    /// @param epsilon          The allowed relative error (0 = no error)
+    /// @param maxDistanceCalls The work budget of the search
+    ///
+    /// @return Up to n Key/Value Results, SearchResults.isExact() reports if the results are
+    ///     guaranteed to be exact
+    public SearchResults<K, V> getNClosestApprox(K searchKey, int n, double epsilon, int maxDistanceCalls) {
+        return read(() -> tree.getNClosestApprox(searchKey, n, epsilon, maxDistanceCalls));
+    }
+
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param range     The distance below which all entries are included in the output.
+    ///
+    /// @return A Result for all keys within this range of the key.
+    public SearchResults<K, V> getAllWithinRange(K searchKey, double range) {
+        return read(() -> tree.getAllWithinRange(searchKey, range));
+    }
+
+    /// Perform many kNN searches at once (see MetricTree.getNClosestBatch). Writers are blocked
+    /// until the entire batch completes.
+    ///
+    /// @param searchKeys The points-in-space from which the closest entries are found
+    /// @param n          The number of entries to search for (per search key)
+    /// @param pool       The ForkJoinPool that executes the searches
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SearchResults<K, V>> getNClosestBatch(List<K> searchKeys, int n, ForkJoinPool pool) {
+        return read(() -> tree.getNClosestBatch(searchKeys, n, pool));
+    }
+
+    /// Perform many range searches at once (see MetricTree.getAllWithinRangeBatch). Writers are
+    /// blocked until the entire batch completes.
+    ///
+    /// @param searchKeys The points-in-space from which the nearby entries are found
+    /// @param range      The distance below which all entries are included in the output.
+    /// @param pool       The ForkJoinPool that executes the searches
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SearchResults<K, V>> getAllWithinRangeBatch(List<K> searchKeys, double range, ForkJoinPool pool) {
+        return read(() -> tree.getAllWithinRangeBatch(searchKeys, range, pool));
+    }
+
+    /// @return A snapshot of the keys in this tree (future modifications are not reflected).
+    public Set<K> keySet() {
+        return read(() -> new HashSet<>(tree.keySet()));
+    }
+
+    /// @return A snapshot of the entries in this tree (future modifications are not reflected).
+    public Map<K, V> toMap() {
+        return read(() -> {
+            Map<K, V> copy = new HashMap<>();
+            for (Map.Entry<K, V> entry : tree.entrySet()) {
+                copy.put(entry.getKey(), entry.getValue());
+            }
+            return copy;
+        });
+    }
+
+    /// @return The number of different spheres used to contain this data.
+    public int sphereCount() {
+        return read(() -> tree.sphereCount());
+    }
+
+    /// @return How much this tree has degraded due to removals (see MetricTree.fragmentation()).
+    public double fragmentation() {
+        return read(() -> tree.fragmentation());
+    }
+
+    /// Rebuild this tree using MetricTree.makeBalancedCopy(). Searches and modifications can continue
+    /// while the new tree is built.
+    public void rebalance() {
+        rebalance(ParallelBuild.sequential());
+    }
+
+    /// Rebuild this tree using MetricTree.makeBalancedCopy(parallelism). Searches and modifications
+    /// can continue while the new tree is built. Modifications made during the build are replayed on
+    /// the new tree (while holding the write lock) before it replaces the current tree.
+    ///
+    /// @param parallelism Controls how the work of building the tree is divided between threads
+    public void rebalance(ParallelBuild parallelism) {
+        checkNotNull(parallelism);
+
+        rebalanceLock.lock();
+        try {
+            MetricTree<K, V> replacement;
+            Object[] keys;
+            Object[] values;
+
+            // copy the entries (no distances are computed) and start recording modifications
+            long stamp = lock.readLock();
+            try {
+                replacement = tree.emptyCopy();
+                keys = new Object[tree.size()];
+                values = new Object[tree.size()];
+                int i = 0;
+                // an empty MetricTree has no root Sphere to walk
+                if (!tree.isEmpty()) {
+                    for (Map.Entry<K, V> entry : tree.entrySet()) {
+                        keys[i] = entry.getKey();
+                        values[i] = entry.getValue();
+                        i++;
+                    }
+                }
+                // safe while holding the read lock because only writers use this field
+                writesDuringRebalance = new ArrayList<>();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            boolean built = false;
+            try {
+                // the slow part, no lock is held
+                replacement.bulkLoad(keys, values, parallelism);
+                built = true;
+            } finally {
+                stamp = lock.writeLock();
+                try {
+                    if (built) {
+                        writesDuringRebalance.forEach(modification -> modification.accept(replacement));
+                        tree = replacement;
+                    }
+                } finally {
+                    writesDuringRebalance = null;
+                    lock.unlockWrite(stamp);
+                }
+            }
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    private <T> T read(Supplier<T> operation) {
+        long stamp = lock.readLock();
+        try {
+            return operation.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T write(Function<MetricTree<K, V>, T> operation) {
+        long stamp = lock.writeLock();
+        try {
+            T result = operation.apply(tree);
+            // only writes that succeeded are replayed on the replacement tree
+            if (writesDuringRebalance != null) {
+                writesDuringRebalance.add(operation::apply);
+            }
+            return result;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
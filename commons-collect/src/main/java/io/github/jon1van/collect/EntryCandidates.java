@@ -0,0 +1,131 @@
+package io.github.jon1van.collect;
+
+import java.util.Arrays;
+
+/// EntryCandidates collects the entries found during a search as (entry index, distance) pairs held
+/// in primitive arrays. A kNN search keeps the candidates in a max-heap (so the worst candidate
+/// is always at index 0). A range search simply appends every entry within range. SearchResult
+/// objects are only created for the final results.
+///
+/// This class is package private because it is an implementation detail of the FrozenMetricTree,
+/// MappedMetricTree, and MappedMetricSet classes.
+final class EntryCandidates {
+
+    private final boolean isKnn;
+
+    private final int maxNumResults;
+
+    private final double fixedRadius;
+
+    private int[] entries;
+
+    private double[] distances;
+
+    private int size = 0;
+
+    /// Collect the k-nearest neighbors.
+    EntryCandidates(int initialCapacity, int maxNumResults) {
+        this.isKnn = true;
+        this.maxNumResults = maxNumResults;
+        this.fixedRadius = Double.POSITIVE_INFINITY;
+        this.entries = new int[Math.max(initialCapacity, 1)];
+        this.distances = new double[entries.length];
+    }
+
+    /// Collect every entry within range.
+    EntryCandidates(int initialCapacity, double range) {
+        this.isKnn = false;
+        this.maxNumResults = Integer.MAX_VALUE;
+        this.fixedRadius = range;
+        this.entries = new int[initialCapacity];
+        this.distances = new double[initialCapacity];
+    }
+
+    /// @return The "inclusion radius" (the distance a new entry must beat to be included).
+    double radius() {
+        if (!isKnn) {
+            return fixedRadius;
+        }
+        return (size < maxNumResults) ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    void offer(int entry, double distance) {
+        if (distance > radius()) {
+            return;
+        }
+        if (!isKnn) {
+            append(entry, distance);
+        } else if (size < maxNumResults) {
+            append(entry, distance);
+            siftUp(size - 1);
+        } else {
+            // replace the worst candidate
+            entries[0] = entry;
+            distances[0] = distance;
+            siftDown(0);
+        }
+    }
+
+    private void append(int entry, double distance) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        entries[size] = entry;
+        distances[size] = distance;
+        size++;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (distances[parent] >= distances[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            int right = left + 1;
+            int largest = i;
+            if (left < size && distances[left] > distances[largest]) {
+                largest = left;
+            }
+            if (right < size && distances[right] > distances[largest]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tempEntry = entries[i];
+        entries[i] = entries[j];
+        entries[j] = tempEntry;
+        double tempDist = distances[i];
+        distances[i] = distances[j];
+        distances[j] = tempDist;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /// @return The index of the i-th candidate entry (candidates are not sorted).
+    int entry(int i) {
+        return entries[i];
+    }
+
+    /// @return The distance to the i-th candidate entry.
+    double distance(int i) {
+        return distances[i];
+    }
+}
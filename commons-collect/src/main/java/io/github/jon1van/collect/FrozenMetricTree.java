@@ -0,0 +1,318 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/// A FrozenMetricTree is an immutable snapshot of a MetricTree (see MetricTree.freeze()).
+///
+/// A MetricTree is built from Sphere objects that each own a LeafEntries (parallel arrays of keys,
+/// values, and distances to the Sphere's center point) or a Pair of child Spheres. That layout makes
+/// insertion cheap, but searches must hop from Sphere object to Sphere object, each leaf's arrays
+/// live in their own part of the heap, and the tree's global HashMap costs a node and a
+/// SphereAssignment per entry. A FrozenMetricTree stores the exact same tree in a handful of flat
+/// arrays instead:
+///
+/// - The spheres are stored in depth-first order. Sphere i's center point and radius are found at
+///   index i of the "centers" and "radii" arrays. The first child of an inner sphere is always
+///   sphere i + 1, the index of the second child is stored in the "secondChild" array.
+/// - The keys and values of every leaf sphere are stored contiguously in the "keys" and "values"
+///   arrays. Leaf sphere i owns the range [entryFrom[i], entryTo[i]) of these arrays.
+/// - The distance from each key to the center point of its leaf sphere is stored in the
+///   "distToLeafCenter" array. Searches use these distances to skip entries without calling the
+///   DistanceMetric (just like a MetricTree search).
+///
+/// Searches over this layout visit memory sequentially and only allocate a few small working
+/// arrays. Additionally, each search measures the distance to a sphere's center point exactly once
+/// (a MetricTree search measures it twice, once to order the children and again when the child is
+/// visited).
+///
+/// A FrozenMetricTree does not support exact-key lookup (i.e. get(K)) because that would require
+/// keeping a HashMap of every key, which is the overhead this class is designed to avoid.
+///
+/// @param <K> The Keys
+/// @param <V> The Values
+public final class FrozenMetricTree<K, V> {
+
+    /// Marks a sphere in the secondChild array as a "Sphere of Points" (i.e. a leaf).
+    private static final int NO_CHILD = -1;
+
+    /// The distance metric governing the space of Keys (K).
+    private final DistanceMetric<K> metric;
+
+    /// The center point of each sphere.
+    private final Object[] centers;
+
+    /// The radius of each sphere.
+    private final double[] radii;
+
+    /// The index of each sphere's second child (or NO_CHILD for leaf spheres).
+    private final int[] secondChild;
+
+    /// The index of the first entry owned by each leaf sphere.
+    private final int[] entryFrom;
+
+    /// The index after the last entry owned by each leaf sphere.
+    private final int[] entryTo;
+
+    /// The keys of every entry, grouped by leaf sphere.
+    private final Object[] keys;
+
+    /// The values of every entry, grouped by leaf sphere.
+    private final Object[] values;
+
+    /// The distance between each key and the center point of its leaf sphere.
+    private final double[] distToLeafCenter;
+
+    /// The depth of the deepest sphere, this bounds the size of the stack used during searches.
+    private final int maxDepth;
+
+    /// Copy the structure of the tree beneath this root (which may be null when the tree is empty).
+    FrozenMetricTree(DistanceMetric<K> metric, MetricTree<K, V>.Sphere root, int numEntries) {
+        this.metric = requireNonNull(metric);
+
+        int numSpheres = countSpheres(root);
+        this.centers = new Object[numSpheres];
+        this.radii = new double[numSpheres];
+        this.secondChild = new int[numSpheres];
+        this.entryFrom = new int[numSpheres];
+        this.entryTo = new int[numSpheres];
+        this.keys = new Object[numEntries];
+        this.values = new Object[numEntries];
+        this.distToLeafCenter = new double[numEntries];
+
+        this.maxDepth = (root == null) ? 0 : layout(root);
+
+        if (numEntries != 0 && entryTo[lastLeaf()] != numEntries) {
+            throw new AssertionError("The number of entries found in the tree did not match the expected size");
+        }
+    }
+
+    public DistanceMetric<K> metric() {
+        return this.metric;
+    }
+
+    /// @return The number of entries in this tree.
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /// @return The number of different spheres used to contain this data (this will match the
+    ///     sphereCount of the MetricTree this snapshot was made from).
+    public int sphereCount() {
+        return centers.length;
+    }
+
+    /// Write this tree (its structure, keys, and values) to a compact binary file. The file can be
+    /// searched without rebuilding the tree by calling MappedMetricTree.open(...).
+    ///
+    /// @param file       The file being written (an existing file is replaced)
+    /// @param keyCodec   Converts keys to bytes (see BinaryCodecs)
+    /// @param valueCodec Converts values to bytes (see BinaryCodecs)
+    ///
+    /// @throws IOException When the file cannot be written
+    public void writeTo(Path file, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec) throws IOException {
+        requireNonNull(file);
+        requireNonNull(keyCodec);
+        requireNonNull(valueCodec);
+
+        MetricTreeFile.Layout layout = new MetricTreeFile.Layout(
+                centers, radii, secondChild, entryFrom, entryTo, keys, values, distToLeafCenter, maxDepth);
+        MetricTreeFile.write(file, layout, keyCodec, valueCodec);
+    }
+
+    /// Perform a kNN search where k = 1.
+    ///
+    /// @param searchKey The point-in-space from which the closest entry is found
+    ///
+    /// @return The Key/Value Result with the minimum distance to the search key
+    public SearchResult<K, V> getClosest(K searchKey) {
+        return getNClosest(searchKey, 1).result(0);
+    }
+
+    /// Perform a kNN search with arbitrary k.
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    ///
+    /// @return A collection of n Key/Value Results with the smallest distances to the search key
+    public SearchResults<K, V> getNClosest(K searchKey, int n) {
+        requireNonNull(searchKey);
+        checkArgument(n > 0, "n must be at least 1");
+
+        EntryCandidates found = new EntryCandidates(Math.min(n, size()), n);
+        search(searchKey, found);
+        return toResults(found, searchKey);
+    }
+
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param range     The distance below which all entries are included in the output.
+    ///
+    /// @return A Result for all keys within this range of the key.
+    public SearchResults<K, V> getAllWithinRange(K searchKey, double range) {
+        requireNonNull(searchKey);
+        checkArgument(range > 0, "range must be strictly positive");
+
+        EntryCandidates found = new EntryCandidates(16, range);
+        search(searchKey, found);
+        return toResults(found, searchKey);
+    }
+
+    /*
+     * Note: This search process cannot be written as a recursive search. Searching recursivly can
+     * produce a StackoverflowError when the underlying tree is deeper than the JVM's internal stack
+     */
+    @SuppressWarnings("unchecked")
+    private void search(K searchKey, EntryCandidates found) {
+
+        if (isEmpty()) {
+            return;
+        }
+
+        // each stack entry is a sphere and the (already computed) distance to its center point
+        int[] sphereStack = new int[maxDepth + 2];
+        double[] distStack = new double[maxDepth + 2];
+        int stackSize = 0;
+
+        sphereStack[stackSize] = 0;
+        distStack[stackSize] = metric.distanceBtw(searchKey, (K) centers[0]);
+        stackSize++;
+
+        while (stackSize > 0) {
+            stackSize--;
+            int sphere = sphereStack[stackSize];
+            double distToCenter = distStack[stackSize];
+
+            // ignore this sphere (and all its sub-trees) when it cannot improve the current result
+            if (radii[sphere] + found.radius() - distToCenter < 0) {
+                continue;
+            }
+
+            if (secondChild[sphere] == NO_CHILD) {
+                for (int i = entryFrom[sphere]; i < entryTo[sphere]; i++) {
+                    // the triangle inequality bounds the distance to this entry without calling the metric
+                    if (Math.abs(distToCenter - distToLeafCenter[i]) <= found.radius()) {
+                        found.offer(i, metric.distanceBtw(searchKey, (K) keys[i]));
+                    }
+                }
+            } else {
+                int first = sphere + 1;
+                int second = secondChild[sphere];
+                double firstDist = metric.distanceBtw(searchKey, (K) centers[first]);
+                double secondDist = metric.distanceBtw(searchKey, (K) centers[second]);
+
+                // Submit the closest sphere second so it is popped first (this increases the chance
+                // we can skip items in the sphere that is further away).
+                if (firstDist < secondDist) {
+                    sphereStack[stackSize] = second;
+                    distStack[stackSize++] = secondDist;
+                    sphereStack[stackSize] = first;
+                    distStack[stackSize++] = firstDist;
+                } else {
+                    sphereStack[stackSize] = first;
+                    distStack[stackSize++] = firstDist;
+                    sphereStack[stackSize] = second;
+                    distStack[stackSize++] = secondDist;
+                }
+            }
+        }
+    }
+
+    /// Copy the spheres and entries beneath this root into the flat arrays (in depth-first order).
+    ///
+    /// @return The depth of the deepest sphere
+    private int layout(MetricTree<K, V>.Sphere root) {
+
+        // each stack entry is a sphere, its depth, and (for second children) the parent's index
+        Deque<MetricTree<K, V>.Sphere> spheres = new ArrayDeque<>();
+        Deque<int[]> depthAndParent = new ArrayDeque<>();
+        spheres.push(root);
+        depthAndParent.push(new int[] {0, NO_CHILD});
+
+        int deepest = 0;
+        int nextSphere = 0;
+        int nextEntry = 0;
+
+        while (!spheres.isEmpty()) {
+            MetricTree<K, V>.Sphere sphere = spheres.pop();
+            int[] info = depthAndParent.pop();
+            int depth = info[0];
+            int parent = info[1];
+
+            int index = nextSphere++;
+            deepest = Math.max(deepest, depth);
+            centers[index] = sphere.centerPoint;
+            radii[index] = sphere.radius();
+            if (parent != NO_CHILD) {
+                secondChild[parent] = index;
+            }
+
+            if (sphere.isSphereOfPoints()) {
+                secondChild[index] = NO_CHILD;
+                entryFrom[index] = nextEntry;
+                LeafEntries<K, V> entries = sphere.points();
+                for (int i = 0; i < entries.size(); i++) {
+                    keys[nextEntry] = entries.keyAt(i);
+                    values[nextEntry] = entries.valueAt(i);
+                    distToLeafCenter[nextEntry] = entries.distToCenterAt(i);
+                    nextEntry++;
+                }
+                entryTo[index] = nextEntry;
+            } else {
+                // push the second child first so the first child is assigned index + 1
+                spheres.push(sphere.children().second());
+                depthAndParent.push(new int[] {depth + 1, index});
+                spheres.push(sphere.children().first());
+                depthAndParent.push(new int[] {depth + 1, NO_CHILD});
+            }
+        }
+        return deepest;
+    }
+
+    /// @return The index of the last leaf sphere (which owns the last range of entries).
+    private int lastLeaf() {
+        int sphere = 0;
+        while (secondChild[sphere] != NO_CHILD) {
+            sphere = secondChild[sphere];
+        }
+        return sphere;
+    }
+
+    private static int countSpheres(MetricTree<?, ?>.Sphere root) {
+        if (root == null) {
+            return 0;
+        }
+        int count = 0;
+        Deque<MetricTree<?, ?>.Sphere> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            MetricTree<?, ?>.Sphere sphere = stack.pop();
+            count++;
+            if (sphere.isSphereOfSpheres()) {
+                stack.push(sphere.children().first());
+                stack.push(sphere.children().second());
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchResults<K, V> toResults(EntryCandidates found, K searchKey) {
+        List<SearchResult<K, V>> results = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            int entry = found.entry(i);
+            results.add(new SearchResult<>((K) keys[entry], (V) values[entry], found.distance(i)));
+        }
+        return new SearchResults<>(searchKey, results);
+    }
+}
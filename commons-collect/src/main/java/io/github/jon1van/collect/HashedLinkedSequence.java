@@ -13,6 +13,9 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 
 import com.google.common.collect.Iterators;
 
@@ -213,6 +216,108 @@ public class HashedLinkedSequence<T> implements Collection<T>, Set<T> {
         modCount++;
     }
 
+    /// Insert several new elements (in order) immediately after an existing element. The new
+    /// elements are linked to each other first and then spliced into this sequence in one step.
+    ///
+    /// @param newItems     The elements to insert (none of which can already be in this sequence)
+    /// @param existingItem The element that will precede the first new element
+    ///
+    /// @throws IllegalArgumentException when the existingItem is missing or a new element is a
+    ///                                  duplicate (in which case this sequence is not modified)
+    public void insertAllAfter(Collection<? extends T> newItems, T existingItem) {
+        checkNotNull(newItems);
+        Node<T> anchorNode = nodes.get(existingItem);
+        checkArgument(anchorNode != null, ITEM_NOT_FOUND_WARNING);
+        if (newItems.isEmpty()) {
+            return;
+        }
+
+        // build the chain of new nodes before touching the existing links
+        Node<T> chainFirst = null;
+        Node<T> chainLast = null;
+        for (T item : newItems) {
+            Node<T> newNode = new Node<>(chainLast, item, null);
+            if (item == null || nodes.putIfAbsent(item, newNode) != null) {
+                // undo the partial insertion so a failed call has no effect
+                for (Node<T> x = chainFirst; x != null; x = x.next) {
+                    nodes.remove(x.item);
+                }
+                checkNotNull(item);
+                throw new IllegalArgumentException(DUPLICATE_ELEMENT_WARNING);
+            }
+            if (chainLast == null) {
+                chainFirst = newNode;
+            } else {
+                chainLast.next = newNode;
+            }
+            chainLast = newNode;
+        }
+
+        // splice the chain in after the anchor
+        Node<T> after = anchorNode.next;
+        anchorNode.next = chainFirst;
+        chainFirst.previous = anchorNode;
+        chainLast.next = after;
+        if (after == null) {
+            lastNode = chainLast;
+        } else {
+            after.previous = chainLast;
+        }
+
+        modCount++;
+    }
+
+    /// Remove every element from one element to another (both inclusive). The elements before and
+    /// after the removed range are linked to each other once (rather than once per removed element).
+    ///
+    /// @param fromItem The first element to remove
+    /// @param toItem   The last element to remove, this element cannot precede the fromItem
+    ///
+    /// @return The number of elements removed
+    /// @throws IllegalArgumentException when either element is missing or the toItem precedes the
+    ///                                  fromItem (in which case this sequence is not modified)
+    public int removeRange(T fromItem, T toItem) {
+        Node<T> fromNode = nodes.get(fromItem);
+        Node<T> toNode = nodes.get(toItem);
+        checkArgument(fromNode != null && toNode != null, ITEM_NOT_FOUND_WARNING);
+
+        // confirm the range is valid before modifying anything
+        int count = 1;
+        Node<T> x = fromNode;
+        while (x != toNode) {
+            x = x.next;
+            checkArgument(x != null, "The toItem cannot precede the fromItem");
+            count++;
+        }
+
+        Node<T> before = fromNode.previous;
+        Node<T> after = toNode.next;
+        if (before == null) {
+            firstNode = after;
+        } else {
+            before.next = after;
+        }
+        if (after == null) {
+            lastNode = before;
+        } else {
+            after.previous = before;
+        }
+
+        // forget the removed nodes
+        x = fromNode;
+        while (x != after) {
+            Node<T> next = x.next;
+            nodes.remove(x.item);
+            x.item = null;
+            x.previous = null;
+            x.next = null;
+            x = next;
+        }
+
+        modCount++;
+        return count;
+    }
+
     /// Returns the first element in this list.
     ///
     /// @return the first element in this list
@@ -255,6 +360,14 @@ public class HashedLinkedSequence<T> implements Collection<T>, Set<T> {
         return new Iter(firstNode);
     }
 
+    /// @return A Spliterator that reports the ORDERED, DISTINCT, SIZED, SUBSIZED, and NONNULL
+    ///     characteristics (so streams of this sequence know their size) and splits by copying
+    ///     batches of elements into arrays (so parallel streams can divide the work).
+    @Override
+    public Spliterator<T> spliterator() {
+        return new SequenceSpliterator(firstNode, size());
+    }
+
     @Override
     public Object[] toArray() {
         return Iterators.toArray(iterator(), Object.class);
@@ -339,6 +452,7 @@ public class HashedLinkedSequence<T> implements Collection<T>, Set<T> {
         nodes.clear();
         firstNode = null;
         lastNode = null;
+        modCount++;
     }
 
     private T unlink(Node<T> x) {
@@ -377,6 +491,92 @@ public class HashedLinkedSequence<T> implements Collection<T>, Set<T> {
         }
     }
 
+    /// A SequenceSpliterator walks the linked nodes. Each split hands a prefix of the remaining
+    /// elements (copied into an array) to a new Spliterator. Successive splits copy larger batches
+    /// (like java.util.LinkedList's Spliterator) so large sequences are divided into a modest number
+    /// of pieces.
+    private class SequenceSpliterator implements Spliterator<T> {
+
+        private static final int BATCH_UNIT = 1 << 10;
+
+        private static final int MAX_BATCH = 1 << 25;
+
+        private static final int CHARACTERISTICS = ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL;
+
+        private Node<T> current;
+
+        private int remaining;
+
+        private int batchSize = 0;
+
+        private final int expectedModCount = modCount;
+
+        SequenceSpliterator(Node<T> start, int remaining) {
+            this.current = start;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            checkNotNull(action);
+            if (remaining <= 0) {
+                return false;
+            }
+            checkForComodification();
+            T item = current.item;
+            current = current.next;
+            remaining--;
+            action.accept(item);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            checkNotNull(action);
+            checkForComodification();
+            while (remaining > 0) {
+                T item = current.item;
+                current = current.next;
+                remaining--;
+                action.accept(item);
+            }
+            checkForComodification();
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (remaining <= 1) {
+                return null;
+            }
+            checkForComodification();
+            batchSize = Math.min(batchSize + BATCH_UNIT, MAX_BATCH);
+            int n = Math.min(batchSize, remaining);
+            Object[] batch = new Object[n];
+            for (int i = 0; i < n; i++) {
+                batch[i] = current.item;
+                current = current.next;
+            }
+            remaining -= n;
+            return Spliterators.spliterator(batch, CHARACTERISTICS);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
     private class Iter implements Iterator<T> {
 
         Node<T> currentNode;
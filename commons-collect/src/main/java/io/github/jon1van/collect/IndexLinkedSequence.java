@@ -0,0 +1,246 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/// An IndexLinkedSequence is a doubly linked list of the indices 0, 1, ..., n-1 from which indices
+/// can be removed (but never added). It is a replacement for a HashedLinkedSequence that only holds
+/// the positions of the elements of a fixed array (e.g. the points of a polyline being simplified).
+///
+/// Because the elements are small integers they are never hashed. Each index is its own "slot" in
+/// the parallel int[] prev and int[] next arrays, and a BitSet records which indices have been
+/// removed. Consequently, neighbor lookups (getElementBefore(i), getElementAfter(i)), contains(i),
+/// and remove(i) all run in constant time, iteration takes constant time per remaining index, and
+/// the whole sequence needs about 8 bytes per index (no matter how many indices are removed).
+///
+/// An IndexLinkedSequence starts "full" (it contains every index in [0, n) in order).
+public class IndexLinkedSequence implements Iterable<Integer> {
+
+    private static final String ITEM_NOT_FOUND_WARNING = "Item not found";
+
+    /// The "missing" neighbor of the first and last indices.
+    private static final int NONE = -1;
+
+    /// The index before each index (NONE for the first index).
+    private final int[] prev;
+
+    /// The index after each index (NONE for the last index).
+    private final int[] next;
+
+    private final BitSet removed;
+
+    private int first;
+
+    private int last;
+
+    private int size;
+
+    private int modCount; // used to detect concurrent modification
+
+    /// Create a sequence that contains the indices 0, 1, ..., n-1.
+    ///
+    /// @param n The number of indices in the sequence
+    public IndexLinkedSequence(int n) {
+        checkArgument(n >= 0, "n cannot be negative");
+        this.prev = new int[n];
+        this.next = new int[n];
+        for (int i = 0; i < n; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+        }
+        if (n > 0) {
+            next[n - 1] = NONE;
+        }
+        this.removed = new BitSet(n);
+        this.first = (n == 0) ? NONE : 0;
+        this.last = n - 1;
+        this.size = n;
+    }
+
+    /// @return The number of indices this sequence started with (i.e. n).
+    public int capacity() {
+        return prev.length;
+    }
+
+    /// @return The number of indices that have not been removed.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /// @return True when this index is in [0, n) and has not been removed.
+    public boolean contains(int index) {
+        return 0 <= index && index < prev.length && !removed.get(index);
+    }
+
+    /// @return the first index in this sequence
+    /// @throws NoSuchElementException if this sequence is empty
+    public int getFirst() {
+        if (first == NONE) {
+            throw new NoSuchElementException();
+        }
+        return first;
+    }
+
+    /// @return the last index in this sequence
+    /// @throws NoSuchElementException if this sequence is empty
+    public int getLast() {
+        if (last == NONE) {
+            throw new NoSuchElementException();
+        }
+        return last;
+    }
+
+    /// @return The index that precedes an index in this sequence.
+    /// @throws NoSuchElementException when the index is the first index
+    public int getElementBefore(int existingIndex) {
+        checkPresent(existingIndex);
+        if (prev[existingIndex] == NONE) {
+            throw new NoSuchElementException();
+        }
+        return prev[existingIndex];
+    }
+
+    /// @return The index that follows an index in this sequence.
+    /// @throws NoSuchElementException when the index is the last index
+    public int getElementAfter(int existingIndex) {
+        checkPresent(existingIndex);
+        if (next[existingIndex] == NONE) {
+            throw new NoSuchElementException();
+        }
+        return next[existingIndex];
+    }
+
+    /// @return True when an index is present and is not the first index.
+    public boolean hasElementBefore(int existingIndex) {
+        return contains(existingIndex) && prev[existingIndex] != NONE;
+    }
+
+    /// @return True when an index is present and is not the last index.
+    public boolean hasElementAfter(int existingIndex) {
+        return contains(existingIndex) && next[existingIndex] != NONE;
+    }
+
+    /// Remove an index and link its neighbors to each other.
+    ///
+    /// @return True when the index was present (false when it was already removed)
+    /// @throws IndexOutOfBoundsException when the index is not in [0, n)
+    public boolean remove(int index) {
+        checkElementIndex(index, prev.length);
+        if (removed.get(index)) {
+            return false;
+        }
+
+        int before = prev[index];
+        int after = next[index];
+        if (before == NONE) {
+            first = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NONE) {
+            last = before;
+        } else {
+            prev[after] = before;
+        }
+
+        removed.set(index);
+        size--;
+        modCount++;
+        return true;
+    }
+
+    /// @return The remaining indices, in order.
+    public int[] toArray() {
+        int[] array = new int[size];
+        int i = 0;
+        for (int index = first; index != NONE; index = next[index]) {
+            array[i++] = index;
+        }
+        return array;
+    }
+
+    /// @return The remaining indices as a BitSet (a copy).
+    public BitSet toBitSet() {
+        BitSet present = new BitSet(prev.length);
+        present.set(0, prev.length);
+        present.andNot(removed);
+        return present;
+    }
+
+    /// Copy the elements at the remaining indices into a new array (e.g. the points that survived a
+    /// simplification algorithm).
+    ///
+    /// @param source An array with n elements
+    ///
+    /// @return The elements of the source array whose indices remain in this sequence, in order
+    public <T> T[] retainedFrom(T[] source) {
+        checkArgument(source.length == prev.length, "The source array must have exactly n elements");
+        T[] result = Arrays.copyOf(source, size);
+        int i = 0;
+        for (int index = first; index != NONE; index = next[index]) {
+            result[i++] = source[index];
+        }
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new Iter();
+    }
+
+    private void checkPresent(int index) {
+        checkArgument(contains(index), ITEM_NOT_FOUND_WARNING);
+    }
+
+    private class Iter implements PrimitiveIterator.OfInt {
+
+        int current = first;
+        int lastReturned = NONE;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return current != NONE;
+        }
+
+        @Override
+        public int nextInt() {
+            checkForComodification();
+            if (current == NONE) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = current;
+            current = next[current];
+            return lastReturned;
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == NONE) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            IndexLinkedSequence.this.remove(lastReturned);
+
+            lastReturned = NONE; // an iterator's remove() method only works once per "next()"
+
+            expectedModCount++;
+        }
+    }
+}
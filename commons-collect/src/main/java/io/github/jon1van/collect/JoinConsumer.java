@@ -0,0 +1,16 @@
+package io.github.jon1van.collect;
+
+/// A JoinConsumer receives the output of a range join (see MetricSet.rangeJoin and
+/// MetricTree.rangeJoin) one matching pair at a time. Range joins are executed by multiple threads,
+/// so a JoinConsumer must be thread-safe.
+///
+/// @param <A> The items from the "left" side of the join
+/// @param <B> The items from the "right" side of the join
+@FunctionalInterface
+public interface JoinConsumer<A, B> {
+
+    /// @param left     An item from the left side of the join
+    /// @param right    An item from the right side of the join
+    /// @param distance The distance between the two items (never more than the join's range)
+    void accept(A left, B right, double distance);
+}
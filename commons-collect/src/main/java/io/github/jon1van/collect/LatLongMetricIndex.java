@@ -0,0 +1,515 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.requireNonNull;
+import static org.apache.commons.math3.util.FastMath.cos;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ForkJoinTask;
+
+import io.github.jon1van.units.HasLatLong;
+import io.github.jon1van.units.PackedNavigation;
+
+/// A LatLongMetricIndex is an immutable index of locations that supports k-nearest-neighbor (kNN)
+/// searches and range searches. It is a primitive-specialized alternative to a `MetricSet<LatLong>`
+/// designed for datasets with tens of millions of locations.
+///
+/// A `MetricSet<LatLong>` spends most of its memory on per-entry objects (a LatLong, a HashMap node
+/// in the globalHashMap, and a HashMap node in a Sphere). A LatLongMetricIndex stores each location
+/// as a single primitive long (see LatLong.toPrimitiveLong()), so the entire index costs about 10
+/// bytes per location. The index is built top-down (like MetricTree.bulkLoad) and laid out in flat
+/// arrays (like a FrozenMetricTree):
+///
+/// - The spheres are stored in depth-first order. The first child of an inner sphere is always
+///   sphere i + 1, the index of the second child is stored in the "secondChild" array.
+/// - The locations owned by each leaf sphere are stored contiguously in the "locations" array.
+///
+/// Distances are great circle distances measured in Nautical Miles. They are computed by
+/// PackedNavigation directly from the integers encoded in each primitive long. No LatLong objects
+/// are created during a search, and search results are written into a reusable
+/// LatLongResultBuffer.
+///
+/// Duplicate locations are retained (i.e. this index is not a Set).
+public final class LatLongMetricIndex {
+
+    /// How many locations a leaf sphere can contain.
+    public static final int DEFAULT_LEAF_SIZE = 32;
+
+    /// Marks a sphere in the secondChild array as a leaf.
+    private static final int NO_CHILD = -1;
+
+    /// Every location, grouped by leaf sphere.
+    private final long[] locations;
+
+    /// The center point of each sphere.
+    private final long[] centers;
+
+    /// The radius of each sphere (in Nautical Miles).
+    private final double[] radii;
+
+    /// The index of each sphere's second child (or NO_CHILD for leaf spheres).
+    private final int[] secondChild;
+
+    /// The index of the first location owned by each leaf sphere.
+    private final int[] entryFrom;
+
+    /// The index after the last location owned by each leaf sphere.
+    private final int[] entryTo;
+
+    /// The depth of the deepest sphere, this bounds the size of the stack used during searches.
+    private final int maxDepth;
+
+    private LatLongMetricIndex(long[] locations, Node root) {
+        this.locations = locations;
+
+        int[] numSpheresAndDepth = countSpheres(root);
+        int numSpheres = numSpheresAndDepth[0];
+        this.maxDepth = numSpheresAndDepth[1];
+        this.centers = new long[numSpheres];
+        this.radii = new double[numSpheres];
+        this.secondChild = new int[numSpheres];
+        this.entryFrom = new int[numSpheres];
+        this.entryTo = new int[numSpheres];
+
+        if (root != null) {
+            layout(root);
+        }
+    }
+
+    /// Build a LatLongMetricIndex containing these locations (on the calling thread).
+    ///
+    /// @param packedLocations Locations encoded as primitive longs (see LatLong.toPrimitiveLong()).
+    ///                        This array is copied, it is not modified.
+    ///
+    /// @return A new LatLongMetricIndex
+    public static LatLongMetricIndex of(long[] packedLocations) {
+        return of(packedLocations, DEFAULT_LEAF_SIZE, ParallelBuild.sequential());
+    }
+
+    /// Build a LatLongMetricIndex containing these locations (on the calling thread).
+    ///
+    /// @param locations The locations to index
+    ///
+    /// @return A new LatLongMetricIndex
+    public static LatLongMetricIndex of(Collection<? extends HasLatLong> locations) {
+        checkNotNull(locations, "The locations cannot be null");
+
+        long[] packed = new long[locations.size()];
+        int i = 0;
+        for (HasLatLong location : locations) {
+            packed[i++] = location.latLong().toPrimitiveLong();
+        }
+        return of(packed);
+    }
+
+    /// Build a LatLongMetricIndex containing these locations.
+    ///
+    /// @param packedLocations Locations encoded as primitive longs (see LatLong.toPrimitiveLong()).
+    ///                        This array is copied, it is not modified.
+    /// @param leafSize        How many locations a leaf sphere can contain
+    /// @param parallelism     Controls how the work of building the index is divided between threads
+    ///
+    /// @return A new LatLongMetricIndex
+    public static LatLongMetricIndex of(long[] packedLocations, int leafSize, ParallelBuild parallelism) {
+        checkNotNull(packedLocations, "The packedLocations cannot be null");
+        checkArgument(leafSize >= 2, "The leafSize must be at least 2");
+        checkNotNull(parallelism, "The ParallelBuild cannot be null");
+
+        long[] locations = packedLocations.clone();
+        for (long location : locations) {
+            checkValid(location);
+        }
+
+        if (locations.length == 0) {
+            return new LatLongMetricIndex(locations, null);
+        }
+
+        Builder builder = new Builder(locations, leafSize, parallelism);
+        Node root = parallelism.isParallel(locations.length)
+                ? parallelism.pool().invoke(ForkJoinTask.adapt(builder::buildRoot))
+                : builder.buildRoot();
+
+        return new LatLongMetricIndex(locations, root);
+    }
+
+    /// @return The number of locations in this index.
+    public int size() {
+        return locations.length;
+    }
+
+    public boolean isEmpty() {
+        return locations.length == 0;
+    }
+
+    /// @return The number of different spheres used to contain this data.
+    public int sphereCount() {
+        return centers.length;
+    }
+
+    /// Perform a kNN search.
+    ///
+    /// @param searchPoint The location from which the closest locations are found
+    /// @param n           The number of locations to search for
+    ///
+    /// @return A new buffer containing (up to) n locations sorted by distance (closest first)
+    public LatLongResultBuffer getNClosest(HasLatLong searchPoint, int n) {
+        requireNonNull(searchPoint);
+        checkArgument(n > 0, "n must be at least 1");
+
+        LatLongResultBuffer results = new LatLongResultBuffer(Math.max(1, Math.min(n, size())));
+        getNClosest(searchPoint.latitude(), searchPoint.longitude(), n, results);
+        return results;
+    }
+
+    /// Perform a kNN search without allocating a new result buffer.
+    ///
+    /// @param latitude  The latitude of the location from which the closest locations are found
+    /// @param longitude The longitude of the location from which the closest locations are found
+    /// @param n         The number of locations to search for
+    /// @param results   A buffer that is cleared and then filled with (up to) n locations sorted by
+    ///                  distance (closest first)
+    public void getNClosest(double latitude, double longitude, int n, LatLongResultBuffer results) {
+        checkArgument(n > 0, "n must be at least 1");
+        requireNonNull(results);
+
+        results.clear();
+        search(new Query(latitude, longitude, n, Double.POSITIVE_INFINITY), results);
+        results.sortByDistance();
+    }
+
+    /// Find all locations within range of a search location.
+    ///
+    /// @param searchPoint The location from which the nearby locations are found
+    /// @param rangeInNm   The distance (in Nautical Miles) below which all locations are included
+    ///
+    /// @return A new buffer containing every location within range sorted by distance (closest first)
+    public LatLongResultBuffer getAllWithinRange(HasLatLong searchPoint, double rangeInNm) {
+        requireNonNull(searchPoint);
+
+        LatLongResultBuffer results = new LatLongResultBuffer();
+        getAllWithinRange(searchPoint.latitude(), searchPoint.longitude(), rangeInNm, results);
+        return results;
+    }
+
+    /// Find all locations within range of a search location without allocating a new result buffer.
+    ///
+    /// @param latitude  The latitude of the location from which the nearby locations are found
+    /// @param longitude The longitude of the location from which the nearby locations are found
+    /// @param rangeInNm The distance (in Nautical Miles) below which all locations are included
+    /// @param results   A buffer that is cleared and then filled with every location within range
+    ///                  sorted by distance (closest first)
+    public void getAllWithinRange(double latitude, double longitude, double rangeInNm, LatLongResultBuffer results) {
+        checkArgument(rangeInNm > 0, "range must be strictly positive");
+        requireNonNull(results);
+
+        results.clear();
+        search(new Query(latitude, longitude, Integer.MAX_VALUE, rangeInNm), results);
+        results.sortByDistance();
+    }
+
+    /*
+     * Note: This search process cannot be written as a recursive search. Searching recursivly can
+     * produce a StackoverflowError when the underlying tree is deeper than the JVM's internal stack
+     */
+    private void search(Query query, LatLongResultBuffer results) {
+
+        if (isEmpty()) {
+            return;
+        }
+
+        // each stack entry is a sphere and the (already computed) distance to its center point
+        int[] sphereStack = new int[maxDepth + 2];
+        double[] distStack = new double[maxDepth + 2];
+        int stackSize = 0;
+
+        sphereStack[stackSize] = 0;
+        distStack[stackSize] = query.distanceTo(centers[0]);
+        stackSize++;
+
+        while (stackSize > 0) {
+            stackSize--;
+            int sphere = sphereStack[stackSize];
+            double distToCenter = distStack[stackSize];
+
+            // ignore this sphere (and all its sub-trees) when it cannot improve the current result
+            if (radii[sphere] + query.radius(results) - distToCenter < 0) {
+                continue;
+            }
+
+            if (secondChild[sphere] == NO_CHILD) {
+                for (int i = entryFrom[sphere]; i < entryTo[sphere]; i++) {
+                    query.offer(locations[i], query.distanceTo(locations[i]), results);
+                }
+            } else {
+                int first = sphere + 1;
+                int second = secondChild[sphere];
+                double firstDist = query.distanceTo(centers[first]);
+                double secondDist = query.distanceTo(centers[second]);
+
+                // Submit the closest sphere second so it is popped first (this increases the chance
+                // we can skip items in the sphere that is further away).
+                if (firstDist < secondDist) {
+                    sphereStack[stackSize] = second;
+                    distStack[stackSize++] = secondDist;
+                    sphereStack[stackSize] = first;
+                    distStack[stackSize++] = firstDist;
+                } else {
+                    sphereStack[stackSize] = first;
+                    distStack[stackSize++] = firstDist;
+                    sphereStack[stackSize] = second;
+                    distStack[stackSize++] = secondDist;
+                }
+            }
+        }
+    }
+
+    private static void checkValid(long location) {
+        int latitude = (int) (location >> 32);
+        int longitude = (int) location;
+        checkArgument(
+                -900_000_000 <= latitude
+                        && latitude <= 900_000_000
+                        && -1_800_000_000 <= longitude
+                        && longitude <= 1_800_000_000,
+                "Invalid packed LatLong: %s",
+                location);
+    }
+
+    /// Copy the spheres beneath this root into the flat arrays (in depth-first order).
+    private void layout(Node root) {
+
+        // each stack entry is a sphere and (for second children) the parent's index
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Integer> parents = new ArrayDeque<>();
+        nodes.push(root);
+        parents.push(NO_CHILD);
+
+        int nextSphere = 0;
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int parent = parents.pop();
+
+            int index = nextSphere++;
+            centers[index] = node.center;
+            radii[index] = node.radius;
+            entryFrom[index] = node.from;
+            entryTo[index] = node.to;
+            if (parent != NO_CHILD) {
+                secondChild[parent] = index;
+            }
+
+            if (node.first == null) {
+                secondChild[index] = NO_CHILD;
+            } else {
+                // push the second child first so the first child is assigned index + 1
+                nodes.push(node.second);
+                parents.push(index);
+                nodes.push(node.first);
+                parents.push(NO_CHILD);
+            }
+        }
+    }
+
+    /// @return {the number of nodes beneath (and including) this root, the depth of the deepest node}
+    private static int[] countSpheres(Node root) {
+        if (root == null) {
+            return new int[] {0, 0};
+        }
+        int count = 0;
+        int deepest = 0;
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        stack.push(root);
+        depths.push(0);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int depth = depths.pop();
+            count++;
+            deepest = Math.max(deepest, depth);
+            if (node.first != null) {
+                stack.push(node.first);
+                depths.push(depth + 1);
+                stack.push(node.second);
+                depths.push(depth + 1);
+            }
+        }
+        return new int[] {count, deepest};
+    }
+
+    /// A Query holds the search location (pre-converted to radians) and the search parameters.
+    private static final class Query {
+
+        final double latitude;
+
+        final double longitude;
+
+        final double cosLatitude;
+
+        final int maxNumResults;
+
+        final double fixedRadius;
+
+        Query(double latitudeInDegrees, double longitudeInDegrees, int maxNumResults, double fixedRadius) {
+            this.latitude = Math.toRadians(latitudeInDegrees);
+            this.longitude = Math.toRadians(longitudeInDegrees);
+            this.cosLatitude = cos(latitude);
+            this.maxNumResults = maxNumResults;
+            this.fixedRadius = fixedRadius;
+        }
+
+        double distanceTo(long location) {
+            return PackedNavigation.distanceInNM(latitude, longitude, cosLatitude, location);
+        }
+
+        /// @return The "inclusion radius" (the distance a location must beat to be included).
+        double radius(LatLongResultBuffer results) {
+            return (results.size() < maxNumResults) ? fixedRadius : results.worstDistance();
+        }
+
+        void offer(long location, double distance, LatLongResultBuffer results) {
+            if (distance > radius(results)) {
+                return;
+            }
+            if (maxNumResults == Integer.MAX_VALUE) {
+                results.append(location, distance);
+            } else if (results.size() < maxNumResults) {
+                results.push(location, distance);
+            } else {
+                results.replaceWorst(location, distance);
+            }
+        }
+    }
+
+    /// A Node is a sphere of the index while it is being built. Nodes are converted to flat arrays
+    /// once the entire index is built.
+    private static final class Node {
+
+        final long center;
+
+        final double radius;
+
+        final int from;
+
+        final int to;
+
+        final Node first;
+
+        final Node second;
+
+        Node(long center, double radius, int from, int to, Node first, Node second) {
+            this.center = center;
+            this.radius = radius;
+            this.from = from;
+            this.to = to;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /// A Builder holds the "working arrays" used while an index is being built top-down. Each Node
+    /// being built owns a contiguous range of these arrays. Consequently, sibling Nodes can be built
+    /// by different threads.
+    private static final class Builder {
+
+        final long[] locations;
+
+        final double[] distToFirst;
+
+        final double[] distToSecond;
+
+        final int leafSize;
+
+        final ParallelBuild parallelism;
+
+        Builder(long[] locations, int leafSize, ParallelBuild parallelism) {
+            this.locations = locations;
+            this.distToFirst = new double[locations.length];
+            this.distToSecond = new double[locations.length];
+            this.leafSize = leafSize;
+            this.parallelism = parallelism;
+        }
+
+        Node buildRoot() {
+            long center = locations[0];
+
+            parallelism.forEachIndex(
+                    0, locations.length, i -> distToFirst[i] = PackedNavigation.distanceInNM(center, locations[i]));
+
+            return buildNode(center, SphereSplitter.maxOf(distToFirst, 0, locations.length), 0, locations.length);
+        }
+
+        /// Build a Node (and all of its descendants) that contains the locations in the range [from,
+        /// to).
+        ///
+        /// Note: This method is recursive, but that is safe because the trees it builds are balanced
+        /// (i.e. the recursion depth is logarithmic in the number of locations).
+        Node buildNode(long center, double radius, int from, int to) {
+
+            if (to - from <= leafSize) {
+                return new Node(center, radius, from, to, null, null);
+            }
+
+            long[] centerPoints = selectCenterPoints(from, to);
+            long center1 = centerPoints[0];
+            long center2 = centerPoints[1];
+
+            parallelism.forEachIndex(from, to, i -> {
+                distToFirst[i] = PackedNavigation.distanceInNM(locations[i], center1);
+                distToSecond[i] = PackedNavigation.distanceInNM(locations[i], center2);
+            });
+
+            int mid = SphereSplitter.split(locations, distToFirst, distToSecond, from, to);
+
+            // find the child radii BEFORE building the children (building a child overwrites distances)
+            double radius1 = SphereSplitter.maxOf(distToFirst, from, mid);
+            double radius2 = SphereSplitter.maxOf(distToSecond, mid, to);
+
+            Node child1;
+            Node child2;
+            if (parallelism.isParallel(to - from)) {
+                ForkJoinTask<Node> task1 = ForkJoinTask.adapt(() -> buildNode(center1, radius1, from, mid))
+                        .fork();
+                child2 = buildNode(center2, radius2, mid, to);
+                child1 = task1.join();
+            } else {
+                child1 = buildNode(center1, radius1, from, mid);
+                child2 = buildNode(center2, radius2, mid, to);
+            }
+
+            return new Node(center, radius, from, to, child1, child2);
+        }
+
+        /// Draw sqrt(n) random pairs of locations from the range [from, to) and return the pair that
+        /// is farthest apart (this mirrors CenterPointSelectors.maxOfRandomSamples()). The random
+        /// seed depends on the range, so the index built is the same regardless of thread timing.
+        private long[] selectCenterPoints(int from, int to) {
+
+            Random rng = new Random(31L * from + to);
+            int size = to - from;
+            int numPairsToDraw = Math.max(1, (int) Math.sqrt(size));
+
+            long[] bestPair = new long[2];
+            double biggestDistance = -1;
+
+            for (int i = 0; i < numPairsToDraw; i++) {
+                int index1 = from + rng.nextInt(size);
+                int index2 = from + rng.nextInt(size);
+                while (index1 == index2) {
+                    index2 = from + rng.nextInt(size);
+                }
+
+                double distance = PackedNavigation.distanceInNM(locations[index1], locations[index2]);
+                if (distance > biggestDistance) {
+                    bestPair[0] = locations[index1];
+                    bestPair[1] = locations[index2];
+                    biggestDistance = distance;
+                }
+            }
+            return bestPair;
+        }
+    }
+}
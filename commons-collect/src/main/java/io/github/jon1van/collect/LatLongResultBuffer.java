@@ -0,0 +1,163 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import io.github.jon1van.units.LatLong;
+
+/// A LatLongResultBuffer holds the output of a LatLongMetricIndex search in primitive arrays.
+///
+/// Each result is a location (encoded as a primitive long, see LatLong.toPrimitiveLong()) and the
+/// distance from the search location in Nautical Miles. After a search completes the results are
+/// sorted by distance (closest first).
+///
+/// A LatLongResultBuffer can be reused for many searches (one search at a time). Reusing a buffer
+/// avoids allocating new arrays for every search because the buffer only grows when a search
+/// produces more results than any prior search.
+public final class LatLongResultBuffer {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] locations;
+
+    private double[] distances;
+
+    private int size = 0;
+
+    public LatLongResultBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /// @param initialCapacity The number of results this buffer can hold before it must grow
+    public LatLongResultBuffer(int initialCapacity) {
+        checkArgument(initialCapacity >= 1, "The initialCapacity must be at least 1");
+        this.locations = new long[initialCapacity];
+        this.distances = new double[initialCapacity];
+    }
+
+    /// @return The number of results in this buffer.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /// @return The i-th closest location, encoded as a primitive long.
+    public long location(int i) {
+        return locations[checkIndex(i)];
+    }
+
+    /// @return The i-th closest location (this allocates a new LatLong).
+    public LatLong latLong(int i) {
+        return LatLong.fromPrimitiveLong(location(i));
+    }
+
+    /// @return The distance from the search location to the i-th closest location.
+    public double distanceInNm(int i) {
+        return distances[checkIndex(i)];
+    }
+
+    /// @return A copy of the result locations (encoded as primitive longs).
+    public long[] locations() {
+        return Arrays.copyOf(locations, size);
+    }
+
+    /// @return A copy of the result distances (in Nautical Miles).
+    public double[] distancesInNm() {
+        return Arrays.copyOf(distances, size);
+    }
+
+    /// Discard all results.
+    public void clear() {
+        this.size = 0;
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return i;
+    }
+
+    /// @return The largest distance in a buffer that is being used as a max-heap.
+    double worstDistance() {
+        return distances[0];
+    }
+
+    /// Add a result to the end of this buffer (used by range searches).
+    void append(long location, double distance) {
+        if (size == locations.length) {
+            locations = Arrays.copyOf(locations, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        locations[size] = location;
+        distances[size] = distance;
+        size++;
+    }
+
+    /// Add a result to a buffer that is being used as a max-heap (used by kNN searches).
+    void push(long location, double distance) {
+        append(location, distance);
+        siftUp(size - 1);
+    }
+
+    /// Replace the worst result in a buffer that is being used as a max-heap.
+    void replaceWorst(long location, double distance) {
+        locations[0] = location;
+        distances[0] = distance;
+        siftDown(0, size);
+    }
+
+    /// Sort the results by distance (closest first) using an in-place heap sort.
+    void sortByDistance() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (distances[parent] >= distances[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int heapSize) {
+        while (true) {
+            int left = 2 * i + 1;
+            int right = left + 1;
+            int largest = i;
+            if (left < heapSize && distances[left] > distances[largest]) {
+                largest = left;
+            }
+            if (right < heapSize && distances[right] > distances[largest]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long tempLocation = locations[i];
+        locations[i] = locations[j];
+        locations[j] = tempLocation;
+        double tempDist = distances[i];
+        distances[i] = distances[j];
+        distances[j] = tempDist;
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.jon1van.collect;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/// LeafEntries hold the contents of one SPHERE_OF_POINTS in parallel arrays: the keys, the values,
+/// and the distance from each key to the Sphere's centerPoint.
+///
+/// Those distances are computed when a key is added to a Sphere anyway, and keeping them lets a
+/// Search skip entries without calling the DistanceMetric (the triangle inequality guarantees
+/// |d(q, c) - d(e, c)| <= d(q, e)). Storing them in a double[] costs 8 bytes per key, whereas a
+/// boxed Double or a per-key entry object would cost an extra object (and a pointer chase during
+/// every leaf scan).
+///
+/// A Sphere holds at most maxSphereSize entries, so a key is found by scanning the keys array
+/// rather than by hashing. MetricTree and MetricSet avoid most of these scans because their global
+/// HashMap already knows whether a key is present.
+///
+/// This class is package private because it is an implementation detail of the MetricTree and
+/// MetricSet classes.
+///
+/// @param <K> The Key class
+/// @param <V> The Value class (MetricSet leaves do not store values)
+final class LeafEntries<K, V> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Object[] keys;
+
+    /// The values of each key (null when the leaf only holds keys, i.e. for a MetricSet).
+    private Object[] values;
+
+    private double[] distToCenter;
+
+    private int size = 0;
+
+    /// @param capacity   The number of entries that can be added before the arrays must grow
+    /// @param withValues False when this leaf only holds keys
+    LeafEntries(int capacity, boolean withValues) {
+        int n = Math.max(capacity, 1);
+        this.keys = new Object[n];
+        this.values = withValues ? new Object[n] : null;
+        this.distToCenter = new double[n];
+    }
+
+    /// Create an empty leaf that stores values.
+    LeafEntries() {
+        this(INITIAL_CAPACITY, true);
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    K keyAt(int i) {
+        return (K) keys[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    V valueAt(int i) {
+        return (values == null) ? null : (V) values[i];
+    }
+
+    /// @return The distance between the i-th key and the centerPoint of the Sphere.
+    double distToCenterAt(int i) {
+        return distToCenter[i];
+    }
+
+    void setValueAt(int i, V value) {
+        values[i] = value;
+    }
+
+    /// @return The index of this key (or -1 when the key is not in this leaf).
+    int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /// Append an entry. The caller must know the key is not already in this leaf.
+    void add(K key, V value, double distToCenter) {
+        if (size == keys.length) {
+            int newCapacity = 2 * size;
+            this.keys = Arrays.copyOf(keys, newCapacity);
+            this.values = (values == null) ? null : Arrays.copyOf(values, newCapacity);
+            this.distToCenter = Arrays.copyOf(this.distToCenter, newCapacity);
+        }
+        keys[size] = key;
+        if (values != null) {
+            values[size] = value;
+        }
+        this.distToCenter[size] = distToCenter;
+        size++;
+    }
+
+    /// Remove the entry at this index. The last entry takes its place (so indices are not stable).
+    void removeAt(int i) {
+        int last = size - 1;
+        keys[i] = keys[last];
+        keys[last] = null;
+        if (values != null) {
+            values[i] = values[last];
+            values[last] = null;
+        }
+        distToCenter[i] = distToCenter[last];
+        size = last;
+    }
+
+    /// @return The largest distance between a key and the centerPoint (or 0 when empty).
+    double maxDistToCenter() {
+        double max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, distToCenter[i]);
+        }
+        return max;
+    }
+
+    /// @return A new list containing every key in this leaf.
+    List<K> keys() {
+        List<K> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(keyAt(i));
+        }
+        return list;
+    }
+
+    /// @return A new list containing an immutable snapshot of every Key+Value pair in this leaf.
+    List<Map.Entry<K, V>> entries() {
+        List<Map.Entry<K, V>> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new AbstractMap.SimpleImmutableEntry<>(keyAt(i), valueAt(i)));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,392 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/// A LongHashedLinkedSequence is a HashedLinkedSequence of primitive longs. It supports the same
+/// constant time "reference-based" methods (e.g. getElementBefore(v), getElementAfter(v),
+/// insertAfter(v1, v2), and remove(v)) without boxing the elements or allocating a Node per element.
+///
+/// The sequence is stored in parallel primitive arrays. Each element is assigned an integer "slot"
+/// that holds the element and the slots of its neighbors (i.e. long[] elements, int[] prev, and
+/// int[] next). Elements are found by hashing them into an open-addressing table of slots (using
+/// linear probing). Slots freed by remove(v) are reused by later insertions. Consequently, this
+/// class needs 24-48 bytes per element (depending on how full its arrays are) while a
+/// HashedLinkedSequence<Long> needs about 90 bytes per element (a Long, a Node, and a HashMap entry).
+///
+/// Like HashedLinkedSequence, a LongHashedLinkedSequence cannot contain the same element twice.
+public class LongHashedLinkedSequence implements Iterable<Long> {
+
+    private static final String DUPLICATE_ELEMENT_WARNING = "Cannot add the same element twice";
+
+    private static final String ITEM_NOT_FOUND_WARNING = "Item not found";
+
+    /// Marks an empty hash table cell and the "missing" neighbor of the first and last elements.
+    private static final int NONE = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /// The element stored in each slot.
+    private long[] elements;
+
+    /// The slot of the element before each slot's element (NONE for the first element).
+    private int[] prev;
+
+    /// The slot of the element after each slot's element (NONE for the last element). The next
+    /// links of freed slots form a linked list of reusable slots.
+    private int[] next;
+
+    /// An open-addressing hash table that maps each element to its slot (empty cells hold NONE).
+    private int[] table;
+
+    /// The number of slots that have ever been used (slots beyond this point have never been used).
+    private int slotsUsed;
+
+    /// The first slot in the list of freed slots (or NONE).
+    private int freeSlot = NONE;
+
+    private int firstSlot = NONE;
+
+    private int lastSlot = NONE;
+
+    private int size;
+
+    private int modCount; // used to detect concurrent modification
+
+    public LongHashedLinkedSequence() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /// @param expectedSize The number of elements this sequence can hold before it must grow
+    public LongHashedLinkedSequence(int expectedSize) {
+        checkArgument(expectedSize >= 0, "The expectedSize cannot be negative");
+        int capacity = Math.max(expectedSize, 1);
+        this.elements = new long[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        this.table = new int[tableSizeFor(capacity)];
+        Arrays.fill(table, NONE);
+    }
+
+    /// Create a new LongHashedLinkedSequence containing these elements (in this order).
+    ///
+    /// @param elements The elements themselves
+    ///
+    /// @return A new LongHashedLinkedSequence containing these elements.
+    public static LongHashedLinkedSequence newLongHashedLinkedSequence(long... elements) {
+        LongHashedLinkedSequence sequence = new LongHashedLinkedSequence(elements.length);
+        sequence.addAll(elements);
+        return sequence;
+    }
+
+    /// Add an element to the end of this sequence.
+    ///
+    /// @return Always true (adding an element that is already present throws an exception)
+    public boolean add(long item) {
+        addLast(item);
+        return true;
+    }
+
+    public void addAll(long... items) {
+        for (long item : items) {
+            addLast(item);
+        }
+    }
+
+    public void addFirst(long item) {
+        checkArgument(slotOf(item) == NONE, DUPLICATE_ELEMENT_WARNING);
+
+        int slot = store(item, NONE, firstSlot);
+        if (firstSlot == NONE) {
+            lastSlot = slot;
+        } else {
+            prev[firstSlot] = slot;
+        }
+        firstSlot = slot;
+        modCount++;
+    }
+
+    public void addLast(long item) {
+        // adding the same element twice is illegal because it make "iterate from" operations unclear
+        checkArgument(slotOf(item) == NONE, DUPLICATE_ELEMENT_WARNING);
+
+        int slot = store(item, lastSlot, NONE);
+        if (lastSlot == NONE) {
+            firstSlot = slot;
+        } else {
+            next[lastSlot] = slot;
+        }
+        lastSlot = slot;
+        modCount++;
+    }
+
+    public long getElementBefore(long existingItem) {
+        int slot = slotOf(existingItem);
+        checkArgument(slot != NONE, ITEM_NOT_FOUND_WARNING);
+        if (prev[slot] == NONE) {
+            throw new NoSuchElementException();
+        }
+        return elements[prev[slot]];
+    }
+
+    public long getElementAfter(long existingItem) {
+        int slot = slotOf(existingItem);
+        checkArgument(slot != NONE, ITEM_NOT_FOUND_WARNING);
+        if (next[slot] == NONE) {
+            throw new NoSuchElementException();
+        }
+        return elements[next[slot]];
+    }
+
+    public void insertAfter(long newItem, long existingItem) {
+        int anchor = slotOf(existingItem);
+        checkArgument(anchor != NONE, ITEM_NOT_FOUND_WARNING);
+        checkArgument(slotOf(newItem) == NONE, DUPLICATE_ELEMENT_WARNING);
+
+        int slot = store(newItem, anchor, next[anchor]);
+        if (next[slot] == NONE) {
+            lastSlot = slot;
+        } else {
+            prev[next[slot]] = slot;
+        }
+        next[anchor] = slot;
+        modCount++;
+    }
+
+    public void insertBefore(long newItem, long existingItem) {
+        int anchor = slotOf(existingItem);
+        checkArgument(anchor != NONE, ITEM_NOT_FOUND_WARNING);
+        checkArgument(slotOf(newItem) == NONE, DUPLICATE_ELEMENT_WARNING);
+
+        int slot = store(newItem, prev[anchor], anchor);
+        if (prev[slot] == NONE) {
+            firstSlot = slot;
+        } else {
+            next[prev[slot]] = slot;
+        }
+        prev[anchor] = slot;
+        modCount++;
+    }
+
+    /// @return the first element in this sequence
+    /// @throws NoSuchElementException if this sequence is empty
+    public long getFirst() {
+        if (firstSlot == NONE) {
+            throw new NoSuchElementException();
+        }
+        return elements[firstSlot];
+    }
+
+    /// @return the last element in this sequence
+    /// @throws NoSuchElementException if this sequence is empty
+    public long getLast() {
+        if (lastSlot == NONE) {
+            throw new NoSuchElementException();
+        }
+        return elements[lastSlot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long item) {
+        return slotOf(item) != NONE;
+    }
+
+    /// Remove an element and link its neighbors to each other.
+    ///
+    /// @return True when the element was present
+    public boolean remove(long item) {
+        int cell = cellOf(item);
+        if (table[cell] == NONE) {
+            return false;
+        }
+
+        int slot = table[cell];
+        deleteCell(cell);
+        unlink(slot);
+        modCount++;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(table, NONE);
+        slotsUsed = 0;
+        freeSlot = NONE;
+        firstSlot = NONE;
+        lastSlot = NONE;
+        size = 0;
+        modCount++;
+    }
+
+    /// @return The elements of this sequence, in order.
+    public long[] toArray() {
+        long[] array = new long[size];
+        int i = 0;
+        for (int slot = firstSlot; slot != NONE; slot = next[slot]) {
+            array[i++] = elements[slot];
+        }
+        return array;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new Iter();
+    }
+
+    /// Put an element in a (possibly reused) slot and add that slot to the hash table. The caller
+    /// must update the links of the neighboring slots.
+    ///
+    /// @return The slot holding the new element
+    private int store(long item, int prevSlot, int nextSlot) {
+        if ((size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+
+        int slot;
+        if (freeSlot != NONE) {
+            slot = freeSlot;
+            freeSlot = next[slot];
+        } else {
+            if (slotsUsed == elements.length) {
+                int newLength = elements.length * 2;
+                elements = Arrays.copyOf(elements, newLength);
+                prev = Arrays.copyOf(prev, newLength);
+                next = Arrays.copyOf(next, newLength);
+            }
+            slot = slotsUsed++;
+        }
+
+        elements[slot] = item;
+        prev[slot] = prevSlot;
+        next[slot] = nextSlot;
+        table[cellOf(item)] = slot;
+        size++;
+        return slot;
+    }
+
+    /// Link the neighbors of a slot to each other and add the slot to the list of freed slots.
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+
+        if (before == NONE) {
+            firstSlot = after;
+        } else {
+            next[before] = after;
+        }
+
+        if (after == NONE) {
+            lastSlot = before;
+        } else {
+            prev[after] = before;
+        }
+
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+    }
+
+    /// @return The slot holding this element (or NONE when the element is not present).
+    private int slotOf(long item) {
+        return table[cellOf(item)];
+    }
+
+    /// @return The hash table cell that holds this element, or the empty cell where it belongs.
+    private int cellOf(long item) {
+        int mask = table.length - 1;
+        int cell = hash(item) & mask;
+        while (table[cell] != NONE && elements[table[cell]] != item) {
+            cell = (cell + 1) & mask;
+        }
+        return cell;
+    }
+
+    /// Empty a hash table cell. Later cells in the same "probe run" are shifted backwards to fill the
+    /// gap (this keeps linear probing correct without leaving "deleted" markers in the table).
+    private void deleteCell(int cell) {
+        int mask = table.length - 1;
+        int gap = cell;
+        int current = (cell + 1) & mask;
+        while (table[current] != NONE) {
+            int home = hash(elements[table[current]]) & mask;
+            // the current element can fill the gap unless its home cell is between the gap and it
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                table[gap] = table[current];
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+        table[gap] = NONE;
+    }
+
+    private void rehash(int newTableSize) {
+        this.table = new int[newTableSize];
+        Arrays.fill(table, NONE);
+        for (int slot = firstSlot; slot != NONE; slot = next[slot]) {
+            table[cellOf(elements[slot])] = slot;
+        }
+    }
+
+    /// @return A power of 2 that keeps the hash table at most half full.
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) * 2;
+    }
+
+    /// Spread the bits of an element (consecutive ids and timestamps must not share probe runs).
+    private static int hash(long item) {
+        long h = item * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private class Iter implements PrimitiveIterator.OfLong {
+
+        int currentSlot = firstSlot;
+        int lastSlotReturned = NONE;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return currentSlot != NONE;
+        }
+
+        @Override
+        public long nextLong() {
+            checkForComodification();
+            if (currentSlot == NONE) {
+                throw new NoSuchElementException();
+            }
+            lastSlotReturned = currentSlot;
+            currentSlot = next[currentSlot];
+            return elements[lastSlotReturned];
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlotReturned == NONE) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            LongHashedLinkedSequence.this.remove(elements[lastSlotReturned]);
+
+            lastSlotReturned = NONE; // an iterator's remove() method only works once per "next()"
+
+            expectedModCount++;
+        }
+    }
+}
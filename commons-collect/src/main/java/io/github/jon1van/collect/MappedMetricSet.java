@@ -0,0 +1,107 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/// A MappedMetricSet answers kNN and range searches directly from a memory-mapped file written by
+/// MetricSet.writeTo (or by MetricTree.writeTo, in which case the values are ignored).
+///
+/// Opening a MappedMetricSet does not rebuild the set and does not decode its keys, it only maps the
+/// file into memory. Searches read sphere radii and child indices straight from the mapped bytes
+/// and decode a key only when it is needed. Therefore, a service that restarts can answer searches
+/// within moments of opening a file that took minutes to build.
+///
+/// A MappedMetricSet is immutable and thread-safe (provided the DistanceMetric and BinaryCodec are
+/// thread-safe). The underlying file must not be modified while it is mapped. The mapping is
+/// released when the MappedMetricSet is garbage collected.
+///
+/// @param <K> The Keys
+public final class MappedMetricSet<K> {
+
+    private final MappedSpheres<K> spheres;
+
+    private MappedMetricSet(MappedSpheres<K> spheres) {
+        this.spheres = spheres;
+    }
+
+    /// Memory-map a file written by MetricSet.writeTo.
+    ///
+    /// @param file     A file written by MetricSet.writeTo
+    /// @param metric   The DistanceMetric used by the MetricSet that wrote the file
+    /// @param keyCodec The BinaryCodec used to write the keys
+    ///
+    /// @return A MappedMetricSet that searches the file
+    /// @throws IOException When the file cannot be mapped
+    public static <K> MappedMetricSet<K> open(Path file, DistanceMetric<K> metric, BinaryCodec<K> keyCodec)
+            throws IOException {
+        return new MappedMetricSet<>(new MappedSpheres<>(MappedSpheres.map(file), metric, keyCodec));
+    }
+
+    public DistanceMetric<K> metric() {
+        return spheres.metric();
+    }
+
+    /// @return The number of keys in this set.
+    public int size() {
+        return spheres.numEntries();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /// @return The number of different spheres used to contain this data.
+    public int sphereCount() {
+        return spheres.numSpheres();
+    }
+
+    /// Perform a kNN search where k = 1.
+    ///
+    /// @param searchKey The point-in-space from which the closest key is found
+    ///
+    /// @return The Result with the minimum distance to the search key
+    public SetSearchResult<K> getClosest(K searchKey) {
+        return getNClosest(searchKey, 1).result(0);
+    }
+
+    /// Perform a kNN search with arbitrary k.
+    ///
+    /// @param searchKey The point-in-space from which the closest keys are found
+    /// @param n         The number of keys to search for
+    ///
+    /// @return A collection of n Results with the smallest distances to the search key
+    public SetSearchResults<K> getNClosest(K searchKey, int n) {
+        requireNonNull(searchKey);
+        checkArgument(n > 0, "n must be at least 1");
+
+        EntryCandidates found = new EntryCandidates(Math.min(n, size()), n);
+        spheres.search(searchKey, found);
+        return toResults(found, searchKey);
+    }
+
+    /// @param searchKey The point-in-space from which the closest keys are found
+    /// @param range     The distance below which all keys are included in the output.
+    ///
+    /// @return A Result for all keys within this range of the search key.
+    public SetSearchResults<K> getAllWithinRange(K searchKey, double range) {
+        requireNonNull(searchKey);
+        checkArgument(range > 0, "range must be strictly positive");
+
+        EntryCandidates found = new EntryCandidates(16, range);
+        spheres.search(searchKey, found);
+        return toResults(found, searchKey);
+    }
+
+    private SetSearchResults<K> toResults(EntryCandidates found, K searchKey) {
+        List<SetSearchResult<K>> results = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            results.add(new SetSearchResult<>(spheres.key(found.entry(i)), found.distance(i)));
+        }
+        return new SetSearchResults<>(searchKey, results);
+    }
+}
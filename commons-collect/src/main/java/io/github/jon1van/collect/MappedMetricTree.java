@@ -0,0 +1,120 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/// A MappedMetricTree answers kNN and range searches directly from a memory-mapped file written by
+/// MetricTree.writeTo (or FrozenMetricTree.writeTo).
+///
+/// Opening a MappedMetricTree does not rebuild the tree and does not decode its keys or values, it
+/// only maps the file into memory. Searches read sphere radii and child indices straight from the
+/// mapped bytes and decode a key (or value) only when it is needed. Therefore, a service that
+/// restarts can answer searches within moments of opening a file that took minutes to build.
+///
+/// A MappedMetricTree is immutable and thread-safe (provided the DistanceMetric and BinaryCodecs
+/// are thread-safe). The underlying file must not be modified while it is mapped. The mapping is
+/// released when the MappedMetricTree is garbage collected.
+///
+/// @param <K> The Keys
+/// @param <V> The Values
+public final class MappedMetricTree<K, V> {
+
+    private final MappedSpheres<K> spheres;
+
+    private final BinaryCodec<V> valueCodec;
+
+    private MappedMetricTree(MappedSpheres<K> spheres, BinaryCodec<V> valueCodec) {
+        this.spheres = spheres;
+        this.valueCodec = valueCodec;
+    }
+
+    /// Memory-map a file written by MetricTree.writeTo.
+    ///
+    /// @param file       A file written by MetricTree.writeTo
+    /// @param metric     The DistanceMetric used by the MetricTree that wrote the file
+    /// @param keyCodec   The BinaryCodec used to write the keys
+    /// @param valueCodec The BinaryCodec used to write the values
+    ///
+    /// @return A MappedMetricTree that searches the file
+    /// @throws IOException When the file cannot be mapped
+    public static <K, V> MappedMetricTree<K, V> open(
+            Path file, DistanceMetric<K> metric, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec)
+            throws IOException {
+        requireNonNull(valueCodec);
+
+        MappedSpheres<K> spheres = new MappedSpheres<>(MappedSpheres.map(file), metric, keyCodec);
+        checkArgument(spheres.hasValues(), "The file has no values (it was written by a MetricSet)");
+
+        return new MappedMetricTree<>(spheres, valueCodec);
+    }
+
+    public DistanceMetric<K> metric() {
+        return spheres.metric();
+    }
+
+    /// @return The number of entries in this tree.
+    public int size() {
+        return spheres.numEntries();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /// @return The number of different spheres used to contain this data.
+    public int sphereCount() {
+        return spheres.numSpheres();
+    }
+
+    /// Perform a kNN search where k = 1.
+    ///
+    /// @param searchKey The point-in-space from which the closest entry is found
+    ///
+    /// @return The Key/Value Result with the minimum distance to the search key
+    public SearchResult<K, V> getClosest(K searchKey) {
+        return getNClosest(searchKey, 1).result(0);
+    }
+
+    /// Perform a kNN search with arbitrary k.
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    ///
+    /// @return A collection of n Key/Value Results with the smallest distances to the search key
+    public SearchResults<K, V> getNClosest(K searchKey, int n) {
+        requireNonNull(searchKey);
+        checkArgument(n > 0, "n must be at least 1");
+
+        EntryCandidates found = new EntryCandidates(Math.min(n, size()), n);
+        spheres.search(searchKey, found);
+        return toResults(found, searchKey);
+    }
+
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param range     The distance below which all entries are included in the output.
+    ///
+    /// @return A Result for all keys within this range of the key.
+    public SearchResults<K, V> getAllWithinRange(K searchKey, double range) {
+        requireNonNull(searchKey);
+        checkArgument(range > 0, "range must be strictly positive");
+
+        EntryCandidates found = new EntryCandidates(16, range);
+        spheres.search(searchKey, found);
+        return toResults(found, searchKey);
+    }
+
+    private SearchResults<K, V> toResults(EntryCandidates found, K searchKey) {
+        List<SearchResult<K, V>> results = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            int entry = found.entry(i);
+            V value = valueCodec.decode(spheres.value(entry));
+            results.add(new SearchResult<>(spheres.key(entry), value, found.distance(i)));
+        }
+        return new SearchResults<>(searchKey, results);
+    }
+}
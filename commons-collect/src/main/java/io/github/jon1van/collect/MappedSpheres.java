@@ -0,0 +1,226 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.github.jon1van.collect.MetricTreeFile.HEADER_BYTES;
+import static io.github.jon1van.collect.MetricTreeFile.MAGIC;
+import static io.github.jon1van.collect.MetricTreeFile.NO_CHILD;
+import static io.github.jon1van.collect.MetricTreeFile.VERSION;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/// MappedSpheres searches the spheres stored in a memory-mapped MetricTreeFile.
+///
+/// Nothing is decoded up front. The radii, child indices, and entry ranges are read directly from
+/// the mapped bytes and a key is only decoded (using a BinaryCodec) when a search needs to measure
+/// the distance to it. Consequently, "opening" a file of any size is nearly instant and the
+/// operating system pages in only the parts of the file that searches actually touch.
+///
+/// The file is mapped as one MemorySegment (so it may be larger than 2GB). Each encoded object is
+/// handed to its BinaryCodec as a ByteBuffer view that starts at the object.
+///
+/// The search itself mirrors FrozenMetricTree's search (including the triangle inequality check
+/// that skips leaf entries without decoding them).
+///
+/// This class is package private because it is an implementation detail of the MappedMetricTree and
+/// MappedMetricSet classes.
+///
+/// @param <K> The Keys
+final class MappedSpheres<K> {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final MemorySegment file;
+
+    private final DistanceMetric<K> metric;
+
+    private final BinaryCodec<K> keyCodec;
+
+    private final boolean hasValues;
+
+    private final int numSpheres;
+
+    private final int numEntries;
+
+    private final int maxDepth;
+
+    // the byte offset of each section of the file
+    private final long radiiStart;
+    private final long distToLeafCenterStart;
+    private final long centerOffsetsStart;
+    private final long keyOffsetsStart;
+    private final long valueOffsetsStart;
+    private final long secondChildStart;
+    private final long entryFromStart;
+    private final long entryToStart;
+    private final long dataStart;
+
+    MappedSpheres(MemorySegment file, DistanceMetric<K> metric, BinaryCodec<K> keyCodec) {
+        this.file = requireNonNull(file);
+        this.metric = requireNonNull(metric);
+        this.keyCodec = requireNonNull(keyCodec);
+
+        this.hasValues = file.get(INT, 8) == 1;
+        this.numSpheres = file.get(INT, 12);
+        this.numEntries = file.get(INT, 16);
+        this.maxDepth = file.get(INT, 20);
+
+        checkArgument(numSpheres >= 0 && numEntries >= 0, "The file is truncated or corrupt");
+        this.dataStart = MetricTreeFile.dataStart(numSpheres, numEntries, hasValues);
+        checkArgument(dataStart <= file.byteSize(), "The file is truncated or corrupt");
+
+        this.radiiStart = HEADER_BYTES;
+        this.distToLeafCenterStart = radiiStart + (long) Double.BYTES * numSpheres;
+        this.centerOffsetsStart = distToLeafCenterStart + (long) Double.BYTES * numEntries;
+        this.keyOffsetsStart = centerOffsetsStart + (long) Long.BYTES * numSpheres;
+        this.valueOffsetsStart = keyOffsetsStart + (long) Long.BYTES * numEntries;
+        this.secondChildStart = valueOffsetsStart + (hasValues ? (long) Long.BYTES * numEntries : 0L);
+        this.entryFromStart = secondChildStart + (long) Integer.BYTES * numSpheres;
+        this.entryToStart = entryFromStart + (long) Integer.BYTES * numSpheres;
+    }
+
+    /// Memory-map a file and verify its header. The mapping is released when the returned segment
+    /// becomes unreachable (i.e. when the MappedMetricTree or MappedMetricSet using it is garbage
+    /// collected).
+    ///
+    /// @return A read-only segment holding the entire file
+    static MemorySegment map(Path source) throws IOException {
+        MemorySegment file;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            checkArgument(channel.size() >= HEADER_BYTES, "The file is too small to be a MetricTreeFile");
+            // the mapping remains valid after the channel is closed
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+        }
+
+        checkArgument(file.get(INT, 0) == MAGIC, "The file is not a MetricTreeFile");
+        checkArgument(file.get(INT, 4) == VERSION, "Unsupported MetricTreeFile version: %s", file.get(INT, 4));
+        return file;
+    }
+
+    DistanceMetric<K> metric() {
+        return metric;
+    }
+
+    boolean hasValues() {
+        return hasValues;
+    }
+
+    int numSpheres() {
+        return numSpheres;
+    }
+
+    int numEntries() {
+        return numEntries;
+    }
+
+    /// @return The key of this entry (decoded from the file).
+    K key(int entry) {
+        return keyCodec.decode(dataAt(file.get(LONG, keyOffsetsStart + (long) Long.BYTES * entry)));
+    }
+
+    /// @return A buffer positioned at the encoded value of this entry.
+    ByteBuffer value(int entry) {
+        return dataAt(file.get(LONG, valueOffsetsStart + (long) Long.BYTES * entry));
+    }
+
+    private K center(int sphere) {
+        return keyCodec.decode(dataAt(file.get(LONG, centerOffsetsStart + (long) Long.BYTES * sphere)));
+    }
+
+    private double radius(int sphere) {
+        return file.get(DOUBLE, radiiStart + (long) Double.BYTES * sphere);
+    }
+
+    private double distToLeafCenter(int entry) {
+        return file.get(DOUBLE, distToLeafCenterStart + (long) Double.BYTES * entry);
+    }
+
+    private int intAt(long sectionStart, int sphere) {
+        return file.get(INT, sectionStart + (long) Integer.BYTES * sphere);
+    }
+
+    /// @return An independent ByteBuffer view of the data section that starts at this offset (each
+    ///     search uses its own views so concurrent searches never share a buffer position). A
+    ///     ByteBuffer cannot span more than 2GB, so the view ends 2GB past the offset (or at the end
+    ///     of the file).
+    private ByteBuffer dataAt(long offset) {
+        long start = dataStart + offset;
+        long length = Math.min(file.byteSize() - start, Integer.MAX_VALUE);
+        return file.asSlice(start, length).asByteBuffer();
+    }
+
+    /*
+     * Note: This search process cannot be written as a recursive search. Searching recursivly can
+     * produce a StackoverflowError when the underlying tree is deeper than the JVM's internal stack
+     */
+    void search(K searchKey, EntryCandidates found) {
+
+        if (numEntries == 0) {
+            return;
+        }
+
+        // each stack entry is a sphere and the (already computed) distance to its center point
+        int[] sphereStack = new int[maxDepth + 2];
+        double[] distStack = new double[maxDepth + 2];
+        int stackSize = 0;
+
+        sphereStack[stackSize] = 0;
+        distStack[stackSize] = metric.distanceBtw(searchKey, center(0));
+        stackSize++;
+
+        while (stackSize > 0) {
+            stackSize--;
+            int sphere = sphereStack[stackSize];
+            double distToCenter = distStack[stackSize];
+
+            // ignore this sphere (and all its sub-trees) when it cannot improve the current result
+            if (radius(sphere) + found.radius() - distToCenter < 0) {
+                continue;
+            }
+
+            int second = intAt(secondChildStart, sphere);
+
+            if (second == NO_CHILD) {
+                int from = intAt(entryFromStart, sphere);
+                int to = intAt(entryToStart, sphere);
+                for (int i = from; i < to; i++) {
+                    double entryDistToCenter = distToLeafCenter(i);
+                    // the triangle inequality bounds the distance to this entry without decoding it
+                    if (Math.abs(distToCenter - entryDistToCenter) <= found.radius()) {
+                        found.offer(i, metric.distanceBtw(searchKey, key(i)));
+                    }
+                }
+            } else {
+                int first = sphere + 1;
+                double firstDist = metric.distanceBtw(searchKey, center(first));
+                double secondDist = metric.distanceBtw(searchKey, center(second));
+
+                // Submit the closest sphere second so it is popped first (this increases the chance
+                // we can skip items in the sphere that is further away).
+                if (firstDist < secondDist) {
+                    sphereStack[stackSize] = second;
+                    distStack[stackSize++] = secondDist;
+                    sphereStack[stackSize] = first;
+                    distStack[stackSize++] = firstDist;
+                } else {
+                    sphereStack[stackSize] = first;
+                    distStack[stackSize++] = firstDist;
+                    sphereStack[stackSize] = second;
+                    distStack[stackSize++] = secondDist;
+                }
+            }
+        }
+    }
+}
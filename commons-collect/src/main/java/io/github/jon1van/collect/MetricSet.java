@@ -1,19 +1,30 @@
 package io.github.jon1van.collect;
 
 import static com.google.common.base.Preconditions.*;
-import static com.google.common.collect.Lists.newArrayList;
 import static io.github.jon1van.collect.CenterPointSelectors.maxOfRandomSamples;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.collect.Maps;
 
 /// A MetricSet is a data-structure designed to efficiently support k-nearest-neighbor (kNN)
 /// searches, range searches, as well as regular add/remove operations. To support kNN searches a
@@ -58,9 +69,9 @@ import java.util.TreeMap;
 /// is unbalanced. In principal, tree balance could be maintained by rotating the Sphere nodes
 /// similar to how AVL and Red-Black trees rotate nodes to maintain balance. The makeBalancedCopy()
 /// and rebalance() methods are provided to combat tree imbalance, but these method are expensive and
-/// should be used sparingly if possible. These methods rebuild the tree from scratch by adding the
-/// existing Keys (which may exhibit some amount of imbalance) back into the tree in a random order
-/// (which will limit the tree's imbalance IMMEDIATELY AFTER the rebuild).
+/// should be used sparingly if possible. These methods rebuild the tree from scratch by bulk-loading
+/// the existing Keys (which produces a balanced tree IMMEDIATELY AFTER the rebuild). Bulk-loading
+/// can divide the work between multiple threads when asked to (see ParallelBuild).
 ///
 ///
 /// @param <K> The Keys, these keys are stored in HashMaps, so their hashcode() and equals() methods
@@ -83,6 +94,9 @@ public class MetricSet<K> {
     /// Used to judge the efficiency of different centerPointSelectors.
     private int sphereCount = 0;
 
+    /// The cumulative work done by all searches (null when SearchStats are disabled).
+    private volatile SearchStats searchStats = null;
+
     /// How many items a "Sphere of Points" can contain until that Sphere needs to be split.
     private final int MAX_INNER_SPHERE_SIZE;
 
@@ -115,6 +129,78 @@ public class MetricSet<K> {
         this.MAX_INNER_SPHERE_SIZE = maxSphereSize;
     }
 
+    /// Build a MetricSet that contains every key in a Collection. The tree is built "top-down" in a
+    /// single pass (rather than by calling add once per key) so the resulting tree is balanced and
+    /// requires far fewer distance computations to build.
+    ///
+    /// @param keys   The keys to add to the new MetricSet (duplicates are ignored)
+    /// @param metric A DistanceMetric that can measure the distance between two Keys.
+    ///
+    /// @return A balanced MetricSet that uses the default maxSphereSize and centerPointSelector
+    public static <K> MetricSet<K> bulkLoad(Collection<? extends K> keys, DistanceMetric<K> metric) {
+        return bulkLoad(keys, metric, DEFAULT_SPHERE_SIZE, maxOfRandomSamples(), ParallelBuild.sequential());
+    }
+
+    /// Build a MetricSet that contains every key in a Collection. The tree is built "top-down" in a
+    /// single pass (rather than by calling add once per key) so the resulting tree is balanced and
+    /// requires far fewer distance computations to build.
+    ///
+    /// The entire tree is built on the calling thread (see the ParallelBuild overload to divide the
+    /// work between multiple threads).
+    ///
+    /// @param keys          The keys to add to the new MetricSet (duplicates are ignored)
+    /// @param metric        A DistanceMetric that can measure the distance between two Keys.
+    /// @param maxSphereSize How many items a "Sphere of Points" can contain
+    /// @param selector      Selects the center points of newly created Spheres
+    ///
+    /// @return A balanced MetricSet
+    public static <K> MetricSet<K> bulkLoad(
+            Collection<? extends K> keys,
+            DistanceMetric<K> metric,
+            int maxSphereSize,
+            CenterPointSelector<K> selector) {
+        return bulkLoad(keys, metric, maxSphereSize, selector, ParallelBuild.sequential());
+    }
+
+    /// Build a MetricSet that contains every key in a Collection. The tree is built "top-down" in a
+    /// single pass (rather than by calling add once per key) so the resulting tree is balanced and
+    /// requires far fewer distance computations to build.
+    ///
+    /// Each "Sphere of Spheres" is built by asking the CenterPointSelector for two center points and
+    /// then assigning each key to the closest center point (lopsided splits are evened out, see
+    /// SphereSplitter). The distances computed while splitting are reused to set the radius of each
+    /// child Sphere.
+    ///
+    /// A ParallelBuild that forks tasks builds sibling Spheres in parallel, in which case the
+    /// DistanceMetric must be thread-safe.
+    ///
+    /// @param keys          The keys to add to the new MetricSet (duplicates are ignored)
+    /// @param metric        A DistanceMetric that can measure the distance between two Keys.
+    /// @param maxSphereSize How many items a "Sphere of Points" can contain
+    /// @param selector      Selects the center points of newly created Spheres
+    /// @param parallelism   Controls how the work of building the tree is divided between threads
+    ///
+    /// @return A balanced MetricSet
+    public static <K> MetricSet<K> bulkLoad(
+            Collection<? extends K> keys,
+            DistanceMetric<K> metric,
+            int maxSphereSize,
+            CenterPointSelector<K> selector,
+            ParallelBuild parallelism) {
+        checkNotNull(keys, "The input keys cannot be null");
+
+        Set<? extends K> distinctKeys = (keys instanceof Set) ? (Set<? extends K>) keys : new LinkedHashSet<>(keys);
+        Object[] array = distinctKeys.toArray();
+        for (Object key : array) {
+            checkNotNull(key);
+        }
+
+        MetricSet<K> set = new MetricSet<>(metric, maxSphereSize, selector);
+        set.bulkLoad(array, parallelism);
+
+        return set;
+    }
+
     public final DistanceMetric<K> metric() {
         return this.metric;
     }
@@ -193,17 +279,25 @@ public class MetricSet<K> {
         requireNonNull(searchKey);
         checkArgument(n >= 1, "n must be at least 1");
 
-        if (this.isEmpty()) {
-            return new SetSearchResults<>(searchKey, emptyList());
-        }
-
-        SetSearch<K> q = new SetSearch<>(searchKey, n, metric);
-        q.startQuery(rootSphere);
+        return execute(new SetSearch<>(searchKey, n, metric), searchKey);
+    }
 
-        ArrayList<SetSearchResult<K>> list = new ArrayList<>(q.results());
-        Collections.sort(list);
+    /// Perform a kNN search that only considers keys within maxDistance of the search key. Knowing
+    /// an upper bound on the distance of the results (e.g. from searching a different MetricSet
+    /// first) lets the search prune spheres sooner.
+    ///
+    /// @param searchKey   The point-in-space from which the closest entries are found
+    /// @param n           The number of entries to search for
+    /// @param maxDistance Keys farther than this are never included in the results
+    ///
+    /// @return Up to n Results with the smallest distances to the search key
+    SetSearchResults<K> getNClosest(K searchKey, int n, double maxDistance) {
+        requireNonNull(searchKey);
+        checkArgument(n >= 1, "n must be at least 1");
 
-        return new SetSearchResults<>(searchKey, list);
+        SetSearch<K> search = new SetSearch<>(metric);
+        search.prepareKnn(searchKey, n, maxDistance);
+        return execute(search, searchKey);
     }
 
     /// @param searchKey The point-in-space from which the closest entries are found
@@ -214,17 +308,200 @@ public class MetricSet<K> {
         requireNonNull(searchKey);
         checkArgument(range > 0, "range must be strictly positive");
 
+        return execute(new SetSearch<>(searchKey, metric, range), searchKey);
+    }
+
+    /// Perform a kNN search that writes its results into a reusable buffer. Reusing one buffer for
+    /// many searches avoids allocating a queue, a stack, a SetSearchResult for every candidate, and
+    /// a SetSearchResults for every search.
+    ///
+    /// @param searchKey The point-in-space from which the closest keys are found
+    /// @param n         The number of keys to search for
+    /// @param results   A buffer that is cleared and then filled with (up to) n keys sorted by
+    ///                  distance (closest first)
+    public void getNClosest(K searchKey, int n, ResultBuffer<K, ?> results) {
+        requireNonNull(searchKey);
+        checkArgument(n >= 1, "n must be at least 1");
+        requireNonNull(results);
+
+        SetSearch<K> search = results.setSearch(metric);
+        search.prepareKnn(searchKey, n);
+        executeInto(search, results);
+    }
+
+    /// Find all keys within range of a search key and write them into a reusable buffer (see
+    /// getNClosest(searchKey, n, results)).
+    ///
+    /// @param searchKey The point-in-space from which the nearby keys are found
+    /// @param range     The distance below which all keys are included in the output.
+    /// @param results   A buffer that is cleared and then filled with every key within range sorted
+    ///                  by distance (closest first)
+    public void getAllWithinRange(K searchKey, double range, ResultBuffer<K, ?> results) {
+        requireNonNull(searchKey);
+        checkArgument(range > 0, "range must be strictly positive");
+        requireNonNull(results);
+
+        SetSearch<K> search = results.setSearch(metric);
+        search.prepareRange(searchKey, range);
+        executeInto(search, results);
+    }
+
+    /// Perform many kNN searches at once. The searches are divided between the threads of the
+    /// common ForkJoinPool. This MetricSet must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the closest keys are found
+    /// @param n          The number of keys to search for (per search key)
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SetSearchResults<K>> getNClosestBatch(List<K> searchKeys, int n) {
+        return getNClosestBatch(searchKeys, n, ForkJoinPool.commonPool());
+    }
+
+    /// Perform many kNN searches at once. The searches are divided between the threads of a
+    /// ForkJoinPool. This MetricSet must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the closest keys are found
+    /// @param n          The number of keys to search for (per search key)
+    /// @param pool       The ForkJoinPool that executes the searches
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SetSearchResults<K>> getNClosestBatch(List<K> searchKeys, int n, ForkJoinPool pool) {
+        checkBatchInput(searchKeys, pool);
+        checkArgument(n > 0, "n must be at least 1");
+
+        return BatchQueries.executeInOrder(searchKeys, pool, () -> new SetSearch<K>(metric), (search, searchKey) -> {
+            search.prepareKnn(searchKey, n);
+            return execute(search, searchKey);
+        });
+    }
+
+    /// Perform many range searches at once. The searches are divided between the threads of the
+    /// common ForkJoinPool. This MetricSet must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the nearby keys are found
+    /// @param range      The distance below which all keys are included in the output.
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SetSearchResults<K>> getAllWithinRangeBatch(List<K> searchKeys, double range) {
+        return getAllWithinRangeBatch(searchKeys, range, ForkJoinPool.commonPool());
+    }
+
+    /// Perform many range searches at once. The searches are divided between the threads of a
+    /// ForkJoinPool. This MetricSet must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the nearby keys are found
+    /// @param range      The distance below which all keys are included in the output.
+    /// @param pool       The ForkJoinPool that executes the searches
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SetSearchResults<K>> getAllWithinRangeBatch(List<K> searchKeys, double range, ForkJoinPool pool) {
+        checkBatchInput(searchKeys, pool);
+        checkArgument(range > 0, "range must be strictly positive");
+
+        return BatchQueries.executeInOrder(searchKeys, pool, () -> new SetSearch<K>(metric), (search, searchKey) -> {
+            search.prepareRange(searchKey, range);
+            return execute(search, searchKey);
+        });
+    }
+
+    private static <K> void checkBatchInput(List<K> searchKeys, ForkJoinPool pool) {
+        checkNotNull(searchKeys, "The searchKeys cannot be null");
+        checkNotNull(pool, "The ForkJoinPool cannot be null");
+        for (K searchKey : searchKeys) {
+            requireNonNull(searchKey, "Null search keys are not permitted");
+        }
+    }
+
+    /// Find every pair of keys (one key from this set and one key from the other set) that are
+    /// within range of each other. The work is divided between the threads of the common
+    /// ForkJoinPool (see rangeJoin(other, range, pool, consumer)).
+    ///
+    /// @param other    The MetricSet whose keys are paired with the keys of this set
+    /// @param range    The distance below which pairs of keys are included in the output.
+    /// @param consumer Receives every matching pair (this consumer must be thread-safe)
+    public void rangeJoin(MetricSet<K> other, double range, JoinConsumer<? super K, ? super K> consumer) {
+        rangeJoin(other, range, ForkJoinPool.commonPool(), consumer);
+    }
+
+    /// Find every pair of keys (one key from this set and one key from the other set) that are
+    /// within range of each other. This is much faster than calling getAllWithinRange once per key
+    /// because both trees are traversed together (i.e. a "dual-tree" traversal). A pair of Spheres
+    /// is skipped entirely when the distance between their centerPoints exceeds the sum of their
+    /// radii plus the range. Separate pairs of Spheres are examined by separate threads of the
+    /// ForkJoinPool, and matching pairs are passed to the consumer as soon as they are found (in no
+    /// particular order).
+    ///
+    /// Neither MetricSet can be modified while the join is running. Both MetricSets should use the
+    /// same DistanceMetric. Joining a MetricSet with itself reports every pair twice (once in each
+    /// order) and every key paired with itself.
+    ///
+    /// @param other    The MetricSet whose keys are paired with the keys of this set
+    /// @param range    The distance below which pairs of keys are included in the output.
+    /// @param pool     The ForkJoinPool that executes the join
+    /// @param consumer Receives every matching pair (this consumer must be thread-safe)
+    public void rangeJoin(
+            MetricSet<K> other, double range, ForkJoinPool pool, JoinConsumer<? super K, ? super K> consumer) {
+        checkNotNull(other, "The other MetricSet cannot be null");
+        checkArgument(range > 0, "range must be strictly positive");
+        checkNotNull(pool, "The ForkJoinPool cannot be null");
+        checkNotNull(consumer, "The JoinConsumer cannot be null");
+
+        if (this.isEmpty() || other.isEmpty()) {
+            return;
+        }
+
+        Sphere left = this.rootSphere;
+        MetricSet<K>.Sphere right = other.rootSphere;
+        double centerDist = metric.distanceBtw(left.centerPoint, right.centerPoint);
+        pool.invoke(new RangeJoin(left, right, centerDist, range, consumer, RangeJoin.forkDepthFor(pool)));
+    }
+
+    /// Run a prepared SetSearch against this MetricSet and write the results into a buffer.
+    private void executeInto(SetSearch<K> q, ResultBuffer<K, ?> results) {
+
+        SearchStats cumulativeStats = this.searchStats;
+        SearchStats queryStats = (cumulativeStats == null) ? null : new SearchStats();
+
+        results.clear();
+        if (!this.isEmpty()) {
+            q.collectInto(results);
+            q.recordStatsInto(queryStats);
+            q.startQuery(rootSphere);
+            results.sortByDistance();
+        }
+
+        recordSearch(queryStats, cumulativeStats);
+    }
+
+    /// Run a prepared Search against this MetricSet.
+    private SetSearchResults<K> execute(SetSearch<K> q, K searchKey) {
+
+        SearchStats cumulativeStats = this.searchStats;
+        SearchStats queryStats = (cumulativeStats == null) ? null : new SearchStats();
+
+        // nothing to retrieve...
         if (this.isEmpty()) {
-            return new SetSearchResults<>(searchKey, emptyList());
+            return new SetSearchResults<>(searchKey, emptyList(), recordSearch(queryStats, cumulativeStats));
         }
 
-        SetSearch<K> q = new SetSearch<>(searchKey, metric, range);
+        q.recordStatsInto(queryStats);
         q.startQuery(rootSphere);
 
         ArrayList<SetSearchResult<K>> list = new ArrayList<>(q.results());
         Collections.sort(list);
 
-        return new SetSearchResults<>(searchKey, list);
+        return new SetSearchResults<>(searchKey, list, recordSearch(queryStats, cumulativeStats));
+    }
+
+    /// Add the stats of one search to the cumulative stats (when stats are enabled).
+    ///
+    /// @return The stats of the search (null when stats are disabled)
+    private static SearchStats recordSearch(SearchStats queryStats, SearchStats cumulativeStats) {
+        if (queryStats != null) {
+            queryStats.countSearch();
+            cumulativeStats.add(queryStats);
+        }
+        return queryStats;
     }
 
     /// Remove the value associated with a particular Key. IMPORTANT: A reference to a Key may remain
@@ -245,7 +522,8 @@ public class MetricSet<K> {
 
             if (!hadImpact) {
                 throw new AssertionError(
-                        "Unexpected state, hadImpact should always be true here becuase the key was found in the global map");
+                        "Unexpected state, hadImpact should always be true here becuase the key was found in the"
+                                + " global map");
             }
 
             return hadImpact;
@@ -271,19 +549,82 @@ public class MetricSet<K> {
         return this.sphereCount;
     }
 
-    /// Build an entirely new version of this MetricSet. The newly built MetricSet should be
-    /// relatively well balanced because the Key from "this" MetricSet are inserted into the "new"
-    /// MetricSet in random order.
+    /// Start collecting SearchStats. Every search adds the work it performs to a cumulative
+    /// SearchStats (see searchStats()) and the results of each search include the stats of that
+    /// search (see SetSearchResults.stats()). Collecting SearchStats has a small cost, so it is
+    /// disabled by default. Calling this method when stats are already enabled resets the
+    /// cumulative stats.
+    public void enableSearchStats() {
+        this.searchStats = new SearchStats();
+    }
+
+    /// Stop collecting SearchStats.
+    public void disableSearchStats() {
+        this.searchStats = null;
+    }
+
+    /// @return The cumulative work done by all searches since SearchStats were enabled (or null when
+    ///     SearchStats are disabled).
+    public SearchStats searchStats() {
+        return this.searchStats;
+    }
+
+    /// Count the "Spheres of Points" at each depth of this tree. A balanced tree has all its leaf
+    /// Spheres at nearly the same depth. A long tail in this histogram indicates the tree should be
+    /// rebalanced.
+    ///
+    /// @return An array where index i holds the number of leaf Spheres at depth i (the root is at
+    ///     depth 0)
+    public int[] leafDepthHistogram() {
+
+        int[] histogram = new int[0];
+        if (rootSphere == null) {
+            return histogram;
+        }
+
+        Deque<Sphere> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        stack.push(rootSphere);
+        depths.push(0);
+
+        while (!stack.isEmpty()) {
+            Sphere sphere = stack.pop();
+            int depth = depths.pop();
+
+            if (sphere.isSphereOfPoints()) {
+                if (depth >= histogram.length) {
+                    histogram = Arrays.copyOf(histogram, depth + 1);
+                }
+                histogram[depth]++;
+            } else {
+                stack.push(sphere.children().first());
+                depths.push(depth + 1);
+                stack.push(sphere.children().second());
+                depths.push(depth + 1);
+            }
+        }
+        return histogram;
+    }
+
+    /// Build an entirely new version of this MetricSet. The newly built MetricSet is balanced
+    /// because it is bulk-loaded with the Keys from "this" MetricSet. The entire tree is built on
+    /// the calling thread.
     ///
     /// @return A new version of this MetricSet that should be well balanced
     public MetricSet<K> makeBalancedCopy() {
+        return makeBalancedCopy(ParallelBuild.sequential());
+    }
 
-        List<K> listOfEntries = newArrayList(this.keySet());
-
-        Collections.shuffle(listOfEntries);
+    /// Build an entirely new version of this MetricSet. The newly built MetricSet is balanced
+    /// because it is bulk-loaded with the Keys from "this" MetricSet.
+    ///
+    /// @param parallelism Controls how the work of building the tree is divided between threads
+    ///
+    /// @return A new version of this MetricSet that should be well balanced
+    public MetricSet<K> makeBalancedCopy(ParallelBuild parallelism) {
 
-        MetricSet<K> newSet = new MetricSet<>(metric);
-        newSet.addAll(listOfEntries);
+        MetricSet<K> newSet = new MetricSet<>(metric, MAX_INNER_SPHERE_SIZE, centerPointSelector);
+        newSet.bulkLoad(this.keySet().toArray(), parallelism);
 
         if (this.size() != newSet.size()) {
             throw new AssertionError("The rebalancing process changed the number of entries");
@@ -294,16 +635,298 @@ public class MetricSet<K> {
 
     /// Rebuild this MetricSet using makeBalancedCopy().
     public void rebalance() {
+        rebalance(ParallelBuild.sequential());
+    }
 
-        MetricSet<K> newMap = makeBalancedCopy();
+    /// Rebuild this MetricSet using makeBalancedCopy(parallelism).
+    ///
+    /// @param parallelism Controls how the work of building the tree is divided between threads
+    public void rebalance(ParallelBuild parallelism) {
+
+        MetricSet<K> newMap = makeBalancedCopy(parallelism);
         this.rootSphere = newMap.rootSphere;
         this.globalHashMap = newMap.globalHashMap;
         this.sphereCount = newMap.sphereCount;
     }
 
+    /// Write the entire set (its structure and keys) to a compact binary file. The file can be
+    /// searched without rebuilding the set by calling MappedMetricSet.open(...). The file stores the
+    /// set as it currently is, consider calling rebalance() first.
+    ///
+    /// @param file     The file being written (an existing file is replaced)
+    /// @param keyCodec Converts keys to bytes (see BinaryCodecs)
+    ///
+    /// @throws IOException When the file cannot be written
+    public void writeTo(Path file, BinaryCodec<K> keyCodec) throws IOException {
+        requireNonNull(file);
+        requireNonNull(keyCodec);
+
+        MetricTreeFile.write(file, MetricTreeFile.layoutOf(rootSphere, size()), keyCodec, null);
+    }
+
+    /// Replace the contents of this MetricSet with these (distinct) keys. The tree is built top-down,
+    /// and the keys array is reordered while the tree is built.
+    private void bulkLoad(Object[] keys, ParallelBuild parallelism) {
+        checkNotNull(parallelism, "The ParallelBuild cannot be null");
+
+        clear();
+
+        if (keys.length == 0) {
+            return;
+        }
+
+        BulkLoad load = new BulkLoad(keys, parallelism);
+
+        this.rootSphere = parallelism.isParallel(keys.length)
+                ? parallelism.pool().invoke(ForkJoinTask.adapt(load::buildRoot))
+                : load.buildRoot();
+
+        // Spheres are registered after the build because the globalHashMap is not thread-safe
+        this.globalHashMap = Maps.newHashMapWithExpectedSize(keys.length);
+        this.sphereCount = registerKeysOf(rootSphere);
+    }
+
+    /// Add every key found beneath this sphere to the globalHashMap.
+    ///
+    /// @return The number of spheres found beneath (and including) this sphere.
+    private int registerKeysOf(Sphere root) {
+
+        int numSpheres = 0;
+        Deque<Sphere> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Sphere sphere = stack.pop();
+            numSpheres++;
+
+            if (sphere.isSphereOfPoints()) {
+                LeafEntries<K, Void> keys = sphere.points();
+                for (int i = 0; i < keys.size(); i++) {
+                    globalHashMap.put(keys.keyAt(i), sphere);
+                }
+            } else {
+                stack.push(sphere.children().first());
+                stack.push(sphere.children().second());
+            }
+        }
+        return numSpheres;
+    }
+
+    /// A BulkLoad holds the "working arrays" used while a MetricSet is being built top-down. Each
+    /// Sphere being built owns a contiguous range of these arrays. Consequently, sibling Spheres can
+    /// be built by different threads.
+    private class BulkLoad {
+
+        final Object[] keys;
+
+        final double[] distToFirst;
+
+        final double[] distToSecond;
+
+        final ParallelBuild parallelism;
+
+        BulkLoad(Object[] keys, ParallelBuild parallelism) {
+            this.keys = keys;
+            this.distToFirst = new double[keys.length];
+            this.distToSecond = new double[keys.length];
+            this.parallelism = parallelism;
+        }
+
+        /// Build the root Sphere. The root is centered on the first key (just like a tree built by
+        /// calling add).
+        @SuppressWarnings("unchecked")
+        Sphere buildRoot() {
+            K center = (K) keys[0];
+
+            parallelism.forEachIndex(0, keys.length, i -> distToFirst[i] = verifiedDistance(center, (K) keys[i]));
+
+            return buildSphere(center, SphereSplitter.maxOf(distToFirst, 0, keys.length), distToFirst, 0, keys.length);
+        }
+
+        /// Build a Sphere (and all of its descendants) that contains the keys in the range [from,
+        /// to).
+        ///
+        /// Note: This method is recursive, but that is safe because the trees it builds are balanced
+        /// (i.e. the recursion depth is logarithmic in the number of keys).
+        ///
+        /// @param distToCenter The array that holds the distance from each key in [from, to) to the
+        ///                     center (i.e. distToFirst or distToSecond)
+        @SuppressWarnings("unchecked")
+        Sphere buildSphere(K center, double radius, double[] distToCenter, int from, int to) {
+
+            if (to - from <= MAX_INNER_SPHERE_SIZE) {
+                LeafEntries<K, Void> entries = new LeafEntries<>(to - from, false);
+                for (int i = from; i < to; i++) {
+                    entries.add((K) keys[i], null, distToCenter[i]);
+                }
+                return new Sphere(center, radius, entries);
+            }
+
+            Pair<K> centers;
+            synchronized (centerPointSelector) {
+                centers = centerPointSelector.selectNewCenterPoints(keysIn(from, to), metric);
+            }
+
+            parallelism.forEachIndex(from, to, i -> {
+                distToFirst[i] = verifiedDistance((K) keys[i], centers.first());
+                distToSecond[i] = verifiedDistance((K) keys[i], centers.second());
+            });
+
+            int mid = SphereSplitter.split(keys, null, distToFirst, distToSecond, from, to);
+
+            // find the child radii BEFORE building the children (building a child overwrites distances)
+            double radius1 = SphereSplitter.maxOf(distToFirst, from, mid);
+            double radius2 = SphereSplitter.maxOf(distToSecond, mid, to);
+
+            Sphere child1;
+            Sphere child2;
+            if (parallelism.isParallel(to - from)) {
+                ForkJoinTask<Sphere> task1 = ForkJoinTask.adapt(
+                                () -> buildSphere(centers.first(), radius1, distToFirst, from, mid))
+                        .fork();
+                child2 = buildSphere(centers.second(), radius2, distToSecond, mid, to);
+                child1 = task1.join();
+            } else {
+                child1 = buildSphere(centers.first(), radius1, distToFirst, from, mid);
+                child2 = buildSphere(centers.second(), radius2, distToSecond, mid, to);
+            }
+
+            return new Sphere(center, radius, new Pair<>(child1, child2));
+        }
+
+        /// @return A read-only List view of the keys in the range [from, to).
+        private List<K> keysIn(int from, int to) {
+            return new AbstractList<>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public K get(int index) {
+                    return (K) keys[from + index];
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    /// A RangeJoin pairs the keys inside one Sphere of this MetricSet with the keys inside one Sphere
+    /// of another MetricSet. The larger Sphere of a pair is split into its children until both
+    /// Spheres are "Sphere of Points". Near the top of the trees the child pairs are examined by
+    /// separate ForkJoinTasks, deeper pairs are examined by the thread that found them.
+    private class RangeJoin extends RecursiveAction {
+
+        /// Forking stops after this many levels of the traversal when the ForkJoinPool has 1 thread.
+        private static final int MIN_FORK_DEPTH = 4;
+
+        private final Sphere left;
+
+        private final MetricSet<K>.Sphere right;
+
+        /// The distance between the centerPoints of the left and right Spheres.
+        private final double centerDist;
+
+        private final double range;
+
+        private final JoinConsumer<? super K, ? super K> consumer;
+
+        /// The number of additional levels at which sphere pairs are forked into new tasks.
+        private final int forkDepth;
+
+        RangeJoin(
+                Sphere left,
+                MetricSet<K>.Sphere right,
+                double centerDist,
+                double range,
+                JoinConsumer<? super K, ? super K> consumer,
+                int forkDepth) {
+            this.left = left;
+            this.right = right;
+            this.centerDist = centerDist;
+            this.range = range;
+            this.consumer = consumer;
+            this.forkDepth = forkDepth;
+        }
+
+        /// @return A fork depth that gives every thread of the pool a few dozen tasks.
+        static int forkDepthFor(ForkJoinPool pool) {
+            return MIN_FORK_DEPTH + 32 - Integer.numberOfLeadingZeros(pool.getParallelism());
+        }
+
+        @Override
+        protected void compute() {
+            join(left, right, centerDist, forkDepth);
+        }
+
+        private void join(Sphere a, MetricSet<K>.Sphere b, double abDist, int depth) {
+
+            if (abDist - a.radius() - b.radius() > range) {
+                return; // no key in "a" can be within range of any key in "b"
+            }
+
+            if (a.isSphereOfPoints() && b.isSphereOfPoints()) {
+                joinPoints(a, b, abDist);
+            } else if (b.isSphereOfPoints() || (a.isSphereOfSpheres() && a.radius() >= b.radius())) {
+                Sphere a1 = a.children().first();
+                Sphere a2 = a.children().second();
+                double dist1 = metric.distanceBtw(a1.centerPoint, b.centerPoint);
+                double dist2 = metric.distanceBtw(a2.centerPoint, b.centerPoint);
+                if (depth > 0) {
+                    invokeAll(
+                            new RangeJoin(a1, b, dist1, range, consumer, depth - 1),
+                            new RangeJoin(a2, b, dist2, range, consumer, depth - 1));
+                } else {
+                    join(a1, b, dist1, 0);
+                    join(a2, b, dist2, 0);
+                }
+            } else {
+                MetricSet<K>.Sphere b1 = b.children().first();
+                MetricSet<K>.Sphere b2 = b.children().second();
+                double dist1 = metric.distanceBtw(a.centerPoint, b1.centerPoint);
+                double dist2 = metric.distanceBtw(a.centerPoint, b2.centerPoint);
+                if (depth > 0) {
+                    invokeAll(
+                            new RangeJoin(a, b1, dist1, range, consumer, depth - 1),
+                            new RangeJoin(a, b2, dist2, range, consumer, depth - 1));
+                } else {
+                    join(a, b1, dist1, 0);
+                    join(a, b2, dist2, 0);
+                }
+            }
+        }
+
+        /// Compare every key in "a" with every key in "b" that the triangle inequality cannot rule
+        /// out (using the distances from each key to its Sphere's centerPoint).
+        private void joinPoints(Sphere a, MetricSet<K>.Sphere b, double abDist) {
+            LeafEntries<K, Void> aKeys = a.points();
+            LeafEntries<K, Void> bKeys = b.points();
+            for (int i = 0; i < aKeys.size(); i++) {
+                // d(aKey, bCenter) >= d(aCenter, bCenter) - d(aKey, aCenter)
+                if (abDist - aKeys.distToCenterAt(i) - b.radius() > range) {
+                    continue;
+                }
+                K aKey = aKeys.keyAt(i);
+                double distToCenter = metric.distanceBtw(aKey, b.centerPoint);
+                if (distToCenter - b.radius() > range) {
+                    continue;
+                }
+                for (int j = 0; j < bKeys.size(); j++) {
+                    if (Math.abs(distToCenter - bKeys.distToCenterAt(j)) > range) {
+                        continue;
+                    }
+                    double distance = metric.distanceBtw(aKey, bKeys.keyAt(j));
+                    if (distance <= range) {
+                        consumer.accept(aKey, bKeys.keyAt(j), distance);
+                    }
+                }
+            }
+        }
+    }
+
     private enum SphereType {
 
-        /// A SPHERE_OF_POINTS contain a HashSet of key. A SPHERE_OF_POINTS is a leaf node of a
+        /// A SPHERE_OF_POINTS contain a HashMap of keys. A SPHERE_OF_POINTS is a leaf node of a
         /// MetricSet tree structure
         SPHERE_OF_POINTS,
         /// A SPHERE_OF_SPHERES contains 2 other spheres. A SPHERE_OF_SPHERES is essentially an inner
@@ -323,8 +946,10 @@ public class MetricSet<K> {
 
         private SphereType type;
 
-        /// This Set is used when SphereType == SPHERE_OF_POINTS.
-        private Set<K> entries;
+        /// These keys are used when SphereType == SPHERE_OF_POINTS. They are stored along with the
+        /// distance between each key and the centerPoint (a Search uses these distances and the
+        /// triangle inequality to skip keys without calling the DistanceMetric).
+        private LeafEntries<K, Void> entries;
 
         /// This pair is used when SphereType == SPHERE_OF_SPHERES.
         private Pair<Sphere> childSpheres;
@@ -333,11 +958,31 @@ public class MetricSet<K> {
         Sphere(K key) {
             this.type = SphereType.SPHERE_OF_POINTS;
             this.centerPoint = key;
-            this.entries = new HashSet<>();
+            this.entries = new LeafEntries<>(8, false);
             this.childSpheres = null;
             sphereCount++;
         }
 
+        /// Create a bulk-loaded SphereOfPoints. This constructor does not increment the sphereCount
+        /// because bulk-loaded Spheres can be created by multiple threads.
+        private Sphere(K key, double radius, LeafEntries<K, Void> entries) {
+            this.type = SphereType.SPHERE_OF_POINTS;
+            this.centerPoint = key;
+            this.radius = radius;
+            this.entries = entries;
+            this.childSpheres = null;
+        }
+
+        /// Create a bulk-loaded SphereOfSpheres. This constructor does not increment the sphereCount
+        /// because bulk-loaded Spheres can be created by multiple threads.
+        private Sphere(K key, double radius, Pair<Sphere> children) {
+            this.type = SphereType.SPHERE_OF_SPHERES;
+            this.centerPoint = key;
+            this.radius = radius;
+            this.entries = null;
+            this.childSpheres = children;
+        }
+
         double radius() {
             return this.radius;
         }
@@ -350,7 +995,8 @@ public class MetricSet<K> {
             return this.type == SphereType.SPHERE_OF_SPHERES;
         }
 
-        Set<K> points() {
+        /// @return Each point in this SPHERE_OF_POINTS and its distance to the centerPoint.
+        LeafEntries<K, Void> points() {
             return entries;
         }
 
@@ -365,11 +1011,14 @@ public class MetricSet<K> {
             }
 
             // update radius if necessary
-            this.radius = Math.max(radius, verifiedDistance(this.centerPoint, key));
+            double distToCenter = verifiedDistance(this.centerPoint, key);
+            this.radius = Math.max(radius, distToCenter);
 
             if (isSphereOfPoints()) {
+                // MetricSet.add ignores keys it already contains, so this key is always new
                 globalHashMap.put(key, this);
-                return this.entries.add(key);
+                this.entries.add(key, null, distToCenter);
+                return true;
             } else if (isSphereOfSpheres()) {
                 Sphere child = findClosestChildSphere(key);
                 return child.add(key);
@@ -391,7 +1040,12 @@ public class MetricSet<K> {
 
         boolean remove(K key) {
             if (this.isSphereOfPoints()) {
-                return this.entries.remove(key);
+                int index = this.entries.indexOf(key);
+                if (index < 0) {
+                    return false;
+                }
+                this.entries.removeAt(index);
+                return true;
             } else {
                 throw new AssertionError(
                         "Should never get here.  " + "This should only be called on \"Sphere of Points\"");
@@ -430,7 +1084,10 @@ public class MetricSet<K> {
         }
 
         private Pair<K> pickCentersForNewSpheres() {
-            return centerPointSelector.selectNewCenterPoints(newArrayList(entries), metric);
+            // the selector can be shared with a set being bulk-loaded by another thread
+            synchronized (centerPointSelector) {
+                return centerPointSelector.selectNewCenterPoints(entries.keys(), metric);
+            }
         }
 
         /// Move the entries from this Sphere to the new Sphere.
@@ -438,8 +1095,8 @@ public class MetricSet<K> {
             // push the contents of this.children to either part1 or part2
 
             boolean tieBreaker = false;
-            for (K key : entries) {
-                addToBestOf(part1, part2, key, tieBreaker);
+            for (int i = 0; i < entries.size(); i++) {
+                addToBestOf(part1, part2, entries.keyAt(i), tieBreaker);
                 tieBreaker = !tieBreaker; // alternate the tiebreaker
             }
         }
@@ -474,7 +1131,7 @@ public class MetricSet<K> {
         Set<K> entries() {
 
             if (this.isSphereOfPoints()) {
-                return this.entries();
+                return new HashSet<>(this.entries.keys());
             }
 
             if (this.isSphereOfSpheres()) {
@@ -6,15 +6,30 @@ import static io.github.jon1van.collect.CenterPointSelectors.maxOfRandomSamples;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /// A MetricTree is a Map-like data-structure designed to efficiently support k-nearest-neighbor
 /// (kNN) searches, range searches, as well as regular Map style put/get operations. To support kNN
@@ -59,9 +74,9 @@ import com.google.common.collect.Lists;
 /// that is unbalanced. In principal, tree balance could be maintained by rotating the Sphere nodes
 /// similar to how AVL and Red-Black trees rotate nodes to maintain balance. The makeBalancedCopy()
 /// and rebalance() methods are provided to combat tree imbalance, but these method are expensive and
-/// should be used sparingly if possible. These methods rebuild the tree from scratch by adding the
-/// existing Key + Value pairs (which may exhibit some amount of imbalance) back into the tree in a
-/// random order (which will limit the tree's imbalance IMMEDIATELY AFTER the rebuild).
+/// should be used sparingly if possible. These methods rebuild the tree from scratch by bulk-loading
+/// the existing Key + Value pairs (which produces a balanced tree IMMEDIATELY AFTER the rebuild).
+/// Bulk-loading can divide the work between multiple threads when asked to (see ParallelBuild).
 ///
 /// A MetricTree is "fast" because the Binary Tree structure discussed above is paired with a
 /// standard HashMap that contains all of the Key + Value Pairs. This means replacing the value
@@ -87,6 +102,9 @@ public class MetricTree<K, V> {
     /// Used to judge the efficiency of different centerPointSelectors.
     private int sphereCount = 0;
 
+    /// The cumulative work done by all searches (null when SearchStats are disabled).
+    private volatile SearchStats searchStats = null;
+
     /// How many items a "Sphere of Points" can contain until that Sphere needs to be split.
     private final int MAX_INNER_SPHERE_SIZE;
 
@@ -117,6 +135,83 @@ public class MetricTree<K, V> {
         this.MAX_INNER_SPHERE_SIZE = maxSphereSize;
     }
 
+    /// Build a MetricTree that contains every entry in a Map. The tree is built "top-down" in a
+    /// single pass (rather than by calling put once per entry) so the resulting tree is balanced and
+    /// requires far fewer distance computations to build.
+    ///
+    /// @param data   The entries to put in the new MetricTree
+    /// @param metric A DistanceMetric that can measure the distance between two Keys.
+    ///
+    /// @return A balanced MetricTree that uses the default maxSphereSize and centerPointSelector
+    public static <K, V> MetricTree<K, V> bulkLoad(Map<? extends K, ? extends V> data, DistanceMetric<K> metric) {
+        return bulkLoad(data, metric, DEFAULT_SPHERE_SIZE, maxOfRandomSamples(), ParallelBuild.sequential());
+    }
+
+    /// Build a MetricTree that contains every entry in a Map. The tree is built "top-down" in a
+    /// single pass (rather than by calling put once per entry) so the resulting tree is balanced and
+    /// requires far fewer distance computations to build.
+    ///
+    /// The entire tree is built on the calling thread (see the ParallelBuild overload to divide the
+    /// work between multiple threads).
+    ///
+    /// @param data          The entries to put in the new MetricTree
+    /// @param metric        A DistanceMetric that can measure the distance between two Keys.
+    /// @param maxSphereSize How many items a "Sphere of Points" can contain
+    /// @param selector      Selects the center points of newly created Spheres
+    ///
+    /// @return A balanced MetricTree
+    public static <K, V> MetricTree<K, V> bulkLoad(
+            Map<? extends K, ? extends V> data,
+            DistanceMetric<K> metric,
+            int maxSphereSize,
+            CenterPointSelector<K> selector) {
+        return bulkLoad(data, metric, maxSphereSize, selector, ParallelBuild.sequential());
+    }
+
+    /// Build a MetricTree that contains every entry in a Map. The tree is built "top-down" in a
+    /// single pass (rather than by calling put once per entry) so the resulting tree is balanced and
+    /// requires far fewer distance computations to build.
+    ///
+    /// Each "Sphere of Spheres" is built by asking the CenterPointSelector for two center points and
+    /// then assigning each entry to the closest center point (lopsided splits are evened out, see
+    /// SphereSplitter). The distances computed while splitting are reused to set the radius of each
+    /// child Sphere.
+    ///
+    /// A ParallelBuild that forks tasks builds sibling Spheres in parallel, in which case the
+    /// DistanceMetric must be thread-safe.
+    ///
+    /// @param data          The entries to put in the new MetricTree
+    /// @param metric        A DistanceMetric that can measure the distance between two Keys.
+    /// @param maxSphereSize How many items a "Sphere of Points" can contain
+    /// @param selector      Selects the center points of newly created Spheres
+    /// @param parallelism   Controls how the work of building the tree is divided between threads
+    ///
+    /// @return A balanced MetricTree
+    public static <K, V> MetricTree<K, V> bulkLoad(
+            Map<? extends K, ? extends V> data,
+            DistanceMetric<K> metric,
+            int maxSphereSize,
+            CenterPointSelector<K> selector,
+            ParallelBuild parallelism) {
+        checkNotNull(data, "The input data cannot be null");
+
+        int n = data.size();
+        Object[] keys = new Object[n];
+        Object[] values = new Object[n];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : data.entrySet()) {
+            keys[i] = requireNonNull(
+                    entry.getKey(), "Null Keys are not permited because they cannot be placed in the metric space");
+            values[i] = entry.getValue();
+            i++;
+        }
+
+        MetricTree<K, V> tree = new MetricTree<>(metric, maxSphereSize, selector);
+        tree.bulkLoad(keys, values, parallelism);
+
+        return tree;
+    }
+
     public final DistanceMetric<K> metric() {
         return this.metric;
     }
@@ -145,7 +240,8 @@ public class MetricTree<K, V> {
         // do a "short-circuit" put when our global HashMap has already seen the Key provided
         if (globalHashMap.containsKey(key)) {
             SphereAssignment<K, V> sa = globalHashMap.get(key);
-            sa.sphere().entries.put(key, value); // update the "local" entry
+            LeafEntries<K, V> local = sa.sphere().entries;
+            local.setValueAt(local.indexOf(key), value); // update the "local" entry
             V prior = sa.updateValue(value); // update the "global" entry
             return prior;
         }
@@ -218,17 +314,48 @@ public class MetricTree<K, V> {
         requireNonNull(searchKey);
         checkArgument(n > 0, "n must be at least 1");
 
-        if (this.isEmpty()) {
-            return new SearchResults<>(searchKey, Collections.emptyList());
-        }
+        return execute(new Search<>(searchKey, n, metric), searchKey);
+    }
 
-        Search<K, V> q = new Search<>(searchKey, n, metric);
-        q.startQuery(rootSphere);
+    /// Perform an approximate kNN search that trades accuracy for speed. The search ignores any
+    /// sphere (or entry) whose lower-bound distance is within a factor of (1 + epsilon) of the
+    /// current k-th result. Consequently, the i-th result is at most (1 + epsilon) times farther
+    /// from the search key than the true i-th nearest neighbor.
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    /// @param epsilon   The allowed relative error (0 = an exact search)
+    ///
+    /// @return Up to n Key/Value Results, SearchResults.isExact() reports if the results are
+    ///     guaranteed to be exact
+    public SearchResults<K, V> getNClosestApprox(K searchKey, int n, double epsilon) {
+        return getNClosestApprox(searchKey, n, epsilon, Integer.MAX_VALUE);
+    }
 
-        ArrayList<SearchResult<K, V>> list = new ArrayList<>(q.results());
-        Collections.sort(list);
+    /// Perform an approximate kNN search with a bounded amount of work. This search relaxes pruning
+    /// like getNClosestApprox(searchKey, n, epsilon) and also stops exploring new spheres once the
+    /// DistanceMetric has been called maxDistanceCalls times. The leaf sphere being scanned when the
+    /// budget runs out is finished, and the search continues until it has found n entries, so a
+    /// search can exceed its budget. The search descends
+    /// towards the search key first, so even a small budget usually finds good (but not necessarily
+    /// the best) results.
+    ///
+    /// @param searchKey        The point-in-space from which the closest entries are found
+    /// @param n                The number of entries to search for
+    /// @param epsilon          The allowed relative error (0 = no error)
+    /// @param maxDistanceCalls The work budget of the search
+    ///
+    /// @return Up to n Key/Value Results, SearchResults.isExact() reports if the results are
+    ///     guaranteed to be exact
+    public SearchResults<K, V> getNClosestApprox(K searchKey, int n, double epsilon, int maxDistanceCalls) {
+        requireNonNull(searchKey);
+        checkArgument(n > 0, "n must be at least 1");
+        checkArgument(epsilon >= 0, "epsilon cannot be negative");
+        checkArgument(maxDistanceCalls > 0, "maxDistanceCalls must be at least 1");
 
-        return new SearchResults<>(searchKey, list);
+        Search<K, V> search = new Search<>(searchKey, n, metric);
+        search.approximate(epsilon, maxDistanceCalls);
+        return execute(search, searchKey);
     }
 
     /// @param searchKey The point-in-space from which the closest entries are found
@@ -239,18 +366,236 @@ public class MetricTree<K, V> {
         requireNonNull(searchKey);
         checkArgument(range > 0, "range must be strictly positive");
 
+        return execute(new Search<>(searchKey, metric, range), searchKey);
+    }
+
+    /// Perform a kNN search that writes its results into a reusable buffer. Reusing one buffer for
+    /// many searches avoids allocating a queue, a stack, a SearchResult for every candidate, and a
+    /// SearchResults for every search.
+    ///
+    /// @param searchKey The point-in-space from which the closest entries are found
+    /// @param n         The number of entries to search for
+    /// @param results   A buffer that is cleared and then filled with (up to) n entries sorted by
+    ///                  distance (closest first)
+    public void getNClosest(K searchKey, int n, ResultBuffer<K, V> results) {
+        requireNonNull(searchKey);
+        checkArgument(n > 0, "n must be at least 1");
+        requireNonNull(results);
+
+        Search<K, V> search = results.treeSearch(metric);
+        search.prepareKnn(searchKey, n);
+        executeInto(search, results);
+    }
+
+    /// Find all entries within range of a search key and write them into a reusable buffer (see
+    /// getNClosest(searchKey, n, results)).
+    ///
+    /// @param searchKey The point-in-space from which the nearby entries are found
+    /// @param range     The distance below which all entries are included in the output.
+    /// @param results   A buffer that is cleared and then filled with every entry within range
+    ///                  sorted by distance (closest first)
+    public void getAllWithinRange(K searchKey, double range, ResultBuffer<K, V> results) {
+        requireNonNull(searchKey);
+        checkArgument(range > 0, "range must be strictly positive");
+        requireNonNull(results);
+
+        Search<K, V> search = results.treeSearch(metric);
+        search.prepareRange(searchKey, range);
+        executeInto(search, results);
+    }
+
+    /// Lazily iterate through the entries of this tree in order of increasing distance to the search
+    /// key. Unlike getNClosest(searchKey, n), the number of results does not need to be known in
+    /// advance. Each call to next() only does the work required to find the next closest entry, so
+    /// iterating until an "acceptable" entry is found is much cheaper than repeatedly calling
+    /// getNClosest with larger values of n. This MetricTree must not be modified while the Iterator
+    /// is in use.
+    ///
+    /// @param searchKey The point-in-space from which distances are measured
+    ///
+    /// @return An Iterator that returns every entry in this tree (closest first)
+    public Iterator<SearchResult<K, V>> nearestNeighborIterator(K searchKey) {
+        requireNonNull(searchKey);
+
+        return new NearestNeighborIterator<>(rootSphere, searchKey, metric);
+    }
+
+    /// Lazily stream the entries of this tree in order of increasing distance to the search key (see
+    /// nearestNeighborIterator). Short-circuiting operations like findFirst(), limit(n), and
+    /// takeWhile(...) stop the underlying search early. This MetricTree must not be modified while
+    /// the Stream is in use.
+    ///
+    /// @param searchKey The point-in-space from which distances are measured
+    ///
+    /// @return A sequential Stream of every entry in this tree (closest first)
+    public Stream<SearchResult<K, V>> nearestNeighbors(K searchKey) {
+        Iterator<SearchResult<K, V>> iter = nearestNeighborIterator(searchKey);
+        return StreamSupport.stream(
+                Spliterators.spliterator(iter, size(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /// Perform many kNN searches at once. The searches are divided between the threads of the
+    /// common ForkJoinPool. This MetricTree must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the closest entries are found
+    /// @param n          The number of entries to search for (per search key)
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SearchResults<K, V>> getNClosestBatch(List<K> searchKeys, int n) {
+        return getNClosestBatch(searchKeys, n, ForkJoinPool.commonPool());
+    }
+
+    /// Perform many kNN searches at once. The searches are divided between the threads of a
+    /// ForkJoinPool. This MetricTree must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the closest entries are found
+    /// @param n          The number of entries to search for (per search key)
+    /// @param pool       The ForkJoinPool that executes the searches
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SearchResults<K, V>> getNClosestBatch(List<K> searchKeys, int n, ForkJoinPool pool) {
+        checkBatchInput(searchKeys, pool);
+        checkArgument(n > 0, "n must be at least 1");
+
+        return BatchQueries.executeInOrder(searchKeys, pool, () -> new Search<K, V>(metric), (search, searchKey) -> {
+            search.prepareKnn(searchKey, n);
+            return execute(search, searchKey);
+        });
+    }
+
+    /// Perform many range searches at once. The searches are divided between the threads of the
+    /// common ForkJoinPool. This MetricTree must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the nearby entries are found
+    /// @param range      The distance below which all entries are included in the output.
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SearchResults<K, V>> getAllWithinRangeBatch(List<K> searchKeys, double range) {
+        return getAllWithinRangeBatch(searchKeys, range, ForkJoinPool.commonPool());
+    }
+
+    /// Perform many range searches at once. The searches are divided between the threads of a
+    /// ForkJoinPool. This MetricTree must not be modified while the searches are running.
+    ///
+    /// @param searchKeys The points-in-space from which the nearby entries are found
+    /// @param range      The distance below which all entries are included in the output.
+    /// @param pool       The ForkJoinPool that executes the searches
+    ///
+    /// @return The result of each search, in the same order as the search keys
+    public List<SearchResults<K, V>> getAllWithinRangeBatch(List<K> searchKeys, double range, ForkJoinPool pool) {
+        checkBatchInput(searchKeys, pool);
+        checkArgument(range > 0, "range must be strictly positive");
+
+        return BatchQueries.executeInOrder(searchKeys, pool, () -> new Search<K, V>(metric), (search, searchKey) -> {
+            search.prepareRange(searchKey, range);
+            return execute(search, searchKey);
+        });
+    }
+
+    private static <K> void checkBatchInput(List<K> searchKeys, ForkJoinPool pool) {
+        checkNotNull(searchKeys, "The searchKeys cannot be null");
+        checkNotNull(pool, "The ForkJoinPool cannot be null");
+        for (K searchKey : searchKeys) {
+            requireNonNull(searchKey, "Null search keys are not permitted");
+        }
+    }
+
+    /// Find every pair of entries (one entry from this tree and one entry from the other tree) whose
+    /// keys are within range of each other. The work is divided between the threads of the common
+    /// ForkJoinPool (see rangeJoin(other, range, pool, consumer)).
+    ///
+    /// @param other    The MetricTree whose entries are paired with the entries of this tree
+    /// @param range    The distance below which pairs of entries are included in the output.
+    /// @param consumer Receives every matching pair (this consumer must be thread-safe)
+    public <W> void rangeJoin(
+            MetricTree<K, W> other,
+            double range,
+            JoinConsumer<? super Map.Entry<K, V>, ? super Map.Entry<K, W>> consumer) {
+        rangeJoin(other, range, ForkJoinPool.commonPool(), consumer);
+    }
+
+    /// Find every pair of entries (one entry from this tree and one entry from the other tree) whose
+    /// keys are within range of each other. This is much faster than calling getAllWithinRange once
+    /// per key because both trees are traversed together (i.e. a "dual-tree" traversal). A pair of
+    /// Spheres is skipped entirely when the distance between their centerPoints exceeds the sum of
+    /// their radii plus the range. Separate pairs of Spheres are examined by separate threads of the
+    /// ForkJoinPool, and matching pairs are passed to the consumer as soon as they are found (in no
+    /// particular order). The entries passed to the consumer are immutable snapshots.
+    ///
+    /// Neither MetricTree can be modified while the join is running. Both MetricTrees should use the
+    /// same DistanceMetric. Joining a MetricTree with itself reports every pair twice (once in each
+    /// order) and every entry paired with itself.
+    ///
+    /// @param other    The MetricTree whose entries are paired with the entries of this tree
+    /// @param range    The distance below which pairs of entries are included in the output.
+    /// @param pool     The ForkJoinPool that executes the join
+    /// @param consumer Receives every matching pair (this consumer must be thread-safe)
+    public <W> void rangeJoin(
+            MetricTree<K, W> other,
+            double range,
+            ForkJoinPool pool,
+            JoinConsumer<? super Map.Entry<K, V>, ? super Map.Entry<K, W>> consumer) {
+        checkNotNull(other, "The other MetricTree cannot be null");
+        checkArgument(range > 0, "range must be strictly positive");
+        checkNotNull(pool, "The ForkJoinPool cannot be null");
+        checkNotNull(consumer, "The JoinConsumer cannot be null");
+
+        if (this.isEmpty() || other.isEmpty()) {
+            return;
+        }
+
+        Sphere left = this.rootSphere;
+        MetricTree<K, W>.Sphere right = other.rootSphere;
+        double centerDist = metric.distanceBtw(left.centerPoint, right.centerPoint);
+        pool.invoke(new RangeJoin<>(left, right, centerDist, range, consumer, RangeJoin.forkDepthFor(pool)));
+    }
+
+    /// Run a prepared Search against this MetricTree and write the results into a buffer.
+    private void executeInto(Search<K, V> q, ResultBuffer<K, V> results) {
+
+        SearchStats cumulativeStats = this.searchStats;
+        SearchStats queryStats = (cumulativeStats == null) ? null : new SearchStats();
+
+        results.clear();
+        if (!this.isEmpty()) {
+            q.collectInto(results);
+            q.recordStatsInto(queryStats);
+            q.startQuery(rootSphere);
+            results.sortByDistance();
+        }
+
+        recordSearch(queryStats, cumulativeStats);
+    }
+
+    /// Run a prepared Search against this MetricTree.
+    private SearchResults<K, V> execute(Search<K, V> q, K searchKey) {
+
+        SearchStats cumulativeStats = this.searchStats;
+        SearchStats queryStats = (cumulativeStats == null) ? null : new SearchStats();
+
         // nothing to retrieve...
         if (this.isEmpty()) {
-            return new SearchResults<>(searchKey, Collections.emptyList());
+            return new SearchResults<>(searchKey, Collections.emptyList(), recordSearch(queryStats, cumulativeStats));
         }
 
-        Search<K, V> q = new Search<>(searchKey, metric, range);
+        q.recordStatsInto(queryStats);
         q.startQuery(rootSphere);
 
         ArrayList<SearchResult<K, V>> list = new ArrayList<>(q.results());
         Collections.sort(list);
 
-        return new SearchResults<>(searchKey, list);
+        return new SearchResults<>(searchKey, list, recordSearch(queryStats, cumulativeStats), q.isExact());
+    }
+
+    /// Add the stats of one search to the cumulative stats (when stats are enabled).
+    ///
+    /// @return The stats of the search (null when stats are disabled)
+    private static SearchStats recordSearch(SearchStats queryStats, SearchStats cumulativeStats) {
+        if (queryStats != null) {
+            queryStats.countSearch();
+            cumulativeStats.add(queryStats);
+        }
+        return queryStats;
     }
 
     /// Remove the value associated with a particular Key. IMPORTANT: A reference to a Key may remain
@@ -274,12 +619,127 @@ public class MetricTree<K, V> {
                         "the value found in the globalMap should match " + "the value found in the tree structure");
             }
 
+            repairAfterRemoval(sa.sphere());
+
             return priorValue;
         } else {
             return null;
         }
     }
 
+    /// Update every Sphere above a leaf that just lost an entry. Radii are tightened (without
+    /// calling the DistanceMetric), an empty or sparse leaf is merged with its sibling, and the
+    /// largest fragmented subtree (if any) is rebuilt. Consequently, a tree with a lot of churn does
+    /// not slowly fill up with stale Spheres and only its degraded parts are ever rebuilt.
+    private void repairAfterRemoval(Sphere leaf) {
+
+        Sphere fragmented = null;
+        for (Sphere sphere = leaf; sphere != null; sphere = sphere.parent) {
+            sphere.size--;
+            sphere.removals++;
+            if (sphere.isSphereOfSpheres()) {
+                sphere.tightenRadius();
+                if (sphere.isFragmented()) {
+                    fragmented = sphere; // keep the largest fragmented subtree
+                }
+            }
+        }
+
+        if (fragmented != null) {
+            rebuild(fragmented);
+        } else {
+            mergeWithSibling(leaf);
+        }
+    }
+
+    /// Remove a leaf that is empty (or merge a sparse leaf and its sibling leaf into their parent).
+    private void mergeWithSibling(Sphere leaf) {
+
+        Sphere parent = leaf.parent;
+        if (parent == null) {
+            return;
+        }
+
+        Pair<Sphere> children = parent.children();
+        Sphere sibling = (children.first() == leaf) ? children.second() : children.first();
+
+        if (leaf.size == 0) {
+            replace(parent, sibling);
+            sphereCount -= 2;
+        } else if (sibling.isSphereOfPoints() && leaf.size + sibling.size <= MAX_INNER_SPHERE_SIZE / 2) {
+            parent.absorbChildren();
+            sphereCount -= 2;
+        }
+    }
+
+    /// Replace a fragmented subtree with a freshly bulk-loaded subtree that holds the same entries.
+    private void rebuild(Sphere fragmented) {
+
+        Object[] keys = new Object[fragmented.size];
+        Object[] values = new Object[fragmented.size];
+        int numEntries = 0;
+        int numSpheres = 0;
+
+        Deque<Sphere> stack = new ArrayDeque<>();
+        stack.push(fragmented);
+        while (!stack.isEmpty()) {
+            Sphere sphere = stack.pop();
+            numSpheres++;
+            if (sphere.isSphereOfPoints()) {
+                LeafEntries<K, V> entries = sphere.points();
+                for (int i = 0; i < entries.size(); i++) {
+                    keys[numEntries] = entries.keyAt(i);
+                    values[numEntries] = entries.valueAt(i);
+                    numEntries++;
+                }
+            } else {
+                stack.push(sphere.children().first());
+                stack.push(sphere.children().second());
+            }
+        }
+
+        if (numEntries != keys.length) {
+            throw new AssertionError("The size of a Sphere did not match the number of entries it contains");
+        }
+
+        Sphere rebuilt = new BulkLoad(keys, values, ParallelBuild.sequential()).buildRoot();
+        replace(fragmented, rebuilt);
+        sphereCount += registerEntriesOf(rebuilt) - numSpheres;
+    }
+
+    /// Put a Sphere in the place of another Sphere (the replacement must not contain keys that are
+    /// outside the original Sphere).
+    private void replace(Sphere original, Sphere replacement) {
+
+        Sphere parent = original.parent;
+        if (parent == null) {
+            this.rootSphere = replacement;
+            replacement.parent = null;
+            replacement.distToParentCenter = 0;
+        } else {
+            Pair<Sphere> children = parent.children();
+            parent.childSpheres = (children.first() == original)
+                    ? new Pair<>(replacement, children.second())
+                    : new Pair<>(children.first(), replacement);
+            parent.adopt(replacement, verifiedDistance(parent.centerPoint, replacement.centerPoint));
+        }
+    }
+
+    /// Measure how much this tree has degraded due to removals. Removing a key can leave behind a
+    /// center point that is no longer in the tree and a radius that is larger than necessary. Radii
+    /// are tightened and sparse Spheres are merged as keys are removed, but a subtree is only fully
+    /// repaired when it is rebuilt. A subtree is automatically rebuilt when more keys have been
+    /// removed from it (since it was built) than it currently holds.
+    ///
+    /// @return The number of keys removed from this tree since it was built (or rebuilt) divided by
+    ///     the number of keys removed plus the number of keys in the tree (0 for a new tree).
+    public double fragmentation() {
+        if (rootSphere == null || rootSphere.removals == 0) {
+            return 0;
+        }
+        return (double) rootSphere.removals / (rootSphere.removals + rootSphere.size);
+    }
+
     public void clear() {
         this.rootSphere = null;
         this.globalHashMap = new HashMap<>();
@@ -301,22 +761,91 @@ public class MetricTree<K, V> {
         return this.sphereCount;
     }
 
-    /// Build an entirely new version of this MetricTree. The newly built MetricTree should be
-    /// relatively well-balanced because the Key+Value pairs from "this" MetricTree are inserted into
-    /// the "new" MetricTree in random order.
+    /// Start collecting SearchStats. Every search adds the work it performs to a cumulative
+    /// SearchStats (see searchStats()) and the results of each search include the stats of that
+    /// search (see SearchResults.stats()). Collecting SearchStats has a small cost, so it is disabled by
+    /// default. Calling this method when stats are already enabled resets the cumulative stats.
+    public void enableSearchStats() {
+        this.searchStats = new SearchStats();
+    }
+
+    /// Stop collecting SearchStats.
+    public void disableSearchStats() {
+        this.searchStats = null;
+    }
+
+    /// @return The cumulative work done by all searches since SearchStats were enabled (or null when
+    ///     SearchStats are disabled).
+    public SearchStats searchStats() {
+        return this.searchStats;
+    }
+
+    /// Count the "Spheres of Points" at each depth of this tree. A balanced tree has all its leaf
+    /// Spheres at nearly the same depth. A long tail in this histogram indicates the tree should be
+    /// rebalanced.
     ///
-    /// @return A new version of this MetricTree that should be well balanced
-    public MetricTree<K, V> makeBalancedCopy() {
+    /// @return An array where index i holds the number of leaf Spheres at depth i (the root is at
+    ///     depth 0)
+    public int[] leafDepthHistogram() {
+
+        int[] histogram = new int[0];
+        if (rootSphere == null) {
+            return histogram;
+        }
+
+        Deque<Sphere> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        stack.push(rootSphere);
+        depths.push(0);
+
+        while (!stack.isEmpty()) {
+            Sphere sphere = stack.pop();
+            int depth = depths.pop();
 
-        List<Map.Entry<K, V>> listOfEntries = Lists.newArrayList(this.entrySet());
+            if (sphere.isSphereOfPoints()) {
+                if (depth >= histogram.length) {
+                    histogram = Arrays.copyOf(histogram, depth + 1);
+                }
+                histogram[depth]++;
+            } else {
+                stack.push(sphere.children().first());
+                depths.push(depth + 1);
+                stack.push(sphere.children().second());
+                depths.push(depth + 1);
+            }
+        }
+        return histogram;
+    }
 
-        Collections.shuffle(listOfEntries);
+    /// Build an entirely new version of this MetricTree. The newly built MetricTree is balanced
+    /// because it is bulk-loaded with the Key+Value pairs from "this" MetricTree. The entire
+    /// tree is built on the calling thread.
+    ///
+    /// @return A new version of this MetricTree that should be well balanced
+    public MetricTree<K, V> makeBalancedCopy() {
+        return makeBalancedCopy(ParallelBuild.sequential());
+    }
 
-        MetricTree<K, V> newMap = new MetricTree<>(metric);
-        for (Map.Entry<K, V> entry : listOfEntries) {
-            newMap.put(entry.getKey(), entry.getValue());
+    /// Build an entirely new version of this MetricTree. The newly built MetricTree is balanced
+    /// because it is bulk-loaded with the Key+Value pairs from "this" MetricTree.
+    ///
+    /// @param parallelism Controls how the work of building the tree is divided between threads
+    ///
+    /// @return A new version of this MetricTree that should be well balanced
+    public MetricTree<K, V> makeBalancedCopy(ParallelBuild parallelism) {
+
+        Object[] keys = new Object[size()];
+        Object[] values = new Object[size()];
+        int i = 0;
+        for (Map.Entry<K, SphereAssignment<K, V>> entry : globalHashMap.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue().value();
+            i++;
         }
 
+        MetricTree<K, V> newMap = emptyCopy();
+        newMap.bulkLoad(keys, values, parallelism);
+
         if (this.size() != newMap.size()) {
             throw new AssertionError("The rebalancing process changed the number of entries");
         }
@@ -326,13 +855,321 @@ public class MetricTree<K, V> {
 
     /// Rebuild this MetricTree using makeBalancedCopy().
     public void rebalance() {
+        rebalance(ParallelBuild.sequential());
+    }
 
-        MetricTree<K, V> newMap = makeBalancedCopy();
+    /// Rebuild this MetricTree using makeBalancedCopy(parallelism).
+    ///
+    /// @param parallelism Controls how the work of building the tree is divided between threads
+    public void rebalance(ParallelBuild parallelism) {
+
+        MetricTree<K, V> newMap = makeBalancedCopy(parallelism);
         this.rootSphere = newMap.rootSphere;
         this.globalHashMap = newMap.globalHashMap;
         this.sphereCount = newMap.sphereCount;
     }
 
+    /// Create an immutable snapshot of this MetricTree that is stored in flat arrays. A
+    /// FrozenMetricTree uses much less memory and answers kNN and range searches faster than a
+    /// MetricTree, so freezing is worthwhile when a tree will not be modified after it is loaded.
+    /// The snapshot has the same structure as this tree, consider calling rebalance() first.
+    ///
+    /// @return A FrozenMetricTree containing the current entries of this MetricTree (future
+    ///     modifications to this MetricTree are not reflected in the snapshot)
+    public FrozenMetricTree<K, V> freeze() {
+        return new FrozenMetricTree<>(metric, rootSphere, size());
+    }
+
+    /// Write the entire tree (its structure, keys, and values) to a compact binary file. The file
+    /// can be searched without rebuilding the tree by calling MappedMetricTree.open(...). The file
+    /// stores the tree as it currently is, consider calling rebalance() first.
+    ///
+    /// @param file       The file being written (an existing file is replaced)
+    /// @param keyCodec   Converts keys to bytes (see BinaryCodecs)
+    /// @param valueCodec Converts values to bytes (see BinaryCodecs)
+    ///
+    /// @throws IOException When the file cannot be written
+    public void writeTo(Path file, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec) throws IOException {
+        freeze().writeTo(file, keyCodec, valueCodec);
+    }
+
+    /// @return A new, empty MetricTree that uses this tree's DistanceMetric, maxSphereSize, and
+    ///     CenterPointSelector.
+    MetricTree<K, V> emptyCopy() {
+        return new MetricTree<>(metric, MAX_INNER_SPHERE_SIZE, centerPointSelector);
+    }
+
+    /// Replace the contents of this MetricTree with these (distinct) keys and their values. The tree
+    /// is built top-down, and the keys and values arrays are reordered while the tree is built.
+    void bulkLoad(Object[] keys, Object[] values, ParallelBuild parallelism) {
+        checkNotNull(parallelism, "The ParallelBuild cannot be null");
+
+        clear();
+
+        if (keys.length == 0) {
+            return;
+        }
+
+        BulkLoad load = new BulkLoad(keys, values, parallelism);
+
+        this.rootSphere = parallelism.isParallel(keys.length)
+                ? parallelism.pool().invoke(ForkJoinTask.adapt(load::buildRoot))
+                : load.buildRoot();
+
+        // Spheres are registered after the build because the globalHashMap is not thread-safe
+        this.globalHashMap = Maps.newHashMapWithExpectedSize(keys.length);
+        this.sphereCount = registerEntriesOf(rootSphere);
+    }
+
+    /// Add every entry found beneath this sphere to the globalHashMap.
+    ///
+    /// @return The number of spheres found beneath (and including) this sphere.
+    private int registerEntriesOf(Sphere root) {
+
+        int numSpheres = 0;
+        Deque<Sphere> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Sphere sphere = stack.pop();
+            numSpheres++;
+
+            if (sphere.isSphereOfPoints()) {
+                LeafEntries<K, V> entries = sphere.points();
+                for (int i = 0; i < entries.size(); i++) {
+                    globalHashMap.put(entries.keyAt(i), new SphereAssignment<>(sphere, entries.valueAt(i)));
+                }
+            } else {
+                stack.push(sphere.children().first());
+                stack.push(sphere.children().second());
+            }
+        }
+        return numSpheres;
+    }
+
+    /// A BulkLoad holds the "working arrays" used while a MetricTree is being built top-down. Each
+    /// Sphere being built owns a contiguous range of these arrays. Consequently, sibling Spheres can
+    /// be built by different threads.
+    private class BulkLoad {
+
+        final Object[] keys;
+
+        final Object[] values;
+
+        final double[] distToFirst;
+
+        final double[] distToSecond;
+
+        final ParallelBuild parallelism;
+
+        BulkLoad(Object[] keys, Object[] values, ParallelBuild parallelism) {
+            this.keys = keys;
+            this.values = values;
+            this.distToFirst = new double[keys.length];
+            this.distToSecond = new double[keys.length];
+            this.parallelism = parallelism;
+        }
+
+        /// Build the root Sphere. The root is centered on the first key (just like a tree built by
+        /// calling put).
+        @SuppressWarnings("unchecked")
+        Sphere buildRoot() {
+            K center = (K) keys[0];
+
+            parallelism.forEachIndex(0, keys.length, i -> distToFirst[i] = verifiedDistance(center, (K) keys[i]));
+
+            return buildSphere(center, SphereSplitter.maxOf(distToFirst, 0, keys.length), distToFirst, 0, keys.length);
+        }
+
+        /// Build a Sphere (and all of its descendants) that contains the entries in the range [from,
+        /// to).
+        ///
+        /// Note: This method is recursive, but that is safe because the trees it builds are balanced
+        /// (i.e. the recursion depth is logarithmic in the number of entries).
+        ///
+        /// @param distToCenter The array that holds the distance from each key in [from, to) to the
+        ///                     center (i.e. distToFirst or distToSecond)
+        @SuppressWarnings("unchecked")
+        Sphere buildSphere(K center, double radius, double[] distToCenter, int from, int to) {
+
+            if (to - from <= MAX_INNER_SPHERE_SIZE) {
+                LeafEntries<K, V> entries = new LeafEntries<>(to - from, true);
+                for (int i = from; i < to; i++) {
+                    entries.add((K) keys[i], (V) values[i], distToCenter[i]);
+                }
+                return new Sphere(center, radius, entries);
+            }
+
+            Pair<K> centers;
+            synchronized (centerPointSelector) {
+                centers = centerPointSelector.selectNewCenterPoints(keysIn(from, to), metric);
+            }
+
+            parallelism.forEachIndex(from, to, i -> {
+                distToFirst[i] = verifiedDistance((K) keys[i], centers.first());
+                distToSecond[i] = verifiedDistance((K) keys[i], centers.second());
+            });
+
+            int mid = SphereSplitter.split(keys, values, distToFirst, distToSecond, from, to);
+
+            // find the child radii BEFORE building the children (building a child overwrites distances)
+            double radius1 = SphereSplitter.maxOf(distToFirst, from, mid);
+            double radius2 = SphereSplitter.maxOf(distToSecond, mid, to);
+
+            Sphere child1;
+            Sphere child2;
+            if (parallelism.isParallel(to - from)) {
+                ForkJoinTask<Sphere> task1 = ForkJoinTask.adapt(
+                                () -> buildSphere(centers.first(), radius1, distToFirst, from, mid))
+                        .fork();
+                child2 = buildSphere(centers.second(), radius2, distToSecond, mid, to);
+                child1 = task1.join();
+            } else {
+                child1 = buildSphere(centers.first(), radius1, distToFirst, from, mid);
+                child2 = buildSphere(centers.second(), radius2, distToSecond, mid, to);
+            }
+
+            Sphere sphere = new Sphere(center, radius, new Pair<>(child1, child2));
+            sphere.adopt(child1, verifiedDistance(center, centers.first()));
+            sphere.adopt(child2, verifiedDistance(center, centers.second()));
+            return sphere;
+        }
+
+        /// @return A read-only List view of the keys in the range [from, to).
+        private List<K> keysIn(int from, int to) {
+            return new AbstractList<>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public K get(int index) {
+                    return (K) keys[from + index];
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    /// A RangeJoin pairs the entries inside one Sphere of this MetricTree with the entries inside
+    /// one Sphere of another MetricTree. The larger Sphere of a pair is split into its children
+    /// until both Spheres are "Sphere of Points". Near the top of the trees the child pairs are
+    /// examined by separate ForkJoinTasks, deeper pairs are examined by the thread that found them.
+    ///
+    /// @param <W> The Values of the other MetricTree
+    private class RangeJoin<W> extends RecursiveAction {
+
+        /// Forking stops after this many levels of the traversal when the ForkJoinPool has 1 thread.
+        private static final int MIN_FORK_DEPTH = 4;
+
+        private final Sphere left;
+
+        private final MetricTree<K, W>.Sphere right;
+
+        /// The distance between the centerPoints of the left and right Spheres.
+        private final double centerDist;
+
+        private final double range;
+
+        private final JoinConsumer<? super Map.Entry<K, V>, ? super Map.Entry<K, W>> consumer;
+
+        /// The number of additional levels at which sphere pairs are forked into new tasks.
+        private final int forkDepth;
+
+        RangeJoin(
+                Sphere left,
+                MetricTree<K, W>.Sphere right,
+                double centerDist,
+                double range,
+                JoinConsumer<? super Map.Entry<K, V>, ? super Map.Entry<K, W>> consumer,
+                int forkDepth) {
+            this.left = left;
+            this.right = right;
+            this.centerDist = centerDist;
+            this.range = range;
+            this.consumer = consumer;
+            this.forkDepth = forkDepth;
+        }
+
+        /// @return A fork depth that gives every thread of the pool a few dozen tasks.
+        static int forkDepthFor(ForkJoinPool pool) {
+            return MIN_FORK_DEPTH + 32 - Integer.numberOfLeadingZeros(pool.getParallelism());
+        }
+
+        @Override
+        protected void compute() {
+            join(left, right, centerDist, forkDepth);
+        }
+
+        private void join(Sphere a, MetricTree<K, W>.Sphere b, double abDist, int depth) {
+
+            if (abDist - a.radius() - b.radius() > range) {
+                return; // no key in "a" can be within range of any key in "b"
+            }
+
+            if (a.isSphereOfPoints() && b.isSphereOfPoints()) {
+                joinPoints(a, b, abDist);
+            } else if (b.isSphereOfPoints() || (a.isSphereOfSpheres() && a.radius() >= b.radius())) {
+                Sphere a1 = a.children().first();
+                Sphere a2 = a.children().second();
+                double dist1 = metric.distanceBtw(a1.centerPoint, b.centerPoint);
+                double dist2 = metric.distanceBtw(a2.centerPoint, b.centerPoint);
+                if (depth > 0) {
+                    invokeAll(
+                            new RangeJoin<>(a1, b, dist1, range, consumer, depth - 1),
+                            new RangeJoin<>(a2, b, dist2, range, consumer, depth - 1));
+                } else {
+                    join(a1, b, dist1, 0);
+                    join(a2, b, dist2, 0);
+                }
+            } else {
+                MetricTree<K, W>.Sphere b1 = b.children().first();
+                MetricTree<K, W>.Sphere b2 = b.children().second();
+                double dist1 = metric.distanceBtw(a.centerPoint, b1.centerPoint);
+                double dist2 = metric.distanceBtw(a.centerPoint, b2.centerPoint);
+                if (depth > 0) {
+                    invokeAll(
+                            new RangeJoin<>(a, b1, dist1, range, consumer, depth - 1),
+                            new RangeJoin<>(a, b2, dist2, range, consumer, depth - 1));
+                } else {
+                    join(a, b1, dist1, 0);
+                    join(a, b2, dist2, 0);
+                }
+            }
+        }
+
+        /// Compare every entry in "a" with every entry in "b" that the triangle inequality cannot
+        /// rule out (using the distances from each entry to its Sphere's centerPoint).
+        private void joinPoints(Sphere a, MetricTree<K, W>.Sphere b, double abDist) {
+            LeafEntries<K, V> aEntries = a.points();
+            LeafEntries<K, W> bEntries = b.points();
+            for (int i = 0; i < aEntries.size(); i++) {
+                // d(aKey, bCenter) >= d(aCenter, bCenter) - d(aKey, aCenter)
+                if (abDist - aEntries.distToCenterAt(i) - b.radius() > range) {
+                    continue;
+                }
+                K aKey = aEntries.keyAt(i);
+                double distToCenter = metric.distanceBtw(aKey, b.centerPoint);
+                if (distToCenter - b.radius() > range) {
+                    continue;
+                }
+                for (int j = 0; j < bEntries.size(); j++) {
+                    if (Math.abs(distToCenter - bEntries.distToCenterAt(j)) > range) {
+                        continue;
+                    }
+                    double distance = metric.distanceBtw(aKey, bEntries.keyAt(j));
+                    if (distance <= range) {
+                        consumer.accept(
+                                new AbstractMap.SimpleImmutableEntry<>(aKey, aEntries.valueAt(i)),
+                                new AbstractMap.SimpleImmutableEntry<>(bEntries.keyAt(j), bEntries.valueAt(j)),
+                                distance);
+                    }
+                }
+            }
+        }
+    }
+
     private enum SphereState {
 
         /// A SPHERE_OF_POINTS contain a HashMap of key, value pairs. A SPHERE_OF_POINTS is
@@ -355,21 +1192,55 @@ public class MetricTree<K, V> {
 
         private SphereState type;
 
-        /// This Map is used when SphereType == SPHERE_OF_POINTS.
-        private Map<K, V> entries;
+        /// These entries are used when SphereType == SPHERE_OF_POINTS.
+        private LeafEntries<K, V> entries;
 
         /// This pair is used when SphereType == SPHERE_OF_SPHERES.
         private Pair<Sphere> childSpheres;
 
+        /// The Sphere that contains this Sphere (null for the root).
+        private Sphere parent;
+
+        /// The distance between this Sphere's centerPoint and its parent's centerPoint.
+        private double distToParentCenter;
+
+        /// The number of keys inside this Sphere (and its descendants).
+        private int size;
+
+        /// The number of keys removed from this Sphere (and its descendants) since it was built.
+        private int removals;
+
         /// Create a SphereOfPoints centered around this key.
         Sphere(K key) {
             this.type = SphereState.SPHERE_OF_POINTS;
             this.centerPoint = key;
-            this.entries = new HashMap<>();
+            this.entries = new LeafEntries<>();
             this.childSpheres = null;
             sphereCount++;
         }
 
+        /// Create a bulk-loaded SphereOfPoints. This constructor does not increment the sphereCount
+        /// because bulk-loaded Spheres can be created by multiple threads.
+        private Sphere(K key, double radius, LeafEntries<K, V> entries) {
+            this.type = SphereState.SPHERE_OF_POINTS;
+            this.centerPoint = key;
+            this.radius = radius;
+            this.entries = entries;
+            this.childSpheres = null;
+            this.size = entries.size();
+        }
+
+        /// Create a bulk-loaded SphereOfSpheres. This constructor does not increment the sphereCount
+        /// because bulk-loaded Spheres can be created by multiple threads.
+        private Sphere(K key, double radius, Pair<Sphere> children) {
+            this.type = SphereState.SPHERE_OF_SPHERES;
+            this.centerPoint = key;
+            this.radius = radius;
+            this.entries = null;
+            this.childSpheres = children;
+            this.size = children.first().size + children.second().size;
+        }
+
         double radius() {
             return this.radius;
         }
@@ -382,8 +1253,8 @@ public class MetricTree<K, V> {
             return this.type == SphereState.SPHERE_OF_SPHERES;
         }
 
-        Set<Map.Entry<K, V>> points() {
-            return entries.entrySet();
+        LeafEntries<K, V> points() {
+            return entries;
         }
 
         Pair<Sphere> children() {
@@ -397,11 +1268,15 @@ public class MetricTree<K, V> {
             }
 
             // update radius if necessary
-            this.radius = Math.max(radius, verifiedDistance(this.centerPoint, key));
+            double distToCenter = verifiedDistance(this.centerPoint, key);
+            this.radius = Math.max(radius, distToCenter);
+            this.size++;
 
             if (isSphereOfPoints()) {
+                // MetricTree.put updates existing keys itself, so this key is always new
                 globalHashMap.put(key, new SphereAssignment<>(this, value));
-                return this.entries.put(key, value);
+                this.entries.add(key, value, distToCenter);
+                return null;
             } else if (isSphereOfSpheres()) {
                 Sphere child = findClosestChildSphere(key);
                 return child.put(key, value);
@@ -423,13 +1298,72 @@ public class MetricTree<K, V> {
 
         V remove(K key) {
             if (this.isSphereOfPoints()) {
-                return this.entries.remove(key);
+                int index = this.entries.indexOf(key);
+                if (index < 0) {
+                    return null;
+                }
+                V removed = entries.valueAt(index);
+                double removedDistToCenter = entries.distToCenterAt(index);
+                entries.removeAt(index);
+                // only entries on the boundary of this sphere determine its radius
+                if (removedDistToCenter >= radius) {
+                    this.radius = entries.maxDistToCenter();
+                }
+                return removed;
             } else {
                 throw new AssertionError(
                         "Should never get here.  " + "This should only be called on \"Sphere of Points\"");
             }
         }
 
+        /// Shrink the radius of this SPHERE_OF_SPHERES to fit its children (if possible). The triangle
+        /// inequality ensures every key in a child is within distToParentCenter + radius of this
+        /// Sphere's centerPoint, so no distance measurements are needed.
+        private void tightenRadius() {
+            Sphere first = childSpheres.first();
+            Sphere second = childSpheres.second();
+            double fitsChildren =
+                    Math.max(first.distToParentCenter + first.radius, second.distToParentCenter + second.radius);
+            this.radius = Math.min(radius, fitsChildren);
+        }
+
+        /// @return True when more keys have been removed from this SPHERE_OF_SPHERES (since it was
+        ///     built) than it currently contains.
+        private boolean isFragmented() {
+            return size > 0 && removals > size && removals >= MAX_INNER_SPHERE_SIZE;
+        }
+
+        /// Convert this SPHERE_OF_SPHERES (whose children are both SPHERE_OF_POINTS) back into a
+        /// SPHERE_OF_POINTS that holds the entries of both children.
+        private void absorbChildren() {
+
+            LeafEntries<K, V> merged = new LeafEntries<>(size, true);
+            double newRadius = 0;
+            for (Sphere child : List.of(childSpheres.first(), childSpheres.second())) {
+                LeafEntries<K, V> childEntries = child.points();
+                for (int i = 0; i < childEntries.size(); i++) {
+                    K key = childEntries.keyAt(i);
+                    V value = childEntries.valueAt(i);
+                    double distToCenter = verifiedDistance(centerPoint, key);
+                    newRadius = Math.max(newRadius, distToCenter);
+                    merged.add(key, value, distToCenter);
+                    globalHashMap.put(key, new SphereAssignment<>(this, value));
+                }
+            }
+
+            this.type = SphereState.SPHERE_OF_POINTS;
+            this.entries = merged;
+            this.childSpheres = null;
+            this.radius = newRadius;
+            this.removals = 0;
+        }
+
+        /// Make this Sphere the parent of a child Sphere.
+        private void adopt(Sphere child, double childDistToCenter) {
+            child.parent = this;
+            child.distToParentCenter = childDistToCenter;
+        }
+
         private boolean isFull() {
             return (this.type == SphereState.SPHERE_OF_POINTS) && (this.entries.size() >= MAX_INNER_SPHERE_SIZE);
         }
@@ -458,14 +1392,26 @@ public class MetricTree<K, V> {
 
             Sphere part1 = new Sphere(centers.first());
             Sphere part2 = new Sphere(centers.second());
+            adopt(part1, distToCenterOf(centers.first()));
+            adopt(part2, distToCenterOf(centers.second()));
 
             moveEntriesToChildren(part1, part2);
 
             return new Pair<>(part1, part2);
         }
 
+        /// @return The distance between a key and this SPHERE_OF_POINTS' centerPoint (the distance is
+        ///     only measured when the key is not an entry of this Sphere).
+        private double distToCenterOf(K key) {
+            int index = entries.indexOf(key);
+            return (index >= 0) ? entries.distToCenterAt(index) : verifiedDistance(centerPoint, key);
+        }
+
         private Pair<K> pickCentersForNewSpheres() {
-            return centerPointSelector.selectNewCenterPoints(new ArrayList<>(entries.keySet()), metric);
+            // the selector can be shared with a tree being bulk-loaded by another thread
+            synchronized (centerPointSelector) {
+                return centerPointSelector.selectNewCenterPoints(entries.keys(), metric);
+            }
         }
 
         /// Move the entries from this Sphere to the new Sphere.
@@ -473,8 +1419,8 @@ public class MetricTree<K, V> {
             // push the contents of this.children to either part1 or part2
 
             boolean tieBreaker = false;
-            for (Map.Entry<K, V> entry : entries.entrySet()) {
-                addToBestOf(part1, part2, entry, tieBreaker);
+            for (int i = 0; i < entries.size(); i++) {
+                addToBestOf(part1, part2, entries.keyAt(i), entries.valueAt(i), tieBreaker);
                 tieBreaker = !tieBreaker; // alternate the tiebreaker
             }
         }
@@ -483,14 +1429,15 @@ public class MetricTree<K, V> {
         ///
         /// @param node1      The left child
         /// @param node2      The right child
-        /// @param entry      The entry that needs to be placed in one of the child nodes
+        /// @param key        The key that needs to be placed in one of the child nodes
+        /// @param value      The value of that key
         /// @param tieBreaker A tiebreaker to use in the event that an entry is equidistant from both
         ///                   child nodes. This is important if many keys in the tree have the same
         ///                   location. Without the tiebreaker behavior a StackOverflow can occur.
-        private void addToBestOf(Sphere node1, Sphere node2, Map.Entry<K, V> entry, boolean tieBreaker) {
+        private void addToBestOf(Sphere node1, Sphere node2, K key, V value, boolean tieBreaker) {
 
-            double distanceTo1 = verifiedDistance(entry.getKey(), node1.centerPoint);
-            double distanceTo2 = verifiedDistance(entry.getKey(), node2.centerPoint);
+            double distanceTo1 = verifiedDistance(key, node1.centerPoint);
+            double distanceTo2 = verifiedDistance(key, node2.centerPoint);
 
             Sphere bestSphere = null;
 
@@ -503,13 +1450,13 @@ public class MetricTree<K, V> {
                 bestSphere = node2;
             }
 
-            bestSphere.put(entry.getKey(), entry.getValue());
+            bestSphere.put(key, value);
         }
 
         Set<Map.Entry<K, V>> entrySet() {
 
             if (this.isSphereOfPoints()) {
-                return this.entries.entrySet();
+                return new HashSet<>(this.entries.entries());
             }
 
             if (this.isSphereOfSpheres()) {
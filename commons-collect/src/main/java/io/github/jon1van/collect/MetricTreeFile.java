@@ -0,0 +1,248 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.google.common.io.CountingOutputStream;
+
+/// MetricTreeFile defines the binary file format written by MetricTree.writeTo,
+/// FrozenMetricTree.writeTo, and MetricSet.writeTo. These files are read by MappedMetricTree and
+/// MappedMetricSet.
+///
+/// A file stores the same depth-first layout of spheres used by FrozenMetricTree. Every number is
+/// big-endian and every section starts at an offset that can be computed from the header:
+///
+/// - Header: magic number, format version, hasValues flag, numSpheres, numEntries, maxDepth (6
+///   ints)
+/// - double[numSpheres] radii, then double[numEntries] distance from each key to its leaf's center
+/// - long[numSpheres] center offsets, long[numEntries] key offsets, and (when hasValues)
+///   long[numEntries] value offsets. Each offset locates an encoded object in the data section.
+/// - int[numSpheres] secondChild, entryFrom, and entryTo (see FrozenMetricTree)
+/// - The data section: every center point, key, and value encoded by a BinaryCodec
+///
+/// Storing an offset for every encoded object lets a reader decode any single key without decoding
+/// the rest of the file. The offsets are longs and MappedSpheres maps the file as a single
+/// MemorySegment, so files larger than 2GB are supported. The sections are ordered so that every
+/// number is naturally aligned.
+///
+/// The data section is streamed straight to the file while the offsets are collected, then the
+/// header and arrays are written in front of it. Consequently, writing a file never buffers the
+/// encoded keys and values in memory.
+///
+/// Version 1 files (which used int offsets) are no longer readable.
+///
+/// This class is package private because it is an implementation detail of the classes listed
+/// above.
+final class MetricTreeFile {
+
+    /// The first 4 bytes of every file (the ASCII characters "MTRE").
+    static final int MAGIC = 0x4D545245;
+
+    static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    static final int NO_CHILD = -1;
+
+    private MetricTreeFile() {}
+
+    /// The flat, depth-first arrays that describe a tree (see FrozenMetricTree).
+    ///
+    /// @param values The values of each entry (or null when the tree is a MetricSet)
+    record Layout(
+            Object[] centers,
+            double[] radii,
+            int[] secondChild,
+            int[] entryFrom,
+            int[] entryTo,
+            Object[] keys,
+            Object[] values,
+            double[] distToLeafCenter,
+            int maxDepth) {}
+
+    /// Copy the spheres and keys of a MetricSet into a Layout (in depth-first order).
+    ///
+    /// @param root    The root of the MetricSet (or null when the set is empty)
+    /// @param numKeys The number of keys in the MetricSet
+    static <K> Layout layoutOf(MetricSet<K>.Sphere root, int numKeys) {
+
+        int numSpheres = countSpheres(root);
+        Object[] centers = new Object[numSpheres];
+        double[] radii = new double[numSpheres];
+        int[] secondChild = new int[numSpheres];
+        int[] entryFrom = new int[numSpheres];
+        int[] entryTo = new int[numSpheres];
+        Object[] keys = new Object[numKeys];
+        double[] distToLeafCenter = new double[numKeys];
+
+        int deepest = 0;
+        int nextSphere = 0;
+        int nextEntry = 0;
+
+        // each stack entry is a sphere, its depth, and (for second children) the parent's index
+        Deque<MetricSet<K>.Sphere> spheres = new ArrayDeque<>();
+        Deque<int[]> depthAndParent = new ArrayDeque<>();
+        if (root != null) {
+            spheres.push(root);
+            depthAndParent.push(new int[] {0, NO_CHILD});
+        }
+
+        while (!spheres.isEmpty()) {
+            MetricSet<K>.Sphere sphere = spheres.pop();
+            int[] info = depthAndParent.pop();
+            int depth = info[0];
+            int parent = info[1];
+
+            int index = nextSphere++;
+            deepest = Math.max(deepest, depth);
+            centers[index] = sphere.centerPoint;
+            radii[index] = sphere.radius();
+            if (parent != NO_CHILD) {
+                secondChild[parent] = index;
+            }
+
+            if (sphere.isSphereOfPoints()) {
+                secondChild[index] = NO_CHILD;
+                entryFrom[index] = nextEntry;
+                LeafEntries<K, Void> leafKeys = sphere.points();
+                for (int i = 0; i < leafKeys.size(); i++) {
+                    keys[nextEntry] = leafKeys.keyAt(i);
+                    distToLeafCenter[nextEntry] = leafKeys.distToCenterAt(i);
+                    nextEntry++;
+                }
+                entryTo[index] = nextEntry;
+            } else {
+                // push the second child first so the first child is assigned index + 1
+                spheres.push(sphere.children().second());
+                depthAndParent.push(new int[] {depth + 1, index});
+                spheres.push(sphere.children().first());
+                depthAndParent.push(new int[] {depth + 1, NO_CHILD});
+            }
+        }
+
+        if (nextEntry != numKeys) {
+            throw new AssertionError("The number of keys found in the set did not match the expected size");
+        }
+
+        return new Layout(centers, radii, secondChild, entryFrom, entryTo, keys, null, distToLeafCenter, deepest);
+    }
+
+    private static int countSpheres(MetricSet<?>.Sphere root) {
+        if (root == null) {
+            return 0;
+        }
+        int count = 0;
+        Deque<MetricSet<?>.Sphere> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            MetricSet<?>.Sphere sphere = stack.pop();
+            count++;
+            if (sphere.isSphereOfSpheres()) {
+                stack.push(sphere.children().first());
+                stack.push(sphere.children().second());
+            }
+        }
+        return count;
+    }
+
+    /// Write a Layout to a file (replacing the file if it already exists).
+    ///
+    /// @param target     The file being written
+    /// @param layout     The tree being written
+    /// @param keyCodec   Encodes the center points and keys
+    /// @param valueCodec Encodes the values (ignored when the layout has no values)
+    @SuppressWarnings("unchecked")
+    static <K, V> void write(Path target, Layout layout, BinaryCodec<K> keyCodec, BinaryCodec<V> valueCodec)
+            throws IOException {
+
+        boolean hasValues = layout.values() != null;
+        int numSpheres = layout.radii().length;
+        int numEntries = layout.keys().length;
+        long dataStart = dataStart(numSpheres, numEntries, hasValues);
+
+        long[] centerOffsets = new long[numSpheres];
+        long[] keyOffsets = new long[numEntries];
+        long[] valueOffsets = new long[hasValues ? numEntries : 0];
+
+        // the streams are flushed (not closed) because closing them would close the channel
+        try (FileChannel channel = FileChannel.open(target, CREATE, TRUNCATE_EXISTING, WRITE)) {
+
+            // stream the data section first because the offsets are only known after encoding
+            channel.position(dataStart);
+            CountingOutputStream data =
+                    new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DataOutputStream dataOut = new DataOutputStream(data);
+            for (int i = 0; i < numSpheres; i++) {
+                centerOffsets[i] = data.getCount();
+                keyCodec.encode((K) layout.centers()[i], dataOut);
+            }
+            for (int i = 0; i < numEntries; i++) {
+                keyOffsets[i] = data.getCount();
+                keyCodec.encode((K) layout.keys()[i], dataOut);
+                if (hasValues) {
+                    valueOffsets[i] = data.getCount();
+                    valueCodec.encode((V) layout.values()[i], dataOut);
+                }
+            }
+            dataOut.flush();
+
+            // then fill in everything in front of the data section
+            channel.position(0);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hasValues ? 1 : 0);
+            out.writeInt(numSpheres);
+            out.writeInt(numEntries);
+            out.writeInt(layout.maxDepth());
+            writeAll(out, layout.radii());
+            writeAll(out, layout.distToLeafCenter());
+            writeAll(out, centerOffsets);
+            writeAll(out, keyOffsets);
+            writeAll(out, valueOffsets);
+            writeAll(out, layout.secondChild());
+            writeAll(out, layout.entryFrom());
+            writeAll(out, layout.entryTo());
+            out.flush();
+
+            checkState(channel.position() == dataStart, "The header and arrays did not end where the data begins");
+        }
+    }
+
+    private static void writeAll(DataOutputStream out, double[] array) throws IOException {
+        for (double d : array) {
+            out.writeDouble(d);
+        }
+    }
+
+    private static void writeAll(DataOutputStream out, long[] array) throws IOException {
+        for (long l : array) {
+            out.writeLong(l);
+        }
+    }
+
+    private static void writeAll(DataOutputStream out, int[] array) throws IOException {
+        for (int i : array) {
+            out.writeInt(i);
+        }
+    }
+
+    /// @return The byte offset of the data section.
+    static long dataStart(int numSpheres, int numEntries, boolean hasValues) {
+        long doubles = (long) numSpheres + numEntries;
+        long longs = (long) numSpheres + (hasValues ? 2L : 1L) * numEntries;
+        long ints = 3L * numSpheres;
+        return HEADER_BYTES + Double.BYTES * doubles + Long.BYTES * longs + Integer.BYTES * ints;
+    }
+}
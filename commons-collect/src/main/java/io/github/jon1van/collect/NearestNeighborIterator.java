@@ -0,0 +1,109 @@
+package io.github.jon1van.collect;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/// A NearestNeighborIterator lazily visits the entries of a MetricTree in order of increasing
+/// distance to a "search key".
+///
+/// The iterator performs a best-first traversal of the tree. A single PriorityQueue holds both
+/// unexplored Spheres and entries whose distance is already known. Each Sphere is prioritized by a
+/// lower bound on the distance to anything inside it (i.e. d(searchKey, center) - radius). When an
+/// entry reaches the front of the queue no unexplored Sphere can contain a closer entry, so that
+/// entry is the next nearest neighbor. Consequently, work is only done when the next result is
+/// requested and callers who stop early never pay for results they do not use.
+///
+/// The MetricTree must not be modified while a NearestNeighborIterator is in use.
+///
+/// This class is package private because it is an implementation detail of the MetricTree class.
+///
+/// @param <K> The "Key" class is used to measure distance between two objects
+/// @param <V> The "Value" class
+class NearestNeighborIterator<K, V> implements Iterator<SearchResult<K, V>> {
+
+    private final DistanceMetric<K> metric;
+
+    private final K searchKey;
+
+    /// Holds unexplored Spheres and entries that have not been returned yet (closest first).
+    private final PriorityQueue<Candidate<K, V>> queue;
+
+    /// @param root      The root of the tree being searched (or null when the tree is empty)
+    /// @param searchKey The point-in-space from which distances are measured
+    /// @param metric    The distance metric used to determine how far objects are
+    NearestNeighborIterator(MetricTree<K, V>.Sphere root, K searchKey, DistanceMetric<K> metric) {
+        this.metric = metric;
+        this.searchKey = searchKey;
+        this.queue = new PriorityQueue<>();
+        if (root != null) {
+            enqueue(root);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return advanceToNextEntry() != null;
+    }
+
+    @Override
+    public SearchResult<K, V> next() {
+        Candidate<K, V> next = advanceToNextEntry();
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        queue.poll();
+        return next.result;
+    }
+
+    /// Explore Spheres until an entry is at the front of the queue.
+    ///
+    /// @return The Candidate at the front of the queue (which is an entry) or null when there are no
+    ///     more entries.
+    private Candidate<K, V> advanceToNextEntry() {
+
+        while (!queue.isEmpty() && queue.peek().sphere != null) {
+            MetricTree<K, V>.Sphere sphere = queue.poll().sphere;
+
+            if (sphere.isSphereOfPoints()) {
+                LeafEntries<K, V> entries = sphere.points();
+                for (int i = 0; i < entries.size(); i++) {
+                    K key = entries.keyAt(i);
+                    double distance = metric.distanceBtw(searchKey, key);
+                    queue.offer(new Candidate<>(distance, null, new SearchResult<>(key, entries.valueAt(i), distance)));
+                }
+            } else {
+                enqueue(sphere.children().first());
+                enqueue(sphere.children().second());
+            }
+        }
+        return queue.peek();
+    }
+
+    private void enqueue(MetricTree<K, V>.Sphere sphere) {
+        double distToCenter = metric.distanceBtw(searchKey, sphere.centerPoint);
+        double lowerBound = Math.max(0, distToCenter - sphere.radius());
+        queue.offer(new Candidate<>(lowerBound, sphere, null));
+    }
+
+    /// A Candidate is either an unexplored Sphere or an entry whose distance is known.
+    ///
+    /// @param distance The exact distance to an entry or a lower bound on the distance to every
+    ///                 entry in a Sphere
+    /// @param sphere   An unexplored Sphere (null when this Candidate is an entry)
+    /// @param result   An entry (null when this Candidate is a Sphere)
+    private record Candidate<K, V>(double distance, MetricTree<K, V>.Sphere sphere, SearchResult<K, V> result)
+            implements Comparable<Candidate<K, V>> {
+
+        /// Sort by distance. When distances tie, entries come first because exploring a Sphere
+        /// cannot produce anything closer.
+        @Override
+        public int compareTo(Candidate<K, V> other) {
+            int byDistance = Double.compare(this.distance, other.distance);
+            if (byDistance != 0) {
+                return byDistance;
+            }
+            return Boolean.compare(this.sphere != null, other.sphere != null);
+        }
+    }
+}
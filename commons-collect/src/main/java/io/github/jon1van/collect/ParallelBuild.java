@@ -0,0 +1,108 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/// A ParallelBuild controls how a MetricTree or MetricSet is built when the entire tree is built at
+/// once (i.e. by bulkLoad, makeBalancedCopy, and rebalance).
+///
+/// Sibling Spheres contain disjoint sets of keys, so they can be built independently. A parallel
+/// build forks a new task for every Sphere that contains at least "minTaskSize" keys and submits
+/// those tasks to the ForkJoinPool. Spheres with fewer keys are built sequentially because forking a
+/// task costs more than it saves.
+///
+/// Parallel builds call the DistanceMetric from multiple threads at once, so the DistanceMetric must
+/// be thread-safe. A CenterPointSelector does not need to be thread-safe. MetricTree and MetricSet
+/// synchronize on the selector around every call (during parallel builds and ordinary Sphere
+/// splits alike), so a selector shared by several trees is still called by one thread at a time.
+/// The tasks reach the selector in an unpredictable order, so a parallel build with a randomized
+/// selector does not produce the same tree on every run.
+///
+/// @param pool        The ForkJoinPool that executes the build
+/// @param minTaskSize Spheres containing fewer keys than this are built sequentially
+public record ParallelBuild(ForkJoinPool pool, int minTaskSize) {
+
+    /// Building a Sphere with fewer keys than this is not worth a separate task.
+    public static final int DEFAULT_MIN_TASK_SIZE = 10_000;
+
+    public ParallelBuild {
+        requireNonNull(pool, "The ForkJoinPool cannot be null");
+        checkArgument(minTaskSize >= 1, "The minTaskSize must be at least 1, it was: " + minTaskSize);
+    }
+
+    /// @return A ParallelBuild that uses the common ForkJoinPool.
+    public static ParallelBuild commonPool() {
+        return new ParallelBuild(ForkJoinPool.commonPool(), DEFAULT_MIN_TASK_SIZE);
+    }
+
+    /// @return A ParallelBuild that uses this ForkJoinPool.
+    public static ParallelBuild using(ForkJoinPool pool) {
+        return new ParallelBuild(pool, DEFAULT_MIN_TASK_SIZE);
+    }
+
+    /// @return A "ParallelBuild" that never forks, the entire build occurs on the calling thread.
+    public static ParallelBuild sequential() {
+        return new ParallelBuild(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+    }
+
+    /// @return A copy of this ParallelBuild with a different minTaskSize.
+    public ParallelBuild withMinTaskSize(int minTaskSize) {
+        return new ParallelBuild(pool, minTaskSize);
+    }
+
+    /// @return True when a Sphere containing this many keys should be built by its own task(s). A
+    ///     single key is never split (even when minTaskSize is 1).
+    boolean isParallel(int numKeys) {
+        return numKeys >= 2 && numKeys >= minTaskSize;
+    }
+
+    /// Perform an action for every index in the range [from, to). A large range is split into
+    /// ForkJoinTasks that run in pool(), a small range is processed by the calling thread.
+    void forEachIndex(int from, int to, IntConsumer action) {
+        if (!isParallel(to - from)) {
+            for (int i = from; i < to; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        IndexRange task = new IndexRange(this, from, to, action);
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /// An IndexRange splits itself in half until each half is too small to deserve its own task.
+    private static class IndexRange extends RecursiveAction {
+
+        final ParallelBuild parallelism;
+        final int from;
+        final int to;
+        final IntConsumer action;
+
+        IndexRange(ParallelBuild parallelism, int from, int to, IntConsumer action) {
+            this.parallelism = parallelism;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (!parallelism.isParallel(to - from)) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new IndexRange(parallelism, from, mid, action), new IndexRange(parallelism, mid, to, action));
+        }
+    }
+}
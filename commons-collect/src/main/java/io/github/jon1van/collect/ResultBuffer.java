@@ -0,0 +1,212 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// A ResultBuffer holds the output of a MetricTree or MetricSet search in parallel arrays (keys,
+/// values, and distances) instead of in SearchResult objects. After a search completes the results
+/// are sorted by distance (closest first). Results from a MetricSet search have null values.
+///
+/// A ResultBuffer can be reused for many searches (one search at a time). Reusing a buffer makes
+/// repeated searches nearly allocation-free because (1) the buffer only grows when a search
+/// produces more results than any prior search, (2) no result objects are created for the
+/// candidates a search considers, and (3) the buffer also keeps the scratch space (i.e. the stack
+/// of spheres to visit) used by the searches that write into it. Searches that collect SearchStats
+/// still allocate their stats.
+///
+/// A ResultBuffer retains references to the keys and values of its most recent search until it is
+/// cleared or reused.
+///
+/// @param <K> The Keys
+/// @param <V> The Values (unused when searching a MetricSet)
+public final class ResultBuffer<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] keys;
+
+    private Object[] values;
+
+    private double[] distances;
+
+    private int size = 0;
+
+    /// The reusable search used with a MetricTree (created on first use).
+    private Search<K, V> treeSearch;
+
+    /// The reusable search used with a MetricSet (created on first use).
+    private SetSearch<K> setSearch;
+
+    public ResultBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /// @param initialCapacity The number of results this buffer can hold before it must grow
+    public ResultBuffer(int initialCapacity) {
+        checkArgument(initialCapacity >= 1, "The initialCapacity must be at least 1");
+        this.keys = new Object[initialCapacity];
+        this.values = new Object[initialCapacity];
+        this.distances = new double[initialCapacity];
+    }
+
+    /// @return The number of results in this buffer.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /// @return The key of the i-th closest result.
+    @SuppressWarnings("unchecked")
+    public K key(int i) {
+        return (K) keys[checkIndex(i)];
+    }
+
+    /// @return The value of the i-th closest result (null for MetricSet results).
+    @SuppressWarnings("unchecked")
+    public V value(int i) {
+        return (V) values[checkIndex(i)];
+    }
+
+    /// @return The distance from the search key to the i-th closest result.
+    public double distance(int i) {
+        return distances[checkIndex(i)];
+    }
+
+    /// @return A copy of the result distances.
+    public double[] distances() {
+        return Arrays.copyOf(distances, size);
+    }
+
+    /// @return The result keys (this allocates a new List).
+    public List<K> keys() {
+        List<K> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(key(i));
+        }
+        return list;
+    }
+
+    /// Discard all results.
+    public void clear() {
+        this.size = 0;
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return i;
+    }
+
+    /// @return A Search that can be reused with this buffer (a new Search is created when the
+    ///     metric changes).
+    Search<K, V> treeSearch(DistanceMetric<K> metric) {
+        if (treeSearch == null || treeSearch.metric() != metric) {
+            treeSearch = new Search<>(metric);
+        }
+        return treeSearch;
+    }
+
+    /// @return A SetSearch that can be reused with this buffer (a new SetSearch is created when the
+    ///     metric changes).
+    SetSearch<K> setSearch(DistanceMetric<K> metric) {
+        if (setSearch == null || setSearch.metric() != metric) {
+            setSearch = new SetSearch<>(metric);
+        }
+        return setSearch;
+    }
+
+    /// Add a result to a kNN search (where this buffer is used as a max-heap) or to a range search.
+    ///
+    /// @param maxNumResults The "k" in kNN (Integer.MAX_VALUE for range searches)
+    void offer(K key, V value, double distance, int maxNumResults) {
+        if (maxNumResults == Integer.MAX_VALUE) {
+            append(key, value, distance);
+        } else if (size < maxNumResults) {
+            append(key, value, distance);
+            siftUp(size - 1);
+        } else {
+            // replace the worst result
+            keys[0] = key;
+            values[0] = value;
+            distances[0] = distance;
+            siftDown(0, size);
+        }
+    }
+
+    /// @return The largest distance in a buffer that is being used as a max-heap.
+    double worstDistance() {
+        return distances[0];
+    }
+
+    private void append(K key, V value, double distance) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        distances[size] = distance;
+        size++;
+    }
+
+    /// Sort the results by distance (closest first) using an in-place heap sort.
+    void sortByDistance() {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (distances[parent] >= distances[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int heapSize) {
+        while (true) {
+            int left = 2 * i + 1;
+            int right = left + 1;
+            int largest = i;
+            if (left < heapSize && distances[left] > distances[largest]) {
+                largest = left;
+            }
+            if (right < heapSize && distances[right] > distances[largest]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object tempKey = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tempKey;
+        Object tempValue = values[i];
+        values[i] = values[j];
+        values[j] = tempValue;
+        double tempDist = distances[i];
+        distances[i] = distances[j];
+        distances[j] = tempDist;
+    }
+}
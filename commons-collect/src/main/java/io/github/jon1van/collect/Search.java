@@ -1,9 +1,10 @@
 package io.github.jon1van.collect;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
-import java.util.Map;
+import java.util.List;
 import java.util.PriorityQueue;
 
 /// A Search iterates through a MetricTree collects Key+Value Pairs that are close to the "search
@@ -25,42 +26,133 @@ class Search<KEY, VALUE> {
 
     private final DistanceMetric<KEY> metric;
 
-    private final SearchType type;
+    /// The metric as a BatchDistanceMetric (null when the metric does not support batches).
+    private final BatchDistanceMetric<KEY> batchMetric;
 
-    private final KEY searchKey;
+    private SearchType type;
 
-    private final int maxNumResults; // only used for kNN searches
+    private KEY searchKey;
 
-    private final double fixedRadius; // only used for range searches
+    private int maxNumResults; // only used for kNN searches
+
+    private double fixedRadius; // only used for range searches
+
+    private double epsilon; // only used for approximate kNN searches
+
+    private int maxDistanceCalls; // only used for approximate kNN searches
+
+    private int distanceCalls;
+
+    /// False when an approximate search skipped a sphere or entry that an exact search would explore.
+    private boolean isExact;
 
     private final PriorityQueue<SearchResult<KEY, VALUE>> queue;
 
+    /// When not null, results are written into this buffer instead of the queue.
+    private ResultBuffer<KEY, VALUE> buffer;
+
+    /// The spheres that still need to be searched, kept between searches so it can be reused.
+    private final Deque<MetricTree<KEY, VALUE>.Sphere> stackOfNodesToSearch;
+
+    /// Counts the work done by the current search (null when SearchStats are disabled).
+    private SearchStats stats;
+
+    /// Scratch space for batched leaf scans (reused by every leaf and every search).
+    private int[] candidates;
+
+    private List<KEY> candidateKeys;
+
+    private double[] candidateDistances;
+
+    /// Create a search that must be prepared with prepareKnn or prepareRange before each use. A
+    /// single Search can be reused (one search at a time) to avoid allocating a new queue and stack
+    /// for every query in a batch of queries.
+    ///
+    /// @param metric The distance metric used to determine how far objects are
+    Search(DistanceMetric<KEY> metric) {
+        this.metric = metric;
+        this.batchMetric = (metric instanceof BatchDistanceMetric<KEY> batch) ? batch : null;
+        this.queue = new PriorityQueue<>();
+        this.stackOfNodesToSearch = new ArrayDeque<>();
+    }
+
     /// Create a kNN search query.
     ///
     /// @param searchKey     Search for this
     /// @param maxNumResults The "k" in k-Nearest-Neighbors
     /// @param metric        The distance metric used to determine how far objects are
     Search(KEY searchKey, int maxNumResults, DistanceMetric<KEY> metric) {
-        this.metric = metric;
+        this(metric);
+        prepareKnn(searchKey, maxNumResults);
+    }
+
+    /// Create a range query that returns all entries within range
+    ///
+    /// @param searchKey Search for this
+    /// @param metric    The distance metric used to determine how far objects are
+    /// @param range     Include results within this distance
+    Search(KEY searchKey, DistanceMetric<KEY> metric, double range) {
+        this(metric);
+        prepareRange(searchKey, range);
+    }
+
+    /// Discard the results of any prior search and prepare a new kNN search.
+    ///
+    /// @param searchKey     Search for this
+    /// @param maxNumResults The "k" in k-Nearest-Neighbors
+    void prepareKnn(KEY searchKey, int maxNumResults) {
         this.type = SearchType.K_NEAREST_NEIGHBORS;
         this.searchKey = searchKey;
         this.maxNumResults = maxNumResults;
         this.fixedRadius = Double.POSITIVE_INFINITY;
-        this.queue = new PriorityQueue<>();
+        this.epsilon = 0;
+        this.maxDistanceCalls = Integer.MAX_VALUE;
+        this.queue.clear();
+        this.buffer = null;
     }
 
-    /// Create a range query that returns all entries within range
+    /// Relax a prepared kNN search so it does less work. An approximate search ignores spheres and
+    /// entries that cannot be more than (1 + epsilon) times closer than the current k-th result and
+    /// stops exploring new spheres once the DistanceMetric has been called maxDistanceCalls times
+    /// (and k results have been found).
+    ///
+    /// @param epsilon          The allowed relative error (0 = no error)
+    /// @param maxDistanceCalls The work budget of the search
+    void approximate(double epsilon, int maxDistanceCalls) {
+        this.epsilon = epsilon;
+        this.maxDistanceCalls = maxDistanceCalls;
+    }
+
+    /// Discard the results of any prior search and prepare a new range search.
     ///
     /// @param searchKey Search for this
-    /// @param metric    The distance metric used to determine how far objects are
     /// @param range     Include results within this distance
-    Search(KEY searchKey, DistanceMetric<KEY> metric, double range) {
-        this.metric = metric;
+    void prepareRange(KEY searchKey, double range) {
         this.type = SearchType.RANGE;
         this.searchKey = searchKey;
         this.maxNumResults = Integer.MAX_VALUE;
         this.fixedRadius = range;
-        this.queue = new PriorityQueue<>();
+        this.epsilon = 0;
+        this.maxDistanceCalls = Integer.MAX_VALUE;
+        this.queue.clear();
+        this.buffer = null;
+    }
+
+    /// Write the results of a prepared search into a ResultBuffer (instead of creating a
+    /// SearchResult for each result). The buffer should be empty.
+    void collectInto(ResultBuffer<KEY, VALUE> buffer) {
+        this.buffer = buffer;
+    }
+
+    DistanceMetric<KEY> metric() {
+        return metric;
+    }
+
+    /// Record the work done by the next search in this SearchStats.
+    ///
+    /// @param stats A SearchStats for the next search (or null when SearchStats are disabled)
+    void recordStatsInto(SearchStats stats) {
+        this.stats = stats;
     }
 
     /*
@@ -69,20 +161,32 @@ class Search<KEY, VALUE> {
      */
     void startQuery(MetricTree<KEY, VALUE>.Sphere root) {
 
-        Deque<MetricTree<KEY, VALUE>.Sphere> stackOfNodesToSearch = new ArrayDeque<>();
+        stackOfNodesToSearch.clear();
         stackOfNodesToSearch.push(root);
+        distanceCalls = 0;
+        isExact = true;
 
         while (!stackOfNodesToSearch.isEmpty()) {
 
+            // the unexplored spheres could contain better results (but the budget never stops a
+            // search that has not found n results yet)
+            if (distanceCalls >= maxDistanceCalls && numResults() >= maxNumResults) {
+                isExact = false;
+                break;
+            }
+
             MetricTree<KEY, VALUE>.Sphere currentNode = stackOfNodesToSearch.pop();
 
+            double distToCenter = metric.distanceBtw(currentNode.centerPoint, this.searchKey);
+            distanceCalls++;
+
             // ignore this node (and all its sub-trees) when it cannot improve the current result
-            if (!this.overlapsWith(currentNode)) {
+            if (!this.overlapsWith(currentNode, distToCenter)) {
                 continue;
             }
 
             if (currentNode.isSphereOfPoints()) {
-                ingestSphereOfPoints(currentNode);
+                ingestSphereOfPoints(currentNode, distToCenter);
             } else {
 
                 Pair<MetricTree<KEY, VALUE>.Sphere> childSpheres = currentNode.children();
@@ -90,6 +194,11 @@ class Search<KEY, VALUE> {
                 double firstDist = metric.distanceBtw(searchKey, childSpheres.first().centerPoint);
 
                 double secondDist = metric.distanceBtw(searchKey, childSpheres.second().centerPoint);
+                distanceCalls += 2;
+
+                if (stats != null) {
+                    stats.countDistanceCalls(2);
+                }
 
                 /*
                  * Submit the closest sphere second to reduce work (because this increases the
@@ -106,46 +215,149 @@ class Search<KEY, VALUE> {
         }
     }
 
-    private void ingestSphereOfPoints(MetricTree<KEY, VALUE>.Sphere inputSphere) {
+    /// @param inputSphere  A SPHERE_OF_POINTS that overlaps the query
+    /// @param distToCenter The distance between the searchKey and the inputSphere's centerPoint
+    private void ingestSphereOfPoints(MetricTree<KEY, VALUE>.Sphere inputSphere, double distToCenter) {
+
+        int numDistanceCalls = (batchMetric == null)
+                ? scanEachPoint(inputSphere, distToCenter)
+                : scanPointsInBatch(inputSphere, distToCenter);
 
-        for (Map.Entry<KEY, VALUE> entry : inputSphere.points()) {
+        distanceCalls += numDistanceCalls;
 
-            SearchResult<KEY, VALUE> r =
-                    new SearchResult<>(entry.getKey(), entry.getValue(), metric.distanceBtw(searchKey, entry.getKey()));
+        if (stats != null) {
+            int numPoints = inputSphere.points().size();
+            stats.countPoints(numPoints, numPoints - numDistanceCalls);
+            stats.countDistanceCalls(numDistanceCalls);
+            stats.observeQueueSize(numResults());
+        }
+    }
+
+    /// Measure the distance to each point that survives the triangle inequality, one at a time.
+    ///
+    /// @return The number of distance calls made
+    private int scanEachPoint(MetricTree<KEY, VALUE>.Sphere inputSphere, double distToCenter) {
 
-            if (r.distance <= this.radius()) {
+        int numDistanceCalls = 0;
+        LeafEntries<KEY, VALUE> entries = inputSphere.points();
 
-                this.queue.offer(r);
+        for (int i = 0; i < entries.size(); i++) {
 
-                // enforce the "k" in kNN search
-                if (queue.size() > this.maxNumResults) {
-                    // if too big, remove the worst result
-                    queue.poll();
-                }
+            // the triangle inequality bounds the distance to this entry without calling the metric
+            double lowerBound = Math.abs(distToCenter - entries.distToCenterAt(i));
+            if (lowerBound > this.pruningRadius()) {
+                isExact &= lowerBound > this.radius();
+                continue;
             }
+
+            double distance = metric.distanceBtw(searchKey, entries.keyAt(i));
+            numDistanceCalls++;
+            ingest(entries, i, distance);
         }
+        return numDistanceCalls;
     }
 
+    /// Collect every point that survives the triangle inequality, then measure the distance to all
+    /// of them with one call to the BatchDistanceMetric.
+    ///
+    /// The candidates are filtered with the radius from the start of the scan. A kNN search's
+    /// radius can shrink during a scan, so this may measure a few more distances than scanEachPoint
+    /// (but the results are the same).
+    ///
+    /// @return The number of distances measured
+    private int scanPointsInBatch(MetricTree<KEY, VALUE>.Sphere inputSphere, double distToCenter) {
+
+        LeafEntries<KEY, VALUE> entries = inputSphere.points();
+        if (candidates == null || candidates.length < entries.size()) {
+            candidates = new int[Math.max(16, entries.size())];
+            candidateKeys = new ArrayList<>();
+            candidateDistances = new double[candidates.length];
+        }
+        candidateKeys.clear();
+
+        int n = 0;
+        double pruningRadius = this.pruningRadius();
+        double radius = this.radius();
+        for (int i = 0; i < entries.size(); i++) {
+            double lowerBound = Math.abs(distToCenter - entries.distToCenterAt(i));
+            if (lowerBound > pruningRadius) {
+                isExact &= lowerBound > radius;
+                continue;
+            }
+            candidates[n++] = i;
+            candidateKeys.add(entries.keyAt(i));
+        }
+
+        if (n == 0) {
+            return 0;
+        }
+
+        batchMetric.distancesFrom(searchKey, candidateKeys, candidateDistances);
+
+        for (int c = 0; c < n; c++) {
+            ingest(entries, candidates[c], candidateDistances[c]);
+        }
+        return n;
+    }
+
+    /// Add the i-th entry of a leaf to the results if it is within the current radius.
+    private void ingest(LeafEntries<KEY, VALUE> entries, int i, double distance) {
+
+        // only create a SearchResult when the entry is accepted
+        if (distance <= this.radius()) {
+            if (buffer != null) {
+                buffer.offer(entries.keyAt(i), entries.valueAt(i), distance, maxNumResults);
+                return;
+            }
+
+            this.queue.offer(new SearchResult<>(entries.keyAt(i), entries.valueAt(i), distance));
+
+            // enforce the "k" in kNN search
+            if (queue.size() > this.maxNumResults) {
+                // if too big, remove the worst result
+                queue.poll();
+            }
+        }
+    }
+
+    /// @param s        A sphere in the tree being searched
+    /// @param distance The distance between the searchKey and the sphere's centerPoint
+    ///
     /// @return True when the "query sphere" and this sphere overlap.
-    private boolean overlapsWith(MetricTree<KEY, VALUE>.Sphere s) {
+    private boolean overlapsWith(MetricTree<KEY, VALUE>.Sphere s, double distance) {
+
+        double overlap = s.radius() + this.pruningRadius() - distance;
+
+        if (overlap < 0) {
+            isExact &= s.radius() + this.radius() - distance < 0;
+        }
 
-        double distance = metric.distanceBtw((KEY) s.centerPoint, this.searchKey);
-        double overlap = s.radius() + this.radius() - distance;
+        if (stats != null) {
+            stats.countDistanceCalls(1);
+            stats.countSphere(overlap >= 0);
+        }
 
         return (overlap >= 0);
     }
 
+    /// @return The radius used to prune spheres and entries. This is the radius() for exact searches
+    ///     and radius() / (1 + epsilon) for approximate searches.
+    private double pruningRadius() {
+        return (epsilon == 0) ? radius() : radius() / (1.0 + epsilon);
+    }
+
     /// @return The "inclusion radius" based on the type of query being executed and the quality of
     ///     the current results (so we can avoid processing spheres that cannot contain better
     ///     results)
     private double radius() {
 
         if (type == SearchType.K_NEAREST_NEIGHBORS) {
-            if (queue.size() < maxNumResults) {
+            if (numResults() < maxNumResults) {
                 // radius is still large because we haven't found "k" results yet
                 return Double.POSITIVE_INFINITY;
             } else {
-                return queue.peek().distance; // must beat this to improve
+                // must beat this to improve
+                return (buffer != null) ? buffer.worstDistance() : queue.peek().distance;
             }
         } else if (type == SearchType.RANGE) {
             return this.fixedRadius; // includes everything within this radius
@@ -154,7 +366,16 @@ class Search<KEY, VALUE> {
         }
     }
 
+    private int numResults() {
+        return (buffer != null) ? buffer.size() : queue.size();
+    }
+
     Collection<SearchResult<KEY, VALUE>> results() {
         return queue;
     }
+
+    /// @return True when the results of the last search are guaranteed to be exact.
+    boolean isExact() {
+        return isExact;
+    }
 }
@@ -23,11 +23,27 @@ public class SearchResults<K, V> {
     /** All result found during the Search operation. */
     private final ArrayList<SearchResult<K, V>> results;
 
+    /** The work done by the search (null when SearchStats were not collected). */
+    private final SearchStats stats;
+
+    /** False when an approximate search may have missed closer results. */
+    private final boolean isExact;
+
     SearchResults(K searchKey, Collection<SearchResult<K, V>> c) {
+        this(searchKey, c, null);
+    }
+
+    SearchResults(K searchKey, Collection<SearchResult<K, V>> c, SearchStats stats) {
+        this(searchKey, c, stats, true);
+    }
+
+    SearchResults(K searchKey, Collection<SearchResult<K, V>> c, SearchStats stats, boolean isExact) {
         requireNonNull(searchKey);
         this.searchKey = searchKey;
         this.results = new ArrayList<>(c);
         results.sort(reverseOrder());
+        this.stats = stats;
+        this.isExact = isExact;
     }
 
     /** @return The Key upon which the search was based. */
@@ -35,6 +51,23 @@ public class SearchResults<K, V> {
         return searchKey;
     }
 
+    /**
+     * @return The work done by the search that produced these results, or null when SearchStats
+     *     were not enabled at search time.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+
+    /**
+     * @return True when these results are guaranteed to be the true nearest neighbors (always true
+     *     for exact searches). An approximate search returns false when it skipped part of the tree
+     *     that could have contained a closer result.
+     */
+    public boolean isExact() {
+        return isExact;
+    }
+
     /** @return True, when there is no data to report. */
     public boolean isEmpty() {
         return results.isEmpty();
@@ -0,0 +1,160 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/// SearchStats count the work performed by kNN and range searches of a MetricTree or MetricSet.
+///
+/// These counters help diagnose slow searches. For example, a high ratio of "spheres visited" to
+/// "spheres pruned" suggests the sphere radii are too large (try a different CenterPointSelector or
+/// rebalance the tree) while a low number of distance calls paired with slow searches suggests the
+/// DistanceMetric itself is expensive.
+///
+/// Collecting SearchStats is disabled by default, see MetricTree.enableSearchStats(). When enabled,
+/// each search records its own SearchStats (available from SearchResults.stats()) and then adds
+/// them to the cumulative SearchStats kept by the tree. Adding to (and reading from) a SearchStats
+/// is thread-safe and never blocks: every count is a LongAdder (the max queue size is a
+/// LongAccumulator), so concurrent searches adding to the same cumulative stats do not contend on a
+/// lock. Because each count is read separately, a SearchStats read while searches are running is
+/// not an atomic snapshot (e.g. distanceCalls() may include a search numSearches() does not).
+///
+/// SearchStats describe searches. The shape of the tree being searched is described by
+/// MetricTree.leafDepthHistogram() and MetricSet.leafDepthHistogram().
+public final class SearchStats {
+
+    private final LongAdder numSearches = new LongAdder();
+
+    private final LongAdder distanceCalls = new LongAdder();
+
+    private final LongAdder spheresVisited = new LongAdder();
+
+    private final LongAdder spheresPruned = new LongAdder();
+
+    private final LongAdder pointsScanned = new LongAdder();
+
+    private final LongAdder pointsSkipped = new LongAdder();
+
+    private final LongAccumulator maxQueueSize = new LongAccumulator(Math::max, 0L);
+
+    public SearchStats() {}
+
+    /// @return The number of searches these stats describe.
+    public long numSearches() {
+        return numSearches.sum();
+    }
+
+    /// @return The number of times the DistanceMetric was called.
+    public long distanceCalls() {
+        return distanceCalls.sum();
+    }
+
+    /// @return The number of Spheres that overlapped the query and were therefore explored.
+    public long spheresVisited() {
+        return spheresVisited.sum();
+    }
+
+    /// @return The number of Spheres (and all their descendants) skipped because they could not
+    ///     contain a result.
+    public long spheresPruned() {
+        return spheresPruned.sum();
+    }
+
+    /// @return The number of entries found in the leaf Spheres that were explored.
+    public long pointsScanned() {
+        return pointsScanned.sum();
+    }
+
+    /// @return The number of scanned entries that were ruled out using the triangle inequality (i.e.
+    ///     without calling the DistanceMetric).
+    public long pointsSkipped() {
+        return pointsSkipped.sum();
+    }
+
+    /// @return The largest number of candidate results held at once by a single search.
+    public long maxQueueSize() {
+        return maxQueueSize.get();
+    }
+
+    /// @return The average number of DistanceMetric calls per search (or 0 when there were no
+    ///     searches).
+    public double distanceCallsPerSearch() {
+        long searches = numSearches();
+        return (searches == 0) ? 0 : (double) distanceCalls() / searches;
+    }
+
+    /// Add the counts from another SearchStats to this SearchStats.
+    ///
+    /// @param other The stats being added (typically the stats of a single search)
+    public void add(SearchStats other) {
+        checkNotNull(other);
+        this.numSearches.add(other.numSearches());
+        this.distanceCalls.add(other.distanceCalls());
+        this.spheresVisited.add(other.spheresVisited());
+        this.spheresPruned.add(other.spheresPruned());
+        this.pointsScanned.add(other.pointsScanned());
+        this.pointsSkipped.add(other.pointsSkipped());
+        this.maxQueueSize.accumulate(other.maxQueueSize());
+    }
+
+    /// @return A copy of this SearchStats (i.e. a snapshot of the counts).
+    public SearchStats copy() {
+        SearchStats copy = new SearchStats();
+        copy.add(this);
+        return copy;
+    }
+
+    /// Set every count to zero. Counts added while the reset is in progress may or may not survive.
+    public void reset() {
+        numSearches.reset();
+        distanceCalls.reset();
+        spheresVisited.reset();
+        spheresPruned.reset();
+        pointsScanned.reset();
+        pointsSkipped.reset();
+        maxQueueSize.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStats{numSearches=" + numSearches()
+                + ", distanceCalls=" + distanceCalls()
+                + ", spheresVisited=" + spheresVisited()
+                + ", spheresPruned=" + spheresPruned()
+                + ", pointsScanned=" + pointsScanned()
+                + ", pointsSkipped=" + pointsSkipped()
+                + ", maxQueueSize=" + maxQueueSize()
+                + "}";
+    }
+
+    /*
+     * The methods below are only called by the one thread executing a search (on a SearchStats that
+     * is not yet shared), so the LongAdders they update are never contended.
+     */
+
+    void countSearch() {
+        numSearches.increment();
+    }
+
+    void countDistanceCalls(int n) {
+        distanceCalls.add(n);
+    }
+
+    void countSphere(boolean wasVisited) {
+        if (wasVisited) {
+            spheresVisited.increment();
+        } else {
+            spheresPruned.increment();
+        }
+    }
+
+    void countPoints(int scanned, int skipped) {
+        pointsScanned.add(scanned);
+        pointsSkipped.add(skipped);
+    }
+
+    void observeQueueSize(int size) {
+        maxQueueSize.accumulate(size);
+    }
+}
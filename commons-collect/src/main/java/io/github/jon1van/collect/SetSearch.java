@@ -1,8 +1,10 @@
 package io.github.jon1van.collect;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.List;
 import java.util.PriorityQueue;
 
 /// A Search iterates through a MetricSet and collects Keys that are close to the "search key".
@@ -22,28 +24,53 @@ class SetSearch<K> {
 
     private final DistanceMetric<K> metric;
 
-    private final SearchType type;
+    /// The metric as a BatchDistanceMetric (null when the metric does not support batches).
+    private final BatchDistanceMetric<K> batchMetric;
 
-    private final K searchKey;
+    private SearchType type;
 
-    private final int maxNumResults; // only used for kNN searches
+    private K searchKey;
 
-    private final double fixedRadius; // only used for range searches
+    private int maxNumResults; // only used for kNN searches
+
+    private double fixedRadius; // the range of range searches (or the distance limit of kNN searches)
 
     private final PriorityQueue<SetSearchResult<K>> queue;
 
+    /// When not null, results are written into this buffer instead of the queue.
+    private ResultBuffer<K, ?> buffer;
+
+    /// The spheres that still need to be searched, kept between searches so it can be reused.
+    private final Deque<MetricSet<K>.Sphere> stack;
+
+    /// Counts the work done by the current search (null when SearchStats are disabled).
+    private SearchStats stats;
+
+    /// Scratch space for batched leaf scans (reused by every leaf and every search).
+    private List<K> candidateKeys;
+
+    private double[] candidateDistances;
+
+    /// Create a search that must be prepared with prepareKnn or prepareRange before each use. A
+    /// single Search can be reused (one search at a time) to avoid allocating a new queue and stack
+    /// for every query in a batch of queries.
+    ///
+    /// @param metric The distance metric used to determine how far objects are
+    SetSearch(DistanceMetric<K> metric) {
+        this.metric = metric;
+        this.batchMetric = (metric instanceof BatchDistanceMetric<K> batch) ? batch : null;
+        this.queue = new PriorityQueue<>();
+        this.stack = new ArrayDeque<>();
+    }
+
     /// Create a kNN search query.
     ///
     /// @param searchKey     Search for this
     /// @param maxNumResults The "k" in k-Nearest-Neighbors
     /// @param metric        The distance metric used to determine how far objects are
     SetSearch(K searchKey, int maxNumResults, DistanceMetric<K> metric) {
-        this.metric = metric;
-        this.type = SearchType.K_NEAREST_NEIGHBORS;
-        this.searchKey = searchKey;
-        this.maxNumResults = maxNumResults;
-        this.fixedRadius = Double.POSITIVE_INFINITY;
-        this.queue = new PriorityQueue<>();
+        this(metric);
+        prepareKnn(searchKey, maxNumResults);
     }
 
     /// Create a range query that returns all entries within range
@@ -52,12 +79,62 @@ class SetSearch<K> {
     /// @param metric    The distance metric used to determine how far objects are
     /// @param range     Include results within this distance
     SetSearch(K searchKey, DistanceMetric<K> metric, double range) {
-        this.metric = metric;
+        this(metric);
+        prepareRange(searchKey, range);
+    }
+
+    /// Discard the results of any prior search and prepare a new kNN search.
+    ///
+    /// @param searchKey     Search for this
+    /// @param maxNumResults The "k" in k-Nearest-Neighbors
+    void prepareKnn(K searchKey, int maxNumResults) {
+        prepareKnn(searchKey, maxNumResults, Double.POSITIVE_INFINITY);
+    }
+
+    /// Discard the results of any prior search and prepare a new kNN search that ignores keys
+    /// farther than maxDistance from the search key. A finite maxDistance lets the search prune
+    /// spheres before it has found k results.
+    ///
+    /// @param searchKey     Search for this
+    /// @param maxNumResults The "k" in k-Nearest-Neighbors
+    /// @param maxDistance   Only keys within this distance can be results
+    void prepareKnn(K searchKey, int maxNumResults, double maxDistance) {
+        this.type = SearchType.K_NEAREST_NEIGHBORS;
+        this.searchKey = searchKey;
+        this.maxNumResults = maxNumResults;
+        this.fixedRadius = maxDistance;
+        this.queue.clear();
+        this.buffer = null;
+    }
+
+    /// Discard the results of any prior search and prepare a new range search.
+    ///
+    /// @param searchKey Search for this
+    /// @param range     Include results within this distance
+    void prepareRange(K searchKey, double range) {
         this.type = SearchType.RANGE;
         this.searchKey = searchKey;
         this.maxNumResults = Integer.MAX_VALUE;
         this.fixedRadius = range;
-        this.queue = new PriorityQueue<>();
+        this.queue.clear();
+        this.buffer = null;
+    }
+
+    /// Write the results of a prepared search into a ResultBuffer (instead of creating a
+    /// SetSearchResult for each result). The buffer should be empty.
+    void collectInto(ResultBuffer<K, ?> buffer) {
+        this.buffer = buffer;
+    }
+
+    DistanceMetric<K> metric() {
+        return metric;
+    }
+
+    /// Record the work done by the next search in this SearchStats.
+    ///
+    /// @param stats A SearchStats for the next search (or null when SearchStats are disabled)
+    void recordStatsInto(SearchStats stats) {
+        this.stats = stats;
     }
 
     /*
@@ -66,20 +143,22 @@ class SetSearch<K> {
      */
     void startQuery(MetricSet<K>.Sphere root) {
 
-        Deque<MetricSet<K>.Sphere> stack = new ArrayDeque<>();
+        stack.clear();
         stack.push(root);
 
         while (!stack.isEmpty()) {
 
             MetricSet<K>.Sphere current = stack.pop();
 
+            double distToCenter = metric.distanceBtw(current.centerPoint, this.searchKey);
+
             // ignore this node (and all its sub-trees) because it cannot improve the current result
-            if (!this.overlapsWith(current)) {
+            if (!this.overlapsWith(current, distToCenter)) {
                 continue;
             }
 
             if (current.isSphereOfPoints()) {
-                ingestSphereOfPoints(current);
+                ingestSphereOfPoints(current, distToCenter);
             } else {
 
                 Pair<MetricSet<K>.Sphere> childSpheres = current.children();
@@ -88,6 +167,10 @@ class SetSearch<K> {
 
                 double secondDist = metric.distanceBtw(searchKey, childSpheres.second().centerPoint);
 
+                if (stats != null) {
+                    stats.countDistanceCalls(2);
+                }
+
                 /*
                  * Submit the closest sphere second to reduce work (because this increases the
                  * chance we can skip items in the sphere that are further away).
@@ -103,31 +186,118 @@ class SetSearch<K> {
         }
     }
 
-    private void ingestSphereOfPoints(MetricSet<K>.Sphere inputSphere) {
+    /// @param inputSphere  A SPHERE_OF_POINTS that overlaps the query
+    /// @param distToCenter The distance between the searchKey and the inputSphere's centerPoint
+    private void ingestSphereOfPoints(MetricSet<K>.Sphere inputSphere, double distToCenter) {
 
-        for (K key : inputSphere.points()) {
+        int numDistanceCalls = (batchMetric == null)
+                ? scanEachPoint(inputSphere, distToCenter)
+                : scanPointsInBatch(inputSphere, distToCenter);
 
-            SetSearchResult<K> r = new SetSearchResult<>(key, metric.distanceBtw(searchKey, key));
+        if (stats != null) {
+            int numPoints = inputSphere.points().size();
+            stats.countPoints(numPoints, numPoints - numDistanceCalls);
+            stats.countDistanceCalls(numDistanceCalls);
+            stats.observeQueueSize(numResults());
+        }
+    }
 
-            if (r.distance <= this.radius()) {
+    /// Measure the distance to each key that survives the triangle inequality, one at a time.
+    ///
+    /// @return The number of distance calls made
+    private int scanEachPoint(MetricSet<K>.Sphere inputSphere, double distToCenter) {
 
-                this.queue.offer(r);
+        int numDistanceCalls = 0;
+        LeafEntries<K, Void> keys = inputSphere.points();
 
-                // enforce the "k" in kNN search
-                if (queue.size() > this.maxNumResults) {
-                    // if too big, remove the worst result
-                    queue.poll();
-                }
+        for (int i = 0; i < keys.size(); i++) {
+
+            // the triangle inequality bounds the distance to this key without calling the metric
+            if (Math.abs(distToCenter - keys.distToCenterAt(i)) > this.radius()) {
+                continue;
+            }
+
+            K key = keys.keyAt(i);
+            double distance = metric.distanceBtw(searchKey, key);
+            numDistanceCalls++;
+            ingest(key, distance);
+        }
+        return numDistanceCalls;
+    }
+
+    /// Collect every key that survives the triangle inequality, then measure the distance to all of
+    /// them with one call to the BatchDistanceMetric.
+    ///
+    /// The candidates are filtered with the radius from the start of the scan. A kNN search's
+    /// radius can shrink during a scan, so this may measure a few more distances than scanEachPoint
+    /// (but the results are the same).
+    ///
+    /// @return The number of distances measured
+    private int scanPointsInBatch(MetricSet<K>.Sphere inputSphere, double distToCenter) {
+
+        if (candidateKeys == null) {
+            candidateKeys = new ArrayList<>();
+            candidateDistances = new double[16];
+        }
+        candidateKeys.clear();
+
+        double radius = this.radius();
+        LeafEntries<K, Void> keys = inputSphere.points();
+        for (int i = 0; i < keys.size(); i++) {
+            if (Math.abs(distToCenter - keys.distToCenterAt(i)) <= radius) {
+                candidateKeys.add(keys.keyAt(i));
+            }
+        }
+
+        int n = candidateKeys.size();
+        if (n == 0) {
+            return 0;
+        }
+        if (candidateDistances.length < n) {
+            candidateDistances = new double[Math.max(n, 2 * candidateDistances.length)];
+        }
+
+        batchMetric.distancesFrom(searchKey, candidateKeys, candidateDistances);
+
+        for (int i = 0; i < n; i++) {
+            ingest(candidateKeys.get(i), candidateDistances[i]);
+        }
+        return n;
+    }
+
+    /// Add a key to the results if it is within the current radius.
+    private void ingest(K key, double distance) {
+
+        // only create a SetSearchResult when the key is accepted
+        if (distance <= this.radius()) {
+            if (buffer != null) {
+                buffer.offer(key, null, distance, maxNumResults);
+                return;
+            }
+
+            this.queue.offer(new SetSearchResult<>(key, distance));
+
+            // enforce the "k" in kNN search
+            if (queue.size() > this.maxNumResults) {
+                // if too big, remove the worst result
+                queue.poll();
             }
         }
     }
 
+    /// @param s        A sphere in the set being searched
+    /// @param distance The distance between the searchKey and the sphere's centerPoint
+    ///
     /// @return True when the "query sphere" and this sphere overlap.
-    private boolean overlapsWith(MetricSet<K>.Sphere s) {
+    private boolean overlapsWith(MetricSet<K>.Sphere s, double distance) {
 
-        double distance = metric.distanceBtw(s.centerPoint, this.searchKey);
         double overlap = s.radius() + this.radius() - distance;
 
+        if (stats != null) {
+            stats.countDistanceCalls(1);
+            stats.countSphere(overlap >= 0);
+        }
+
         return (overlap >= 0);
     }
 
@@ -137,11 +307,12 @@ class SetSearch<K> {
     private double radius() {
 
         if (type == SearchType.K_NEAREST_NEIGHBORS) {
-            if (queue.size() < maxNumResults) {
+            if (numResults() < maxNumResults) {
                 // radius is still large because we haven't found "k" results yet
-                return Double.POSITIVE_INFINITY;
+                return this.fixedRadius;
             } else {
-                return queue.peek().distance; // must beat this to improve
+                // must beat this to improve
+                return (buffer != null) ? buffer.worstDistance() : queue.peek().distance;
             }
         } else if (type == SearchType.RANGE) {
             return this.fixedRadius; // includes everything within this radius
@@ -150,6 +321,10 @@ class SetSearch<K> {
         }
     }
 
+    private int numResults() {
+        return (buffer != null) ? buffer.size() : queue.size();
+    }
+
     Collection<SetSearchResult<K>> results() {
         return queue;
     }
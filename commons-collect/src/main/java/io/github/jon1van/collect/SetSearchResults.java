@@ -22,11 +22,19 @@ public class SetSearchResults<K> {
     /** All result found during the Search operation. */
     private final ArrayList<SetSearchResult<K>> results;
 
+    /** The work done by the search (null when SearchStats were not collected). */
+    private final SearchStats stats;
+
     SetSearchResults(K searchKey, Collection<SetSearchResult<K>> c) {
+        this(searchKey, c, null);
+    }
+
+    SetSearchResults(K searchKey, Collection<SetSearchResult<K>> c, SearchStats stats) {
         requireNonNull(searchKey);
         this.searchKey = searchKey;
         this.results = new ArrayList<>(c);
         results.sort(reverseOrder());
+        this.stats = stats;
     }
 
     /** @return The Key upon which the search was based. */
@@ -34,6 +42,14 @@ public class SetSearchResults<K> {
         return searchKey;
     }
 
+    /**
+     * @return The work done by the search that produced these results, or null when SearchStats
+     *     were not enabled at search time.
+     */
+    public SearchStats stats() {
+        return stats;
+    }
+
     /** @return True, when there is no data to report. */
     public boolean isEmpty() {
         return results.isEmpty();
@@ -0,0 +1,157 @@
+package io.github.jon1van.collect;
+
+/// A SphereSplitter divides the keys of a Sphere that is being built from scratch into two groups,
+/// one for each of two new child Spheres.
+///
+/// Keys are assigned to the child whose center point is closest (just like keys are assigned when a
+/// "Sphere of Points" is split). However, a split is never allowed to be more lopsided than
+/// MIN_SPLIT_FRACTION. When the closest-center assignment is too lopsided the keys are split at the
+/// quantile of d(key, center1) - d(key, center2) instead. This guard limits the depth of a
+/// bulk-loaded tree even when many keys share the same location.
+///
+/// This class is package private because it is an implementation detail of the MetricTree,
+/// MetricSet, and LatLongMetricIndex classes.
+final class SphereSplitter {
+
+    /// The smallest fraction of keys that can be assigned to either child Sphere.
+    private static final double MIN_SPLIT_FRACTION = 0.1;
+
+    private SphereSplitter() {}
+
+    /// Reorder the range [from, to) of these parallel arrays so that the range [from, mid) holds the
+    /// keys assigned to the first center point and the range [mid, to) holds the keys assigned to
+    /// the second center point. The arrays are always reordered together so that index i always
+    /// refers to the same key in every array.
+    ///
+    /// @param keys         The keys being split
+    /// @param values       The values paired with each key (may be null when there are no values)
+    /// @param distToFirst  The distance from each key to the first center point
+    /// @param distToSecond The distance from each key to the second center point
+    /// @param from         The first index in the range (inclusive)
+    /// @param to           The last index in the range (exclusive)
+    ///
+    /// @return The index "mid" that separates the keys assigned to each center point
+    static int split(Object[] keys, Object[] values, double[] distToFirst, double[] distToSecond, int from, int to) {
+        return split(distToFirst, distToSecond, from, to, (i, j) -> {
+            swap(keys, i, j);
+            if (values != null) {
+                swap(values, i, j);
+            }
+        });
+    }
+
+    /// Reorder the range [from, to) of these parallel arrays so that the range [from, mid) holds the
+    /// keys assigned to the first center point and the range [mid, to) holds the keys assigned to
+    /// the second center point (see split(Object[], Object[], ...)). This version supports keys that
+    /// are encoded as primitive longs.
+    ///
+    /// @return The index "mid" that separates the keys assigned to each center point
+    static int split(long[] keys, double[] distToFirst, double[] distToSecond, int from, int to) {
+        return split(distToFirst, distToSecond, from, to, (i, j) -> {
+            long temp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = temp;
+        });
+    }
+
+    private static int split(double[] distToFirst, double[] distToSecond, int from, int to, Swapper payload) {
+
+        // count the keys that are closer to the first center, equidistant keys are shared evenly
+        int numCloser = 0;
+        int numTied = 0;
+        for (int i = from; i < to; i++) {
+            double bias = bias(distToFirst, distToSecond, i);
+            if (bias < 0) {
+                numCloser++;
+            } else if (bias == 0) {
+                numTied++;
+            }
+        }
+
+        int size = to - from;
+        int minSize = Math.max(1, (int) (size * MIN_SPLIT_FRACTION));
+        int mid = from + Math.min(Math.max(numCloser + numTied / 2, minSize), size - minSize);
+
+        selectNth(distToFirst, distToSecond, payload, from, to, mid);
+
+        return mid;
+    }
+
+    /// @return The largest distance found in the range [from, to) of this array.
+    static double maxOf(double[] distances, int from, int to) {
+        double max = 0;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, distances[i]);
+        }
+        return max;
+    }
+
+    /// Reorder the range [from, to) so that every key in [from, n) has a bias that is less than or
+    /// equal to the bias of every key in [n, to). This is a Hoare-style quick select in which equal
+    /// elements are swapped so that duplicate biases cannot cause O(n^2) runtime.
+    private static void selectNth(
+            double[] distToFirst, double[] distToSecond, Swapper payload, int from, int to, int n) {
+
+        int left = from;
+        int right = to - 1;
+
+        while (left < right) {
+            double pivot = medianOfThree(
+                    bias(distToFirst, distToSecond, left),
+                    bias(distToFirst, distToSecond, (left + right) >>> 1),
+                    bias(distToFirst, distToSecond, right));
+
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (bias(distToFirst, distToSecond, i) < pivot) {
+                    i++;
+                }
+                while (bias(distToFirst, distToSecond, j) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(distToFirst, i, j);
+                    swap(distToSecond, i, j);
+                    payload.swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            if (n <= j) {
+                right = j;
+            } else if (n >= i) {
+                left = i;
+            } else {
+                return; // every index between j and i equals the pivot
+            }
+        }
+    }
+
+    /// @return A negative number when a key is closer to the first center point
+    private static double bias(double[] distToFirst, double[] distToSecond, int i) {
+        return distToFirst[i] - distToSecond[i];
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        double temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    private static void swap(Object[] array, int i, int j) {
+        Object temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /// Swaps the "payload" (i.e. the keys and values) that is reordered alongside the distances.
+    private interface Swapper {
+        void swap(int i, int j);
+    }
+}
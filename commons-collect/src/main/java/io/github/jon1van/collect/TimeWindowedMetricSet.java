@@ -0,0 +1,267 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import io.github.jon1van.units.HasTime;
+
+/// A TimeWindowedMetricSet is a MetricSet that only retains "recent" keys. It is designed for
+/// streaming data (e.g. aircraft positions) where old keys must be evicted continuously.
+///
+/// Evicting old keys from a single MetricSet requires one remove(K) call per key and leaves the
+/// tree with stale center points and over-sized spheres. A TimeWindowedMetricSet avoids both
+/// problems by partitioning its keys into fixed-duration "time buckets" (based on the time of each
+/// key). Each bucket holds its own MetricSet. When a bucket falls entirely outside the time window
+/// the whole bucket is dropped at once (no matter how many keys it contains).
+///
+/// kNN and range searches are performed on every live bucket and the results are merged.
+/// Consequently, searches get slower as the number of live buckets grows. A bucket duration that is
+/// 1/10th to 1/5th of the window duration is usually a good compromise between search speed and
+/// eviction precision.
+///
+/// Eviction is triggered by time moving forward. The "current time" of a TimeWindowedMetricSet is
+/// the latest key time it has seen (see add) or the latest time passed to advanceTo. Every key is
+/// retained for at least the window duration and is evicted before it is windowDuration +
+/// bucketDuration old.
+///
+/// @param <K> The Keys, these keys are stored in HashMaps, so their hashcode() and equals() methods
+///            must be defined correctly.
+public class TimeWindowedMetricSet<K> {
+
+    private final DistanceMetric<K> metric;
+
+    private final Function<? super K, Instant> timeOf;
+
+    private final long windowMs;
+
+    private final long bucketMs;
+
+    /// Maps the index of each time bucket (epochMs / bucketMs) to the keys in that bucket.
+    private final TreeMap<Long, MetricSet<K>> buckets = new TreeMap<>();
+
+    /// The latest time this set has seen (in epoch milliseconds).
+    private long currentTimeMs = Long.MIN_VALUE;
+
+    private int size = 0;
+
+    /// Create a TimeWindowedMetricSet for keys that know their own time.
+    ///
+    /// @param metric         A DistanceMetric that can measure the distance between two Keys.
+    /// @param windowDuration How long keys are retained
+    /// @param bucketDuration How much time each bucket spans (i.e. the precision of eviction)
+    public static <K extends HasTime> TimeWindowedMetricSet<K> of(
+            DistanceMetric<K> metric, Duration windowDuration, Duration bucketDuration) {
+        return new TimeWindowedMetricSet<>(metric, HasTime::time, windowDuration, bucketDuration);
+    }
+
+    /// @param metric         A DistanceMetric that can measure the distance between two Keys.
+    /// @param timeOf         Extracts the time of a key (this time must not change)
+    /// @param windowDuration How long keys are retained
+    /// @param bucketDuration How much time each bucket spans (i.e. the precision of eviction)
+    public TimeWindowedMetricSet(
+            DistanceMetric<K> metric,
+            Function<? super K, Instant> timeOf,
+            Duration windowDuration,
+            Duration bucketDuration) {
+        checkNotNull(metric, "The input DistanceMetric cannot be null");
+        checkNotNull(timeOf, "The time extracting function cannot be null");
+        checkNotNull(windowDuration, "The windowDuration cannot be null");
+        checkNotNull(bucketDuration, "The bucketDuration cannot be null");
+        checkArgument(bucketDuration.toMillis() > 0, "The bucketDuration must be at least 1 millisecond");
+        checkArgument(
+                windowDuration.compareTo(bucketDuration) >= 0, "The windowDuration cannot be shorter than a bucket");
+
+        this.metric = metric;
+        this.timeOf = timeOf;
+        this.windowMs = windowDuration.toMillis();
+        this.bucketMs = bucketDuration.toMillis();
+    }
+
+    public final DistanceMetric<K> metric() {
+        return this.metric;
+    }
+
+    /// Add a key to the bucket for its time. Adding a key whose time is later than the current time
+    /// advances the current time (which may evict old buckets).
+    ///
+    /// @param key The key being added
+    ///
+    /// @return True when the key was added, false when the key was already present or is too old to
+    ///     be retained
+    public boolean add(K key) {
+        checkNotNull(key);
+
+        long time = timeOf.apply(key).toEpochMilli();
+        if (time > currentTimeMs) {
+            advanceTo(time);
+        }
+        if (bucketOf(time) < oldestLiveBucket()) {
+            return false;
+        }
+
+        boolean added = buckets.computeIfAbsent(bucketOf(time), index -> new MetricSet<>(metric))
+                .add(key);
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    public boolean addAll(Collection<K> items) {
+        boolean result = false;
+        for (K item : items) {
+            result |= this.add(item);
+        }
+        return result;
+    }
+
+    /// Remove a single key (expiring keys does not require calling this method).
+    ///
+    /// @return True when the key was present
+    public boolean remove(K exactKey) {
+        checkNotNull(exactKey);
+
+        long index = bucketOf(timeOf.apply(exactKey).toEpochMilli());
+        MetricSet<K> bucket = buckets.get(index);
+        if (bucket == null || !bucket.remove(exactKey)) {
+            return false;
+        }
+
+        size--;
+        if (bucket.isEmpty()) {
+            buckets.remove(index);
+        }
+        return true;
+    }
+
+    /// Move the current time forward and drop every bucket that falls entirely outside the time
+    /// window. Moving the current time backwards has no effect.
+    ///
+    /// @param time The new current time
+    public void advanceTo(Instant time) {
+        checkNotNull(time);
+        advanceTo(time.toEpochMilli());
+    }
+
+    private void advanceTo(long timeMs) {
+        if (timeMs <= currentTimeMs) {
+            return;
+        }
+        this.currentTimeMs = timeMs;
+
+        // each expired bucket is dropped in one step (its keys are never removed individually)
+        Map<Long, MetricSet<K>> expired = buckets.headMap(oldestLiveBucket());
+        for (MetricSet<K> bucket : expired.values()) {
+            size -= bucket.size();
+        }
+        expired.clear();
+    }
+
+    /// @return The index of the oldest bucket that overlaps the time window.
+    private long oldestLiveBucket() {
+        return (currentTimeMs == Long.MIN_VALUE) ? Long.MIN_VALUE : bucketOf(currentTimeMs - windowMs);
+    }
+
+    private long bucketOf(long epochMs) {
+        return Math.floorDiv(epochMs, bucketMs);
+    }
+
+    /// @return The latest time this set has seen (or null when no key has been added).
+    public Instant currentTime() {
+        return (currentTimeMs == Long.MIN_VALUE) ? null : Instant.ofEpochMilli(currentTimeMs);
+    }
+
+    /// @return The number of keys in this set.
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean contains(K key) {
+        MetricSet<K> bucket = buckets.get(bucketOf(timeOf.apply(key).toEpochMilli()));
+        return bucket != null && bucket.contains(key);
+    }
+
+    /// @return The number of time buckets that currently hold keys.
+    public int bucketCount() {
+        return buckets.size();
+    }
+
+    /// @return A snapshot of the keys in this set (future modifications are not reflected).
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>(size);
+        for (MetricSet<K> bucket : buckets.values()) {
+            keys.addAll(bucket.keySet());
+        }
+        return keys;
+    }
+
+    /// Perform a kNN search where k = 1.
+    ///
+    /// @param searchKey The point-in-space from which the closest key is found
+    ///
+    /// @return The key with the minimum distance to the search key
+    public SetSearchResult<K> getClosest(K searchKey) {
+        return getNClosest(searchKey, 1).result(0);
+    }
+
+    /// Perform a kNN search with arbitrary k. Every live bucket is searched and the n closest keys
+    /// across all buckets are kept. Once n results are known, the remaining buckets are searched
+    /// with the distance to the n-th result as an upper bound (which prunes most of their spheres).
+    ///
+    /// @param searchKey The point-in-space from which the closest keys are found
+    /// @param n         The number of keys to search for
+    ///
+    /// @return A collection of n Results with the smallest distances to the search key
+    public SetSearchResults<K> getNClosest(K searchKey, int n) {
+        requireNonNull(searchKey);
+        checkArgument(n >= 1, "n must be at least 1");
+
+        // the "largest" result (i.e. the worst result) is always on top, see SetSearchResult
+        PriorityQueue<SetSearchResult<K>> best = new PriorityQueue<>();
+        for (MetricSet<K> bucket : buckets.values()) {
+            double maxDistance =
+                    (best.size() < n) ? Double.POSITIVE_INFINITY : best.peek().distance();
+            for (SetSearchResult<K> result :
+                    bucket.getNClosest(searchKey, n, maxDistance).results()) {
+                best.offer(result);
+                if (best.size() > n) {
+                    best.poll();
+                }
+            }
+        }
+
+        return new SetSearchResults<>(searchKey, best);
+    }
+
+    /// @param searchKey The point-in-space from which the closest keys are found
+    /// @param range     The distance below which all keys are included in the output.
+    ///
+    /// @return A Result for all keys (in every live bucket) within this range of the key.
+    public SetSearchResults<K> getAllWithinRange(K searchKey, double range) {
+        requireNonNull(searchKey);
+        checkArgument(range > 0, "range must be strictly positive");
+
+        ArrayList<SetSearchResult<K>> results = new ArrayList<>();
+        for (MetricSet<K> bucket : buckets.values()) {
+            results.addAll(bucket.getAllWithinRange(searchKey, range).results());
+        }
+
+        return new SetSearchResults<>(searchKey, results);
+    }
+}
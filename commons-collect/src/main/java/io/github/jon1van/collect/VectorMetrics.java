@@ -0,0 +1,189 @@
+package io.github.jon1van.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+
+/// This class provides BatchDistanceMetrics for dense double[] vectors.
+///
+/// When the JVM was started with "--add-modules jdk.incubator.vector" the kernels run on the JDK
+/// Vector API (see VectorizedMetrics) and only the last few coordinates of each vector go through
+/// the scalar loop. Without that module every coordinate goes through the scalar loop. The scalar
+/// loop keeps four independent accumulators so the CPU can overlap several floating point adds.
+public final class VectorMetrics {
+
+    /// True when the kernels use VectorizedMetrics.
+    static final boolean VECTORIZED = vectorApiIsUsable();
+
+    private VectorMetrics() {}
+
+    /// VectorizedMetrics is only loaded when the incubator module is in the boot layer, so this
+    /// class never fails to initialize when the module is absent.
+    private static boolean vectorApiIsUsable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorizedMetrics.isUseful();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /// @return The straight-line (L2) distance between two vectors of the same length.
+    public static BatchDistanceMetric<double[]> euclidean() {
+        return new BatchDistanceMetric<>() {
+            @Override
+            public double distanceBtw(double[] a, double[] b) {
+                checkSameLength(a, b);
+                return Math.sqrt(sumOfSquaredDiffs(a, b));
+            }
+
+            @Override
+            public void distancesFrom(double[] query, List<? extends double[]> candidates, double[] out) {
+                for (int i = 0; i < candidates.size(); i++) {
+                    double[] candidate = candidates.get(i);
+                    checkSameLength(query, candidate);
+                    out[i] = Math.sqrt(sumOfSquaredDiffs(query, candidate));
+                }
+            }
+        };
+    }
+
+    /// @return The taxicab (L1) distance between two vectors of the same length.
+    public static BatchDistanceMetric<double[]> manhattan() {
+        return new BatchDistanceMetric<>() {
+            @Override
+            public double distanceBtw(double[] a, double[] b) {
+                checkSameLength(a, b);
+                return sumOfAbsDiffs(a, b);
+            }
+
+            @Override
+            public void distancesFrom(double[] query, List<? extends double[]> candidates, double[] out) {
+                for (int i = 0; i < candidates.size(); i++) {
+                    double[] candidate = candidates.get(i);
+                    checkSameLength(query, candidate);
+                    out[i] = sumOfAbsDiffs(query, candidate);
+                }
+            }
+        };
+    }
+
+    /// The "cosine distance" 1 - cos(a, b) violates the triangle inequality, so it cannot be used to
+    /// prune a MetricTree search. This metric measures the angle between the two vectors instead
+    /// (i.e. acos(cos(a, b))), which ranks pairs exactly like cosine similarity does and is a true
+    /// metric.
+    ///
+    /// @return The angle (in radians, from 0 to PI) between two non-zero vectors of the same length.
+    public static BatchDistanceMetric<double[]> cosine() {
+        return new BatchDistanceMetric<>() {
+            @Override
+            public double distanceBtw(double[] a, double[] b) {
+                checkSameLength(a, b);
+                return angle(dot(a, b), norm(a), norm(b));
+            }
+
+            @Override
+            public void distancesFrom(double[] query, List<? extends double[]> candidates, double[] out) {
+                double queryNorm = norm(query); // computed once for the whole batch
+                for (int i = 0; i < candidates.size(); i++) {
+                    double[] candidate = candidates.get(i);
+                    checkSameLength(query, candidate);
+                    out[i] = angle(dot(query, candidate), queryNorm, norm(candidate));
+                }
+            }
+        };
+    }
+
+    private static void checkSameLength(double[] a, double[] b) {
+        checkArgument(a.length == b.length, "Vectors must have the same length");
+    }
+
+    static double sumOfSquaredDiffs(double[] a, double[] b) {
+        if (VECTORIZED) {
+            return VectorizedMetrics.sumOfSquaredDiffs(a, b)
+                    + scalarSumOfSquaredDiffs(a, b, VectorizedMetrics.loopBound(a.length));
+        }
+        return scalarSumOfSquaredDiffs(a, b, 0);
+    }
+
+    /// @return The sum of squared differences of the coordinates in [from, a.length)
+    private static double scalarSumOfSquaredDiffs(double[] a, double[] b, int from) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < a.length; i += 4) {
+            double d0 = a[i] - b[i];
+            double d1 = a[i + 1] - b[i + 1];
+            double d2 = a[i + 2] - b[i + 2];
+            double d3 = a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < a.length; i++) {
+            double d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static double sumOfAbsDiffs(double[] a, double[] b) {
+        if (VECTORIZED) {
+            return VectorizedMetrics.sumOfAbsDiffs(a, b)
+                    + scalarSumOfAbsDiffs(a, b, VectorizedMetrics.loopBound(a.length));
+        }
+        return scalarSumOfAbsDiffs(a, b, 0);
+    }
+
+    /// @return The sum of absolute differences of the coordinates in [from, a.length)
+    private static double scalarSumOfAbsDiffs(double[] a, double[] b, int from) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += Math.abs(a[i] - b[i]);
+            s1 += Math.abs(a[i + 1] - b[i + 1]);
+            s2 += Math.abs(a[i + 2] - b[i + 2]);
+            s3 += Math.abs(a[i + 3] - b[i + 3]);
+        }
+        for (; i < a.length; i++) {
+            s0 += Math.abs(a[i] - b[i]);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static double dot(double[] a, double[] b) {
+        if (VECTORIZED) {
+            return VectorizedMetrics.dot(a, b) + scalarDot(a, b, VectorizedMetrics.loopBound(a.length));
+        }
+        return scalarDot(a, b, 0);
+    }
+
+    /// @return The dot product of the coordinates in [from, a.length)
+    private static double scalarDot(double[] a, double[] b, int from) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < a.length; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+
+    private static double angle(double dot, double normA, double normB) {
+        checkArgument(normA > 0 && normB > 0, "The angle to a zero vector is undefined");
+        // rounding error can push the cosine slightly outside [-1, 1]
+        double cos = Math.max(-1.0, Math.min(1.0, dot / (normA * normB)));
+        return Math.acos(cos);
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.jon1van.collect;
+
+import static jdk.incubator.vector.VectorOperators.ADD;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/// The SIMD versions of the VectorMetrics kernels. They are built on the JDK Vector API (the
+/// jdk.incubator.vector module) and process one vector's worth of coordinates at a time (e.g. 4
+/// doubles per instruction with AVX2).
+///
+/// Every kernel sums the coordinates in [0, loopBound(n)) and leaves the remaining coordinates to
+/// the scalar loop in VectorMetrics. The lanes are added in a different order than the scalar
+/// loop adds them, so results differ from the scalar kernels by rounding error only.
+///
+/// This class must only be loaded after VectorMetrics has confirmed the jdk.incubator.vector
+/// module is present (see VectorMetrics.VECTORIZED).
+final class VectorizedMetrics {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorizedMetrics() {}
+
+    /// @return True when the preferred vector shape holds at least 2 doubles (i.e. SIMD helps).
+    static boolean isUseful() {
+        return DOUBLES.length() >= 2;
+    }
+
+    /// @return The number of leading coordinates (out of n) that the vector kernels process.
+    static int loopBound(int n) {
+        return DOUBLES.loopBound(n);
+    }
+
+    static double sumOfSquaredDiffs(double[] a, double[] b) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        for (int i = 0; i < loopBound(a.length); i += DOUBLES.length()) {
+            DoubleVector diff = DoubleVector.fromArray(DOUBLES, a, i).sub(DoubleVector.fromArray(DOUBLES, b, i));
+            sum = sum.add(diff.mul(diff));
+        }
+        return sum.reduceLanes(ADD);
+    }
+
+    static double sumOfAbsDiffs(double[] a, double[] b) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        for (int i = 0; i < loopBound(a.length); i += DOUBLES.length()) {
+            DoubleVector diff = DoubleVector.fromArray(DOUBLES, a, i).sub(DoubleVector.fromArray(DOUBLES, b, i));
+            sum = sum.add(diff.abs());
+        }
+        return sum.reduceLanes(ADD);
+    }
+
+    static double dot(double[] a, double[] b) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        for (int i = 0; i < loopBound(a.length); i += DOUBLES.length()) {
+            sum = sum.add(DoubleVector.fromArray(DOUBLES, a, i).mul(DoubleVector.fromArray(DOUBLES, b, i)));
+        }
+        return sum.reduceLanes(ADD);
+    }
+}
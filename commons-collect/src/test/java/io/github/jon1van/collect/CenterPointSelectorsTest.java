@@ -0,0 +1,232 @@
+package io.github.jon1van.collect;
+
+import static java.lang.Math.hypot;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import io.github.jon1van.units.LatLong;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class CenterPointSelectorsTest {
+
+    static final DistanceMetric<Point> METRIC = (p1, p2) -> hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+
+    /// Every selector under test (a Supplier is used because selectors are stateful).
+    static <K> Map<String, Supplier<CenterPointSelector<K>>> selectors() {
+        Map<String, Supplier<CenterPointSelector<K>>> selectors = new LinkedHashMap<>();
+        selectors.put("singleRandomSample", () -> CenterPointSelectors.singleRandomSample(17L));
+        selectors.put("maxOfRandomSamples", CenterPointSelectors::maxOfRandomSamples);
+        selectors.put("farthestPair", () -> CenterPointSelectors.farthestPair(17L));
+        selectors.put("kMeansPlusPlus", () -> CenterPointSelectors.kMeansPlusPlus(17L));
+        selectors.put("maxVarianceSample", () -> CenterPointSelectors.maxVarianceSample(17L));
+        return selectors;
+    }
+
+    @Test
+    public void newSelectorsPickTwoDifferentKeys() {
+
+        List<Point> points = randomPoints(500, 1_000, 17L);
+
+        // Point objects at the same location are still different keys
+        List<Point> sameLocation = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sameLocation.add(new Point(5, 5));
+        }
+
+        List<CenterPointSelector<Point>> newSelectors = List.of(
+                CenterPointSelectors.farthestPair(17L),
+                CenterPointSelectors.kMeansPlusPlus(17L),
+                CenterPointSelectors.maxVarianceSample(17L));
+
+        for (CenterPointSelector<Point> selector : newSelectors) {
+            for (int i = 0; i < 20; i++) {
+                Pair<Point> centers = selector.selectNewCenterPoints(points, METRIC);
+                assertThat(centers.first()).isNotSameAs(centers.second());
+                assertThat(points).contains(centers.first(), centers.second());
+
+                Pair<Point> sameCenters = selector.selectNewCenterPoints(sameLocation, METRIC);
+                assertThat(sameCenters.first()).isNotSameAs(sameCenters.second());
+            }
+
+            List<Point> twoKeys = List.of(new Point(0, 0), new Point(3, 4));
+            Pair<Point> centers = selector.selectNewCenterPoints(twoKeys, METRIC);
+            assertThat(METRIC.distanceBtw(centers.first(), centers.second())).isEqualTo(5.0);
+        }
+    }
+
+    @Test
+    public void farthestPairFindsTheEndsOfALine() {
+
+        List<Point> line = new ArrayList<>();
+        for (int x = 0; x <= 100; x++) {
+            line.add(new Point(x, 0));
+        }
+
+        Pair<Point> centers = CenterPointSelectors.<Point>farthestPair(17L).selectNewCenterPoints(line, METRIC);
+
+        assertThat(METRIC.distanceBtw(centers.first(), centers.second())).isEqualTo(100.0);
+    }
+
+    @Test
+    public void newSelectorsSpreadTheirCentersApart() {
+
+        List<Point> points = randomPoints(2_500, 1_000, 18L);
+
+        // a random pair of keys is, on average, about half as far apart as the farthest pair
+        double averageRandomDistance = averageCenterDistance(CenterPointSelectors.singleRandomSample(17L), points);
+
+        assertThat(averageCenterDistance(CenterPointSelectors.farthestPair(17L), points))
+                .isGreaterThan(averageRandomDistance);
+        assertThat(averageCenterDistance(CenterPointSelectors.kMeansPlusPlus(17L), points))
+                .isGreaterThan(averageRandomDistance);
+        assertThat(averageCenterDistance(CenterPointSelectors.maxVarianceSample(17L), points))
+                .isGreaterThan(averageRandomDistance);
+    }
+
+    @Test
+    public void selectorsAreDeterministic() {
+
+        List<Point> points = randomPoints(500, 1_000, 19L);
+
+        for (Supplier<CenterPointSelector<Point>> supplier :
+                CenterPointSelectorsTest.<Point>selectors().values()) {
+            Pair<Point> first = supplier.get().selectNewCenterPoints(points, METRIC);
+            Pair<Point> second = supplier.get().selectNewCenterPoints(points, METRIC);
+            assertThat(first).isEqualTo(second);
+        }
+    }
+
+    @Test
+    public void treesBuiltWithEachSelectorFindTheSameResults() {
+
+        Map<Point, String> data = randomData(5_000, 1_000, 20L);
+        MetricTree<Point, String> reference = MetricTree.bulkLoad(data, METRIC);
+        Point searchKey = new Point(500, 500);
+
+        for (Supplier<CenterPointSelector<Point>> supplier :
+                CenterPointSelectorsTest.<Point>selectors().values()) {
+
+            MetricTree<Point, String> bulkTree = MetricTree.bulkLoad(data, METRIC, 50, supplier.get());
+            MetricTree<Point, String> putTree = new MetricTree<>(METRIC, 50, supplier.get());
+            putTree.putAll(data);
+
+            for (MetricTree<Point, String> tree : List.of(bulkTree, putTree)) {
+                assertThat(tree.size()).isEqualTo(data.size());
+                assertThat(tree.getNClosest(searchKey, 20).distances())
+                        .isEqualTo(reference.getNClosest(searchKey, 20).distances());
+                assertThat(tree.getAllWithinRange(searchKey, 30.0).distances())
+                        .isEqualTo(reference.getAllWithinRange(searchKey, 30.0).distances());
+            }
+        }
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void queryCostPerSelector() {
+
+        Random rng = new Random(21L);
+        List<Point> searchPoints = randomPoints(1_000, 100_000, 22L);
+
+        reportQueryCost("uniform points", randomData(500_000, 100_000, 23L), METRIC, searchPoints, 10);
+        reportQueryCost("clustered points", clusteredData(500_000, 24L), METRIC, searchPoints, 10);
+
+        Map<LatLong, Integer> locations = new HashMap<>();
+        while (locations.size() < 500_000) {
+            locations.put(LatLong.of(25.0 + 25.0 * rng.nextDouble(), -125.0 + 60.0 * rng.nextDouble()), 0);
+        }
+        List<LatLong> searchLocations = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            searchLocations.add(LatLong.of(25.0 + 25.0 * rng.nextDouble(), -125.0 + 60.0 * rng.nextDouble()));
+        }
+        reportQueryCost("LatLong (US)", locations, LatLong::distanceInNmTo, searchLocations, 10);
+    }
+
+    /// Build a tree using every selector and print the build cost and search cost of each.
+    private static <K, V> void reportQueryCost(
+            String dataset, Map<K, V> data, DistanceMetric<K> metric, List<K> searchKeys, int k) {
+
+        Map<String, Supplier<CenterPointSelector<K>>> selectors = selectors();
+
+        System.out.println(dataset + " (" + data.size() + " entries, k = " + k + ")");
+        for (Map.Entry<String, Supplier<CenterPointSelector<K>>> selector : selectors.entrySet()) {
+
+            long start = System.nanoTime();
+            MetricTree<K, V> tree =
+                    MetricTree.bulkLoad(data, metric, 50, selector.getValue().get(), ParallelBuild.sequential());
+            long buildTime = System.nanoTime() - start;
+
+            tree.enableSearchStats();
+            start = System.nanoTime();
+            for (K searchKey : searchKeys) {
+                tree.getNClosest(searchKey, k);
+            }
+            long searchTime = System.nanoTime() - start;
+
+            SearchStats stats = tree.searchStats();
+            System.out.printf(
+                    "  %-20s build: %5dms  distance calls per search: %8.1f  points scanned per search: %8.1f"
+                            + "  search time: %5dms%n",
+                    selector.getKey(),
+                    buildTime / 1_000_000,
+                    stats.distanceCallsPerSearch(),
+                    (double) stats.pointsScanned() / stats.numSearches(),
+                    searchTime / 1_000_000);
+        }
+    }
+
+    private static double averageCenterDistance(CenterPointSelector<Point> selector, List<Point> points) {
+        double sum = 0;
+        for (int i = 0; i < 100; i++) {
+            Pair<Point> centers = selector.selectNewCenterPoints(points, METRIC);
+            sum += METRIC.distanceBtw(centers.first(), centers.second());
+        }
+        return sum / 100;
+    }
+
+    private static List<Point> randomPoints(int n, int maxCoordinate, long seed) {
+        Random rng = new Random(seed);
+        List<Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new Point(rng.nextInt(maxCoordinate), rng.nextInt(maxCoordinate)));
+        }
+        return points;
+    }
+
+    private static Map<Point, String> randomData(int n, int maxCoordinate, long seed) {
+        Random rng = new Random(seed);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < n) {
+            data.put(new Point(rng.nextInt(maxCoordinate), rng.nextInt(maxCoordinate)), "item_" + data.size());
+        }
+        return data;
+    }
+
+    /// @return Points drawn from 50 Gaussian clusters of different sizes.
+    private static Map<Point, String> clusteredData(int n, long seed) {
+        Random rng = new Random(seed);
+        Point[] clusterCenters = new Point[50];
+        double[] clusterSizes = new double[50];
+        for (int i = 0; i < 50; i++) {
+            clusterCenters[i] = new Point(rng.nextInt(100_000), rng.nextInt(100_000));
+            clusterSizes[i] = 100 + 5_000 * rng.nextDouble();
+        }
+
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < n) {
+            int cluster = rng.nextInt(50);
+            int x = (int) (clusterCenters[cluster].x + clusterSizes[cluster] * rng.nextGaussian());
+            int y = (int) (clusterCenters[cluster].y + clusterSizes[cluster] * rng.nextGaussian());
+            data.put(new Point(x, y), "item_" + data.size());
+        }
+        return data;
+    }
+}
@@ -0,0 +1,378 @@
+package io.github.jon1van.collect;
+
+import static java.lang.Math.hypot;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentMetricTreeTest {
+
+    static final DistanceMetric<Point> METRIC = (p1, p2) -> hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+
+    @Test
+    public void basicOperationsMatchMetricTree() {
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(METRIC);
+        MetricTree<Point, String> reference = new MetricTree<>(METRIC);
+
+        Map<Point, String> data = randomData(2_000, 1_000, 17L);
+        tree.putAll(data);
+        reference.putAll(data);
+
+        assertThat(tree.size()).isEqualTo(2_000);
+        assertThat(tree.toMap()).isEqualTo(data);
+        assertThat(tree.keySet()).isEqualTo(data.keySet());
+
+        Point searchKey = new Point(500, 500);
+        assertThat(tree.getClosest(searchKey).distance())
+                .isEqualTo(reference.getClosest(searchKey).distance());
+        assertThat(tree.getNClosest(searchKey, 20).distances())
+                .isEqualTo(reference.getNClosest(searchKey, 20).distances());
+        assertThat(tree.getAllWithinRange(searchKey, 50.0).distances())
+                .isEqualTo(reference.getAllWithinRange(searchKey, 50.0).distances());
+
+        Point someKey = data.keySet().iterator().next();
+        assertThat(tree.containsKey(someKey)).isTrue();
+        assertThat(tree.remove(someKey)).isEqualTo(data.get(someKey));
+        assertThat(tree.containsKey(someKey)).isFalse();
+        assertThat(tree.get(someKey)).isNull();
+
+        tree.clear();
+        assertThat(tree.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void snapshotsAreNotLiveViews() {
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(METRIC);
+        tree.put(new Point(0, 0), "a");
+
+        Map<Point, String> snapshot = tree.toMap();
+        tree.put(new Point(1, 1), "b");
+
+        assertThat(snapshot).hasSize(1);
+        assertThat(tree.keySet()).hasSize(2);
+    }
+
+    @Test
+    public void rebalanceKeepsEveryEntry() {
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(METRIC);
+        Map<Point, String> data = randomData(3_000, 1_000, 18L);
+        tree.putAll(data);
+
+        tree.rebalance();
+
+        assertThat(tree.toMap()).isEqualTo(data);
+    }
+
+    @Test
+    public void rebalancingAnEmptyTreeIsANoOp() {
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(METRIC);
+        tree.rebalance();
+        assertThat(tree.isEmpty()).isTrue();
+
+        tree.put(new Point(1, 1), "a");
+        tree.remove(new Point(1, 1));
+        tree.rebalance();
+        assertThat(tree.isEmpty()).isTrue();
+
+        tree.put(new Point(2, 2), "b");
+        assertThat(tree.getClosest(new Point(0, 0)).key()).isEqualTo(new Point(2, 2));
+    }
+
+    @Test
+    public void searchesAndWritesProceedWhileRebalancing() throws Exception {
+
+        // the rebalancing thread pauses inside the DistanceMetric until it is released
+        CountDownLatch buildStarted = new CountDownLatch(1);
+        CountDownLatch releaseBuild = new CountDownLatch(1);
+        AtomicBoolean pauseNextCall = new AtomicBoolean(false);
+        DistanceMetric<Point> pausingMetric = (p1, p2) -> {
+            if (pauseNextCall.compareAndSet(true, false)) {
+                buildStarted.countDown();
+                try {
+                    releaseBuild.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return METRIC.distanceBtw(p1, p2);
+        };
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(pausingMetric);
+        Map<Point, String> data = randomData(2_000, 1_000, 20L);
+        tree.putAll(data);
+        Point removedKey = data.keySet().iterator().next();
+
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        pauseNextCall.set(true);
+        Future<?> rebalance = exec.submit(() -> tree.rebalance());
+        assertThat(buildStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // the build is paused, none of these operations may wait for it
+        assertThat(tree.getClosest(new Point(2_000, 2_000))).isNotNull();
+        tree.put(new Point(5_000, 5_000), "added during rebalance");
+        tree.remove(removedKey);
+        tree.putAll(Map.of(new Point(6_000, 6_000), "putAll during rebalance"));
+        assertThat(tree.size()).isEqualTo(2_001);
+
+        releaseBuild.countDown();
+        rebalance.get(10, TimeUnit.SECONDS);
+        exec.shutdown();
+
+        // the writes made during the build were replayed on the new tree
+        Map<Point, String> expected = new HashMap<>(data);
+        expected.remove(removedKey);
+        expected.put(new Point(5_000, 5_000), "added during rebalance");
+        expected.put(new Point(6_000, 6_000), "putAll during rebalance");
+        assertThat(tree.toMap()).isEqualTo(expected);
+        assertThat(tree.getClosest(new Point(5_001, 5_001)).key()).isEqualTo(new Point(5_000, 5_000));
+    }
+
+    @Test
+    public void failedWritesDuringRebalanceAreNotReplayed() throws Exception {
+
+        CountDownLatch buildStarted = new CountDownLatch(1);
+        CountDownLatch releaseBuild = new CountDownLatch(1);
+        AtomicBoolean pauseNextCall = new AtomicBoolean(false);
+        DistanceMetric<Point> pausingMetric = (p1, p2) -> {
+            if (pauseNextCall.compareAndSet(true, false)) {
+                buildStarted.countDown();
+                try {
+                    releaseBuild.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return METRIC.distanceBtw(p1, p2);
+        };
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(pausingMetric);
+        Map<Point, String> data = randomData(2_000, 1_000, 21L);
+        tree.putAll(data);
+
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        pauseNextCall.set(true);
+        Future<?> rebalance = exec.submit(() -> tree.rebalance());
+        assertThat(buildStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThrows(NullPointerException.class, () -> tree.put(null, "fails"));
+        tree.put(new Point(5_000, 5_000), "added during rebalance");
+
+        releaseBuild.countDown();
+        rebalance.get(10, TimeUnit.SECONDS); // the failed write must not be replayed (and rethrown)
+
+        Map<Point, String> expected = new HashMap<>(data);
+        expected.put(new Point(5_000, 5_000), "added during rebalance");
+        assertThat(tree.toMap()).isEqualTo(expected);
+
+        // the next rebalance starts from an empty log
+        tree.put(new Point(6_000, 6_000), "after rebalance");
+        pauseNextCall.set(false);
+        exec.submit(() -> tree.rebalance()).get(10, TimeUnit.SECONDS);
+        exec.shutdown();
+        expected.put(new Point(6_000, 6_000), "after rebalance");
+        assertThat(tree.toMap()).isEqualTo(expected);
+    }
+
+    @Test
+    public void bulkLoadMatchesInput() {
+        Map<Point, String> data = randomData(3_000, 1_000, 19L);
+        assertThat(ConcurrentMetricTree.bulkLoad(data, METRIC).toMap()).isEqualTo(data);
+    }
+
+    @Test
+    public void noNullKeys() {
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(METRIC);
+
+        assertThrows(NullPointerException.class, () -> tree.put(null, "a"));
+        assertThrows(NullPointerException.class, () -> tree.getClosest(null));
+        assertThrows(NullPointerException.class, () -> tree.remove(null));
+
+        // the lock must be released after a failed operation
+        tree.put(new Point(0, 0), "a");
+        assertThat(tree.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void stressTest_concurrentReadersAndWriters() throws Exception {
+
+        int numWriters = 4;
+        int numReaders = 4;
+        int keysPerWriter = 2_500;
+
+        ConcurrentMetricTree<Point, String> tree = new ConcurrentMetricTree<>(METRIC, 25);
+        ExecutorService exec = Executors.newFixedThreadPool(numWriters + numReaders + 1);
+        CountDownLatch startingGun = new CountDownLatch(1);
+        AtomicBoolean writersDone = new AtomicBoolean(false);
+
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < numWriters; w++) {
+            int writerId = w;
+            writers.add(exec.submit(() -> {
+                startingGun.await();
+                // every writer owns a distinct column of x values, so keys never collide
+                for (int i = 0; i < keysPerWriter; i++) {
+                    Point key = new Point(i * numWriters + writerId, i % 97);
+                    tree.put(key, "w" + writerId);
+                    // occasionally remove a key this writer already inserted
+                    if (i % 10 == 9) {
+                        Point prior = new Point((i - 5) * numWriters + writerId, (i - 5) % 97);
+                        tree.remove(prior);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        AtomicLong numSearches = new AtomicLong();
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < numReaders; r++) {
+            long seed = r;
+            readers.add(exec.submit(() -> {
+                startingGun.await();
+                Random rng = new Random(seed);
+                while (!writersDone.get()) {
+                    Point searchKey = new Point(rng.nextInt(10_000), rng.nextInt(100));
+                    SearchResults<Point, String> results = tree.getNClosest(searchKey, 5);
+
+                    // results must always be sorted and never contain more than asked for
+                    assertThat(results.size()).isLessThanOrEqualTo(5);
+                    double prior = 0;
+                    for (SearchResult<Point, String> result : results.results()) {
+                        assertThat(result.distance()).isGreaterThanOrEqualTo(prior);
+                        prior = result.distance();
+                    }
+                    if (tree.size() > 0) {
+                        assertThat(tree.getClosest(searchKey)).isNotNull();
+                    }
+                    numSearches.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        Future<?> rebalancer = exec.submit(() -> {
+            startingGun.await();
+            while (!writersDone.get()) {
+                tree.rebalance(ParallelBuild.sequential());
+                Thread.sleep(5);
+            }
+            return null;
+        });
+
+        startingGun.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS); // rethrows any failure
+        }
+        writersDone.set(true);
+        for (Future<?> reader : readers) {
+            reader.get(60, TimeUnit.SECONDS);
+        }
+        rebalancer.get(60, TimeUnit.SECONDS);
+        exec.shutdown();
+
+        // every writer inserted keysPerWriter keys, then removed one key out of every 10
+        int expectedSize = numWriters * (keysPerWriter - keysPerWriter / 10);
+        assertThat(tree.size()).isEqualTo(expectedSize);
+        assertThat(tree.keySet()).hasSize(expectedSize);
+        assertThat(numSearches.get()).isPositive();
+
+        // the tree's structure must still be valid, i.e. every key is still findable via search
+        for (Point key : tree.keySet()) {
+            assertThat(tree.getClosest(key).distance()).isEqualTo(0.0);
+        }
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void readThroughputVersusSynchronizedWrapper() throws Exception {
+
+        Map<Point, String> data = randomData(500_000, 100_000, 20L);
+        int numThreads = Runtime.getRuntime().availableProcessors();
+
+        ConcurrentMetricTree<Point, String> concurrentTree = ConcurrentMetricTree.bulkLoad(data, METRIC);
+        MetricTree<Point, String> plainTree = MetricTree.bulkLoad(data, METRIC);
+        Object mutex = new Object();
+
+        long concurrentOps = measureThroughput(numThreads, rng -> {
+            if (rng.nextInt(100) == 0) {
+                return concurrentTree.put(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), "new");
+            }
+            return concurrentTree.getNClosest(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), 10);
+        });
+
+        long synchronizedOps = measureThroughput(numThreads, rng -> {
+            synchronized (mutex) {
+                if (rng.nextInt(100) == 0) {
+                    return plainTree.put(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), "new");
+                }
+                return plainTree.getNClosest(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), 10);
+            }
+        });
+
+        System.out.println("99% reads, 1% writes, " + numThreads + " threads, 2 seconds each");
+        System.out.println("ConcurrentMetricTree:   " + concurrentOps + " ops");
+        System.out.println("synchronized MetricTree: " + synchronizedOps + " ops");
+    }
+
+    /// Run this operation repeatedly from many threads for 2 seconds and count the executions.
+    private static long measureThroughput(int numThreads, Function<Random, Object> operation) throws Exception {
+
+        ExecutorService exec = Executors.newFixedThreadPool(numThreads);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicLong numOps = new AtomicLong();
+
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            long seed = i;
+            tasks.add(exec.submit(() -> {
+                Random rng = new Random(seed);
+                long count = 0;
+                while (!stop.get()) {
+                    operation.apply(rng);
+                    count++;
+                }
+                numOps.addAndGet(count);
+            }));
+        }
+
+        Thread.sleep(2_000);
+        stop.set(true);
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        exec.shutdown();
+
+        return numOps.get();
+    }
+
+    private static Map<Point, String> randomData(int n, int maxXY, long seed) {
+        Random rng = new Random(seed);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < n) {
+            data.put(new Point(rng.nextInt(maxXY), rng.nextInt(maxXY)), "item_" + data.size());
+        }
+        return data;
+    }
+}
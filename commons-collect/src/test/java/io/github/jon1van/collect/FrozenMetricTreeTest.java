@@ -0,0 +1,189 @@
+package io.github.jon1van.collect;
+
+import static java.lang.Math.hypot;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class FrozenMetricTreeTest {
+
+    static final DistanceMetric<Point> METRIC = (p1, p2) -> hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+
+    @Test
+    public void frozenSearchesMatchMetricTree() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(METRIC);
+        tree.putAll(randomData(5_000, 1_000, 17L));
+
+        FrozenMetricTree<Point, String> frozen = tree.freeze();
+
+        assertThat(frozen.size()).isEqualTo(tree.size());
+        assertThat(frozen.sphereCount()).isEqualTo(tree.sphereCount());
+
+        Random rng = new Random(18L);
+        for (int i = 0; i < 100; i++) {
+            Point searchKey = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+
+            assertThat(frozen.getClosest(searchKey).distance())
+                    .isEqualTo(tree.getClosest(searchKey).distance());
+            assertThat(frozen.getNClosest(searchKey, 25).distances())
+                    .isEqualTo(tree.getNClosest(searchKey, 25).distances());
+            assertThat(frozen.getAllWithinRange(searchKey, 40.0).distances())
+                    .isEqualTo(tree.getAllWithinRange(searchKey, 40.0).distances());
+        }
+    }
+
+    @Test
+    public void frozenLeavesSkipEntriesUsingTheTriangleInequality() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return METRIC.distanceBtw(p1, p2);
+        };
+
+        // a single Sphere centered on (0, 0) that holds 50 points on the x-axis
+        MetricTree<Point, String> tree = new MetricTree<>(countingMetric, 100);
+        for (int x = 0; x < 50; x++) {
+            tree.put(new Point(x, 0), "item_" + x);
+        }
+        FrozenMetricTree<Point, String> frozen = tree.freeze();
+
+        distanceCalls.set(0);
+        assertThat(frozen.getAllWithinRange(new Point(10, 0), 1.5).size()).isEqualTo(3);
+        // 1 call for the Sphere's center + 1 call for each of (9, 0), (10, 0), and (11, 0)
+        assertThat(distanceCalls.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void frozenResultsPairKeysWithValues() {
+
+        Map<Point, String> data = randomData(2_000, 500, 19L);
+        FrozenMetricTree<Point, String> frozen =
+                MetricTree.bulkLoad(data, METRIC).freeze();
+
+        SearchResults<Point, String> results = frozen.getNClosest(new Point(250, 250), 50);
+
+        assertThat(results.size()).isEqualTo(50);
+        for (SearchResult<Point, String> result : results.results()) {
+            assertThat(result.value()).isEqualTo(data.get(result.key()));
+            assertThat(result.distance()).isEqualTo(METRIC.distanceBtw(new Point(250, 250), result.key()));
+        }
+    }
+
+    @Test
+    public void askingForMoreResultsThanEntriesReturnsEverything() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(METRIC);
+        tree.putAll(randomData(300, 100, 20L));
+
+        assertThat(tree.freeze().getNClosest(new Point(0, 0), 1_000).size()).isEqualTo(300);
+    }
+
+    @Test
+    public void snapshotIgnoresLaterModifications() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(METRIC);
+        tree.put(new Point(0, 0), "a");
+
+        FrozenMetricTree<Point, String> frozen = tree.freeze();
+        tree.put(new Point(1, 1), "b");
+        tree.remove(new Point(0, 0));
+
+        assertThat(frozen.size()).isEqualTo(1);
+        assertThat(frozen.getClosest(new Point(1, 1)).value()).isEqualTo("a");
+    }
+
+    @Test
+    public void freezeAfterRemovals() {
+
+        Map<Point, String> data = randomData(3_000, 1_000, 21L);
+        MetricTree<Point, String> tree = new MetricTree<>(METRIC);
+        tree.putAll(data);
+
+        // empty out many leaf spheres
+        data.keySet().stream().filter(p -> p.x < 700).forEach(tree::remove);
+
+        FrozenMetricTree<Point, String> frozen = tree.freeze();
+
+        assertThat(frozen.size()).isEqualTo(tree.size());
+        assertThat(frozen.getNClosest(new Point(0, 0), 10).distances())
+                .isEqualTo(tree.getNClosest(new Point(0, 0), 10).distances());
+    }
+
+    @Test
+    public void freezeEmptyTree() {
+
+        FrozenMetricTree<Point, String> frozen = new MetricTree<Point, String>(METRIC).freeze();
+
+        assertThat(frozen.isEmpty()).isTrue();
+        assertThat(frozen.sphereCount()).isEqualTo(0);
+        assertThat(frozen.getNClosest(new Point(0, 0), 5).isEmpty()).isTrue();
+        assertThat(frozen.getAllWithinRange(new Point(0, 0), 5.0).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void badSearchInputIsRejected() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(METRIC);
+        tree.put(new Point(0, 0), "a");
+        FrozenMetricTree<Point, String> frozen = tree.freeze();
+
+        assertThrows(NullPointerException.class, () -> frozen.getNClosest(null, 5));
+        assertThrows(IllegalArgumentException.class, () -> frozen.getNClosest(new Point(0, 0), 0));
+        assertThrows(IllegalArgumentException.class, () -> frozen.getAllWithinRange(new Point(0, 0), -1.0));
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void frozenTreeSearchesFaster() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(randomData(1_000_000, 100_000, 22L), countingMetric);
+        FrozenMetricTree<Point, String> frozen = tree.freeze();
+
+        List<Point> searchKeys = new ArrayList<>();
+        Random rng = new Random(23L);
+        for (int i = 0; i < 100_000; i++) {
+            searchKeys.add(new Point(rng.nextInt(100_000), rng.nextInt(100_000)));
+        }
+
+        distanceCalls.set(0);
+        long start = System.nanoTime();
+        searchKeys.forEach(key -> tree.getNClosest(key, 10));
+        long treeTime = System.nanoTime() - start;
+        long treeCalls = distanceCalls.getAndSet(0);
+
+        start = System.nanoTime();
+        searchKeys.forEach(key -> frozen.getNClosest(key, 10));
+        long frozenTime = System.nanoTime() - start;
+        long frozenCalls = distanceCalls.getAndSet(0);
+
+        System.out.println("MetricTree:       " + treeTime / 1_000_000 + "ms, " + treeCalls + " distance calls");
+        System.out.println("FrozenMetricTree: " + frozenTime / 1_000_000 + "ms, " + frozenCalls + " distance calls");
+    }
+
+    private static Map<Point, String> randomData(int n, int maxXY, long seed) {
+        Random rng = new Random(seed);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < n) {
+            data.put(new Point(rng.nextInt(maxXY), rng.nextInt(maxXY)), "item_" + data.size());
+        }
+        return data;
+    }
+}
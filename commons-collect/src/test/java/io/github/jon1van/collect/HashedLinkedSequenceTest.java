@@ -5,9 +5,13 @@ import static io.github.jon1van.collect.HashedLinkedSequence.newHashedLinkedSequ
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -779,4 +783,99 @@ public class HashedLinkedSequenceTest {
 
         assertThat(iter.hasNext()).isFalse();
     }
+
+    @Test
+    public void insertAllAfterSplicesElementsInOrder() {
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(1, 2, 3);
+
+        seq.insertAllAfter(List.of(10, 11, 12), 1);
+        assertThat(newArrayList(seq)).containsExactly(1, 10, 11, 12, 2, 3);
+        assertThat(seq.getElementBefore(2)).isEqualTo(12);
+        assertThat(seq.getElementAfter(1)).isEqualTo(10);
+
+        seq.insertAllAfter(List.of(20, 21), 3);
+        assertThat(seq.getLast()).isEqualTo(21);
+        assertThat(seq.getElementBefore(20)).isEqualTo(3);
+        assertThat(seq.size()).isEqualTo(8);
+
+        seq.insertAllAfter(List.of(), 3);
+        assertThat(seq.size()).isEqualTo(8);
+    }
+
+    @Test
+    public void failedInsertAllAfterChangesNothing() {
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(1, 2, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> seq.insertAllAfter(List.of(4, 5, 2), 1));
+        assertThrows(IllegalArgumentException.class, () -> seq.insertAllAfter(List.of(4, 5, 4), 1));
+        assertThrows(IllegalArgumentException.class, () -> seq.insertAllAfter(List.of(4), 9));
+        assertThrows(NullPointerException.class, () -> seq.insertAllAfter(Arrays.asList(4, null), 1));
+
+        assertThat(newArrayList(seq)).containsExactly(1, 2, 3);
+        assertThat(seq.contains(4)).isFalse();
+    }
+
+    @Test
+    public void removeRangeRelinksTheNeighbors() {
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(1, 2, 3, 4, 5, 6);
+
+        assertThat(seq.removeRange(2, 4)).isEqualTo(3);
+        assertThat(newArrayList(seq)).containsExactly(1, 5, 6);
+        assertThat(seq.getElementAfter(1)).isEqualTo(5);
+        assertThat(seq.getElementBefore(5)).isEqualTo(1);
+        assertThat(seq.contains(3)).isFalse();
+
+        assertThat(seq.removeRange(5, 5)).isEqualTo(1);
+        assertThat(seq.removeRange(1, 6)).isEqualTo(2);
+        assertThat(seq.isEmpty()).isTrue();
+        assertThrows(NoSuchElementException.class, seq::getFirst);
+    }
+
+    @Test
+    public void invalidRemoveRangeChangesNothing() {
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(1, 2, 3, 4);
+
+        assertThrows(IllegalArgumentException.class, () -> seq.removeRange(3, 2));
+        assertThrows(IllegalArgumentException.class, () -> seq.removeRange(1, 9));
+
+        assertThat(newArrayList(seq)).containsExactly(1, 2, 3, 4);
+    }
+
+    @Test
+    public void spliteratorIsSizedOrderedAndDistinct() {
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(3, 1, 2);
+
+        Spliterator<Integer> spliterator = seq.spliterator();
+        assertThat(spliterator.hasCharacteristics(Spliterator.SIZED)).isTrue();
+        assertThat(spliterator.hasCharacteristics(Spliterator.ORDERED)).isTrue();
+        assertThat(spliterator.hasCharacteristics(Spliterator.DISTINCT)).isTrue();
+        assertThat(spliterator.getExactSizeIfKnown()).isEqualTo(3);
+
+        assertThat(seq.stream().toList()).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    public void parallelStreamsSplitTheSequence() {
+        List<Integer> data = IntStream.range(0, 100_000).boxed().toList();
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(data);
+
+        Spliterator<Integer> spliterator = seq.spliterator();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertThat(prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown())
+                .isEqualTo(100_000);
+
+        assertThat(seq.parallelStream().map(i -> i * 2).toList())
+                .isEqualTo(data.stream().map(i -> i * 2).toList());
+        assertThat(seq.parallelStream().mapToLong(i -> i).sum()).isEqualTo(99_999L * 100_000 / 2);
+    }
+
+    @Test
+    public void spliteratorDetectsConcurrentModification() {
+        HashedLinkedSequence<Integer> seq = newHashedLinkedSequence(1, 2, 3);
+
+        Spliterator<Integer> spliterator = seq.spliterator();
+        seq.add(4);
+
+        assertThrows(ConcurrentModificationException.class, () -> spliterator.tryAdvance(i -> {}));
+    }
 }
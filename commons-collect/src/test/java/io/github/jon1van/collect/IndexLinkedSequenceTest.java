@@ -0,0 +1,182 @@
+package io.github.jon1van.collect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class IndexLinkedSequenceTest {
+
+    @Test
+    public void startsWithEveryIndex() {
+
+        IndexLinkedSequence seq = new IndexLinkedSequence(5);
+
+        assertThat(seq.size()).isEqualTo(5);
+        assertThat(seq.capacity()).isEqualTo(5);
+        assertThat(seq.toArray()).containsExactly(0, 1, 2, 3, 4);
+        assertThat(seq.getFirst()).isEqualTo(0);
+        assertThat(seq.getLast()).isEqualTo(4);
+        assertThat(seq.getElementAfter(2)).isEqualTo(3);
+        assertThat(seq.getElementBefore(2)).isEqualTo(1);
+    }
+
+    @Test
+    public void removeLinksNeighborsToEachOther() {
+
+        IndexLinkedSequence seq = new IndexLinkedSequence(5);
+
+        assertThat(seq.remove(2)).isTrue();
+        assertThat(seq.remove(2)).isFalse();
+        assertThat(seq.contains(2)).isFalse();
+        assertThat(seq.getElementAfter(1)).isEqualTo(3);
+        assertThat(seq.getElementBefore(3)).isEqualTo(1);
+
+        seq.remove(0);
+        seq.remove(4);
+        assertThat(seq.getFirst()).isEqualTo(1);
+        assertThat(seq.getLast()).isEqualTo(3);
+        assertThat(seq.hasElementBefore(1)).isFalse();
+        assertThat(seq.hasElementAfter(1)).isTrue();
+        assertThat(seq.toBitSet().stream().toArray()).containsExactly(1, 3);
+
+        seq.remove(1);
+        seq.remove(3);
+        assertThat(seq.isEmpty()).isTrue();
+        assertThrows(NoSuchElementException.class, seq::getFirst);
+        assertThrows(NoSuchElementException.class, seq::getLast);
+    }
+
+    @Test
+    public void badInputIsRejected() {
+
+        IndexLinkedSequence seq = new IndexLinkedSequence(3);
+        seq.remove(1);
+
+        assertThrows(IllegalArgumentException.class, () -> new IndexLinkedSequence(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.remove(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> seq.remove(-1));
+        assertThrows(IllegalArgumentException.class, () -> seq.getElementAfter(1));
+        assertThrows(IllegalArgumentException.class, () -> seq.getElementBefore(7));
+        assertThrows(NoSuchElementException.class, () -> seq.getElementBefore(0));
+        assertThrows(NoSuchElementException.class, () -> seq.getElementAfter(2));
+        assertThat(seq.contains(-1)).isFalse();
+        assertThat(seq.hasElementAfter(1)).isFalse();
+    }
+
+    @Test
+    public void emptySequence() {
+
+        IndexLinkedSequence seq = new IndexLinkedSequence(0);
+
+        assertThat(seq.isEmpty()).isTrue();
+        assertThat(seq.toArray()).isEmpty();
+        assertThat(seq.iterator().hasNext()).isFalse();
+    }
+
+    @Test
+    public void iteratorVisitsRemainingIndicesAndCanRemove() {
+
+        IndexLinkedSequence seq = new IndexLinkedSequence(6);
+
+        PrimitiveIterator.OfInt iter = seq.iterator();
+        while (iter.hasNext()) {
+            if (iter.nextInt() % 2 == 1) {
+                iter.remove();
+            }
+        }
+        assertThat(seq.toArray()).containsExactly(0, 2, 4);
+
+        List<Integer> boxed = new ArrayList<>();
+        seq.forEach(boxed::add);
+        assertThat(boxed).containsExactly(0, 2, 4);
+
+        PrimitiveIterator.OfInt iter2 = seq.iterator();
+        iter2.nextInt();
+        seq.remove(2);
+        assertThrows(ConcurrentModificationException.class, iter2::nextInt);
+    }
+
+    @Test
+    public void retainedFromCopiesTheRemainingElements() {
+
+        IndexLinkedSequence seq = new IndexLinkedSequence(4);
+        seq.remove(0);
+        seq.remove(2);
+
+        assertThat(seq.retainedFrom(new String[] {"a", "b", "c", "d"})).containsExactly("b", "d");
+        assertThrows(IllegalArgumentException.class, () -> seq.retainedFrom(new String[] {"a"}));
+    }
+
+    @Test
+    public void randomRemovalsMatchHashedLinkedSequence() {
+
+        Random rng = new Random(17L);
+        int n = 10_000;
+        IndexLinkedSequence seq = new IndexLinkedSequence(n);
+        HashedLinkedSequence<Integer> reference = HashedLinkedSequence.newHashedLinkedSequence(
+                IntStream.range(0, n).boxed().toList());
+
+        for (int i = 0; i < 9_000; i++) {
+            int index = rng.nextInt(n);
+            assertThat(seq.remove(index)).isEqualTo(reference.remove(index));
+
+            int probe = rng.nextInt(n);
+            if (reference.contains(probe) && probe != reference.getLast()) {
+                assertThat(seq.getElementAfter(probe)).isEqualTo(reference.getElementAfter(probe));
+            }
+        }
+
+        assertThat(seq.size()).isEqualTo(reference.size());
+        assertThat(seq.toArray())
+                .containsExactly(reference.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void indexSequenceIsFasterThanHashing() {
+
+        int n = 5_000_000;
+        int[] removalOrder = new int[n];
+        Random rng = new Random(18L);
+        for (int i = 0; i < n; i++) {
+            removalOrder[i] = rng.nextInt(n);
+        }
+
+        long start = System.nanoTime();
+        HashedLinkedSequence<Integer> hashed = HashedLinkedSequence.newHashedLinkedSequence(
+                IntStream.range(0, n).boxed().toList());
+        long neighborSum = 0;
+        for (int index : removalOrder) {
+            if (hashed.contains(index) && index != hashed.getFirst()) {
+                neighborSum += hashed.getElementBefore(index);
+                hashed.remove(index);
+            }
+        }
+        long hashedTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        IndexLinkedSequence indexed = new IndexLinkedSequence(n);
+        long neighborSum2 = 0;
+        for (int index : removalOrder) {
+            if (indexed.hasElementBefore(index)) {
+                neighborSum2 += indexed.getElementBefore(index);
+                indexed.remove(index);
+            }
+        }
+        long indexedTime = System.nanoTime() - start;
+
+        assertThat(neighborSum2).isEqualTo(neighborSum);
+        System.out.println("HashedLinkedSequence: " + hashedTime / 1_000_000 + "ms");
+        System.out.println("IndexLinkedSequence:  " + indexedTime / 1_000_000 + "ms");
+    }
+}
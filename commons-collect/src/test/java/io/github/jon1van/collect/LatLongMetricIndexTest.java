@@ -0,0 +1,204 @@
+package io.github.jon1van.collect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import io.github.jon1van.units.LatLong;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class LatLongMetricIndexTest {
+
+    @Test
+    public void distanceMatchesNavigation() {
+
+        LatLong a = LatLong.of(38.8977, -77.0365);
+        LatLong b = LatLong.of(51.5007, -0.1246);
+
+        LatLongMetricIndex index = LatLongMetricIndex.of(List.of(a));
+
+        assertThat(index.getNClosest(b, 1).distanceInNm(0)).isCloseTo(a.distanceInNmTo(b), within(1E-9));
+        assertThat(index.getNClosest(a, 1).distanceInNm(0)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void knnSearchMatchesBruteForce() {
+
+        List<LatLong> points = randomPoints(20_000, 17L);
+        LatLongMetricIndex index = LatLongMetricIndex.of(points);
+
+        Random rng = new Random(18L);
+        LatLongResultBuffer results = new LatLongResultBuffer();
+        for (int i = 0; i < 50; i++) {
+            LatLong searchPoint = randomPoint(rng);
+            index.getNClosest(searchPoint.latitude(), searchPoint.longitude(), 10, results);
+
+            double[] expected = bruteForceDistances(points, searchPoint);
+            assertThat(results.size()).isEqualTo(10);
+            for (int j = 0; j < 10; j++) {
+                assertThat(results.distanceInNm(j)).isCloseTo(expected[j], within(1E-9));
+                assertThat(results.latLong(j).distanceInNmTo(searchPoint)).isCloseTo(expected[j], within(1E-9));
+            }
+        }
+    }
+
+    @Test
+    public void rangeSearchMatchesBruteForce() {
+
+        List<LatLong> points = randomPoints(20_000, 19L);
+        LatLongMetricIndex index = LatLongMetricIndex.of(points);
+
+        Random rng = new Random(20L);
+        for (int i = 0; i < 50; i++) {
+            LatLong searchPoint = randomPoint(rng);
+            LatLongResultBuffer results = index.getAllWithinRange(searchPoint, 30.0);
+
+            double[] expected = Arrays.stream(bruteForceDistances(points, searchPoint))
+                    .filter(dist -> dist <= 30.0)
+                    .toArray();
+            assertThat(results.size()).isEqualTo(expected.length);
+            for (int j = 1; j < results.size(); j++) {
+                assertThat(results.distanceInNm(j)).isGreaterThanOrEqualTo(results.distanceInNm(j - 1));
+            }
+        }
+    }
+
+    @Test
+    public void parallelBuildMatchesSequentialBuild() {
+
+        long[] packed = randomPoints(20_000, 21L).stream()
+                .mapToLong(LatLong::toPrimitiveLong)
+                .toArray();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        LatLongMetricIndex parallel =
+                LatLongMetricIndex.of(packed, 16, ParallelBuild.using(pool).withMinTaskSize(500));
+        pool.shutdown();
+        LatLongMetricIndex sequential = LatLongMetricIndex.of(packed, 16, ParallelBuild.sequential());
+
+        assertThat(parallel.sphereCount()).isEqualTo(sequential.sphereCount());
+
+        LatLong searchPoint = LatLong.of(35.0, -90.0);
+        assertThat(parallel.getNClosest(searchPoint, 25).locations())
+                .isEqualTo(sequential.getNClosest(searchPoint, 25).locations());
+    }
+
+    @Test
+    public void duplicateLocationsAreRetained() {
+
+        List<LatLong> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            points.add(LatLong.of(10.0, 20.0));
+        }
+        LatLongMetricIndex index = LatLongMetricIndex.of(points);
+
+        assertThat(index.size()).isEqualTo(500);
+        assertThat(index.getAllWithinRange(LatLong.of(10.0, 20.0), 1.0).size()).isEqualTo(500);
+    }
+
+    @Test
+    public void emptyIndex() {
+
+        LatLongMetricIndex index = LatLongMetricIndex.of(new long[0]);
+
+        assertThat(index.isEmpty()).isTrue();
+        assertThat(index.getNClosest(LatLong.of(0.0, 0.0), 5).isEmpty()).isTrue();
+        assertThat(index.getAllWithinRange(LatLong.of(0.0, 0.0), 5.0).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void inputArrayIsNotModified() {
+
+        long[] packed = randomPoints(1_000, 22L).stream()
+                .mapToLong(LatLong::toPrimitiveLong)
+                .toArray();
+        long[] copy = packed.clone();
+
+        LatLongMetricIndex.of(packed);
+
+        assertThat(packed).isEqualTo(copy);
+    }
+
+    @Test
+    public void badInputIsRejected() {
+
+        long tooFarNorth = ((long) 900_000_001) << 32;
+
+        assertThrows(IllegalArgumentException.class, () -> LatLongMetricIndex.of(new long[] {tooFarNorth}));
+
+        LatLongMetricIndex index =
+                LatLongMetricIndex.of(new long[] {LatLong.of(1.0, 1.0).toPrimitiveLong()});
+        assertThrows(IllegalArgumentException.class, () -> index.getNClosest(LatLong.of(1.0, 1.0), 0));
+        assertThrows(IllegalArgumentException.class, () -> index.getAllWithinRange(LatLong.of(1.0, 1.0), 0.0));
+    }
+
+    @Test
+    public void resultBufferIsReusable() {
+
+        LatLongMetricIndex index = LatLongMetricIndex.of(randomPoints(1_000, 23L));
+        LatLongResultBuffer buffer = new LatLongResultBuffer(2);
+
+        index.getNClosest(30.0, -80.0, 20, buffer);
+        assertThat(buffer.size()).isEqualTo(20);
+
+        index.getNClosest(30.0, -80.0, 3, buffer);
+        assertThat(buffer.size()).isEqualTo(3);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.location(3));
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void memoryComparedToMetricSet() {
+
+        List<LatLong> points = randomPoints(2_000_000, 24L);
+
+        long before = usedMemory();
+        LatLongMetricIndex index = LatLongMetricIndex.of(points);
+        long indexBytes = usedMemory() - before;
+
+        before = usedMemory();
+        MetricSet<LatLong> set = MetricSet.bulkLoad(points, (a, b) -> a.distanceInNmTo(b));
+        long setBytes = usedMemory() - before;
+
+        // the MetricSet's bytes do not include the LatLong objects (which already existed)
+        System.out.println("LatLongMetricIndex: " + indexBytes / index.size() + " bytes per location");
+        System.out.println("MetricSet<LatLong>: " + setBytes / set.size() + " bytes per location (+ the LatLongs)");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double[] bruteForceDistances(List<LatLong> points, LatLong searchPoint) {
+        return points.stream()
+                .mapToDouble(point -> point.distanceInNmTo(searchPoint))
+                .sorted()
+                .toArray();
+    }
+
+    /// @return Random points in a region around the continental United States.
+    private static List<LatLong> randomPoints(int n, long seed) {
+        Random rng = new Random(seed);
+        List<LatLong> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(randomPoint(rng));
+        }
+        return points;
+    }
+
+    private static LatLong randomPoint(Random rng) {
+        return LatLong.of(25.0 + 25.0 * rng.nextDouble(), -125.0 + 60.0 * rng.nextDouble());
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.jon1van.collect;
+
+import static io.github.jon1van.collect.LongHashedLinkedSequence.newLongHashedLinkedSequence;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LongHashedLinkedSequenceTest {
+
+    @Test
+    public void testBasicUsage() {
+
+        LongHashedLinkedSequence seq = new LongHashedLinkedSequence();
+        seq.add(5L);
+        seq.add(12L);
+        seq.add(13L);
+
+        assertThat(seq.size()).isEqualTo(3);
+        assertThat(seq.getFirst()).isEqualTo(5L);
+        assertThat(seq.getLast()).isEqualTo(13L);
+        assertThat(seq.getElementAfter(5L)).isEqualTo(12L);
+        assertThat(seq.getElementBefore(13L)).isEqualTo(12L);
+        assertThat(seq.contains(12L)).isTrue();
+        assertThat(seq.contains(14L)).isFalse();
+    }
+
+    @Test
+    public void insertsLinkNeighbors() {
+
+        LongHashedLinkedSequence seq = newLongHashedLinkedSequence(10L, 20L, 30L);
+        seq.insertAfter(25L, 20L);
+        seq.insertBefore(15L, 20L);
+        seq.insertAfter(35L, 30L);
+        seq.insertBefore(5L, 10L);
+        seq.addFirst(1L);
+
+        assertThat(seq.toArray()).containsExactly(1L, 5L, 10L, 15L, 20L, 25L, 30L, 35L);
+        assertThat(seq.getFirst()).isEqualTo(1L);
+        assertThat(seq.getLast()).isEqualTo(35L);
+        assertThat(seq.getElementBefore(20L)).isEqualTo(15L);
+        assertThat(seq.getElementAfter(30L)).isEqualTo(35L);
+    }
+
+    @Test
+    public void removeLinksNeighborsToEachOther() {
+
+        LongHashedLinkedSequence seq = newLongHashedLinkedSequence(1L, 2L, 3L, 4L);
+
+        assertThat(seq.remove(2L)).isTrue();
+        assertThat(seq.remove(2L)).isFalse();
+        assertThat(seq.getElementAfter(1L)).isEqualTo(3L);
+        assertThat(seq.getElementBefore(3L)).isEqualTo(1L);
+
+        seq.remove(1L);
+        seq.remove(4L);
+        assertThat(seq.getFirst()).isEqualTo(3L);
+        assertThat(seq.getLast()).isEqualTo(3L);
+
+        seq.remove(3L);
+        assertThat(seq.isEmpty()).isTrue();
+        assertThrows(NoSuchElementException.class, seq::getFirst);
+        assertThrows(NoSuchElementException.class, seq::getLast);
+    }
+
+    @Test
+    public void badInputIsRejected() {
+
+        LongHashedLinkedSequence seq = newLongHashedLinkedSequence(1L, 2L);
+
+        assertThrows(IllegalArgumentException.class, () -> seq.add(1L));
+        assertThrows(IllegalArgumentException.class, () -> seq.addFirst(2L));
+        assertThrows(IllegalArgumentException.class, () -> seq.insertAfter(1L, 2L));
+        assertThrows(IllegalArgumentException.class, () -> seq.insertBefore(3L, 7L));
+        assertThrows(IllegalArgumentException.class, () -> seq.getElementAfter(7L));
+        assertThrows(NoSuchElementException.class, () -> seq.getElementBefore(1L));
+        assertThrows(NoSuchElementException.class, () -> seq.getElementAfter(2L));
+        assertThrows(IllegalArgumentException.class, () -> new LongHashedLinkedSequence(-1));
+    }
+
+    @Test
+    public void iteratorVisitsElementsInOrderAndCanRemove() {
+
+        LongHashedLinkedSequence seq = newLongHashedLinkedSequence(1L, 2L, 3L, 4L, 5L);
+
+        PrimitiveIterator.OfLong iter = seq.iterator();
+        assertThrows(IllegalStateException.class, iter::remove);
+        while (iter.hasNext()) {
+            if (iter.nextLong() % 2 == 0) {
+                iter.remove();
+            }
+        }
+        assertThat(seq.toArray()).containsExactly(1L, 3L, 5L);
+        assertThrows(NoSuchElementException.class, iter::nextLong);
+
+        List<Long> boxed = new ArrayList<>();
+        seq.forEach(boxed::add);
+        assertThat(boxed).containsExactly(1L, 3L, 5L);
+    }
+
+    @Test
+    public void iteratorDetectsConcurrentModification() {
+
+        LongHashedLinkedSequence seq = newLongHashedLinkedSequence(1L, 2L, 3L);
+
+        PrimitiveIterator.OfLong iter = seq.iterator();
+        iter.nextLong();
+        seq.add(4L);
+
+        assertThrows(ConcurrentModificationException.class, iter::nextLong);
+    }
+
+    @Test
+    public void clearEmptiesTheSequence() {
+
+        LongHashedLinkedSequence seq = newLongHashedLinkedSequence(1L, 2L, 3L);
+        seq.clear();
+
+        assertThat(seq.isEmpty()).isTrue();
+        assertThat(seq.contains(1L)).isFalse();
+        assertThat(seq.toArray()).isEmpty();
+
+        seq.add(2L);
+        assertThat(seq.toArray()).containsExactly(2L);
+    }
+
+    @Test
+    public void randomEditsMatchHashedLinkedSequence() {
+
+        // many inserts and removes exercise the hash table's probe runs, growth, and slot reuse
+        Random rng = new Random(17L);
+        LongHashedLinkedSequence seq = new LongHashedLinkedSequence(0);
+        HashedLinkedSequence<Long> reference = new HashedLinkedSequence<>();
+        List<Long> present = new ArrayList<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            // a small range of values (multiples of 1024) produces many hash collisions
+            long item = 1024L * rng.nextInt(5_000);
+            boolean isPresent = reference.contains(item);
+            assertThat(seq.contains(item)).isEqualTo(isPresent);
+
+            if (isPresent) {
+                assertThat(seq.remove(item)).isTrue();
+                reference.remove(item);
+                present.remove(item);
+            } else if (present.isEmpty() || rng.nextBoolean()) {
+                seq.add(item);
+                reference.add(item);
+                present.add(item);
+            } else {
+                long anchor = present.get(rng.nextInt(present.size()));
+                seq.insertBefore(item, anchor);
+                reference.insertBefore(item, anchor);
+                present.add(item);
+            }
+            assertThat(seq.size()).isEqualTo(reference.size());
+        }
+
+        assertThat(seq.toArray())
+                .containsExactly(reference.stream().mapToLong(Long::longValue).toArray());
+        for (long item : present) {
+            if (item != reference.getFirst()) {
+                assertThat(seq.getElementBefore(item)).isEqualTo(reference.getElementBefore(item));
+            }
+        }
+    }
+}
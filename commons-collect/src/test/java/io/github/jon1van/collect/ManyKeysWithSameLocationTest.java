@@ -62,6 +62,25 @@ public class ManyKeysWithSameLocationTest {
         confirmEqualContent(tree, copyOfTreeContent);
     }
 
+    @Test
+    public void testTooManyIdenticalKeys_bulkLoad() {
+
+        HashMap<Location, String> copyOfTreeContent = newHashMap();
+
+        for (int i = 0; i < 1000; i++) {
+            Map.Entry<Location, String> entry = createEntry();
+            copyOfTreeContent.put(entry.getKey(), entry.getValue());
+        }
+        for (int i = 0; i < 500; i++) {
+            Map.Entry<Location, String> entry = createEntryAt(10, 10);
+            copyOfTreeContent.put(entry.getKey(), entry.getValue());
+        }
+
+        MetricTree<Location, String> tree = MetricTree.bulkLoad(copyOfTreeContent, metric);
+
+        confirmEqualContent(tree, copyOfTreeContent);
+    }
+
     MetricTree<Location, String> emptyMetricTree() {
         return new MetricTree<>(metric);
     }
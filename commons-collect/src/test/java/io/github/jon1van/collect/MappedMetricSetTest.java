@@ -0,0 +1,88 @@
+package io.github.jon1van.collect;
+
+import static io.github.jon1van.collect.MappedMetricTreeTest.METRIC;
+import static io.github.jon1van.collect.MappedMetricTreeTest.POINTS;
+import static io.github.jon1van.collect.MappedMetricTreeTest.randomPoints;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedMetricSetTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void mappedSearchesMatchMetricSet() throws IOException {
+
+        List<Point> points = randomPoints(5_000, 1_000, 17L);
+        MetricSet<Point> set = new MetricSet<>(METRIC);
+        set.addAll(points);
+
+        Path file = tempDir.resolve("set.bin");
+        set.writeTo(file, POINTS);
+        MappedMetricSet<Point> mapped = MappedMetricSet.open(file, METRIC, POINTS);
+
+        assertThat(mapped.size()).isEqualTo(set.size());
+        assertThat(mapped.sphereCount()).isEqualTo(set.sphereCount());
+
+        Random rng = new Random(18L);
+        for (int i = 0; i < 100; i++) {
+            Point searchKey = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+
+            assertThat(mapped.getClosest(searchKey).distance())
+                    .isEqualTo(set.getClosest(searchKey).distance());
+            assertThat(mapped.getNClosest(searchKey, 25).distances())
+                    .isEqualTo(set.getNClosest(searchKey, 25).distances());
+            assertThat(mapped.getAllWithinRange(searchKey, 40.0).distances())
+                    .isEqualTo(set.getAllWithinRange(searchKey, 40.0).distances());
+        }
+    }
+
+    @Test
+    public void bulkLoadedSetRoundTrips() throws IOException {
+
+        List<Point> points = randomPoints(3_000, 500, 19L);
+        MetricSet<Point> set = MetricSet.bulkLoad(points, METRIC);
+
+        Path file = tempDir.resolve("set.bin");
+        set.writeTo(file, POINTS);
+        MappedMetricSet<Point> mapped = MappedMetricSet.open(file, METRIC, POINTS);
+
+        SetSearchResults<Point> results = mapped.getNClosest(new Point(250, 250), 40);
+        assertThat(results.distances())
+                .isEqualTo(set.getNClosest(new Point(250, 250), 40).distances());
+        assertThat(points).containsAll(results.keys());
+    }
+
+    @Test
+    public void treeFilesCanBeOpenedAsSets() throws IOException {
+
+        Path file = tempDir.resolve("tree.bin");
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(MappedMetricTreeTest.randomData(1_000, 300, 20L), METRIC);
+        tree.writeTo(file, POINTS, BinaryCodecs.strings());
+
+        MappedMetricSet<Point> mapped = MappedMetricSet.open(file, METRIC, POINTS);
+
+        assertThat(mapped.getNClosest(new Point(0, 0), 10).distances())
+                .isEqualTo(tree.getNClosest(new Point(0, 0), 10).distances());
+    }
+
+    @Test
+    public void emptySetRoundTrips() throws IOException {
+
+        Path file = tempDir.resolve("empty.bin");
+        new MetricSet<Point>(METRIC).writeTo(file, POINTS);
+        MappedMetricSet<Point> mapped = MappedMetricSet.open(file, METRIC, POINTS);
+
+        assertThat(mapped.isEmpty()).isTrue();
+        assertThat(mapped.getNClosest(new Point(0, 0), 3).isEmpty()).isTrue();
+    }
+}
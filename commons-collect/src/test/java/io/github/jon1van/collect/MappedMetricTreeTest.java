@@ -0,0 +1,229 @@
+package io.github.jon1van.collect;
+
+import static java.lang.Math.hypot;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Point;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import io.github.jon1van.units.LatLong;
+import io.github.jon1van.units.LatLongPath;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedMetricTreeTest {
+
+    static final DistanceMetric<Point> METRIC = (p1, p2) -> hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+
+    /// Writes a Point as two 4-byte ints.
+    static final BinaryCodec<Point> POINTS = new BinaryCodec<>() {
+        @Override
+        public void encode(Point item, DataOutput out) throws IOException {
+            out.writeInt(item.x);
+            out.writeInt(item.y);
+        }
+
+        @Override
+        public Point decode(ByteBuffer in) {
+            return new Point(in.getInt(), in.getInt());
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void mappedSearchesMatchMetricTree() throws IOException {
+
+        MetricTree<Point, String> tree = new MetricTree<>(METRIC);
+        tree.putAll(randomData(5_000, 1_000, 17L));
+
+        Path file = tempDir.resolve("tree.bin");
+        tree.writeTo(file, POINTS, BinaryCodecs.strings());
+        MappedMetricTree<Point, String> mapped = MappedMetricTree.open(file, METRIC, POINTS, BinaryCodecs.strings());
+
+        assertThat(mapped.size()).isEqualTo(tree.size());
+        assertThat(mapped.sphereCount()).isEqualTo(tree.sphereCount());
+
+        Random rng = new Random(18L);
+        for (int i = 0; i < 100; i++) {
+            Point searchKey = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+
+            assertThat(mapped.getClosest(searchKey).distance())
+                    .isEqualTo(tree.getClosest(searchKey).distance());
+            assertThat(mapped.getNClosest(searchKey, 25).distances())
+                    .isEqualTo(tree.getNClosest(searchKey, 25).distances());
+            assertThat(mapped.getAllWithinRange(searchKey, 40.0).distances())
+                    .isEqualTo(tree.getAllWithinRange(searchKey, 40.0).distances());
+        }
+    }
+
+    @Test
+    public void mappedResultsPairKeysWithValues() throws IOException {
+
+        Map<Point, String> data = randomData(2_000, 500, 19L);
+        Path file = tempDir.resolve("tree.bin");
+        MetricTree.bulkLoad(data, METRIC).writeTo(file, POINTS, BinaryCodecs.strings());
+
+        MappedMetricTree<Point, String> mapped = MappedMetricTree.open(file, METRIC, POINTS, BinaryCodecs.strings());
+        SearchResults<Point, String> results = mapped.getNClosest(new Point(250, 250), 50);
+
+        assertThat(results.size()).isEqualTo(50);
+        for (SearchResult<Point, String> result : results.results()) {
+            assertThat(result.value()).isEqualTo(data.get(result.key()));
+            assertThat(result.distance()).isEqualTo(METRIC.distanceBtw(new Point(250, 250), result.key()));
+        }
+    }
+
+    @Test
+    public void frozenTreesCanBeWritten() throws IOException {
+
+        Map<Point, String> data = randomData(1_000, 300, 20L);
+        FrozenMetricTree<Point, String> frozen =
+                MetricTree.bulkLoad(data, METRIC).freeze();
+
+        Path file = tempDir.resolve("frozen.bin");
+        frozen.writeTo(file, POINTS, BinaryCodecs.strings());
+        MappedMetricTree<Point, String> mapped = MappedMetricTree.open(file, METRIC, POINTS, BinaryCodecs.strings());
+
+        assertThat(mapped.getNClosest(new Point(10, 10), 30).results())
+                .isEqualTo(frozen.getNClosest(new Point(10, 10), 30).results());
+    }
+
+    @Test
+    public void latLongKeysAndPathValuesRoundTrip() throws IOException {
+
+        Map<LatLong, LatLongPath> data = new HashMap<>();
+        Random rng = new Random(21L);
+        while (data.size() < 2_000) {
+            LatLong start = LatLong.of(30 + 10 * rng.nextDouble(), -100 + 10 * rng.nextDouble());
+            data.put(start, LatLongPath.from(start, LatLong.of(start.latitude() + 0.1, start.longitude())));
+        }
+        DistanceMetric<LatLong> metric = LatLong::distanceInNmTo;
+        MetricTree<LatLong, LatLongPath> tree = MetricTree.bulkLoad(data, metric);
+
+        Path file = tempDir.resolve("latLongs.bin");
+        tree.writeTo(file, BinaryCodecs.latLongs(), BinaryCodecs.latLongPaths());
+        MappedMetricTree<LatLong, LatLongPath> mapped =
+                MappedMetricTree.open(file, metric, BinaryCodecs.latLongs(), BinaryCodecs.latLongPaths());
+
+        LatLong searchKey = LatLong.of(35.0, -95.0);
+        SearchResults<LatLong, LatLongPath> results = mapped.getAllWithinRange(searchKey, 30.0);
+        assertThat(results.distances())
+                .isEqualTo(tree.getAllWithinRange(searchKey, 30.0).distances());
+        for (SearchResult<LatLong, LatLongPath> result : results.results()) {
+            assertThat(result.value().toArray())
+                    .isEqualTo(data.get(result.key()).toArray());
+        }
+    }
+
+    @Test
+    public void emptyTreeRoundTrips() throws IOException {
+
+        Path file = tempDir.resolve("empty.bin");
+        new MetricTree<Point, String>(METRIC).writeTo(file, POINTS, BinaryCodecs.strings());
+        MappedMetricTree<Point, String> mapped = MappedMetricTree.open(file, METRIC, POINTS, BinaryCodecs.strings());
+
+        assertThat(mapped.isEmpty()).isTrue();
+        assertThat(mapped.getNClosest(new Point(0, 0), 5).isEmpty()).isTrue();
+        assertThat(mapped.getAllWithinRange(new Point(0, 0), 5.0).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void badFilesAreRejected() throws IOException {
+
+        Path notATree = tempDir.resolve("notATree.bin");
+        Files.write(notATree, new byte[100]);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MappedMetricTree.open(notATree, METRIC, POINTS, BinaryCodecs.strings()));
+
+        Path setFile = tempDir.resolve("set.bin");
+        MetricSet.bulkLoad(List.of(new Point(1, 1), new Point(2, 2)), METRIC).writeTo(setFile, POINTS);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MappedMetricTree.open(setFile, METRIC, POINTS, BinaryCodecs.strings()));
+    }
+
+    @Test
+    public void filesFromOtherFormatVersionsAreRejected() throws IOException {
+
+        Path file = tempDir.resolve("oldVersion.bin");
+        MetricTree.bulkLoad(randomData(100, 300, 23L), METRIC).writeTo(file, POINTS, BinaryCodecs.strings());
+
+        // overwrite the format version (the int after the magic number)
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 1);
+        Files.write(file, bytes);
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> MappedMetricTree.open(file, METRIC, POINTS, BinaryCodecs.strings()));
+    }
+
+    @Test
+    public void codecsRoundTrip() throws IOException {
+
+        assertThat(roundTrip(BinaryCodecs.strings(), "héllo wörld")).isEqualTo("héllo wörld");
+        assertThat(roundTrip(BinaryCodecs.integers(), -17)).isEqualTo(-17);
+        assertThat(roundTrip(BinaryCodecs.longs(), Long.MIN_VALUE)).isEqualTo(Long.MIN_VALUE);
+        assertThat(roundTrip(BinaryCodecs.doubles(), Math.PI)).isEqualTo(Math.PI);
+        assertThat(roundTrip(BinaryCodecs.latLongs(), LatLong.of(12.5, -45.25))).isEqualTo(LatLong.of(12.5, -45.25));
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void openingAFileIsFasterThanRebuilding() throws IOException {
+
+        Map<Point, String> data = randomData(2_000_000, 1_000_000, 22L);
+
+        long start = System.nanoTime();
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(data, METRIC);
+        long buildTime = System.nanoTime() - start;
+
+        Path file = tempDir.resolve("big.bin");
+        tree.writeTo(file, POINTS, BinaryCodecs.strings());
+
+        start = System.nanoTime();
+        MappedMetricTree<Point, String> mapped = MappedMetricTree.open(file, METRIC, POINTS, BinaryCodecs.strings());
+        SearchResult<Point, String> first = mapped.getClosest(new Point(500_000, 500_000));
+        long openTime = System.nanoTime() - start;
+
+        System.out.println("bulkLoad: " + buildTime / 1_000_000 + "ms");
+        System.out.println("open + first search: " + openTime / 1_000_000 + "ms (found " + first.key() + ")");
+        System.out.println("file size: " + Files.size(file) / (1024 * 1024) + "MB");
+    }
+
+    private <T> T roundTrip(BinaryCodec<T> codec, T item) throws IOException {
+        Path file = tempDir.resolve("item.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            codec.encode(item, out);
+        }
+        return codec.decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    static Map<Point, String> randomData(int n, int maxCoordinate, long seed) {
+        Random rng = new Random(seed);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < n) {
+            data.put(new Point(rng.nextInt(maxCoordinate), rng.nextInt(maxCoordinate)), "item_" + data.size());
+        }
+        return data;
+    }
+
+    static List<Point> randomPoints(int n, int maxCoordinate, long seed) {
+        return new ArrayList<>(randomData(n, maxCoordinate, seed).keySet());
+    }
+}
@@ -7,11 +7,17 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -279,6 +285,226 @@ public class MetricSetTest {
         confirmExactMatchWithTestData(testSet);
     }
 
+    @Test
+    public void batchSearchesMatchIndividualSearches() {
+
+        MetricSet<Point> testSet = metricTreeWithTestData();
+        List<Point> searchKeys = points().subList(0, 500);
+
+        List<SetSearchResults<Point>> knnResults = testSet.getNClosestBatch(searchKeys, 7);
+        List<SetSearchResults<Point>> rangeResults = testSet.getAllWithinRangeBatch(searchKeys, 25.0);
+
+        assertThat(knnResults).hasSize(searchKeys.size());
+        assertThat(rangeResults).hasSize(searchKeys.size());
+
+        for (int i = 0; i < searchKeys.size(); i++) {
+            Point searchKey = searchKeys.get(i);
+
+            assertThat(knnResults.get(i).searchKey()).isEqualTo(searchKey);
+            assertThat(knnResults.get(i).distances())
+                    .isEqualTo(testSet.getNClosest(searchKey, 7).distances());
+
+            assertThat(rangeResults.get(i).searchKey()).isEqualTo(searchKey);
+            assertThat(rangeResults.get(i).keys())
+                    .containsExactlyInAnyOrderElementsOf(
+                            testSet.getAllWithinRange(searchKey, 25.0).keys());
+        }
+    }
+
+    @Test
+    public void batchSearchesOnEmptySet() {
+
+        MetricSet<Point> testSet = emptyMetricSet();
+        List<Point> searchKeys = List.of(new Point(0, 0), new Point(1, 1));
+
+        assertThat(testSet.getNClosestBatch(searchKeys, 3)).allMatch(SetSearchResults::isEmpty);
+        assertThat(testSet.getAllWithinRangeBatch(searchKeys, 3.0)).allMatch(SetSearchResults::isEmpty);
+    }
+
+    @Test
+    public void rangeJoinFindsEveryPairWithinRange() {
+
+        Random rng = new Random(18L);
+        List<Point> fleet1 = new ArrayList<>();
+        List<Point> fleet2 = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            fleet1.add(new Point(rng.nextInt(1000), rng.nextInt(1000)));
+            fleet2.add(new Point(rng.nextInt(1000), rng.nextInt(1000)));
+        }
+        MetricSet<Point> set1 = MetricSet.bulkLoad(fleet1, emptyMetricSet().metric());
+        MetricSet<Point> set2 = emptyMetricSet();
+        set2.addAll(fleet2);
+
+        Set<List<Point>> joined = ConcurrentHashMap.newKeySet();
+        set1.rangeJoin(set2, 20.0, (p1, p2, dist) -> {
+            assertThat(dist).isEqualTo(p1.distance(p2));
+            assertThat(joined.add(List.of(p1, p2))).isTrue(); // no pair is reported twice
+        });
+
+        Set<List<Point>> expected = new HashSet<>();
+        for (Point p1 : set1.keySet()) {
+            for (Point p2 : set2.getAllWithinRange(p1, 20.0).keys()) {
+                expected.add(List.of(p1, p2));
+            }
+        }
+        assertThat(expected).isNotEmpty();
+        assertThat(joined).isEqualTo(expected);
+    }
+
+    @Test
+    public void rangeJoinSkipsDistantSpheres() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+        MetricSet<Point> set1 = MetricSet.bulkLoad(points(), countingMetric);
+        MetricSet<Point> set2 = MetricSet.bulkLoad(testSet(), countingMetric);
+
+        distanceCalls.set(0);
+        AtomicLong numPairs = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool(1);
+        set1.rangeJoin(set2, 5.0, pool, (p1, p2, dist) -> numPairs.incrementAndGet());
+        pool.shutdown();
+
+        // the self-join pairs every key with itself
+        assertThat(numPairs.get()).isGreaterThanOrEqualTo(SIZE_OF_TEST_COLLECTION);
+        assertThat(distanceCalls.get()).isLessThan((long) SIZE_OF_TEST_COLLECTION * SIZE_OF_TEST_COLLECTION / 20);
+    }
+
+    @Test
+    public void rangeJoinRejectsBadInput() {
+
+        MetricSet<Point> set = metricTreeWithTestData();
+        JoinConsumer<Point, Point> ignore = (p1, p2, dist) -> {};
+
+        assertThrows(NullPointerException.class, () -> set.rangeJoin(null, 1.0, ignore));
+        assertThrows(IllegalArgumentException.class, () -> set.rangeJoin(set, 0.0, ignore));
+        assertThrows(NullPointerException.class, () -> set.rangeJoin(set, 1.0, null));
+
+        // joining with an empty set produces nothing
+        set.rangeJoin(emptyMetricSet(), 1.0, (p1, p2, dist) -> {
+            throw new AssertionError("no pairs expected");
+        });
+        emptyMetricSet().rangeJoin(set, 1.0, (p1, p2, dist) -> {
+            throw new AssertionError("no pairs expected");
+        });
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void rangeJoinIsFasterThanManyRangeSearches() {
+
+        Random rng = new Random(19L);
+        List<Point> fleet1 = new ArrayList<>();
+        List<Point> fleet2 = new ArrayList<>();
+        for (int i = 0; i < 500_000; i++) {
+            fleet1.add(new Point(rng.nextInt(100_000), rng.nextInt(100_000)));
+            fleet2.add(new Point(rng.nextInt(100_000), rng.nextInt(100_000)));
+        }
+        MetricSet<Point> set1 = MetricSet.bulkLoad(fleet1, emptyMetricSet().metric());
+        MetricSet<Point> set2 = MetricSet.bulkLoad(fleet2, emptyMetricSet().metric());
+
+        long start = System.nanoTime();
+        AtomicLong joinPairs = new AtomicLong();
+        set1.rangeJoin(set2, 100.0, (p1, p2, dist) -> joinPairs.incrementAndGet());
+        long joinTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long searchPairs = 0;
+        for (Point p1 : set1.keySet()) {
+            searchPairs += set2.getAllWithinRange(p1, 100.0).size();
+        }
+        long searchTime = System.nanoTime() - start;
+
+        System.out.println("rangeJoin:         " + joinPairs.get() + " pairs in " + joinTime / 1_000_000 + "ms");
+        System.out.println("getAllWithinRange: " + searchPairs + " pairs in " + searchTime / 1_000_000 + "ms");
+    }
+
+    @Test
+    public void testBulkLoad() {
+        MetricSet<Point> testSet =
+                MetricSet.bulkLoad(testSet(), emptyMetricSet().metric());
+
+        assertThat(testSet.size()).isEqualTo(SIZE_OF_TEST_COLLECTION);
+        confirmExactMatchWithTestData(testSet);
+    }
+
+    @Test
+    public void testBulkLoadIgnoresDuplicates() {
+        List<Point> points = new ArrayList<>(testSet());
+        points.addAll(testSet());
+
+        MetricSet<Point> testSet = MetricSet.bulkLoad(points, emptyMetricSet().metric());
+
+        assertThat(testSet.size()).isEqualTo(SIZE_OF_TEST_COLLECTION);
+    }
+
+    @Test
+    public void testParallelBulkLoad() {
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelBuild parallelism = ParallelBuild.using(pool).withMinTaskSize(100);
+
+        MetricSet<Point> testSet = MetricSet.bulkLoad(
+                testSet(), emptyMetricSet().metric(), 50, CenterPointSelectors.maxOfRandomSamples(), parallelism);
+        pool.shutdown();
+
+        testSearchResultAccuracy(testSet);
+        confirmExactMatchWithTestData(testSet);
+    }
+
+    @Test
+    public void testParallelRebalance() {
+
+        MetricSet<Point> testSet = metricTreeWithTestData();
+
+        testSet.rebalance(ParallelBuild.commonPool().withMinTaskSize(100));
+
+        testSearchResultAccuracy(testSet);
+        confirmExactMatchWithTestData(testSet);
+    }
+
+    @Test
+    public void aSharedSelectorIsCalledByOneThreadAtATime() throws Exception {
+
+        // wraps a selector that is not thread-safe (it shares a Random) and flags overlapping calls
+        CenterPointSelector<Point> delegate = CenterPointSelectors.maxOfRandomSamples();
+        AtomicInteger activeCalls = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CenterPointSelector<Point> selector = (keys, metric) -> {
+            if (activeCalls.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            try {
+                return delegate.selectNewCenterPoints(keys, metric);
+            } finally {
+                activeCalls.decrementAndGet();
+            }
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelBuild parallelism = ParallelBuild.using(pool).withMinTaskSize(100);
+        DistanceMetric<Point> metric = emptyMetricSet().metric();
+
+        MetricSet<Point> splitBySphere = new MetricSet<>(metric, 10, selector);
+        Thread adder = new Thread(() -> testSet().forEach(splitBySphere::add));
+        adder.start();
+        MetricSet<Point> bulkLoaded = MetricSet.bulkLoad(testSet(), metric, 10, selector, parallelism);
+        adder.join();
+        pool.shutdown();
+
+        assertThat(overlapped).isFalse();
+        confirmExactMatchWithTestData(bulkLoaded);
+        confirmExactMatchWithTestData(splitBySphere);
+    }
+
+    @Test
+    public void makeBalancedCopyOfEmptySetIsEmpty() {
+        assertThat(emptyMetricSet().makeBalancedCopy().isEmpty()).isTrue();
+    }
+
     private void confirmExactMatchWithTestData(MetricSet<Point> metricSet) {
         Set<Point> set = testSet();
 
@@ -296,8 +522,11 @@ public class MetricSetTest {
 
     @Test
     public void testSearchResultAccuracy() {
+        testSearchResultAccuracy(metricTreeWithTestData());
+    }
+
+    private void testSearchResultAccuracy(MetricSet<Point> testTree) {
 
-        MetricSet<Point> testTree = metricTreeWithTestData();
         Set<Point> testData = testSet();
         Point testKey = new Point(1, 2);
 
@@ -359,6 +588,61 @@ public class MetricSetTest {
         }
     }
 
+    @Test
+    public void searchStatsCountTheWorkDone() {
+
+        MetricSet<Point> set = metricTreeWithTestData();
+        assertThat(set.getNClosest(new Point(0, 0), 5).stats()).isNull();
+
+        set.enableSearchStats();
+        SearchStats knnStats = set.getNClosest(new Point(0, 0), 5).stats();
+        SearchStats rangeStats = set.getAllWithinRange(new Point(0, 0), 20.0).stats();
+
+        assertThat(knnStats.numSearches()).isEqualTo(1);
+        assertThat(knnStats.pointsScanned()).isGreaterThanOrEqualTo(5);
+        // every scanned point is either measured or skipped using the triangle inequality
+        assertThat(knnStats.distanceCalls() + knnStats.pointsSkipped()).isGreaterThan(knnStats.pointsScanned());
+        assertThat(set.searchStats().numSearches()).isEqualTo(2);
+        assertThat(set.searchStats().distanceCalls()).isEqualTo(knnStats.distanceCalls() + rangeStats.distanceCalls());
+
+        int numLeaves = Arrays.stream(set.leafDepthHistogram()).sum();
+        assertThat(2 * numLeaves - 1).isEqualTo(set.sphereCount());
+    }
+
+    @Test
+    public void leafSearchesSkipKeysUsingTheTriangleInequality() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+
+        // a single Sphere centered on (0, 0) that holds 50 points on the x-axis
+        MetricSet<Point> set = new MetricSet<>(countingMetric, 100);
+        for (int x = 0; x < 50; x++) {
+            set.add(new Point(x, 0));
+        }
+        assertThat(set.sphereCount()).isEqualTo(1);
+
+        distanceCalls.set(0);
+        SetSearchResults<Point> results = set.getAllWithinRange(new Point(10, 0), 1.5);
+
+        assertThat(results.size()).isEqualTo(3);
+        // 1 call for the Sphere's center + 1 call for each of (9, 0), (10, 0), and (11, 0)
+        assertThat(distanceCalls.get()).isEqualTo(4);
+
+        // bulk-loaded sets store the distances too
+        List<Point> points = new ArrayList<>();
+        for (int x = 0; x < 50; x++) {
+            points.add(new Point(x, 0));
+        }
+        MetricSet<Point> bulkSet = MetricSet.bulkLoad(points, countingMetric);
+        distanceCalls.set(0);
+        assertThat(bulkSet.getAllWithinRange(new Point(10, 0), 1.5).size()).isEqualTo(3);
+        assertThat(distanceCalls.get()).isLessThan(50);
+    }
+
     @Disabled // because building a MetricSet with 250_000 entries takes too long (about 42 seconds)
     @Test
     public void cannotOverloadWithZeroDistanceKeys() {
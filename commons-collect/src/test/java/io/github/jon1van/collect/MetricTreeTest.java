@@ -6,14 +6,25 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.jon1van.units.LatLong;
+import io.github.jon1van.units.LatLongPath;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
@@ -420,6 +431,914 @@ public class MetricTreeTest {
         }
     }
 
+    @Test
+    public void batchSearchesMatchIndividualSearches() {
+
+        MetricTree<Point, String> testTree = metricTreeWithTestData();
+        List<Point> searchKeys = points().subList(0, 500);
+
+        List<SearchResults<Point, String>> knnResults = testTree.getNClosestBatch(searchKeys, 7);
+        List<SearchResults<Point, String>> rangeResults = testTree.getAllWithinRangeBatch(searchKeys, 25.0);
+
+        assertThat(knnResults).hasSize(searchKeys.size());
+        assertThat(rangeResults).hasSize(searchKeys.size());
+
+        for (int i = 0; i < searchKeys.size(); i++) {
+            Point searchKey = searchKeys.get(i);
+
+            assertThat(knnResults.get(i).searchKey()).isEqualTo(searchKey);
+            assertThat(knnResults.get(i).distances())
+                    .isEqualTo(testTree.getNClosest(searchKey, 7).distances());
+
+            assertThat(rangeResults.get(i).searchKey()).isEqualTo(searchKey);
+            assertThat(rangeResults.get(i).keys())
+                    .containsExactlyInAnyOrderElementsOf(
+                            testTree.getAllWithinRange(searchKey, 25.0).keys());
+        }
+    }
+
+    @Test
+    public void batchSearchesUseTheProvidedPool() {
+
+        DistanceMetric<Point> baseMetric = emptyMetricTree().metric();
+        Set<Thread> callers = ConcurrentHashMap.newKeySet();
+        MetricTree<Point, String> testTree = new MetricTree<>((a, b) -> {
+            callers.add(Thread.currentThread());
+            return baseMetric.distanceBtw(a, b);
+        });
+        testTree.putAll(testMap());
+        List<Point> searchKeys = points().subList(0, 100);
+        callers.clear();
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        List<SearchResults<Point, String>> results = testTree.getNClosestBatch(searchKeys, 1, pool);
+        pool.shutdown();
+
+        // no search ran in a different pool (the calling thread may help while it waits)
+        Thread caller = Thread.currentThread();
+        assertThat(callers)
+                .allMatch(t -> t == caller || (t instanceof ForkJoinWorkerThread worker && worker.getPool() == pool));
+
+        // every search key is in the tree, so it must be its own nearest neighbor
+        for (int i = 0; i < searchKeys.size(); i++) {
+            assertThat(results.get(i).result(0).key()).isEqualTo(searchKeys.get(i));
+            assertThat(results.get(i).result(0).distance()).isEqualTo(0.0);
+        }
+    }
+
+    @Test
+    public void batchSearchesOnEmptyTree() {
+
+        MetricTree<Point, String> mTree = emptyMetricTree();
+        List<Point> searchKeys = List.of(new Point(0, 0), new Point(1, 1));
+
+        assertThat(mTree.getNClosestBatch(searchKeys, 3)).allMatch(SearchResults::isEmpty);
+        assertThat(mTree.getAllWithinRangeBatch(searchKeys, 3.0)).allMatch(SearchResults::isEmpty);
+        assertThat(mTree.getNClosestBatch(List.of(), 3)).isEmpty();
+    }
+
+    @Test
+    public void rangeJoinPairsEntriesOfTwoTrees() {
+
+        MetricTree<Point, String> tree1 = metricTreeWithTestData();
+        MetricTree<Point, Integer> tree2 = new MetricTree<>(tree1.metric());
+        Random rng = new Random(20L);
+        for (int i = 0; i < 1_000; i++) {
+            tree2.put(new Point(rng.nextInt(1000), rng.nextInt(1000)), i);
+        }
+
+        Map<List<Point>, Double> joined = new ConcurrentHashMap<>();
+        tree1.rangeJoin(tree2, 15.0, (e1, e2, dist) -> {
+            assertThat(e1.getValue()).isEqualTo(tree1.get(e1.getKey()));
+            assertThat(e2.getValue()).isEqualTo(tree2.get(e2.getKey()));
+            joined.put(List.of(e1.getKey(), e2.getKey()), dist);
+        });
+
+        Map<List<Point>, Double> expected = new HashMap<>();
+        for (Point p : tree2.keySet()) {
+            for (SearchResult<Point, String> r :
+                    tree1.getAllWithinRange(p, 15.0).results()) {
+                expected.put(List.of(r.key(), p), r.distance());
+            }
+        }
+        assertThat(expected).isNotEmpty();
+        assertThat(joined).isEqualTo(expected);
+
+        assertThrows(IllegalArgumentException.class, () -> tree1.rangeJoin(tree2, -1.0, (e1, e2, dist) -> {}));
+        emptyMetricTree().rangeJoin(tree2, 15.0, (e1, e2, dist) -> {
+            throw new AssertionError("no pairs expected");
+        });
+    }
+
+    @Test
+    public void batchSearchesRejectBadInput() {
+
+        MetricTree<Point, String> mTree = metricTreeWithTestData();
+        List<Point> searchKeys = Arrays.asList(new Point(0, 0), null);
+
+        assertThrows(NullPointerException.class, () -> mTree.getNClosestBatch(searchKeys, 3));
+        assertThrows(NullPointerException.class, () -> mTree.getAllWithinRangeBatch(searchKeys, 3.0));
+        assertThrows(IllegalArgumentException.class, () -> mTree.getNClosestBatch(List.of(new Point(0, 0)), 0));
+        assertThrows(
+                IllegalArgumentException.class, () -> mTree.getAllWithinRangeBatch(List.of(new Point(0, 0)), -1.0));
+    }
+
+    @Test
+    public void testBulkLoad() {
+        MetricTree<Point, String> testTree =
+                MetricTree.bulkLoad(testMap(), emptyMetricTree().metric());
+
+        confirmExactMatchWithTestData(testTree);
+    }
+
+    @Test
+    public void testBulkLoadSearchResultAccuracy() {
+
+        Map<Point, String> testData = testMap();
+        MetricTree<Point, String> testTree =
+                MetricTree.bulkLoad(testData, emptyMetricTree().metric());
+        Point testKey = new Point(1, 2);
+
+        ArrayList<SearchResult<Point, String>> allResults = exhaustivelySearch(testTree, testData, testKey);
+
+        int N = 100;
+        SearchResults<Point, String> kNNSearchResults = testTree.getNClosest(testKey, N);
+        assertEquals(N, kNNSearchResults.size());
+        verifySearchResults(allResults, kNNSearchResults, 1000);
+
+        double MAX_DIST = 50;
+        SearchResults<Point, String> rangeSearchResults = testTree.getAllWithinRange(testKey, MAX_DIST);
+        verifySearchResults(allResults, rangeSearchResults, MAX_DIST);
+    }
+
+    @Test
+    public void testParallelBulkLoad() {
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelBuild parallelism = ParallelBuild.using(pool).withMinTaskSize(100);
+
+        MetricTree<Point, String> testTree = MetricTree.bulkLoad(
+                testMap(), emptyMetricTree().metric(), 50, CenterPointSelectors.maxOfRandomSamples(), parallelism);
+        pool.shutdown();
+
+        confirmExactMatchWithTestData(testTree);
+    }
+
+    @Test
+    public void parallelBuildsAcceptAMinTaskSizeOfOne() {
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ParallelBuild parallelism = ParallelBuild.using(pool).withMinTaskSize(1);
+
+        MetricTree<Point, String> bulkTree = MetricTree.bulkLoad(
+                testMap(), emptyMetricTree().metric(), 50, CenterPointSelectors.maxOfRandomSamples(), parallelism);
+        MetricTree<Point, String> rebalancedTree = metricTreeWithTestData();
+        rebalancedTree.rebalance(parallelism);
+        pool.shutdown();
+
+        confirmExactMatchWithTestData(bulkTree);
+        confirmExactMatchWithTestData(rebalancedTree);
+    }
+
+    @Test
+    public void testParallelRebalance() {
+
+        MetricTree<Point, String> testTree = metricTreeWithTestData();
+
+        testTree.rebalance(ParallelBuild.commonPool().withMinTaskSize(100));
+
+        confirmExactMatchWithTestData(testTree);
+    }
+
+    @Test
+    public void buildsWithoutAParallelBuildStayOnTheCallingThread() {
+
+        DistanceMetric<Point> baseMetric = emptyMetricTree().metric();
+        Set<Thread> callers = ConcurrentHashMap.newKeySet();
+        DistanceMetric<Point> recordingMetric = (a, b) -> {
+            callers.add(Thread.currentThread());
+            return baseMetric.distanceBtw(a, b);
+        };
+
+        // large enough that a parallel build would fork tasks
+        Random rng = new Random(2L);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < 4 * ParallelBuild.DEFAULT_MIN_TASK_SIZE) {
+            data.put(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), "item_" + data.size());
+        }
+
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(data, recordingMetric);
+        tree.rebalance();
+        tree.makeBalancedCopy();
+
+        assertThat(callers).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    public void makeBalancedCopyKeepsMaxSphereSize() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric(), 500);
+        tree.putAll(testMap());
+
+        // 3000 entries fit in about 8 spheres of 500, but would require about 128 spheres of 50
+        assertThat(tree.makeBalancedCopy().sphereCount()).isLessThan(30);
+    }
+
+    @Test
+    public void makeBalancedCopyOfEmptyTreeIsEmpty() {
+        assertThat(emptyMetricTree().makeBalancedCopy().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void nearestNeighborIteratorVisitsEveryEntryInOrder() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+        Point searchKey = new Point(1, 2);
+
+        Iterator<SearchResult<Point, String>> iter = tree.nearestNeighborIterator(searchKey);
+        Set<Point> visited = new HashSet<>();
+        double priorDistance = 0;
+        while (iter.hasNext()) {
+            SearchResult<Point, String> result = iter.next();
+            assertThat(result.distance()).isGreaterThanOrEqualTo(priorDistance);
+            assertThat(result.distance()).isEqualTo(tree.metric().distanceBtw(searchKey, result.key()));
+            assertThat(result.value()).isEqualTo(tree.get(result.key()));
+            priorDistance = result.distance();
+            visited.add(result.key());
+        }
+
+        assertThat(visited).isEqualTo(tree.keySet());
+        assertThrows(NoSuchElementException.class, iter::next);
+    }
+
+    @Test
+    public void nearestNeighborsMatchGetNClosest() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+        Point searchKey = new Point(-10, 40);
+
+        List<Double> streamed = tree.nearestNeighbors(searchKey)
+                .limit(50)
+                .map(SearchResult::distance)
+                .toList();
+
+        assertThat(streamed).isEqualTo(tree.getNClosest(searchKey, 50).distances());
+    }
+
+    @Test
+    public void nearestNeighborsStopEarly() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(testMap(), countingMetric);
+
+        distanceCalls.set(0);
+        Optional<SearchResult<Point, String>> first =
+                tree.nearestNeighbors(new Point(0, 0)).findFirst();
+
+        assertThat(first.get().distance())
+                .isEqualTo(tree.getClosest(new Point(0, 0)).distance());
+        assertThat(distanceCalls.get()).isLessThan(tree.size() / 4);
+    }
+
+    @Test
+    public void nearestNeighborIteratorOfEmptyTree() {
+
+        MetricTree<Point, String> tree = emptyMetricTree();
+
+        assertThat(tree.nearestNeighborIterator(new Point(0, 0)).hasNext()).isFalse();
+        assertThat(tree.nearestNeighbors(new Point(0, 0)).count()).isEqualTo(0);
+        assertThrows(NullPointerException.class, () -> tree.nearestNeighborIterator(null));
+    }
+
+    @Test
+    public void searchStatsAreDisabledByDefault() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+
+        assertThat(tree.searchStats()).isNull();
+        assertThat(tree.getNClosest(new Point(0, 0), 5).stats()).isNull();
+    }
+
+    @Test
+    public void searchStatsCountTheWorkDone() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(testMap(), countingMetric);
+        tree.enableSearchStats();
+
+        distanceCalls.set(0);
+        SearchResults<Point, String> knn = tree.getNClosest(new Point(0, 0), 10);
+        SearchStats knnStats = knn.stats();
+
+        assertThat(knnStats.numSearches()).isEqualTo(1);
+        assertThat(knnStats.distanceCalls()).isEqualTo(distanceCalls.get());
+        assertThat(knnStats.spheresVisited()).isPositive();
+        assertThat(knnStats.spheresPruned()).isPositive();
+        assertThat(knnStats.pointsScanned()).isBetween(10L, (long) tree.size());
+        assertThat(knnStats.maxQueueSize()).isBetween(10L, 11L);
+
+        SearchStats rangeStats = tree.getAllWithinRange(new Point(0, 0), 20.0).stats();
+
+        SearchStats total = tree.searchStats();
+        assertThat(total.numSearches()).isEqualTo(2);
+        assertThat(total.distanceCalls()).isEqualTo(knnStats.distanceCalls() + rangeStats.distanceCalls());
+        assertThat(total.distanceCallsPerSearch()).isEqualTo(total.distanceCalls() / 2.0);
+
+        tree.getNClosestBatch(List.of(new Point(1, 1), new Point(2, 2), new Point(3, 3)), 5);
+        assertThat(tree.searchStats().numSearches()).isEqualTo(5);
+
+        tree.disableSearchStats();
+        assertThat(tree.getNClosest(new Point(0, 0), 5).stats()).isNull();
+        assertThat(tree.searchStats()).isNull();
+    }
+
+    @Test
+    public void concurrentSearchesAddEveryCountToTheCumulativeStats() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+        tree.enableSearchStats();
+
+        // every search is counted exactly once, even when searches from many threads add at once
+        List<Point> searchKeys = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            searchKeys.add(new Point(i % 100, i / 20));
+        }
+        List<SearchResults<Point, String>> results = new ForkJoinPool(4)
+                .invoke(ForkJoinTask.adapt(() -> searchKeys.parallelStream()
+                        .map(key -> tree.getNClosest(key, 5))
+                        .toList()));
+
+        SearchStats total = tree.searchStats();
+        assertThat(total.numSearches()).isEqualTo(2_000);
+        assertThat(total.distanceCalls())
+                .isEqualTo(results.stream()
+                        .mapToLong(r -> r.stats().distanceCalls())
+                        .sum());
+        assertThat(total.maxQueueSize())
+                .isEqualTo(results.stream()
+                        .mapToLong(r -> r.stats().maxQueueSize())
+                        .max()
+                        .getAsLong());
+
+        SearchStats snapshot = total.copy();
+        total.reset();
+        assertThat(total.numSearches()).isZero();
+        assertThat(total.maxQueueSize()).isZero();
+        assertThat(snapshot.numSearches()).isEqualTo(2_000);
+    }
+
+    @Test
+    public void leafDepthHistogramCountsEveryLeaf() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+        int[] histogram = tree.leafDepthHistogram();
+
+        // a binary tree with L leaves has L - 1 inner nodes
+        int numLeaves = Arrays.stream(histogram).sum();
+        assertThat(2 * numLeaves - 1).isEqualTo(tree.sphereCount());
+        assertThat(histogram[0]).isEqualTo(0);
+
+        assertThat(emptyMetricTree().leafDepthHistogram()).isEmpty();
+    }
+
+    @Test
+    public void leafSearchesSkipEntriesUsingTheTriangleInequality() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+
+        // a single Sphere centered on (0, 0) that holds 50 points on the x-axis
+        MetricTree<Point, String> tree = new MetricTree<>(countingMetric, 100);
+        for (int x = 0; x < 50; x++) {
+            tree.put(new Point(x, 0), "item_" + x);
+        }
+        assertThat(tree.sphereCount()).isEqualTo(1);
+        tree.enableSearchStats();
+
+        distanceCalls.set(0);
+        SearchResults<Point, String> results = tree.getAllWithinRange(new Point(10, 0), 1.5);
+
+        assertThat(results.size()).isEqualTo(3);
+        // 1 call for the Sphere's center + 1 call for each of (9, 0), (10, 0), and (11, 0)
+        assertThat(distanceCalls.get()).isEqualTo(4);
+        assertThat(results.stats().pointsScanned()).isEqualTo(50);
+        assertThat(results.stats().pointsSkipped()).isEqualTo(47);
+
+        // the distances survive a put that updates the value of an existing key
+        tree.put(new Point(10, 0), "updated");
+        distanceCalls.set(0);
+        assertThat(tree.getAllWithinRange(new Point(10, 0), 1.5).result(0).value())
+                .isEqualTo("updated");
+        assertThat(distanceCalls.get()).isEqualTo(4);
+
+        // bulk-loaded trees store the distances too
+        Map<Point, String> testData = testMap();
+        MetricTree<Point, String> bulkTree = MetricTree.bulkLoad(testData, countingMetric);
+        bulkTree.enableSearchStats();
+        for (Point searchKey : List.of(new Point(0, 0), new Point(50, 80), new Point(-20, 30))) {
+            ArrayList<SearchResult<Point, String>> allResults = exhaustivelySearch(bulkTree, testData, searchKey);
+            verifySearchResults(allResults, bulkTree.getNClosest(searchKey, 15), 1000);
+            verifySearchResults(allResults, bulkTree.getAllWithinRange(searchKey, 20.0), 20.0);
+        }
+        assertThat(bulkTree.searchStats().pointsSkipped()).isPositive();
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void triangleInequalityReducesPathDistanceCalls() {
+
+        // Paths with 50 points make the DistanceMetric expensive (50 haversine computations per call)
+        Random rng = new Random(17L);
+        List<LatLongPath> paths = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            paths.add(randomPath(rng, 50));
+        }
+        Map<LatLongPath, Integer> data = new HashMap<>();
+        paths.forEach(path -> data.put(path, data.size()));
+
+        MetricTree<LatLongPath, Integer> tree = MetricTree.bulkLoad(data, LatLongPath::distanceBtw);
+        tree.enableSearchStats();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            tree.getNClosest(randomPath(rng, 50), 10);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        SearchStats stats = tree.searchStats();
+        long callsWithoutPruning = stats.distanceCalls() + stats.pointsSkipped();
+        System.out.println(stats);
+        System.out.println("distance calls per search: " + stats.distanceCallsPerSearch() + " (would be "
+                + (double) callsWithoutPruning / stats.numSearches() + " without the triangle inequality)");
+        System.out.println("leaf entries skipped: " + 100.0 * stats.pointsSkipped() / stats.pointsScanned() + "%");
+        System.out.println("search time: " + elapsed / 1_000_000 + "ms");
+    }
+
+    /// @return A straight-ish path that starts at a random location in the continental US.
+    private static LatLongPath randomPath(Random rng, int numPoints) {
+        double lat = 25.0 + 25.0 * rng.nextDouble();
+        double lon = -125.0 + 60.0 * rng.nextDouble();
+        double dLat = 0.02 * rng.nextGaussian();
+        double dLon = 0.02 * rng.nextGaussian();
+
+        List<LatLong> points = new ArrayList<>(numPoints);
+        for (int i = 0; i < numPoints; i++) {
+            points.add(LatLong.of(lat + i * dLat, lon + i * dLon));
+        }
+        return LatLongPath.from(points);
+    }
+
+    @Test
+    public void approximateSearchWithoutErrorIsExact() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+
+        for (Point searchKey : List.of(new Point(0, 0), new Point(50, 80), new Point(-20, 30))) {
+            SearchResults<Point, String> approx = tree.getNClosestApprox(searchKey, 15, 0.0);
+            assertThat(approx.isExact()).isTrue();
+            assertThat(approx.distances())
+                    .isEqualTo(tree.getNClosest(searchKey, 15).distances());
+        }
+        assertThat(tree.getNClosest(new Point(0, 0), 5).isExact()).isTrue();
+    }
+
+    @Test
+    public void approximateSearchResultsAreWithinEpsilon() {
+
+        Random rng = new Random(17L);
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric());
+        while (tree.size() < 20_000) {
+            tree.put(new Point(rng.nextInt(10_000), rng.nextInt(10_000)), "item_" + tree.size());
+        }
+        tree.enableSearchStats();
+
+        double epsilon = 0.5;
+        long exactCalls = 0;
+        long approxCalls = 0;
+        for (int i = 0; i < 100; i++) {
+            Point searchKey = new Point(rng.nextInt(10_000), rng.nextInt(10_000));
+
+            tree.searchStats().reset();
+            List<Double> exact = tree.getNClosest(searchKey, 10).distances();
+            exactCalls += tree.searchStats().distanceCalls();
+
+            tree.searchStats().reset();
+            SearchResults<Point, String> approx = tree.getNClosestApprox(searchKey, 10, epsilon);
+            approxCalls += tree.searchStats().distanceCalls();
+
+            assertThat(approx.size()).isEqualTo(10);
+            for (int j = 0; j < 10; j++) {
+                assertThat(approx.result(j).distance()).isLessThanOrEqualTo((1 + epsilon) * exact.get(j));
+            }
+            if (!approx.distances().equals(exact)) {
+                assertThat(approx.isExact()).isFalse();
+            }
+        }
+        assertThat(approxCalls).isLessThan(exactCalls);
+    }
+
+    @Test
+    public void approximateSearchRespectsItsBudget() {
+
+        Random rng = new Random(18L);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < 20_000) {
+            data.put(new Point(rng.nextInt(10_000), rng.nextInt(10_000)), "item_" + data.size());
+        }
+        MetricTree<Point, String> tree =
+                MetricTree.bulkLoad(data, emptyMetricTree().metric(), 50, CenterPointSelectors.maxOfRandomSamples());
+        tree.enableSearchStats();
+
+        SearchResults<Point, String> results = tree.getNClosestApprox(new Point(5_000, 5_000), 5, 0.0, 30);
+
+        assertThat(results.isExact()).isFalse();
+        assertThat(results.size()).isEqualTo(5);
+        // the budget is checked before each sphere, so at most one extra sphere (and leaf) is searched
+        assertThat(results.stats().distanceCalls()).isLessThanOrEqualTo(30 + 3 + 50);
+
+        // a generous budget does not change the results
+        SearchResults<Point, String> unlimited =
+                tree.getNClosestApprox(new Point(5_000, 5_000), 5, 0.0, Integer.MAX_VALUE);
+        assertThat(unlimited.isExact()).isTrue();
+        assertThat(unlimited.distances())
+                .isEqualTo(tree.getNClosest(new Point(5_000, 5_000), 5).distances());
+    }
+
+    @Test
+    public void approximateSearchRejectsBadInput() {
+
+        MetricTree<Point, String> tree = metricTreeWithTestData();
+        Point searchKey = new Point(0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> tree.getNClosestApprox(searchKey, 0, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> tree.getNClosestApprox(searchKey, 5, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> tree.getNClosestApprox(searchKey, 5, 0.1, 0));
+        assertThrows(NullPointerException.class, () -> tree.getNClosestApprox(null, 5, 0.1));
+
+        assertThat(emptyMetricTree().getNClosestApprox(searchKey, 5, 0.1).isEmpty())
+                .isTrue();
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void approximateSearchTradesRecallForWork() {
+
+        Random rng = new Random(19L);
+        List<LatLongPath> paths = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            paths.add(randomPath(rng, 20));
+        }
+        Map<LatLongPath, Integer> data = new HashMap<>();
+        paths.forEach(path -> data.put(path, data.size()));
+        MetricTree<LatLongPath, Integer> tree = MetricTree.bulkLoad(data, LatLongPath::distanceBtw);
+
+        List<LatLongPath> searchKeys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            searchKeys.add(randomPath(rng, 20));
+        }
+        List<Set<Integer>> exactAnswers = new ArrayList<>();
+        for (LatLongPath searchKey : searchKeys) {
+            exactAnswers.add(new HashSet<>(tree.getNClosest(searchKey, 10).values()));
+        }
+
+        double[] epsilons = {0.0, 0.1, 0.5, 1.0, 0.0, 0.0};
+        int[] budgets = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, 500, 100};
+        for (int i = 0; i < epsilons.length; i++) {
+            tree.enableSearchStats();
+            int found = 0;
+            int numExact = 0;
+            long start = System.nanoTime();
+            for (int j = 0; j < searchKeys.size(); j++) {
+                SearchResults<LatLongPath, Integer> results =
+                        tree.getNClosestApprox(searchKeys.get(j), 10, epsilons[i], budgets[i]);
+                found += (int) results.values().stream()
+                        .filter(exactAnswers.get(j)::contains)
+                        .count();
+                numExact += results.isExact() ? 1 : 0;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf(
+                    "epsilon: %.1f  budget: %10d  recall: %5.1f%%  exact: %3d  distance calls per search: %7.1f"
+                            + "  time: %4dms%n",
+                    epsilons[i],
+                    budgets[i],
+                    100.0 * found / (10 * searchKeys.size()),
+                    numExact,
+                    tree.searchStats().distanceCallsPerSearch(),
+                    elapsed / 1_000_000);
+            tree.disableSearchStats();
+        }
+    }
+
+    @Test
+    public void searchesRemainCorrectDuringChurn() {
+
+        Random rng = new Random(20L);
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric(), 20);
+        Map<Point, String> contents = new HashMap<>();
+        List<Point> keys = new ArrayList<>();
+
+        // keep about 1000 keys in the tree while inserting and removing 10,000 keys
+        for (int i = 0; i < 10_000; i++) {
+            Point point = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+            if (!contents.containsKey(point)) {
+                tree.put(point, "item_" + i);
+                contents.put(point, "item_" + i);
+                keys.add(point);
+            }
+            if (keys.size() > 1_000) {
+                Point expired = keys.remove(rng.nextInt(keys.size()));
+                assertThat(tree.remove(expired)).isEqualTo(contents.remove(expired));
+            }
+
+            if (i % 1_000 == 0) {
+                Point searchKey = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+                ArrayList<SearchResult<Point, String>> allResults = exhaustivelySearch(tree, contents, searchKey);
+                verifySearchResults(allResults, tree.getNClosest(searchKey, 10), 2_000);
+                verifySearchResults(allResults, tree.getAllWithinRange(searchKey, 50.0), 50.0);
+            }
+        }
+
+        assertThat(tree.size()).isEqualTo(contents.size());
+        assertThat(tree.keySet()).isEqualTo(contents.keySet());
+        for (Map.Entry<Point, String> entry : contents.entrySet()) {
+            assertThat(tree.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+        // fragmented subtrees are rebuilt, so the tree never degrades too much
+        assertThat(tree.fragmentation()).isLessThanOrEqualTo(0.5);
+    }
+
+    @Test
+    public void removingKeysMergesSparseSpheres() {
+
+        Random rng = new Random(21L);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < 2_000) {
+            data.put(new Point(rng.nextInt(1_000), rng.nextInt(1_000)), "item_" + data.size());
+        }
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric(), 20);
+        tree.putAll(data);
+        int fullSphereCount = tree.sphereCount();
+
+        List<Point> keys = new ArrayList<>(data.keySet());
+        for (Point key : keys.subList(0, 1_900)) {
+            tree.remove(key);
+        }
+
+        assertThat(tree.size()).isEqualTo(100);
+        assertThat(tree.sphereCount()).isLessThan(fullSphereCount / 4);
+        assertThat(Arrays.stream(tree.leafDepthHistogram()).sum() * 2 - 1).isEqualTo(tree.sphereCount());
+
+        // removing every key leaves a single empty Sphere
+        keys.subList(1_900, 2_000).forEach(tree::remove);
+        assertThat(tree.isEmpty()).isTrue();
+        assertThat(tree.sphereCount()).isEqualTo(1);
+        assertThat(tree.getNClosest(new Point(0, 0), 3).isEmpty()).isTrue();
+
+        // the tree is still usable
+        tree.put(new Point(5, 5), "again");
+        assertThat(tree.getClosest(new Point(0, 0)).value()).isEqualTo("again");
+    }
+
+    @Test
+    public void removingDistantKeysShrinksRadii() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric(), 10);
+        for (int i = 0; i < 100; i++) {
+            tree.put(new Point(i % 10, i / 10), "near_" + i);
+        }
+        List<Point> farAway = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            farAway.add(new Point(1_000 + i, 0));
+            tree.put(farAway.get(i), "far_" + i);
+        }
+        tree.enableSearchStats();
+
+        Point searchKey = new Point(900, 0);
+        assertThat(tree.getAllWithinRange(searchKey, 150.0).size()).isEqualTo(5);
+
+        farAway.forEach(tree::remove);
+
+        // the tree no longer reaches the search key, so the search stops at the root
+        SearchResults<Point, String> results = tree.getAllWithinRange(searchKey, 150.0);
+        assertThat(results.isEmpty()).isTrue();
+        assertThat(results.stats().spheresVisited()).isZero();
+        assertThat(results.stats().spheresPruned()).isEqualTo(1);
+    }
+
+    @Test
+    public void fragmentationTracksRemovals() {
+
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric(), 20);
+        assertThat(tree.fragmentation()).isZero();
+
+        Map<Point, String> data = testMap();
+        tree.putAll(data);
+        assertThat(tree.fragmentation()).isZero();
+
+        List<Point> keys = new ArrayList<>(data.keySet());
+        for (Point key : keys.subList(0, 100)) {
+            tree.remove(key);
+        }
+        assertThat(tree.fragmentation()).isEqualTo(100.0 / data.size());
+
+        tree.rebalance();
+        assertThat(tree.fragmentation()).isZero();
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void churnDoesNotDegradeSearches() {
+
+        Random rng = new Random(22L);
+        MetricTree<Point, String> tree = new MetricTree<>(emptyMetricTree().metric());
+        List<Point> keys = new ArrayList<>();
+
+        // move 100,000 "tracks" around: each step expires a key and inserts a nearby key
+        for (int i = 0; i < 100_000; i++) {
+            Point point = new Point(rng.nextInt(1_000_000), rng.nextInt(1_000_000));
+            if (tree.put(point, "track") == null) {
+                keys.add(point);
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 1_000_000; i++) {
+            Point expired = keys.remove(rng.nextInt(keys.size()));
+            tree.remove(expired);
+            Point moved = new Point(expired.x + rng.nextInt(2_001) - 1_000, expired.y + rng.nextInt(2_001) - 1_000);
+            if (tree.put(moved, "track") == null) {
+                keys.add(moved);
+            }
+        }
+        long churnTime = System.nanoTime() - start;
+
+        List<Point> searchKeys = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            searchKeys.add(new Point(rng.nextInt(1_000_000), rng.nextInt(1_000_000)));
+        }
+
+        tree.enableSearchStats();
+        searchKeys.forEach(searchKey -> tree.getNClosest(searchKey, 10));
+        double churnedCalls = tree.searchStats().distanceCallsPerSearch();
+        int churnedSpheres = tree.sphereCount();
+        double fragmentation = tree.fragmentation();
+
+        tree.rebalance();
+        tree.enableSearchStats();
+        searchKeys.forEach(searchKey -> tree.getNClosest(searchKey, 10));
+
+        System.out.println("1M remove + put pairs: " + churnTime / 1_000_000 + "ms");
+        System.out.println("after churn:     " + churnedCalls + " distance calls per search, " + churnedSpheres
+                + " spheres, fragmentation = " + fragmentation);
+        System.out.println("after rebalance: " + tree.searchStats().distanceCallsPerSearch()
+                + " distance calls per search, " + tree.sphereCount() + " spheres");
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void parallelRebalanceScalesWithCores() {
+
+        Random rng = new Random(17L);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < 2_000_000) {
+            data.put(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), "item_" + data.size());
+        }
+        MetricTree<Point, String> tree =
+                MetricTree.bulkLoad(data, emptyMetricTree().metric());
+
+        long start = System.nanoTime();
+        tree.rebalance(ParallelBuild.sequential());
+        long sequentialTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        tree.rebalance(ParallelBuild.commonPool());
+        long parallelTime = System.nanoTime() - start;
+
+        System.out.println("sequential rebalance: " + sequentialTime / 1_000_000 + "ms");
+        System.out.println("parallel rebalance:   " + parallelTime / 1_000_000 + "ms ("
+                + Runtime.getRuntime().availableProcessors() + " cores)");
+    }
+
+    @Test
+    public void bulkLoadedTreeDoesNotWasteSpheres() {
+
+        MetricTree<Point, String> putTree = metricTreeWithTestData();
+        MetricTree<Point, String> bulkTree = MetricTree.bulkLoad(testMap(), putTree.metric());
+
+        assertThat(bulkTree.sphereCount()).isLessThanOrEqualTo(putTree.sphereCount());
+    }
+
+    @Test
+    public void bulkLoadedTreeSupportsPut() {
+
+        Map<Point, String> testData = testMap();
+        Map<Point, String> firstHalf = new HashMap<>();
+        testData.entrySet().stream().limit(1500).forEach(e -> firstHalf.put(e.getKey(), e.getValue()));
+
+        MetricTree<Point, String> testTree =
+                MetricTree.bulkLoad(firstHalf, emptyMetricTree().metric());
+        testTree.putAll(testData);
+
+        confirmExactMatchWithTestData(testTree);
+    }
+
+    @Test
+    public void bulkLoadOfEmptyMapIsEmpty() {
+
+        MetricTree<Point, String> testTree =
+                MetricTree.bulkLoad(new HashMap<>(), emptyMetricTree().metric());
+
+        assertThat(testTree.isEmpty()).isTrue();
+        assertThat(testTree.getNClosest(new Point(0, 0), 5).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void bulkLoadRejectsNullKeys() {
+
+        Map<Point, String> data = new HashMap<>();
+        data.put(new Point(0, 0), "a");
+        data.put(null, "b");
+
+        assertThrows(
+                NullPointerException.class,
+                () -> MetricTree.bulkLoad(data, emptyMetricTree().metric()));
+    }
+
+    @Test
+    public void bulkLoadMakesFewerDistanceCallsThanPutAndRebalance() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+
+        Random rng = new Random(17L);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < 20_000) {
+            data.put(new Point(rng.nextInt(10_000), rng.nextInt(10_000)), "item_" + data.size());
+        }
+
+        MetricTree<Point, String> putTree = new MetricTree<>(countingMetric);
+        putTree.putAll(data);
+        putTree.rebalance();
+        long putCalls = distanceCalls.getAndSet(0);
+
+        MetricTree<Point, String> bulkTree = MetricTree.bulkLoad(data, countingMetric);
+        long bulkCalls = distanceCalls.getAndSet(0);
+
+        assertThat(bulkTree.keySet()).isEqualTo(data.keySet());
+        assertThat(putTree.keySet()).isEqualTo(data.keySet());
+        assertThat(bulkCalls).isLessThan(putCalls);
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void bulkLoadIsFasterThanPutAndRebalance() {
+
+        AtomicLong distanceCalls = new AtomicLong();
+        DistanceMetric<Point> countingMetric = (p1, p2) -> {
+            distanceCalls.incrementAndGet();
+            return hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+        };
+
+        Random rng = new Random(17L);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < 1_000_000) {
+            data.put(new Point(rng.nextInt(100_000), rng.nextInt(100_000)), "item_" + data.size());
+        }
+
+        long start = System.nanoTime();
+        MetricTree<Point, String> putTree = new MetricTree<>(countingMetric);
+        putTree.putAll(data);
+        putTree.rebalance();
+        long putTime = System.nanoTime() - start;
+        long putCalls = distanceCalls.getAndSet(0);
+
+        start = System.nanoTime();
+        MetricTree<Point, String> bulkTree = MetricTree.bulkLoad(data, countingMetric);
+        long bulkTime = System.nanoTime() - start;
+        long bulkCalls = distanceCalls.getAndSet(0);
+
+        System.out.println("put + rebalance: " + putTime / 1_000_000 + "ms, " + putCalls + " distance calls");
+        System.out.println("bulkLoad:        " + bulkTime / 1_000_000 + "ms, " + bulkCalls + " distance calls");
+
+        assertThat(bulkTree.size()).isEqualTo(putTree.size());
+        assertThat(bulkCalls).isLessThan(putCalls);
+    }
+
     @Disabled // because building a MetricSet with 250_000 entries takes too long (about 42 seconds)
     @Test
     public void cannotOverloadWithZeroDistanceKeys() {
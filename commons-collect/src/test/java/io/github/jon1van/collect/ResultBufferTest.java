@@ -0,0 +1,185 @@
+package io.github.jon1van.collect;
+
+import static java.lang.Math.hypot;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Point;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class ResultBufferTest {
+
+    static final DistanceMetric<Point> METRIC = (p1, p2) -> hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+
+    @Test
+    public void treeSearchesMatchSearchResults() {
+
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(randomData(5_000, 1_000, 17L), METRIC);
+        ResultBuffer<Point, String> buffer = new ResultBuffer<>(1);
+
+        Random rng = new Random(18L);
+        for (int i = 0; i < 100; i++) {
+            Point searchKey = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+
+            tree.getNClosest(searchKey, 20, buffer);
+            SearchResults<Point, String> expected = tree.getNClosest(searchKey, 20);
+            assertThat(buffer.size()).isEqualTo(20);
+            assertThat(distancesOf(buffer)).isEqualTo(expected.distances());
+            for (int j = 0; j < buffer.size(); j++) {
+                assertThat(buffer.value(j)).isEqualTo(tree.get(buffer.key(j)));
+                assertThat(buffer.distance(j)).isEqualTo(METRIC.distanceBtw(searchKey, buffer.key(j)));
+            }
+
+            tree.getAllWithinRange(searchKey, 50.0, buffer);
+            assertThat(distancesOf(buffer))
+                    .isEqualTo(tree.getAllWithinRange(searchKey, 50.0).distances());
+        }
+    }
+
+    @Test
+    public void setSearchesMatchSetSearchResults() {
+
+        MetricSet<Point> set = MetricSet.bulkLoad(randomData(5_000, 1_000, 19L).keySet(), METRIC);
+        ResultBuffer<Point, Void> buffer = new ResultBuffer<>();
+
+        Random rng = new Random(20L);
+        for (int i = 0; i < 100; i++) {
+            Point searchKey = new Point(rng.nextInt(1_000), rng.nextInt(1_000));
+
+            set.getNClosest(searchKey, 20, buffer);
+            assertThat(distancesOf(buffer))
+                    .isEqualTo(set.getNClosest(searchKey, 20).distances());
+            assertThat(buffer.value(0)).isNull();
+
+            set.getAllWithinRange(searchKey, 50.0, buffer);
+            assertThat(distancesOf(buffer))
+                    .isEqualTo(set.getAllWithinRange(searchKey, 50.0).distances());
+        }
+    }
+
+    @Test
+    public void bufferCanBeSharedByDifferentTrees() {
+
+        Map<Point, String> data = randomData(1_000, 100, 21L);
+        MetricTree<Point, String> tree1 = MetricTree.bulkLoad(data, METRIC);
+        MetricTree<Point, String> tree2 = new MetricTree<>((p1, p2) -> Math.abs(p1.x - p2.x) + Math.abs(p1.y - p2.y));
+        tree2.putAll(data);
+
+        ResultBuffer<Point, String> buffer = new ResultBuffer<>();
+        Point searchKey = new Point(50, 50);
+
+        tree1.getNClosest(searchKey, 5, buffer);
+        assertThat(distancesOf(buffer))
+                .isEqualTo(tree1.getNClosest(searchKey, 5).distances());
+
+        tree2.getNClosest(searchKey, 5, buffer);
+        assertThat(distancesOf(buffer))
+                .isEqualTo(tree2.getNClosest(searchKey, 5).distances());
+    }
+
+    @Test
+    public void emptyTreesProduceEmptyBuffers() {
+
+        ResultBuffer<Point, String> buffer = new ResultBuffer<>();
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(randomData(100, 100, 22L), METRIC);
+        tree.getNClosest(new Point(0, 0), 5, buffer);
+        assertThat(buffer.size()).isEqualTo(5);
+
+        new MetricTree<Point, String>(METRIC).getNClosest(new Point(0, 0), 5, buffer);
+        assertThat(buffer.isEmpty()).isTrue();
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.key(0));
+    }
+
+    @Test
+    public void searchStatsAreStillRecorded() {
+
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(randomData(1_000, 100, 23L), METRIC);
+        tree.enableSearchStats();
+
+        tree.getNClosest(new Point(50, 50), 5, new ResultBuffer<>());
+
+        assertThat(tree.searchStats().numSearches()).isEqualTo(1);
+        assertThat(tree.searchStats().distanceCalls()).isPositive();
+        assertThat(tree.searchStats().maxQueueSize()).isEqualTo(5);
+    }
+
+    @Test
+    public void badInputIsRejected() {
+
+        MetricTree<Point, String> tree = MetricTree.bulkLoad(randomData(100, 100, 24L), METRIC);
+        ResultBuffer<Point, String> buffer = new ResultBuffer<>();
+
+        assertThrows(IllegalArgumentException.class, () -> new ResultBuffer<Point, String>(0));
+        assertThrows(IllegalArgumentException.class, () -> tree.getNClosest(new Point(0, 0), 0, buffer));
+        assertThrows(IllegalArgumentException.class, () -> tree.getAllWithinRange(new Point(0, 0), 0.0, buffer));
+        assertThrows(NullPointerException.class, () -> tree.getNClosest(new Point(0, 0), 5, null));
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void reusingABufferAvoidsAllocation() {
+
+        MetricSet<Point> set =
+                MetricSet.bulkLoad(randomData(500_000, 100_000, 25L).keySet(), METRIC);
+        List<Point> searchKeys = new ArrayList<>();
+        Random rng = new Random(26L);
+        for (int i = 0; i < 100_000; i++) {
+            searchKeys.add(new Point(rng.nextInt(100_000), rng.nextInt(100_000)));
+        }
+        ResultBuffer<Point, Void> buffer = new ResultBuffer<>();
+
+        // warm up both code paths
+        for (int rep = 0; rep < 3; rep++) {
+            searchKeys.forEach(searchKey -> set.getNClosest(searchKey, 10));
+            searchKeys.forEach(searchKey -> set.getNClosest(searchKey, 10, buffer));
+        }
+
+        long start = System.nanoTime();
+        long bytes = allocatedBytes();
+        searchKeys.forEach(searchKey -> set.getNClosest(searchKey, 10));
+        long objectBytes = allocatedBytes() - bytes;
+        long objectTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        bytes = allocatedBytes();
+        searchKeys.forEach(searchKey -> set.getNClosest(searchKey, 10, buffer));
+        long bufferBytes = allocatedBytes() - bytes;
+        long bufferTime = System.nanoTime() - start;
+
+        System.out.println("SetSearchResults: " + objectBytes / searchKeys.size() + " bytes/search, "
+                + objectTime / 1_000_000 + "ms");
+        System.out.println("ResultBuffer:     " + bufferBytes / searchKeys.size() + " bytes/search, "
+                + bufferTime / 1_000_000 + "ms");
+    }
+
+    /// @return The number of bytes allocated by the current thread (like JMH's "-prof gc").
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static List<Double> distancesOf(ResultBuffer<Point, ?> buffer) {
+        List<Double> distances = new ArrayList<>();
+        for (double d : buffer.distances()) {
+            distances.add(d);
+        }
+        return distances;
+    }
+
+    private static Map<Point, String> randomData(int n, int maxCoordinate, long seed) {
+        Random rng = new Random(seed);
+        Map<Point, String> data = new HashMap<>();
+        while (data.size() < n) {
+            data.put(new Point(rng.nextInt(maxCoordinate), rng.nextInt(maxCoordinate)), "item_" + data.size());
+        }
+        return data;
+    }
+}
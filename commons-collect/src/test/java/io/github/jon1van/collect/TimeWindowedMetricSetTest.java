@@ -0,0 +1,195 @@
+package io.github.jon1van.collect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.github.jon1van.units.Position;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class TimeWindowedMetricSetTest {
+
+    static final DistanceMetric<Position> METRIC = Position::distanceInNmTo;
+
+    static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    public void wholeBucketsExpireAsTimeAdvances() {
+
+        TimeWindowedMetricSet<Position> set =
+                TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+        // one position every second for 30 minutes
+        for (int i = 0; i < 30 * 60; i++) {
+            set.add(positionAt(i, 0.0, 0.001 * i));
+        }
+
+        assertThat(set.currentTime()).isEqualTo(EPOCH.plusSeconds(30 * 60 - 1));
+        // the window covers minutes 19 through 29
+        assertThat(set.bucketCount()).isEqualTo(11);
+        assertThat(set.size()).isEqualTo(11 * 60);
+        assertThat(set.contains(positionAt(18 * 60 + 59, 0.0, 0.001 * (18 * 60 + 59))))
+                .isFalse();
+        assertThat(set.contains(positionAt(19 * 60, 0.0, 0.001 * (19 * 60)))).isTrue();
+        assertThat(set.keySet()).hasSize(set.size());
+
+        set.advanceTo(EPOCH.plus(Duration.ofMinutes(35)));
+        assertThat(set.bucketCount()).isEqualTo(5);
+        assertThat(set.size()).isEqualTo(5 * 60);
+
+        set.advanceTo(EPOCH.plus(Duration.ofHours(1)));
+        assertThat(set.isEmpty()).isTrue();
+        assertThat(set.bucketCount()).isZero();
+    }
+
+    @Test
+    public void keysAreRetainedForAtLeastTheWindow() {
+
+        TimeWindowedMetricSet<Position> set =
+                TimeWindowedMetricSet.of(METRIC, Duration.ofSeconds(100), Duration.ofSeconds(30));
+
+        Position old = positionAt(1_000, 0.0, 0.0);
+        set.add(old);
+
+        set.advanceTo(EPOCH.plusSeconds(1_100));
+        assertThat(set.contains(old)).isTrue();
+
+        set.advanceTo(EPOCH.plusSeconds(1_000 + 100 + 30));
+        assertThat(set.contains(old)).isFalse();
+
+        // moving backwards in time does nothing
+        set.advanceTo(EPOCH);
+        assertThat(set.currentTime()).isEqualTo(EPOCH.plusSeconds(1_130));
+    }
+
+    @Test
+    public void keysThatAreTooOldAreRejected() {
+
+        TimeWindowedMetricSet<Position> set =
+                TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(5), Duration.ofMinutes(1));
+
+        assertThat(set.add(positionAt(600, 0.0, 0.0))).isTrue();
+        assertThat(set.add(positionAt(600, 0.0, 0.0))).isFalse(); // duplicate
+        assertThat(set.add(positionAt(590, 1.0, 0.0))).isTrue(); // late, but inside the window
+        assertThat(set.add(positionAt(100, 2.0, 0.0))).isFalse(); // expired
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void searchesMergeResultsFromEveryBucket() {
+
+        Random rng = new Random(17L);
+        TimeWindowedMetricSet<Position> set =
+                TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Position p = positionAt(i / 10, 40 + rng.nextDouble(), -75 + rng.nextDouble());
+            set.add(p);
+            positions.add(p);
+        }
+        assertThat(set.bucketCount()).isGreaterThan(1);
+
+        // a single MetricSet holding the same keys is the reference answer
+        MetricSet<Position> reference = MetricSet.bulkLoad(set.keySet(), METRIC);
+
+        for (Position searchKey : positions.subList(0, 20)) {
+            assertThat(set.getNClosest(searchKey, 15).distances())
+                    .isEqualTo(reference.getNClosest(searchKey, 15).distances());
+            assertThat(set.getAllWithinRange(searchKey, 5.0).distances())
+                    .isEqualTo(reference.getAllWithinRange(searchKey, 5.0).distances());
+        }
+        Position searchKey = positions.get(4_999);
+        assertThat(set.getClosest(searchKey).key()).isEqualTo(searchKey);
+    }
+
+    @Test
+    public void removeDropsEmptyBuckets() {
+
+        TimeWindowedMetricSet<Position> set =
+                TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        Position p1 = positionAt(0, 0.0, 0.0);
+        Position p2 = positionAt(120, 0.0, 0.0);
+        set.add(p1);
+        set.add(p2);
+        assertThat(set.bucketCount()).isEqualTo(2);
+
+        assertThat(set.remove(p1)).isTrue();
+        assertThat(set.remove(p1)).isFalse();
+        assertThat(set.bucketCount()).isEqualTo(1);
+        assertThat(set.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void badInputIsRejected() {
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(1), Duration.ofMinutes(2)));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(1), Duration.ZERO));
+
+        TimeWindowedMetricSet<Position> set =
+                TimeWindowedMetricSet.of(METRIC, Duration.ofMinutes(10), Duration.ofMinutes(1));
+        assertThrows(NullPointerException.class, () -> set.add(null));
+        assertThrows(IllegalArgumentException.class, () -> set.getNClosest(positionAt(0, 0.0, 0.0), 0));
+        assertThat(set.getNClosest(positionAt(0, 0.0, 0.0), 3).isEmpty()).isTrue();
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void bucketExpiryIsFasterThanRemovingKeys() {
+
+        Random rng = new Random(18L);
+        List<Position> stream = new ArrayList<>();
+        for (int i = 0; i < 2_000_000; i++) {
+            stream.add(positionAt(i / 100, 25 + 25 * rng.nextDouble(), -125 + 60 * rng.nextDouble()));
+        }
+        Duration window = Duration.ofMinutes(60);
+
+        long start = System.nanoTime();
+        TimeWindowedMetricSet<Position> windowed = TimeWindowedMetricSet.of(METRIC, window, Duration.ofMinutes(6));
+        stream.forEach(windowed::add);
+        long windowedTime = System.nanoTime() - start;
+
+        // the alternative: one MetricSet that removes each key once it is too old
+        start = System.nanoTime();
+        MetricSet<Position> single = new MetricSet<>(METRIC);
+        int oldest = 0;
+        for (Position p : stream) {
+            single.add(p);
+            while (stream.get(oldest).time().isBefore(p.time().minus(window))) {
+                single.remove(stream.get(oldest++));
+            }
+        }
+        long singleTime = System.nanoTime() - start;
+
+        Position searchKey = positionAt(20_000, 40.0, -100.0);
+        start = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            windowed.getNClosest(searchKey, 10);
+        }
+        long windowedSearch = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            single.getNClosest(searchKey, 10);
+        }
+        long singleSearch = System.nanoTime() - start;
+
+        System.out.println("TimeWindowedMetricSet: " + windowedTime / 1_000_000 + "ms to ingest, "
+                + windowedSearch / 1_000_000 + "ms for 1000 searches (" + windowed.size() + " keys in "
+                + windowed.bucketCount() + " buckets)");
+        System.out.println("MetricSet + remove:    " + singleTime / 1_000_000 + "ms to ingest, "
+                + singleSearch / 1_000_000 + "ms for 1000 searches (" + single.size() + " keys)");
+    }
+
+    private static Position positionAt(int secondsAfterEpoch, double latitude, double longitude) {
+        return new Position(EPOCH.plusSeconds(secondsAfterEpoch).toEpochMilli(), latitude, longitude);
+    }
+}
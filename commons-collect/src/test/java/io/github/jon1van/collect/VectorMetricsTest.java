@@ -0,0 +1,206 @@
+package io.github.jon1van.collect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+public class VectorMetricsTest {
+
+    @Test
+    public void kernelsMatchTheTextbookFormulas() {
+
+        double[] a = {1, 2, 3, 4, 5};
+        double[] b = {2, 0, 3, 8, 5};
+
+        assertThat(VectorMetrics.euclidean().distanceBtw(a, b)).isCloseTo(Math.sqrt(21), within(1E-12));
+        assertThat(VectorMetrics.manhattan().distanceBtw(a, b)).isCloseTo(7.0, within(1E-12));
+
+        double[] x = {1, 0, 0};
+        double[] y = {0, 3, 0};
+        double[] z = {-2, 0, 0};
+        assertThat(VectorMetrics.cosine().distanceBtw(x, y)).isCloseTo(Math.PI / 2, within(1E-12));
+        assertThat(VectorMetrics.cosine().distanceBtw(x, z)).isCloseTo(Math.PI, within(1E-12));
+        assertThat(VectorMetrics.cosine().distanceBtw(x, x)).isCloseTo(0.0, within(1E-12));
+    }
+
+    @Test
+    public void kernelsHandleEveryLength() {
+
+        // Covers vectors shorter than one SIMD register and every possible scalar tail
+        Random rng = new Random(19L);
+        for (int n = 0; n <= 20; n++) {
+            double[] a = randomVector(rng, n);
+            double[] b = randomVector(rng, n);
+
+            double squares = 0, absolutes = 0, dot = 0;
+            for (int i = 0; i < n; i++) {
+                squares += (a[i] - b[i]) * (a[i] - b[i]);
+                absolutes += Math.abs(a[i] - b[i]);
+                dot += a[i] * b[i];
+            }
+
+            assertThat(VectorMetrics.sumOfSquaredDiffs(a, b)).isCloseTo(squares, within(1E-12));
+            assertThat(VectorMetrics.sumOfAbsDiffs(a, b)).isCloseTo(absolutes, within(1E-12));
+            assertThat(VectorMetrics.dot(a, b)).isCloseTo(dot, within(1E-12));
+        }
+    }
+
+    @Test
+    public void badVectorsAreRejected() {
+
+        double[] a = {1, 2, 3};
+        double[] b = {1, 2};
+
+        assertThrows(
+                IllegalArgumentException.class, () -> VectorMetrics.euclidean().distanceBtw(a, b));
+        assertThrows(
+                IllegalArgumentException.class, () -> VectorMetrics.manhattan().distanceBtw(a, b));
+        assertThrows(
+                IllegalArgumentException.class, () -> VectorMetrics.cosine().distanceBtw(a, new double[3]));
+        assertThrows(IllegalArgumentException.class, () -> VectorMetrics.euclidean()
+                .distancesFrom(a, List.of(b), new double[1]));
+    }
+
+    @Test
+    public void batchDistancesMatchPairwiseDistances() {
+
+        Random rng = new Random(17L);
+        double[] query = randomVector(rng, 13);
+        List<double[]> candidates = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            candidates.add(randomVector(rng, 13));
+        }
+
+        for (BatchDistanceMetric<double[]> metric :
+                List.of(VectorMetrics.euclidean(), VectorMetrics.manhattan(), VectorMetrics.cosine())) {
+            double[] out = new double[60];
+            metric.distancesFrom(query, candidates, out);
+            for (int i = 0; i < candidates.size(); i++) {
+                assertThat(out[i]).isEqualTo(metric.distanceBtw(query, candidates.get(i)));
+            }
+            assertThat(out[55]).isEqualTo(0.0); // entries past the candidates are untouched
+        }
+    }
+
+    @Test
+    public void batchedSearchesMatchPairwiseSearches() {
+
+        Random rng = new Random(18L);
+        for (BatchDistanceMetric<double[]> batchMetric :
+                List.of(VectorMetrics.euclidean(), VectorMetrics.manhattan(), VectorMetrics.cosine())) {
+
+            // hiding the batch method forces the searches to measure one distance at a time
+            DistanceMetric<double[]> pairwiseMetric = batchMetric::distanceBtw;
+
+            MetricTree<double[], Integer> batchedTree = new MetricTree<>(batchMetric);
+            MetricTree<double[], Integer> pairwiseTree = new MetricTree<>(pairwiseMetric);
+            MetricSet<double[]> batchedSet = new MetricSet<>(batchMetric);
+            MetricSet<double[]> pairwiseSet = new MetricSet<>(pairwiseMetric);
+            for (int i = 0; i < 2_000; i++) {
+                double[] vector = randomVector(rng, 8);
+                batchedTree.put(vector, i);
+                pairwiseTree.put(vector, i);
+                batchedSet.add(vector);
+                pairwiseSet.add(vector);
+            }
+
+            for (int i = 0; i < 25; i++) {
+                double[] query = randomVector(rng, 8);
+                double range = batchMetric.distanceBtw(query, randomVector(rng, 8)) / 2;
+
+                assertThat(batchedTree.getNClosest(query, 10).values())
+                        .isEqualTo(pairwiseTree.getNClosest(query, 10).values());
+                assertThat(batchedTree.getAllWithinRange(query, range).values())
+                        .isEqualTo(pairwiseTree.getAllWithinRange(query, range).values());
+                assertThat(batchedSet.getNClosest(query, 10).keys())
+                        .isEqualTo(pairwiseSet.getNClosest(query, 10).keys());
+                assertThat(batchedSet.getAllWithinRange(query, range).keys())
+                        .isEqualTo(pairwiseSet.getAllWithinRange(query, range).keys());
+            }
+        }
+    }
+
+    @Test
+    public void batchedApproximateSearchesStayWithinTheirBound() {
+
+        Random rng = new Random(19L);
+        MetricTree<double[], Integer> tree = new MetricTree<>(VectorMetrics.euclidean());
+        for (int i = 0; i < 2_000; i++) {
+            tree.put(randomVector(rng, 8), i);
+        }
+
+        double epsilon = 0.5;
+        for (int i = 0; i < 25; i++) {
+            double[] query = randomVector(rng, 8);
+            List<Double> exact = tree.getNClosest(query, 5).distances();
+            List<Double> approx = tree.getNClosestApprox(query, 5, epsilon).distances();
+
+            assertThat(approx).hasSize(5);
+            for (int j = 0; j < 5; j++) {
+                assertThat(approx.get(j)).isLessThanOrEqualTo(exact.get(j) * (1 + epsilon));
+            }
+        }
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void compareBatchedAndPairwiseLeafScans() {
+
+        Random rng = new Random(20L);
+        int dims = 32;
+        List<double[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            vectors.add(randomVector(rng, dims));
+        }
+        List<double[]> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            queries.add(randomVector(rng, dims));
+        }
+
+        // a pairwise lambda written the "obvious" way (a single accumulator)
+        DistanceMetric<double[]> naive = (a, b) -> {
+            double sum = 0;
+            for (int i = 0; i < a.length; i++) {
+                double diff = a[i] - b[i];
+                sum += diff * diff;
+            }
+            return Math.sqrt(sum);
+        };
+
+        MetricSet<double[]> naiveSet = new MetricSet<>(naive, 200);
+        naiveSet.addAll(vectors);
+        MetricSet<double[]> batchSet = new MetricSet<>(VectorMetrics.euclidean(), 200);
+        batchSet.addAll(vectors);
+
+        // the second round is measured after the JIT has compiled both search paths
+        for (int round = 0; round < 2; round++) {
+            long naiveTime = timeSearches(naiveSet, queries);
+            long batchTime = timeSearches(batchSet, queries);
+            System.out.println("pairwise lambda:       " + naiveTime / 1_000_000 + "ms");
+            System.out.println("VectorMetrics (batch): " + batchTime / 1_000_000 + "ms");
+        }
+    }
+
+    private static long timeSearches(MetricSet<double[]> set, List<double[]> queries) {
+        long start = System.nanoTime();
+        for (double[] query : queries) {
+            assertThat(set.getNClosest(query, 10).size()).isEqualTo(10);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double[] randomVector(Random rng, int dims) {
+        double[] vector = new double[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = rng.nextGaussian();
+        }
+        return vector;
+    }
+}
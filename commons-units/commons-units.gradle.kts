@@ -12,6 +12,9 @@ dependencies {
 tasks.named<Test>("test") {
     useJUnitPlatform()
 
+    // Runs the PackedNavigation tests against the Vector API kernels (see VectorizedNavigation)
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+
     testLogging {
         events("SKIPPED", "FAILED") // Options are: "PASSED", "SKIPPED", "FAILED"
     }
@@ -25,6 +28,7 @@ tasks {
 //        options.compilerArgs.add("-Xdoclint:all,-missing")
 //        options.compilerArgs.add("-Xlint:deprecation")
         options.compilerArgs.add("-Xlint:unchecked")
+        options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
     }
 }
 
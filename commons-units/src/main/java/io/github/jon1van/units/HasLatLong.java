@@ -48,12 +48,12 @@ public interface HasLatLong {
     /// @param other An object with a known LatLong
     /// @return The distance in Nautical Miles the provided object
     default double distanceInNmTo(HasLatLong other) {
-        return distanceTo(other).inNauticalMiles();
+        return Navigation.primitiveDistanceInNM(latitude(), longitude(), other.latitude(), other.longitude());
     }
 
     /// @return The course (i.e. direction of travel) from this object to the other object.
     default double courseInDegrees(HasLatLong that) {
-        return Navigation.courseInDegrees(
+        return Navigation.primitiveCourseInDegrees(
                 latitude(), longitude(),
                 that.latitude(), that.longitude());
     }
@@ -67,7 +67,7 @@ public interface HasLatLong {
     /// @param location The "other"
     /// @return True if this object's LatLong is within the specified Distance to the provided location.
     default boolean isWithin(Distance distance, LatLong128 location) {
-        return this.distanceTo(location).isLessThanOrEqualTo(distance);
+        return this.distanceInNmTo(location) <= distance.inNauticalMiles();
     }
 
     /// @return The location you'd arrive if you travel from this location the direction and distance given
@@ -0,0 +1,330 @@
+package io.github.jon1van.units;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.checkIndex;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/// A KineticPositionStore is an append-only, time-ordered sequence of KineticPositions that lives
+/// outside the Java heap. Storing hundreds of millions of KineticPositions this way adds nothing
+/// to the heap, so it does not increase GC pause times.
+///
+/// Each KineticPosition is stored as the exact 72 bytes produced by KineticPosition.toBytes()
+/// (nine big-endian 8-byte fields: epochTime, latitude, longitude, altitude, climbRate, course,
+/// turnRate, speed, and acceleration). A file-backed store begins with a 16-byte header (the
+/// big-endian long 0x4B5053544F524531, i.e. "KPSTORE1" in ASCII, followed by the big-endian number
+/// of committed records) and then holds a plain concatenation of toBytes() records that other
+/// languages can read directly.
+///
+/// The records are kept in fixed-size chunks of native memory (or of a memory-mapped file) that
+/// are allocated as the store grows. Existing records are never copied or moved. The primitive
+/// accessors (e.g. epochMsAt, latitudeAt) and indexOf (a binary search by time) read the records
+/// in place, without creating KineticPosition objects. get(i) and iteration create a
+/// KineticPosition for each record.
+///
+/// A KineticPositionStore must be closed to release its memory (or unmap its file). It supports a
+/// single writer and any number of concurrent readers, even while the writer appends. size is
+/// volatile and append writes a record (and publishes a new chunk) before it increments size, so a
+/// reader that observes size() == n can safely read the first n records.
+///
+/// Mapping a chunk grows the backing file to the end of that chunk, and only close() trims the
+/// file. append updates the header's record count after it writes the record, so when a
+/// file-backed store is not closed (e.g. the JVM crashes) mappedFile reopens exactly the committed
+/// records and ignores the zero-filled tail of the last chunk.
+public final class KineticPositionStore implements Iterable<KineticPosition>, AutoCloseable {
+
+    /// The number of bytes used to store one KineticPosition.
+    public static final int RECORD_BYTES = 72;
+
+    /// The default number of records in each chunk (about 4.7 MB per chunk).
+    static final int DEFAULT_RECORDS_PER_CHUNK = 1 << 16;
+
+    /// The number of bytes before the first record of a file-backed store.
+    static final int HEADER_BYTES = 16;
+
+    /// "KPSTORE1" in ASCII, identifies a file written by a KineticPositionStore.
+    static final long MAGIC = 0x4B5053544F524531L;
+
+    // big-endian (like ByteBuffer and therefore KineticPosition.toBytes())
+    private static final ValueLayout.OfLong LONG = JAVA_LONG.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfDouble DOUBLE = JAVA_DOUBLE.withOrder(ByteOrder.BIG_ENDIAN);
+
+    // the offset of each field within the header
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_SIZE = 8;
+
+    // the offset of each field within a record
+    private static final long TIME = 0;
+    private static final long LATITUDE = 8;
+    private static final long LONGITUDE = 16;
+    private static final long ALTITUDE = 24;
+    private static final long COURSE = 40;
+    private static final long SPEED = 56;
+
+    private final Arena arena;
+
+    /// The backing file (null when the records are stored in native memory).
+    private final FileChannel channel;
+
+    /// The mapped header of the backing file (null when the records are stored in native memory).
+    private final MemorySegment header;
+
+    /// The number of records per chunk is a power of two (so an index splits into chunk + offset).
+    private final int chunkShift;
+
+    private final long chunkMask;
+
+    /// Copy-on-write so readers never observe a partially updated list while a chunk is added.
+    private final List<MemorySegment> chunks;
+
+    private volatile long size;
+
+    private KineticPositionStore(FileChannel channel, int recordsPerChunk) {
+        checkArgument(Integer.bitCount(recordsPerChunk) == 1, "recordsPerChunk must be a power of two");
+        this.arena = Arena.ofShared();
+        this.channel = channel;
+        this.header = (channel == null) ? null : map(0, HEADER_BYTES);
+        this.chunkShift = Integer.numberOfTrailingZeros(recordsPerChunk);
+        this.chunkMask = recordsPerChunk - 1;
+        this.chunks = new CopyOnWriteArrayList<>();
+        this.size = 0;
+    }
+
+    /// @return An empty store whose records are kept in native (off-heap) memory.
+    public static KineticPositionStore offHeap() {
+        return offHeap(DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    static KineticPositionStore offHeap(int recordsPerChunk) {
+        return new KineticPositionStore(null, recordsPerChunk);
+    }
+
+    /// Open a store whose records are kept in a memory-mapped file. If the file already exists its
+    /// records are loaded (i.e. mapped) and new records are appended after them.
+    ///
+    /// Only the records counted in the file's header are loaded. Anything after them (the unused
+    /// tail of the last chunk of a store that was not closed) is overwritten by new records.
+    ///
+    /// @param file An empty file, a missing file (it is created), or a file written by a
+    ///     KineticPositionStore
+    ///
+    /// @return A store backed by this file. Closing the store trims the file to exactly 16 + size()
+    ///     * 72 bytes.
+    public static KineticPositionStore mappedFile(Path file) throws IOException {
+        return mappedFile(file, DEFAULT_RECORDS_PER_CHUNK);
+    }
+
+    static KineticPositionStore mappedFile(Path file, int recordsPerChunk) throws IOException {
+        requireNonNull(file);
+        FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        try {
+            long fileSize = channel.size();
+            long committed = 0;
+            if (fileSize > 0) {
+                checkArgument(fileSize >= HEADER_BYTES, "Not a KineticPositionStore file: %s", file);
+                ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_BYTES); // big-endian
+                channel.read(headerBytes, 0);
+                checkArgument(headerBytes.getLong(HEADER_MAGIC) == MAGIC, "Not a KineticPositionStore file: %s", file);
+                committed = headerBytes.getLong(HEADER_SIZE);
+                checkArgument(
+                        committed >= 0 && fileSize >= HEADER_BYTES + committed * RECORD_BYTES,
+                        "The file is shorter than its record count: %s",
+                        file);
+            }
+
+            KineticPositionStore store = new KineticPositionStore(channel, recordsPerChunk);
+            if (fileSize == 0) {
+                // mapping the header grew the file, so the record count is already 0
+                store.header.set(LONG, HEADER_MAGIC, MAGIC);
+            }
+            long numChunks = (committed + recordsPerChunk - 1) / recordsPerChunk;
+            for (int i = 0; i < numChunks; i++) {
+                store.chunks.add(store.newChunk(i));
+            }
+            store.size = committed;
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /// Append a KineticPosition to the end of this store.
+    ///
+    /// @throws IllegalArgumentException if the KineticPosition is older than the last record
+    public void append(KineticPosition position) {
+        requireNonNull(position);
+        long n = size;
+        checkArgument(
+                n == 0 || epochMsAt(n - 1) <= position.timeAsEpochMs(),
+                "KineticPositions must be appended in time order");
+
+        int chunk = (int) (n >>> chunkShift);
+        if (chunk == chunks.size()) {
+            chunks.add(newChunk(chunk));
+        }
+        MemorySegment.copy(position.toBytes(), 0, chunks.get(chunk), JAVA_BYTE, offsetOf(n), RECORD_BYTES);
+        if (header != null) {
+            // commit the record to the file (only after its bytes are written)
+            header.set(LONG, HEADER_SIZE, n + 1);
+        }
+        // the volatile write publishes the record to readers
+        size = n + 1;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /// @return The i-th KineticPosition (a new object is created on every call).
+    public KineticPosition get(long i) {
+        byte[] bytes = new byte[RECORD_BYTES];
+        MemorySegment.copy(chunkOf(i), JAVA_BYTE, offsetOf(i), bytes, 0, RECORD_BYTES);
+        return KineticPosition.fromBytes(bytes);
+    }
+
+    /// @return A read-only view of the i-th record's 72 bytes (no data is copied).
+    public MemorySegment recordAt(long i) {
+        return chunkOf(i).asSlice(offsetOf(i), RECORD_BYTES).asReadOnly();
+    }
+
+    public long epochMsAt(long i) {
+        return chunkOf(i).get(LONG, offsetOf(i) + TIME);
+    }
+
+    public double latitudeAt(long i) {
+        return chunkOf(i).get(DOUBLE, offsetOf(i) + LATITUDE);
+    }
+
+    public double longitudeAt(long i) {
+        return chunkOf(i).get(DOUBLE, offsetOf(i) + LONGITUDE);
+    }
+
+    public double altitudeInFeetAt(long i) {
+        return chunkOf(i).get(DOUBLE, offsetOf(i) + ALTITUDE);
+    }
+
+    public double courseInDegreesAt(long i) {
+        return chunkOf(i).get(DOUBLE, offsetOf(i) + COURSE);
+    }
+
+    public double speedInKnotsAt(long i) {
+        return chunkOf(i).get(DOUBLE, offsetOf(i) + SPEED);
+    }
+
+    /// Find a record by time (using binary search). When several records share the search time the
+    /// index of the first one is returned.
+    ///
+    /// @return The index of a record whose time is epochMs. Otherwise, (-(insertion point) - 1),
+    ///     just like Arrays.binarySearch.
+    public long indexOf(long epochMs) {
+        long n = size;
+        long low = 0;
+        long high = n;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (epochMsAt(mid) < epochMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (low < n && epochMsAt(low) == epochMs) ? low : -low - 1;
+    }
+
+    /// @return An Iterator that creates the KineticPositions in time order.
+    @Override
+    public Iterator<KineticPosition> iterator() {
+        return new Iterator<>() {
+            long next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public KineticPosition next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /// Write any changes to a file-backed store to the storage device (does nothing when the store
+    /// lives in native memory). The records are forced before the header, so the stored record count
+    /// never covers records that have not reached the device. The file is not trimmed here because
+    /// the mapped chunks extend past the last record (mappedFile ignores that tail).
+    public void flush() {
+        if (channel != null) {
+            chunks.forEach(MemorySegment::force);
+            header.force();
+        }
+    }
+
+    /// Release the native memory (or unmap the file) that holds the records. The file of a
+    /// file-backed store is trimmed to exactly 16 + size() * 72 bytes.
+    @Override
+    public void close() throws IOException {
+        if (!arena.scope().isAlive()) {
+            return;
+        }
+        arena.close();
+        if (channel != null) {
+            try (channel) {
+                channel.truncate(HEADER_BYTES + size * RECORD_BYTES);
+            }
+        }
+    }
+
+    private MemorySegment newChunk(int chunkIndex) {
+        long chunkBytes = (chunkMask + 1) * RECORD_BYTES;
+        if (channel == null) {
+            return arena.allocate(chunkBytes, Long.BYTES);
+        }
+        return map(HEADER_BYTES + chunkIndex * chunkBytes, chunkBytes);
+    }
+
+    private MemorySegment map(long offset, long bytes) {
+        try {
+            // mapping a region past the end of the file grows the file
+            return channel.map(FileChannel.MapMode.READ_WRITE, offset, bytes, arena);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MemorySegment chunkOf(long index) {
+        checkIndex(index, size);
+        return chunks.get((int) (index >>> chunkShift));
+    }
+
+    private long offsetOf(long index) {
+        return (index & chunkMask) * RECORD_BYTES;
+    }
+}
@@ -1,7 +1,7 @@
 package io.github.jon1van.units;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static java.util.Objects.nonNull;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static java.util.Objects.requireNonNull;
 
 import java.nio.ByteBuffer;
@@ -33,6 +33,9 @@ public class LatLongPath implements Iterable<LatLong> {
     /// This array contains {latLong64_0, latLong64_1, latLong64_2, ...}.
     private final long[] locationData;
 
+    /// The distance (in NM) from the first location to each location, built on first use.
+    private volatile double[] cumulativeNM;
+
     /// Build a LatLongPath by iterating through these locations.
     public LatLongPath(Collection<LatLong> locations) {
         requireNonNull(locations);
@@ -57,7 +60,8 @@ public class LatLongPath implements Iterable<LatLong> {
         }
     }
 
-    private LatLongPath(long[] data) {
+    /// Wrap (without copying) an array of LatLongs encoded as primitive longs.
+    LatLongPath(long[] data) {
         requireNonNull(data);
         this.locationData = data;
     }
@@ -194,22 +198,66 @@ public class LatLongPath implements Iterable<LatLong> {
         if (size() <= 1) {
             return Distance.ZERO;
         }
-        Distance sum = Distance.ZERO;
-        Iterator<LatLong> iter = iterator();
-        LatLong last;
-        LatLong cur = null;
+        return Distance.ofNauticalMiles(cumulativeDistancesInNM()[size() - 1]);
+    }
 
-        while (iter.hasNext()) {
-            last = cur;
-            cur = iter.next();
+    /// @param i The index of the starting location
+    /// @param j The index of the ending location (must be at least i)
+    ///
+    /// @return The Distance obtained by walking from get(i) to get(i + 1) ... to get(j).
+    public Distance distanceAlong(int i, int j) {
+        checkElementIndex(i, size());
+        checkElementIndex(j, size());
+        checkArgument(i <= j, "j must be >= i");
+        double[] cumulative = cumulativeDistancesInNM();
+        return Distance.ofNauticalMiles(cumulative[j] - cumulative[i]);
+    }
 
-            if (nonNull(last)) {
-                Distance legDist = Distance.between(last, cur);
-                sum = sum.plus(legDist);
+    /// Find where a walk along this path (starting at get(0)) has covered a certain Distance. This
+    /// method uses binary search.
+    ///
+    /// @param distance A Distance measured along this path
+    ///
+    /// @return The smallest index i for which distanceAlong(0, i) >= distance. Otherwise, size()
+    ///     when the whole path is shorter than the distance.
+    public int firstIndexReaching(Distance distance) {
+        requireNonNull(distance);
+        double target = distance.inNauticalMiles();
+        double[] cumulative = cumulativeDistancesInNM();
+
+        int low = 0;
+        int high = cumulative.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
         }
+        return low;
+    }
 
-        return sum;
+    /// @return An array whose i-th entry is the distance in Nautical Miles from get(0) to get(i)
+    ///     along this path. The array is computed once (on first use) and then cached.
+    private double[] cumulativeDistancesInNM() {
+        double[] cumulative = cumulativeNM;
+        if (cumulative == null) {
+            cumulative = new double[locationData.length];
+            for (int i = 1; i < cumulative.length; i++) {
+                long from = locationData[i - 1];
+                long to = locationData[i];
+                double legDist = Navigation.primitiveDistanceInNM(
+                        LatLong.decodeInt(PackedNavigation.latitudeBits(from)),
+                        LatLong.decodeInt(PackedNavigation.longitudeBits(from)),
+                        LatLong.decodeInt(PackedNavigation.latitudeBits(to)),
+                        LatLong.decodeInt(PackedNavigation.longitudeBits(to)));
+                cumulative[i] = cumulative[i - 1] + legDist;
+            }
+            // threads that race here compute identical arrays
+            cumulativeNM = cumulative;
+        }
+        return cumulative;
     }
 
     /// Compute the "total distance" between the points in these two paths.
@@ -229,22 +277,11 @@ public class LatLongPath implements Iterable<LatLong> {
     /// @param p2 Another path
     /// @return The sum of the pair-wise distance measurements
     public static double distanceBtw(LatLongPath p1, LatLongPath p2) {
-        // ACCURATE BUT SLOW
         requireNonNull(p1);
         requireNonNull(p2);
         checkArgument(p1.size() == p2.size(), "Paths must have same size");
 
-        double distanceSum = 0;
-        int n = p1.size();
-
-        for (int i = 0; i < n; i += 1) {
-            LatLong mine = p1.get(i);
-            LatLong his = p2.get(i);
-            distanceSum += mine.distanceInNmTo(his);
-        }
-
-        // return the distance
-        return distanceSum;
+        return PackedNavigation.sumOfDistancesInNM(p1.locationData, p2.locationData, p1.size());
     }
 
     /// Compute the "total distance" between the first n points of these two paths.
@@ -265,21 +302,12 @@ public class LatLongPath implements Iterable<LatLong> {
     /// @param n  The number of points considered in the "path distance" computation
     /// @return The sum of the pair-wise distance measurements
     public static double distanceBtw(LatLongPath p1, LatLongPath p2, int n) {
-        // ACCURATE BUT SLOW
         requireNonNull(p1);
         requireNonNull(p2);
         checkArgument(n >= 0);
         checkArgument(p1.size() >= n, "Path1 does not have the required length");
         checkArgument(p2.size() >= n, "Path2 does not have the required length");
 
-        double distanceSum = 0;
-        for (int i = 0; i < n; i += 1) {
-            LatLong mine = p1.get(i);
-            LatLong his = p2.get(i);
-            distanceSum += mine.distanceInNmTo(his);
-        }
-
-        // return the distance
-        return distanceSum;
+        return PackedNavigation.sumOfDistancesInNM(p1.locationData, p2.locationData, n);
     }
 }
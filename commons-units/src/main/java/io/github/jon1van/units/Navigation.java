@@ -56,6 +56,19 @@ public class Navigation {
     ///
     /// @return The spherical distance between two locations
     public static double distanceInNM(Double latDeg1, Double lonDeg1, Double latDeg2, Double lonDeg2) {
+        return primitiveDistanceInNM(latDeg1, lonDeg1, latDeg2, lonDeg2);
+    }
+
+    /// Compute the great circle spherical distance between two locations. This is the same
+    /// computation as distanceInNM, but the arguments are primitives, so nothing is boxed.
+    ///
+    /// @param latDeg1 latitude in degrees (of point 1)
+    /// @param lonDeg1 longitude in degrees (of point 1)
+    /// @param latDeg2 latitude in degrees (of point 2)
+    /// @param lonDeg2 longitude in degrees (of point 2)
+    ///
+    /// @return The spherical distance between two locations
+    public static double primitiveDistanceInNM(double latDeg1, double lonDeg1, double latDeg2, double lonDeg2) {
         double lat1 = toRadians(latDeg1);
         double lon1 = toRadians(lonDeg1);
         double lat2 = toRadians(latDeg2);
@@ -63,9 +76,43 @@ public class Navigation {
         return EARTH_RADIUS_NM * ahaversine(haversine(lat2 - lat1) + cos(lat1) * cos(lat2) * haversine(lon2 - lon1));
     }
 
+    /// Compute the great circle spherical distance between one location and many other locations.
+    /// This method does not allocate, and it converts the first location to radians only once.
+    ///
+    /// @param latDeg latitude in degrees (of the shared point)
+    /// @param lonDeg longitude in degrees (of the shared point)
+    /// @param lats   latitudes in degrees
+    /// @param lons   longitudes in degrees (must have the same length as lats)
+    /// @param out    Receives primitiveDistanceInNM(latDeg, lonDeg, lats[i], lons[i]) at out[i]
+    public static void distancesInNM(double latDeg, double lonDeg, double[] lats, double[] lons, double[] out) {
+        checkBatch(lats, lons, out);
+        double lat1 = toRadians(latDeg);
+        double lon1 = toRadians(lonDeg);
+        double cosLat1 = cos(lat1);
+        for (int i = 0; i < lats.length; i++) {
+            double lat2 = toRadians(lats[i]);
+            double lon2 = toRadians(lons[i]);
+            out[i] =
+                    EARTH_RADIUS_NM * ahaversine(haversine(lat2 - lat1) + cosLat1 * cos(lat2) * haversine(lon2 - lon1));
+        }
+    }
+
+    /// Compute the great circle spherical distance between pairs of locations (i.e. between
+    /// (lats1[i], lons1[i]) and (lats2[i], lons2[i])). This method does not allocate.
+    ///
+    /// @param out Receives primitiveDistanceInNM(lats1[i], lons1[i], lats2[i], lons2[i]) at out[i]
+    public static void distancesInNM(double[] lats1, double[] lons1, double[] lats2, double[] lons2, double[] out) {
+        checkBatch(lats1, lons1, out);
+        checkBatch(lats2, lons2, out);
+        checkArgument(lats1.length == lats2.length, "Both sets of locations must have the same length");
+        for (int i = 0; i < lats1.length; i++) {
+            out[i] = primitiveDistanceInNM(lats1[i], lons1[i], lats2[i], lons2[i]);
+        }
+    }
+
     /// Compute the great circle Distance between two object with a location.
     public static Distance distanceBtw(HasLatLong one, HasLatLong two) {
-        return Distance.ofNauticalMiles(distanceInNM(
+        return Distance.ofNauticalMiles(primitiveDistanceInNM(
                 one.latitude(), one.longitude(),
                 two.latitude(), two.longitude()));
     }
@@ -79,6 +126,19 @@ public class Navigation {
     ///
     /// @return The course between two points in degrees
     public static double courseInDegrees(Double startLat, Double startLong, Double endLat, Double endLong) {
+        return primitiveCourseInDegrees(startLat, startLong, endLat, endLong);
+    }
+
+    /// Compute the course between two locations. This is the same computation as courseInDegrees,
+    /// but the arguments are primitives, so nothing is boxed.
+    ///
+    /// @param startLat  latitude in degrees of starting location
+    /// @param startLong longitude in degrees of starting location
+    /// @param endLat    latitude in degrees of ending location
+    /// @param endLong   longitude in degrees of ending location
+    ///
+    /// @return The course between two points in degrees
+    public static double primitiveCourseInDegrees(double startLat, double startLong, double endLat, double endLong) {
         double lat1 = toRadians(startLat);
         double lon1 = toRadians(startLong);
         double lat2 = toRadians(endLat);
@@ -89,6 +149,46 @@ public class Navigation {
         return toDegrees(crs);
     }
 
+    /// Compute the course from one location to many other locations. This method does not allocate,
+    /// and it computes the trigonometry of the start location only once.
+    ///
+    /// @param startLat  latitude in degrees of the shared starting location
+    /// @param startLong longitude in degrees of the shared starting location
+    /// @param endLats   latitudes in degrees of the ending locations
+    /// @param endLongs  longitudes in degrees of the ending locations
+    /// @param out       Receives primitiveCourseInDegrees(startLat, startLong, endLats[i], endLongs[i]) at out[i]
+    public static void coursesInDegrees(
+            double startLat, double startLong, double[] endLats, double[] endLongs, double[] out) {
+        checkBatch(endLats, endLongs, out);
+        double lat1 = toRadians(startLat);
+        double lon1 = toRadians(startLong);
+        double sinLat1 = sin(lat1);
+        double cosLat1 = cos(lat1);
+        for (int i = 0; i < endLats.length; i++) {
+            double lat2 = toRadians(endLats[i]);
+            double lon2 = toRadians(endLongs[i]);
+            double y = sin(lon1 - lon2) * cos(lat2);
+            double x = (cosLat1 * sin(lat2)) - (sinLat1 * cos(lat2) * cos(lon2 - lon1));
+            double crs = (2.0 * PI) - mod(atan2(y, x), (2.0 * PI));
+            out[i] = toDegrees(crs);
+        }
+    }
+
+    /// Compute the course between pairs of locations (i.e. from (startLats[i], startLongs[i]) to
+    /// (endLats[i], endLongs[i])). This method does not allocate.
+    ///
+    /// @param out Receives primitiveCourseInDegrees(startLats[i], startLongs[i], endLats[i], endLongs[i]) at
+    ///            out[i]
+    public static void coursesInDegrees(
+            double[] startLats, double[] startLongs, double[] endLats, double[] endLongs, double[] out) {
+        checkBatch(startLats, startLongs, out);
+        checkBatch(endLats, endLongs, out);
+        checkArgument(startLats.length == endLats.length, "Both sets of locations must have the same length");
+        for (int i = 0; i < startLats.length; i++) {
+            out[i] = primitiveCourseInDegrees(startLats[i], startLongs[i], endLats[i], endLongs[i]);
+        }
+    }
+
     /// Compute the course between two objects with a location.
     ///
     /// @param start The start location
@@ -96,7 +196,8 @@ public class Navigation {
     ///
     /// @return The course between two objects
     public static Course courseBtw(HasLatLong start, HasLatLong end) {
-        return courseBtw(start.latitude(), start.longitude(), end.latitude(), end.longitude());
+        return Course.ofDegrees(
+                primitiveCourseInDegrees(start.latitude(), start.longitude(), end.latitude(), end.longitude()));
     }
 
     /// Compute the course between two points.
@@ -108,7 +209,7 @@ public class Navigation {
     ///
     /// @return The course between two points as a Course object
     public static Course courseBtw(Double startLat, Double startLon, Double endLat, Double endLon) {
-        return Course.ofDegrees(courseInDegrees(startLat, startLon, endLat, endLon));
+        return Course.ofDegrees(primitiveCourseInDegrees(startLat, startLon, endLat, endLon));
     }
 
     /// Compute a new location from a starting location, a direction, and a distance.
@@ -191,7 +292,7 @@ public class Navigation {
                 Math.toDegrees(distNM
                         / (EARTH_RADIUS_NM * Math.sin(Math.min(Math.PI / 2, Math.abs(radiusNM) / EARTH_RADIUS_NM)))),
                 radiusNM);
-        double crsCen = mod(courseInDegrees(latCen, lonCen, latDeg, lonDeg) + crsDelta, 360.0);
+        double crsCen = mod(primitiveCourseInDegrees(latCen, lonCen, latDeg, lonDeg) + crsDelta, 360.0);
         return Navigation.move(latCen, lonCen, crsCen, Math.abs(radiusNM));
     }
 
@@ -211,8 +312,8 @@ public class Navigation {
 
     public static Double curvatureFromPointToPoint(
             Double latDeg1, Double lonDeg1, Double hdg1, Double latDeg2, Double lonDeg2) {
-        double d = distanceInNM(latDeg1, lonDeg1, latDeg2, lonDeg2) / EARTH_RADIUS_NM;
-        double dTheta = angleDifference(courseInDegrees(latDeg1, lonDeg1, latDeg2, lonDeg2), hdg1);
+        double d = primitiveDistanceInNM(latDeg1, lonDeg1, latDeg2, lonDeg2) / EARTH_RADIUS_NM;
+        double dTheta = angleDifference(primitiveCourseInDegrees(latDeg1, lonDeg1, latDeg2, lonDeg2), hdg1);
         double phi = toRadians(abs(dTheta));
         return 1.0 / Math.copySign(atan((1 - cos(d)) / (sin(d) * sin(phi))) * EARTH_RADIUS_NM, dTheta);
     }
@@ -227,6 +328,11 @@ public class Navigation {
         return toRadians(degrees) * EARTH_RADIUS_NM * sin(radius / EARTH_RADIUS_NM);
     }
 
+    private static void checkBatch(double[] lats, double[] lons, double[] out) {
+        checkArgument(lats.length == lons.length, "Must have the same number of latitudes and longitudes");
+        checkArgument(out.length >= lats.length, "The output array is too small");
+    }
+
     private static double haversine(double x) {
         return (1.0 - cos(x)) / 2.0;
     }
@@ -252,11 +358,11 @@ public class Navigation {
     }
 
     public static Double distanceInNM(HasLatLong pt1, HasLatLong pt2) {
-        return distanceInNM(pt1.latitude(), pt1.longitude(), pt2.latitude(), pt2.longitude());
+        return primitiveDistanceInNM(pt1.latitude(), pt1.longitude(), pt2.latitude(), pt2.longitude());
     }
 
     public static Double courseInDegrees(LatLong pt1, LatLong pt2) {
-        return courseInDegrees(pt1.latitude(), pt1.longitude(), pt2.latitude(), pt2.longitude());
+        return primitiveCourseInDegrees(pt1.latitude(), pt1.longitude(), pt2.latitude(), pt2.longitude());
     }
 
     public static Double angleDifference(Double hdg, Double hdg0) {
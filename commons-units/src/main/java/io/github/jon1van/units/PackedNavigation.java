@@ -0,0 +1,243 @@
+package io.github.jon1van.units;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.PI;
+import static org.apache.commons.math3.util.FastMath.asin;
+import static org.apache.commons.math3.util.FastMath.atan2;
+import static org.apache.commons.math3.util.FastMath.cos;
+import static org.apache.commons.math3.util.FastMath.sin;
+import static org.apache.commons.math3.util.FastMath.sqrt;
+import static org.apache.commons.math3.util.FastMath.toDegrees;
+
+/// Distance and course kernels that work directly on the integer encoding used inside LatLong (i.e.
+/// degrees * 10^7 stored in an int). Locations can be provided as primitive longs (see
+/// LatLong.toPrimitiveLong() and LatLongPath) or as parallel int[] arrays of latitudes and
+/// longitudes.
+///
+/// These methods compute the same haversine formula as Navigation.distanceInNM and the same course
+/// formula as Navigation.courseInDegrees. Results differ from Navigation by rounding error only
+/// (about 1E-12 Nautical Miles) because the integers are converted straight to radians.
+///
+/// The batch methods are intended for "one location vs. millions of locations" sweeps. They never
+/// create LatLong objects, they do not allocate, and they evaluate the query location's
+/// trigonometry once per sweep rather than once per pair.
+///
+/// When the JVM was started with "--add-modules jdk.incubator.vector" the batch methods run SIMD
+/// kernels built on the JDK Vector API (see VectorizedNavigation) and only the last few locations
+/// of each array go through the scalar loop. Without that module every location goes through the
+/// scalar loop. The module is detected once, when this class is initialized.
+public final class PackedNavigation {
+
+    /// Converts the integers stored inside a LatLong to radians.
+    private static final double RADIANS_PER_UNIT = PI / 180.0 / 10_000_000.0;
+
+    private static final double EARTH_RADIUS_NM = Navigation.EARTH_RADIUS_NM;
+
+    /// True when the batch methods use VectorizedNavigation.
+    static final boolean VECTORIZED = vectorApiIsUsable();
+
+    private PackedNavigation() {}
+
+    /// VectorizedNavigation is only loaded when the incubator module is in the boot layer, so this
+    /// class never fails to initialize when the module is absent.
+    private static boolean vectorApiIsUsable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorizedNavigation.isUseful();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /// @return The number of leading locations (out of n) that a vectorized batch method already
+    ///     processed (the scalar loop starts here)
+    private static int vectorized(int n) {
+        return VECTORIZED ? VectorizedNavigation.loopBound(n) : 0;
+    }
+
+    /// @param location1 A LatLong encoded as a primitive long
+    /// @param location2 A LatLong encoded as a primitive long
+    ///
+    /// @return The great circle distance between the two locations in Nautical Miles
+    public static double distanceInNM(long location1, long location2) {
+        double lat1 = latitudeBits(location1) * RADIANS_PER_UNIT;
+        double lat2 = latitudeBits(location2) * RADIANS_PER_UNIT;
+        double lon1 = longitudeBits(location1) * RADIANS_PER_UNIT;
+        double lon2 = longitudeBits(location2) * RADIANS_PER_UNIT;
+        return haversineDistance(lat1, lon1, cos(lat1), lat2, lon2);
+    }
+
+    /// Compute the distance from a location that was already converted to radians. Callers that
+    /// measure one query location against many locations, but cannot batch them (e.g. while
+    /// descending a spatial index), compute cos(latitude) once and pass it to every call.
+    ///
+    /// @param latitude    The latitude of the first location in radians
+    /// @param longitude   The longitude of the first location in radians
+    /// @param cosLatitude cos(latitude)
+    /// @param location    A LatLong encoded as a primitive long
+    ///
+    /// @return The great circle distance between the two locations in Nautical Miles
+    public static double distanceInNM(double latitude, double longitude, double cosLatitude, long location) {
+        double lat2 = latitudeBits(location) * RADIANS_PER_UNIT;
+        double lon2 = longitudeBits(location) * RADIANS_PER_UNIT;
+        return haversineDistance(latitude, longitude, cosLatitude, lat2, lon2);
+    }
+
+    /// Compute the distance from one location to many locations.
+    ///
+    /// @param from      A LatLong encoded as a primitive long
+    /// @param locations LatLongs encoded as primitive longs
+    /// @param out       Receives distanceInNM(from, locations[i]) at out[i]
+    public static void distancesInNM(long from, long[] locations, double[] out) {
+        checkArgument(out.length >= locations.length, "The output array is too small");
+        double lat1 = latitudeBits(from) * RADIANS_PER_UNIT;
+        double lon1 = longitudeBits(from) * RADIANS_PER_UNIT;
+        double cosLat1 = cos(lat1);
+        if (VECTORIZED) {
+            VectorizedNavigation.distancesInNM(lat1, lon1, cosLat1, locations, out);
+        }
+        for (int i = vectorized(locations.length); i < locations.length; i++) {
+            double lat2 = latitudeBits(locations[i]) * RADIANS_PER_UNIT;
+            double lon2 = longitudeBits(locations[i]) * RADIANS_PER_UNIT;
+            out[i] = haversineDistance(lat1, lon1, cosLat1, lat2, lon2);
+        }
+    }
+
+    /// Compute the distance from one location to many locations.
+    ///
+    /// @param latitude  An int encoded latitude (degrees * 10^7)
+    /// @param longitude An int encoded longitude (degrees * 10^7)
+    /// @param latitudes  Int encoded latitudes
+    /// @param longitudes Int encoded longitudes (must have the same length as latitudes)
+    /// @param out       Receives the distance to (latitudes[i], longitudes[i]) at out[i]
+    public static void distancesInNM(int latitude, int longitude, int[] latitudes, int[] longitudes, double[] out) {
+        checkArgument(latitudes.length == longitudes.length, "Must have the same number of latitudes and longitudes");
+        checkArgument(out.length >= latitudes.length, "The output array is too small");
+        double lat1 = latitude * RADIANS_PER_UNIT;
+        double lon1 = longitude * RADIANS_PER_UNIT;
+        double cosLat1 = cos(lat1);
+        if (VECTORIZED) {
+            VectorizedNavigation.distancesInNM(lat1, lon1, cosLat1, latitudes, longitudes, out);
+        }
+        for (int i = vectorized(latitudes.length); i < latitudes.length; i++) {
+            double lat2 = latitudes[i] * RADIANS_PER_UNIT;
+            double lon2 = longitudes[i] * RADIANS_PER_UNIT;
+            out[i] = haversineDistance(lat1, lon1, cosLat1, lat2, lon2);
+        }
+    }
+
+    /// Compute the distance between aligned pairs of locations.
+    ///
+    /// @param out Receives distanceInNM(locations1[i], locations2[i]) at out[i]
+    public static void distancesInNM(long[] locations1, long[] locations2, double[] out) {
+        checkArgument(locations1.length == locations2.length, "Both sets of locations must have the same length");
+        checkArgument(out.length >= locations1.length, "The output array is too small");
+        if (VECTORIZED) {
+            VectorizedNavigation.distancesInNM(locations1, locations2, out);
+        }
+        for (int i = vectorized(locations1.length); i < locations1.length; i++) {
+            out[i] = distanceInNM(locations1[i], locations2[i]);
+        }
+    }
+
+    /// @return The sum of distanceInNM(locations1[i], locations2[i]) for i in [0, n)
+    public static double sumOfDistancesInNM(long[] locations1, long[] locations2, int n) {
+        checkArgument(n >= 0);
+        checkArgument(locations1.length >= n && locations2.length >= n, "Both arrays must have at least n locations");
+        double sum = VECTORIZED ? VectorizedNavigation.sumOfDistancesInNM(locations1, locations2, n) : 0;
+        for (int i = vectorized(n); i < n; i++) {
+            sum += distanceInNM(locations1[i], locations2[i]);
+        }
+        return sum;
+    }
+
+    /// @param from A LatLong encoded as a primitive long
+    /// @param to   A LatLong encoded as a primitive long
+    ///
+    /// @return The course from one location to another location in degrees
+    public static double courseInDegrees(long from, long to) {
+        double lat1 = latitudeBits(from) * RADIANS_PER_UNIT;
+        double lon1 = longitudeBits(from) * RADIANS_PER_UNIT;
+        double lat2 = latitudeBits(to) * RADIANS_PER_UNIT;
+        double lon2 = longitudeBits(to) * RADIANS_PER_UNIT;
+        return course(lon1, sin(lat1), cos(lat1), lat2, lon2);
+    }
+
+    /// Compute the course from one location to many locations.
+    ///
+    /// @param from      A LatLong encoded as a primitive long
+    /// @param locations LatLongs encoded as primitive longs
+    /// @param out       Receives courseInDegrees(from, locations[i]) at out[i]
+    public static void coursesInDegrees(long from, long[] locations, double[] out) {
+        checkArgument(out.length >= locations.length, "The output array is too small");
+        double lat1 = latitudeBits(from) * RADIANS_PER_UNIT;
+        double lon1 = longitudeBits(from) * RADIANS_PER_UNIT;
+        double sinLat1 = sin(lat1);
+        double cosLat1 = cos(lat1);
+        if (VECTORIZED) {
+            VectorizedNavigation.coursesInDegrees(lon1, sinLat1, cosLat1, locations, out);
+        }
+        for (int i = vectorized(locations.length); i < locations.length; i++) {
+            double lat2 = latitudeBits(locations[i]) * RADIANS_PER_UNIT;
+            double lon2 = longitudeBits(locations[i]) * RADIANS_PER_UNIT;
+            out[i] = course(lon1, sinLat1, cosLat1, lat2, lon2);
+        }
+    }
+
+    /// Compute the course from one location to many locations.
+    ///
+    /// @param latitude   An int encoded latitude (degrees * 10^7)
+    /// @param longitude  An int encoded longitude (degrees * 10^7)
+    /// @param latitudes  Int encoded latitudes
+    /// @param longitudes Int encoded longitudes (must have the same length as latitudes)
+    /// @param out        Receives the course to (latitudes[i], longitudes[i]) at out[i]
+    public static void coursesInDegrees(int latitude, int longitude, int[] latitudes, int[] longitudes, double[] out) {
+        checkArgument(latitudes.length == longitudes.length, "Must have the same number of latitudes and longitudes");
+        checkArgument(out.length >= latitudes.length, "The output array is too small");
+        double lat1 = latitude * RADIANS_PER_UNIT;
+        double lon1 = longitude * RADIANS_PER_UNIT;
+        double sinLat1 = sin(lat1);
+        double cosLat1 = cos(lat1);
+        if (VECTORIZED) {
+            VectorizedNavigation.coursesInDegrees(lon1, sinLat1, cosLat1, latitudes, longitudes, out);
+        }
+        for (int i = vectorized(latitudes.length); i < latitudes.length; i++) {
+            double lat2 = latitudes[i] * RADIANS_PER_UNIT;
+            double lon2 = longitudes[i] * RADIANS_PER_UNIT;
+            out[i] = course(lon1, sinLat1, cosLat1, lat2, lon2);
+        }
+    }
+
+    /// @return The int encoded latitude stored in the upper 32 bits of a packed LatLong.
+    static int latitudeBits(long location) {
+        return (int) (location >> 32);
+    }
+
+    /// @return The int encoded longitude stored in the lower 32 bits of a packed LatLong.
+    static int longitudeBits(long location) {
+        return (int) location;
+    }
+
+    /// The haversine formula used by Navigation.distanceInNM (the cosine of the first latitude is
+    /// provided so it can be computed once per sweep).
+    private static double haversineDistance(double lat1, double lon1, double cosLat1, double lat2, double lon2) {
+        double h = haversine(lat2 - lat1) + cosLat1 * cos(lat2) * haversine(lon2 - lon1);
+        return EARTH_RADIUS_NM * 2.0 * asin(sqrt(Math.min(h, 1.0)));
+    }
+
+    private static double haversine(double x) {
+        return (1.0 - cos(x)) / 2.0;
+    }
+
+    /// The course formula used by Navigation.courseInDegrees (the sine and cosine of the first
+    /// latitude are provided so they can be computed once per sweep).
+    private static double course(double lon1, double sinLat1, double cosLat1, double lat2, double lon2) {
+        double cosLat2 = cos(lat2);
+        double y = sin(lon1 - lon2) * cosLat2;
+        double x = (cosLat1 * sin(lat2)) - (sinLat1 * cosLat2 * cos(lon2 - lon1));
+        double crs = (2.0 * PI) - Navigation.mod(atan2(y, x), (2.0 * PI));
+        return toDegrees(crs);
+    }
+}
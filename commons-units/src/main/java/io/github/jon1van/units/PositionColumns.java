@@ -0,0 +1,313 @@
+package io.github.jon1van.units;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+import static io.github.jon1van.units.LatLong128.checkLatitude;
+import static io.github.jon1van.units.LatLong128.checkLongitude;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/// PositionColumns stores a time-sorted sequence of Positions (e.g. one object's track) as a
+/// "structure of arrays" rather than as a List of Position objects.
+///
+/// Each dimension is kept in its own primitive array: a long[] of epoch milliseconds, two int[] of
+/// latitudes and longitudes (encoded like LatLong, i.e. degrees * 10^7), a float[] of altitudes (in
+/// feet), and a BitSet that records which altitudes are valid. This costs 20 bytes per Position
+/// (instead of a 48-byte Position object plus a reference), and loops that only need one or two
+/// dimensions (e.g. times, or latitudes and longitudes) read contiguous memory.
+///
+/// Like LatLong, storing a Position here is a lossy compression. Latitudes and longitudes keep 7
+/// decimal places (about 11 millimeters) and altitudes keep float precision (about 0.004 feet at
+/// 40,000 feet).
+///
+/// PositionColumns are built with a Builder, which only permits appending Positions in time order.
+/// Once built, PositionColumns are immutable. The asList() view creates Position objects on demand
+/// for code that requires a List<Position>.
+public final class PositionColumns implements Iterable<Position> {
+
+    private final long[] epochMs;
+
+    private final int[] latitudes;
+
+    private final int[] longitudes;
+
+    private final float[] altitudesInFeet;
+
+    private final BitSet hasAltitude;
+
+    private PositionColumns(long[] epochMs, int[] latitudes, int[] longitudes, float[] altitudes, BitSet hasAlt) {
+        this.epochMs = epochMs;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.altitudesInFeet = altitudes;
+        this.hasAltitude = hasAlt;
+    }
+
+    /// @return PositionColumns that contain these time-sorted Positions.
+    public static PositionColumns from(Collection<? extends Position> positions) {
+        requireNonNull(positions);
+        Builder builder = new Builder(positions.size());
+        for (Position p : positions) {
+            builder.add(p);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public int size() {
+        return epochMs.length;
+    }
+
+    public boolean isEmpty() {
+        return epochMs.length == 0;
+    }
+
+    /// @return The epoch time (in milliseconds) of the i-th Position.
+    public long epochMsAt(int i) {
+        return epochMs[i];
+    }
+
+    public Instant timeAt(int i) {
+        return Instant.ofEpochMilli(epochMs[i]);
+    }
+
+    /// @return The latitude of the i-th Position (in degrees).
+    public double latitudeAt(int i) {
+        return LatLong.decodeInt(latitudes[i]);
+    }
+
+    /// @return The longitude of the i-th Position (in degrees).
+    public double longitudeAt(int i) {
+        return LatLong.decodeInt(longitudes[i]);
+    }
+
+    /// @return The int encoded latitude (degrees * 10^7) of the i-th Position (see PackedNavigation).
+    public int latitudeBitsAt(int i) {
+        return latitudes[i];
+    }
+
+    /// @return The int encoded longitude (degrees * 10^7) of the i-th Position (see PackedNavigation).
+    public int longitudeBitsAt(int i) {
+        return longitudes[i];
+    }
+
+    public LatLong latLongAt(int i) {
+        return LatLong.fromPrimitiveLong(LatLong.pack(latitudes[i], longitudes[i]));
+    }
+
+    public boolean hasAltitudeAt(int i) {
+        checkElementIndex(i, size());
+        return hasAltitude.get(i);
+    }
+
+    /// @return The altitude of the i-th Position (in feet).
+    /// @throws IllegalStateException if the i-th Position does not have an altitude
+    public double altitudeInFeetAt(int i) {
+        checkState(hasAltitudeAt(i), "Position %s does not have an altitude", i);
+        return altitudesInFeet[i];
+    }
+
+    /// @return The i-th Position (a new object is created on every call).
+    public Position get(int i) {
+        Double altitude = hasAltitudeAt(i) ? (double) altitudesInFeet[i] : null;
+        return new Position(epochMs[i], latitudeAt(i), longitudeAt(i), altitude);
+    }
+
+    /// @return A TimeWindow from the first Position's time to the last Position's time.
+    public TimeWindow timeWindow() {
+        checkState(!isEmpty(), "Cannot create a TimeWindow when there are no Positions");
+        return TimeWindow.of(timeAt(0), timeAt(size() - 1));
+    }
+
+    /// Find a Position by time (using binary search). When several Positions share the search time
+    /// the index of the first one is returned.
+    ///
+    /// @return The index of a Position whose time is epochMs. Otherwise, (-(insertion point) - 1),
+    ///     just like Arrays.binarySearch.
+    public int indexOf(long epochMs) {
+        int index = firstIndexAtOrAfter(epochMs);
+        return (index < size() && this.epochMs[index] == epochMs) ? index : -index - 1;
+    }
+
+    /// @return A List view of the Positions inside this TimeWindow (found in O(log n) time).
+    public List<Position> positionsWithin(TimeWindow window) {
+        int from = firstIndexAtOrAfter(window.start().toEpochMilli());
+        int to = firstIndexAtOrAfter(window.end().toEpochMilli() + 1);
+        return asList().subList(from, to);
+    }
+
+    /// Measure the distance from one location to every Position (without creating any Positions).
+    ///
+    /// @param location A location
+    /// @param out      Receives the distance in Nautical Miles to the i-th Position at out[i]
+    public void distancesInNM(HasLatLong location, double[] out) {
+        LatLong loc = location.latLong();
+        PackedNavigation.distancesInNM(
+                PackedNavigation.latitudeBits(loc.toPrimitiveLong()),
+                PackedNavigation.longitudeBits(loc.toPrimitiveLong()),
+                latitudes,
+                longitudes,
+                out);
+    }
+
+    /// @return The locations of these Positions as a LatLongPath.
+    public LatLongPath toLatLongPath() {
+        long[] packed = new long[size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = LatLong.pack(latitudes[i], longitudes[i]);
+        }
+        return new LatLongPath(packed);
+    }
+
+    /// @return A read-only List view that creates a Position whenever an element is accessed.
+    public List<Position> asList() {
+        return new PositionList();
+    }
+
+    @Override
+    public Iterator<Position> iterator() {
+        return asList().iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PositionColumns that)) {
+            return false;
+        }
+        return Arrays.equals(epochMs, that.epochMs)
+                && Arrays.equals(latitudes, that.latitudes)
+                && Arrays.equals(longitudes, that.longitudes)
+                && Arrays.equals(altitudesInFeet, that.altitudesInFeet)
+                && hasAltitude.equals(that.hasAltitude);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Arrays.hashCode(epochMs);
+        hash = 31 * hash + Arrays.hashCode(latitudes);
+        hash = 31 * hash + Arrays.hashCode(longitudes);
+        return 31 * hash + Arrays.hashCode(altitudesInFeet);
+    }
+
+    /// @return The smallest index whose time is at or after epochMs (size() if there is none).
+    private int firstIndexAtOrAfter(long epochMs) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.epochMs[mid] < epochMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private class PositionList extends AbstractList<Position> implements RandomAccess {
+
+        @Override
+        public Position get(int index) {
+            checkElementIndex(index, size());
+            return PositionColumns.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return PositionColumns.this.size();
+        }
+    }
+
+    /// A Builder appends Positions (in time order) to growing primitive arrays.
+    public static class Builder {
+
+        private long[] epochMs;
+        private int[] latitudes;
+        private int[] longitudes;
+        private float[] altitudesInFeet;
+        private final BitSet hasAltitude;
+        private int size;
+
+        private Builder(int initialCapacity) {
+            int capacity = Math.max(initialCapacity, 1);
+            this.epochMs = new long[capacity];
+            this.latitudes = new int[capacity];
+            this.longitudes = new int[capacity];
+            this.altitudesInFeet = new float[capacity];
+            this.hasAltitude = new BitSet();
+        }
+
+        public Builder add(Position position) {
+            requireNonNull(position);
+            return position.hasAltitude()
+                    ? add(
+                            position.timeAsEpochMs(),
+                            position.latitude(),
+                            position.longitude(),
+                            position.altitude().inFeet())
+                    : add(position.timeAsEpochMs(), position.latitude(), position.longitude());
+        }
+
+        /// Append a Position without an altitude.
+        public Builder add(long epochMs, double latitude, double longitude) {
+            append(epochMs, latitude, longitude);
+            size++;
+            return this;
+        }
+
+        /// Append a Position with an altitude.
+        public Builder add(long epochMs, double latitude, double longitude, double altitudeInFeet) {
+            append(epochMs, latitude, longitude);
+            altitudesInFeet[size] = (float) altitudeInFeet;
+            hasAltitude.set(size);
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /// @return PositionColumns containing every Position added so far (this Builder can keep
+        ///     appending afterward without affecting the result).
+        public PositionColumns build() {
+            return new PositionColumns(
+                    Arrays.copyOf(epochMs, size),
+                    Arrays.copyOf(latitudes, size),
+                    Arrays.copyOf(longitudes, size),
+                    Arrays.copyOf(altitudesInFeet, size),
+                    hasAltitude.get(0, size));
+        }
+
+        private void append(long time, double latitude, double longitude) {
+            checkLatitude(latitude);
+            checkLongitude(longitude);
+            checkArgument(size == 0 || epochMs[size - 1] <= time, "Positions must be added in time order");
+            if (size == epochMs.length) {
+                int newCapacity = size + (size >> 1) + 1;
+                epochMs = Arrays.copyOf(epochMs, newCapacity);
+                latitudes = Arrays.copyOf(latitudes, newCapacity);
+                longitudes = Arrays.copyOf(longitudes, newCapacity);
+                altitudesInFeet = Arrays.copyOf(altitudesInFeet, newCapacity);
+            }
+            epochMs[size] = time;
+            latitudes[size] = LatLong.encodeAsInt(latitude);
+            longitudes[size] = LatLong.encodeAsInt(longitude);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.jon1van.units;
+
+import static jdk.incubator.vector.VectorOperators.ADD;
+import static jdk.incubator.vector.VectorOperators.ASHR;
+import static jdk.incubator.vector.VectorOperators.ASIN;
+import static jdk.incubator.vector.VectorOperators.ATAN2;
+import static jdk.incubator.vector.VectorOperators.COS;
+import static jdk.incubator.vector.VectorOperators.I2D;
+import static jdk.incubator.vector.VectorOperators.L2D;
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LT;
+import static jdk.incubator.vector.VectorOperators.SIN;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/// The SIMD versions of the PackedNavigation batch kernels. They are built on the JDK Vector API
+/// (the jdk.incubator.vector module) and evaluate the haversine and course formulas for one
+/// vector's worth of locations at a time (e.g. 4 locations per instruction with AVX2).
+///
+/// Every kernel processes the locations in [0, loopBound(n)) and leaves the remaining locations
+/// to the scalar loop in PackedNavigation. The lanewise sin, cos, asin, and atan2 operations are
+/// not bit-for-bit identical to FastMath, results differ from the scalar kernels by rounding error
+/// only.
+///
+/// This class must only be loaded after PackedNavigation has confirmed the jdk.incubator.vector
+/// module is present (see PackedNavigation.VECTORIZED). It is package private because it is an
+/// implementation detail of PackedNavigation.
+final class VectorizedNavigation {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /// Longs have the same lane count as DOUBLES (so one packed LatLong fills one double lane).
+    private static final VectorSpecies<Long> LONGS = DOUBLES.withLanes(long.class);
+
+    /// Ints have half the bit size of DOUBLES (so one int encoded latitude fills one double lane).
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    private static final double RADIANS_PER_UNIT = Math.PI / 180.0 / 10_000_000.0;
+
+    private static final double TWO_EARTH_RADII_NM = 2.0 * Navigation.EARTH_RADIUS_NM;
+
+    private static final double TWO_PI = 2.0 * Math.PI;
+
+    private static final double DEGREES_PER_RADIAN = 180.0 / Math.PI;
+
+    private VectorizedNavigation() {}
+
+    /// @return True when the preferred vector shape holds at least 2 doubles (i.e. SIMD helps).
+    static boolean isUseful() {
+        return DOUBLES.length() >= 2;
+    }
+
+    /// @return The number of leading locations (out of n) that the vector kernels process.
+    static int loopBound(int n) {
+        return DOUBLES.loopBound(n);
+    }
+
+    static void distancesInNM(double lat1, double lon1, double cosLat1, long[] locations, double[] out) {
+        for (int i = 0; i < loopBound(locations.length); i += DOUBLES.length()) {
+            LongVector packed = LongVector.fromArray(LONGS, locations, i);
+            haversine(lat1, lon1, cosLat1, latitudes(packed), longitudes(packed))
+                    .intoArray(out, i);
+        }
+    }
+
+    static void distancesInNM(
+            double lat1, double lon1, double cosLat1, int[] latitudes, int[] longitudes, double[] out) {
+        for (int i = 0; i < loopBound(latitudes.length); i += DOUBLES.length()) {
+            haversine(lat1, lon1, cosLat1, radians(latitudes, i), radians(longitudes, i))
+                    .intoArray(out, i);
+        }
+    }
+
+    static void distancesInNM(long[] locations1, long[] locations2, double[] out) {
+        for (int i = 0; i < loopBound(locations1.length); i += DOUBLES.length()) {
+            haversine(locations1, locations2, i).intoArray(out, i);
+        }
+    }
+
+    /// @return The sum of the distances between locations1[i] and locations2[i] for i in [0,
+    ///     loopBound(n))
+    static double sumOfDistancesInNM(long[] locations1, long[] locations2, int n) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        for (int i = 0; i < loopBound(n); i += DOUBLES.length()) {
+            sum = sum.add(haversine(locations1, locations2, i));
+        }
+        return sum.reduceLanes(ADD);
+    }
+
+    static void coursesInDegrees(double lon1, double sinLat1, double cosLat1, long[] locations, double[] out) {
+        for (int i = 0; i < loopBound(locations.length); i += DOUBLES.length()) {
+            LongVector packed = LongVector.fromArray(LONGS, locations, i);
+            course(lon1, sinLat1, cosLat1, latitudes(packed), longitudes(packed))
+                    .intoArray(out, i);
+        }
+    }
+
+    static void coursesInDegrees(
+            double lon1, double sinLat1, double cosLat1, int[] latitudes, int[] longitudes, double[] out) {
+        for (int i = 0; i < loopBound(latitudes.length); i += DOUBLES.length()) {
+            course(lon1, sinLat1, cosLat1, radians(latitudes, i), radians(longitudes, i))
+                    .intoArray(out, i);
+        }
+    }
+
+    /// The haversine formula used by PackedNavigation.distanceInNM.
+    private static DoubleVector haversine(
+            double lat1, double lon1, double cosLat1, DoubleVector lat2, DoubleVector lon2) {
+        DoubleVector h =
+                haversine(lat2.sub(lat1)).add(lat2.lanewise(COS).mul(cosLat1).mul(haversine(lon2.sub(lon1))));
+        return h.min(1.0).sqrt().lanewise(ASIN).mul(TWO_EARTH_RADII_NM);
+    }
+
+    /// The haversine formula for aligned pairs of packed locations (starting at index i).
+    private static DoubleVector haversine(long[] locations1, long[] locations2, int i) {
+        LongVector packed1 = LongVector.fromArray(LONGS, locations1, i);
+        LongVector packed2 = LongVector.fromArray(LONGS, locations2, i);
+        DoubleVector lat1 = latitudes(packed1);
+        DoubleVector lat2 = latitudes(packed2);
+        DoubleVector h = haversine(lat2.sub(lat1))
+                .add(lat1.lanewise(COS)
+                        .mul(lat2.lanewise(COS))
+                        .mul(haversine(longitudes(packed2).sub(longitudes(packed1)))));
+        return h.min(1.0).sqrt().lanewise(ASIN).mul(TWO_EARTH_RADII_NM);
+    }
+
+    private static DoubleVector haversine(DoubleVector x) {
+        return x.lanewise(COS).neg().add(1.0).mul(0.5);
+    }
+
+    /// The course formula used by PackedNavigation.courseInDegrees.
+    private static DoubleVector course(
+            double lon1, double sinLat1, double cosLat1, DoubleVector lat2, DoubleVector lon2) {
+        DoubleVector cosLat2 = lat2.lanewise(COS);
+        DoubleVector y = lon2.neg().add(lon1).lanewise(SIN).mul(cosLat2);
+        DoubleVector x = lat2.lanewise(SIN)
+                .mul(cosLat1)
+                .sub(cosLat2.mul(sinLat1).mul(lon2.sub(lon1).lanewise(COS)));
+        DoubleVector angle = y.lanewise(ATAN2, x);
+        // Navigation.mod(angle, 2 PI) for an angle in [-PI, PI]
+        DoubleVector positiveAngle = angle.add(TWO_PI, angle.compare(LT, 0.0));
+        return positiveAngle.neg().add(TWO_PI).mul(DEGREES_PER_RADIAN);
+    }
+
+    /// @return The int encoded latitudes stored in the upper 32 bits of packed LatLongs (in radians).
+    private static DoubleVector latitudes(LongVector packed) {
+        return ((DoubleVector) packed.lanewise(ASHR, 32).convert(L2D, 0)).mul(RADIANS_PER_UNIT);
+    }
+
+    /// @return The int encoded longitudes stored in the lower 32 bits of packed LatLongs (in
+    ///     radians).
+    private static DoubleVector longitudes(LongVector packed) {
+        return ((DoubleVector) packed.lanewise(LSHL, 32).lanewise(ASHR, 32).convert(L2D, 0)).mul(RADIANS_PER_UNIT);
+    }
+
+    /// @return One vector of int encoded values (starting at index i) converted to radians.
+    private static DoubleVector radians(int[] values, int i) {
+        return ((DoubleVector) IntVector.fromArray(INTS, values, i).convertShape(I2D, DOUBLES, 0))
+                .mul(RADIANS_PER_UNIT);
+    }
+}
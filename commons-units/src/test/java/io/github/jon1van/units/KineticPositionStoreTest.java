@@ -0,0 +1,265 @@
+package io.github.jon1van.units;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class KineticPositionStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void offHeapStoreReturnsWhatWasAppended() throws IOException {
+
+        List<KineticPosition> positions = randomTrack(100);
+
+        // tiny chunks so the records span several chunks
+        try (KineticPositionStore store = KineticPositionStore.offHeap(8)) {
+            positions.forEach(store::append);
+
+            assertThat(store.size()).isEqualTo(100L);
+            for (int i = 0; i < positions.size(); i++) {
+                KineticPosition expected = positions.get(i);
+                assertThat(store.get(i)).isEqualTo(expected);
+                assertThat(store.epochMsAt(i)).isEqualTo(expected.timeAsEpochMs());
+                assertThat(store.latitudeAt(i)).isEqualTo(expected.latitude());
+                assertThat(store.longitudeAt(i)).isEqualTo(expected.longitude());
+                assertThat(store.altitudeInFeetAt(i))
+                        .isEqualTo(expected.altitude().inFeet());
+                assertThat(store.courseInDegreesAt(i))
+                        .isEqualTo(expected.course().inDegrees());
+                assertThat(store.speedInKnotsAt(i)).isEqualTo(expected.speed().inKnots());
+            }
+            assertThat(store).containsExactlyElementsOf(positions);
+            assertThrows(IndexOutOfBoundsException.class, () -> store.get(100));
+        }
+    }
+
+    @Test
+    void recordsUseTheToBytesLayout() throws IOException {
+
+        KineticPosition position = randomTrack(1).get(0);
+
+        try (KineticPositionStore store = KineticPositionStore.offHeap()) {
+            store.append(position);
+            MemorySegment record = store.recordAt(0);
+
+            assertThat(record.byteSize()).isEqualTo(KineticPositionStore.RECORD_BYTES);
+            assertThat(record.toArray(ValueLayout.JAVA_BYTE)).isEqualTo(position.toBytes());
+            assertThat(record.isReadOnly()).isTrue();
+        }
+    }
+
+    @Test
+    void positionsMustBeAppendedInTimeOrder() throws IOException {
+
+        KineticPosition seed = randomTrack(1).get(0);
+        KineticPosition later =
+                KineticPosition.builder(seed).butTime(Instant.ofEpochMilli(5L)).build();
+        KineticPosition earlier =
+                KineticPosition.builder(seed).butTime(Instant.ofEpochMilli(4L)).build();
+
+        try (KineticPositionStore store = KineticPositionStore.offHeap()) {
+            store.append(later);
+            assertThrows(IllegalArgumentException.class, () -> store.append(earlier));
+
+            store.append(later); // equal times are allowed
+            assertThat(store.size()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    void timeLookupsUseBinarySearch() throws IOException {
+
+        KineticPosition seed = randomTrack(1).get(0);
+
+        try (KineticPositionStore store = KineticPositionStore.offHeap(2)) {
+            for (long time : new long[] {10L, 20L, 20L, 20L, 30L}) {
+                store.append(KineticPosition.builder(seed)
+                        .butTime(Instant.ofEpochMilli(time))
+                        .build());
+            }
+
+            assertThat(store.indexOf(20L)).isEqualTo(1L);
+            assertThat(store.indexOf(30L)).isEqualTo(4L);
+            assertThat(store.indexOf(5L)).isEqualTo(-1L);
+            assertThat(store.indexOf(25L)).isEqualTo(-5L);
+            assertThat(store.indexOf(31L)).isEqualTo(-6L);
+        }
+    }
+
+    @Test
+    void mappedFileCanBeReopenedAndExtended() throws IOException {
+
+        Path file = tempDir.resolve("positions.bin");
+        List<KineticPosition> positions = randomTrack(50);
+
+        try (KineticPositionStore store = KineticPositionStore.mappedFile(file, 16)) {
+            positions.subList(0, 20).forEach(store::append);
+        }
+        assertThat(Files.size(file))
+                .isEqualTo(KineticPositionStore.HEADER_BYTES + 20L * KineticPositionStore.RECORD_BYTES);
+
+        try (KineticPositionStore store = KineticPositionStore.mappedFile(file, 16)) {
+            assertThat(store.size()).isEqualTo(20L);
+            positions.subList(20, 50).forEach(store::append);
+            store.flush();
+            assertThat(store).containsExactlyElementsOf(positions);
+        }
+
+        // the file is a header followed by a plain concatenation of toBytes() records
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertThat(bytes.capacity())
+                .isEqualTo(KineticPositionStore.HEADER_BYTES + 50 * KineticPositionStore.RECORD_BYTES);
+        assertThat(bytes.getLong(0)).isEqualTo(KineticPositionStore.MAGIC);
+        assertThat(bytes.getLong(8)).isEqualTo(50L);
+        byte[] last = new byte[KineticPositionStore.RECORD_BYTES];
+        bytes.get(KineticPositionStore.HEADER_BYTES + 49 * KineticPositionStore.RECORD_BYTES, last);
+        assertThat(KineticPosition.fromBytes(last)).isEqualTo(positions.get(49));
+    }
+
+    @Test
+    void anUnclosedStoreReopensWithItsCommittedRecords() throws IOException {
+
+        // a record whose 72 bytes are all zero is still a real record
+        KineticPosition zeros = KineticPosition.builder()
+                .time(Instant.EPOCH)
+                .latLong(0.0, 0.0)
+                .altitude(Distance.ofFeet(0))
+                .climbRate(Speed.ofFeetPerMinute(0))
+                .course(Course.ofDegrees(0))
+                .turnRate(0)
+                .speed(Speed.ofKnots(0))
+                .acceleration(Acceleration.of(Speed.ofKnots(0)))
+                .build();
+        assertThat(zeros.toBytes()).containsOnly((byte) 0);
+
+        Path file = tempDir.resolve("positions.bin");
+        Path crashed = tempDir.resolve("crashed.bin");
+        try (KineticPositionStore store = KineticPositionStore.mappedFile(file, 16)) {
+            store.append(zeros);
+            store.append(zeros);
+            store.flush();
+            // a copy of an open store looks like the file of a crashed JVM (it ends with the
+            // zero-filled tail of the last chunk)
+            Files.copy(file, crashed);
+        }
+        assertThat(Files.size(crashed))
+                .isEqualTo(KineticPositionStore.HEADER_BYTES + 16L * KineticPositionStore.RECORD_BYTES);
+
+        List<KineticPosition> positions = randomTrack(10);
+        try (KineticPositionStore store = KineticPositionStore.mappedFile(crashed, 16)) {
+            assertThat(store.size()).isEqualTo(2L);
+            positions.forEach(store::append);
+            assertThat(store.get(1)).isEqualTo(zeros);
+            assertThat(store.get(11)).isEqualTo(positions.get(9));
+        }
+        assertThat(Files.size(crashed))
+                .isEqualTo(KineticPositionStore.HEADER_BYTES + 12L * KineticPositionStore.RECORD_BYTES);
+    }
+
+    @Test
+    void readersCanRunWhileTheWriterAppends() throws Exception {
+
+        try (KineticPositionStore store = KineticPositionStore.offHeap(8)) {
+            appendWhileReading(store, randomTrack(5_000));
+        }
+    }
+
+    @Test
+    void readersCanRunWhileTheWriterAppendsToAFile() throws Exception {
+
+        try (KineticPositionStore store = KineticPositionStore.mappedFile(tempDir.resolve("shared.bin"), 8)) {
+            appendWhileReading(store, randomTrack(5_000));
+        }
+    }
+
+    private static void appendWhileReading(KineticPositionStore store, List<KineticPosition> positions)
+            throws InterruptedException {
+
+        Thread reader = new Thread(() -> {
+            while (store.size() < positions.size()) {
+                long n = store.size();
+                if (n > 0) {
+                    // every record below size() is fully written
+                    assertThat(store.epochMsAt(n - 1))
+                            .isEqualTo(positions.get((int) n - 1).timeAsEpochMs());
+                }
+            }
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        reader.setUncaughtExceptionHandler((thread, e) -> failure.set(e));
+        reader.start();
+        positions.forEach(store::append);
+        reader.join(10_000);
+
+        assertThat(failure.get()).isNull();
+        assertThat(store).containsExactlyElementsOf(positions);
+    }
+
+    @Test
+    void filesThatWereNotWrittenByAStoreAreRejected() throws IOException {
+
+        Path noHeader = tempDir.resolve("noHeader.bin");
+        Files.write(noHeader, new byte[KineticPositionStore.RECORD_BYTES]);
+        assertThrows(IllegalArgumentException.class, () -> KineticPositionStore.mappedFile(noHeader));
+
+        Path tooShort = tempDir.resolve("tooShort.bin");
+        Files.write(tooShort, new byte[5]);
+        assertThrows(IllegalArgumentException.class, () -> KineticPositionStore.mappedFile(tooShort));
+
+        // the header counts 3 records but the file only holds 2
+        Path truncated = tempDir.resolve("truncated.bin");
+        ByteBuffer bytes =
+                ByteBuffer.allocate(KineticPositionStore.HEADER_BYTES + 2 * KineticPositionStore.RECORD_BYTES);
+        bytes.putLong(KineticPositionStore.MAGIC).putLong(3L);
+        Files.write(truncated, bytes.array());
+        assertThrows(IllegalArgumentException.class, () -> KineticPositionStore.mappedFile(truncated));
+    }
+
+    @Test
+    void closedStoresCannotBeRead() throws IOException {
+
+        KineticPositionStore store = KineticPositionStore.offHeap();
+        store.append(randomTrack(1).get(0));
+        store.close();
+        store.close(); // closing twice is harmless
+
+        assertThrows(IllegalStateException.class, () -> store.epochMsAt(0));
+    }
+
+    private static List<KineticPosition> randomTrack(int n) {
+        Random rng = new Random(24L);
+        List<KineticPosition> positions = new ArrayList<>(n);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            time += rng.nextInt(5_000);
+            positions.add(KineticPosition.builder()
+                    .time(Instant.ofEpochMilli(time))
+                    .latLong(rng.nextDouble() * 180 - 90, rng.nextDouble() * 360 - 180)
+                    .altitude(Distance.ofFeet(rng.nextDouble() * 40_000))
+                    .climbRate(Speed.ofFeetPerMinute(rng.nextDouble() * 2_000 - 1_000))
+                    .course(Course.ofDegrees(rng.nextDouble() * 360))
+                    .turnRate(rng.nextDouble() * 6 - 3)
+                    .speed(Speed.ofKnots(rng.nextDouble() * 500))
+                    .acceleration(Acceleration.of(Speed.ofKnots(rng.nextDouble() * 4 - 2)))
+                    .build());
+        }
+        return positions;
+    }
+}
@@ -203,5 +203,49 @@ class LatLongPathTest {
         Distance sum = a.distanceTo(b).plus(b.distanceTo(c));
 
         assertThat(fullPath.pathDistance()).isEqualTo(sum);
+        assertThat(LatLongPath.from(a).pathDistance()).isEqualTo(Distance.ZERO);
+        assertThat(LatLongPath.from().pathDistance()).isEqualTo(Distance.ZERO);
+    }
+
+    @Test
+    void distanceAlongMatchesWalkingThePath() {
+
+        List<LatLong> locations = randomLatLongs(200);
+        LatLongPath path = LatLongPath.from(locations);
+
+        double walked = 0;
+        for (int j = 1; j < locations.size(); j++) {
+            walked += locations.get(j - 1).distanceInNmTo(locations.get(j));
+            assertThat(path.distanceAlong(0, j).inNauticalMiles()).isEqualTo(walked);
+        }
+        assertThat(path.pathDistance().inNauticalMiles()).isEqualTo(walked);
+
+        double middle = 0;
+        for (int j = 51; j <= 120; j++) {
+            middle += locations.get(j - 1).distanceInNmTo(locations.get(j));
+        }
+        assertThat(path.distanceAlong(50, 120).inNauticalMiles()).isCloseTo(middle, within(1E-6));
+        assertThat(path.distanceAlong(7, 7)).isEqualTo(Distance.ZERO);
+
+        assertThrows(IllegalArgumentException.class, () -> path.distanceAlong(8, 7));
+        assertThrows(IndexOutOfBoundsException.class, () -> path.distanceAlong(0, 200));
+    }
+
+    @Test
+    void firstIndexReachingUsesCumulativeDistance() {
+
+        // legs of 60 NM, 0 NM, and 60 NM
+        LatLong a = LatLong.of(0.0, 0.0);
+        LatLong b = LatLong.of(1.0, 0.0);
+        LatLong c = LatLong.of(2.0, 0.0);
+        LatLongPath path = LatLongPath.from(a, b, b, c);
+        double leg = a.distanceInNmTo(b);
+
+        assertThat(path.firstIndexReaching(Distance.ZERO)).isEqualTo(0);
+        assertThat(path.firstIndexReaching(Distance.ofNauticalMiles(1.0))).isEqualTo(1);
+        assertThat(path.firstIndexReaching(Distance.ofNauticalMiles(leg))).isEqualTo(1);
+        assertThat(path.firstIndexReaching(Distance.ofNauticalMiles(leg + 1.0))).isEqualTo(3);
+        assertThat(path.firstIndexReaching(path.pathDistance())).isEqualTo(3);
+        assertThat(path.firstIndexReaching(Distance.ofNauticalMiles(1_000))).isEqualTo(4);
     }
 }
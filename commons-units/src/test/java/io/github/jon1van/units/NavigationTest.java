@@ -5,7 +5,13 @@ import static io.github.jon1van.units.Navigation.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.within;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 public class NavigationTest {
@@ -176,6 +182,122 @@ public class NavigationTest {
         assertThat(courseInDegrees(a, b)).isEqualTo(45.0, within(0.005));
     }
 
+    @Test
+    public void batchDistancesAndCoursesMatchSingleComputations() {
+
+        Random rng = new Random(17L);
+        int n = 1_000;
+        double[] lats1 = new double[n];
+        double[] lons1 = new double[n];
+        double[] lats2 = new double[n];
+        double[] lons2 = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats1[i] = rng.nextDouble() * 180 - 90;
+            lons1[i] = rng.nextDouble() * 360 - 180;
+            lats2[i] = rng.nextDouble() * 180 - 90;
+            lons2[i] = rng.nextDouble() * 360 - 180;
+        }
+
+        double[] oneToMany = new double[n];
+        double[] pairwise = new double[n];
+        distancesInNM(12.5, -45.0, lats2, lons2, oneToMany);
+        distancesInNM(lats1, lons1, lats2, lons2, pairwise);
+        for (int i = 0; i < n; i++) {
+            assertThat(oneToMany[i]).isEqualTo(primitiveDistanceInNM(12.5, -45.0, lats2[i], lons2[i]));
+            assertThat(pairwise[i]).isEqualTo(primitiveDistanceInNM(lats1[i], lons1[i], lats2[i], lons2[i]));
+        }
+
+        coursesInDegrees(12.5, -45.0, lats2, lons2, oneToMany);
+        coursesInDegrees(lats1, lons1, lats2, lons2, pairwise);
+        for (int i = 0; i < n; i++) {
+            assertThat(oneToMany[i]).isEqualTo(primitiveCourseInDegrees(12.5, -45.0, lats2[i], lons2[i]));
+            assertThat(pairwise[i]).isEqualTo(primitiveCourseInDegrees(lats1[i], lons1[i], lats2[i], lons2[i]));
+        }
+    }
+
+    @Test
+    public void primitiveMethodsMatchBoxedMethods() {
+
+        Double lat1 = 12.5;
+        Double lon1 = -45.0;
+        Double lat2 = -33.9;
+        Double lon2 = 151.2;
+
+        assertThat(primitiveDistanceInNM(lat1, lon1, lat2, lon2)).isEqualTo(distanceInNM(lat1, lon1, lat2, lon2));
+        assertThat(primitiveCourseInDegrees(lat1, lon1, lat2, lon2)).isEqualTo(courseInDegrees(lat1, lon1, lat2, lon2));
+        assertThat(courseBtw(lat1, lon1, lat2, lon2).inDegrees())
+                .isEqualTo(primitiveCourseInDegrees(lat1, lon1, lat2, lon2));
+
+        LatLong a = LatLong.of(lat1, lon1);
+        LatLong b = LatLong.of(lat2, lon2);
+        assertThat(distanceInNM(a, b)).isEqualTo(a.distanceInNmTo(b));
+        assertThat(courseInDegrees(a, b)).isEqualTo(a.courseInDegrees(b));
+    }
+
+    @Test
+    public void batchMethodsRejectMismatchedArrays() {
+
+        double[] two = new double[2];
+        double[] three = new double[3];
+
+        assertThrows(IllegalArgumentException.class, () -> distancesInNM(0.0, 0.0, two, three, three));
+        assertThrows(IllegalArgumentException.class, () -> distancesInNM(0.0, 0.0, three, three, two));
+        assertThrows(IllegalArgumentException.class, () -> distancesInNM(two, two, three, three, three));
+        assertThrows(IllegalArgumentException.class, () -> coursesInDegrees(0.0, 0.0, three, two, three));
+        assertThrows(IllegalArgumentException.class, () -> coursesInDegrees(three, three, two, two, three));
+    }
+
+    @Test
+    public void hasLatLongDefaultsAgreeWithDistanceObjects() {
+
+        LatLong a = LatLong.of(0.0, 0.0);
+        LatLong b = LatLong.of(10.0, 10.0);
+
+        assertThat(a.distanceInNmTo(b)).isEqualTo(a.distanceTo(b).inNauticalMiles());
+        assertThat(a.isWithin(a.distanceTo(b), b.latLong128())).isTrue();
+        assertThat(a.isWithin(a.distanceTo(b).times(0.999), b.latLong128())).isFalse();
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    public void batchDistancesAvoidBoxingAndAllocation() {
+
+        int n = 10_000_000;
+        Random rng = new Random(18L);
+        List<LatLong> points = new ArrayList<>(n);
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        for (int i = 0; i < n; i++) {
+            LatLong point = LatLong.of(rng.nextDouble() * 180 - 90, rng.nextDouble() * 360 - 180);
+            points.add(point);
+            lats[i] = point.latitude();
+            lons[i] = point.longitude();
+        }
+        LatLong query = LatLong.of(38.9, -77.0);
+        double[] out = new double[n];
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            double sum1 = 0;
+            for (LatLong point : points) {
+                sum1 += query.distanceTo(point).inNauticalMiles();
+            }
+            long objectTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            distancesInNM(query.latitude(), query.longitude(), lats, lons, out);
+            double sum2 = 0;
+            for (double distance : out) {
+                sum2 += distance;
+            }
+            long batchTime = System.nanoTime() - start;
+
+            assertThat(sum2).isCloseTo(sum1, within(1.0));
+            System.out.println("distanceTo(LatLong): " + objectTime / 1_000_000 + "ms");
+            System.out.println("distancesInNM:       " + batchTime / 1_000_000 + "ms");
+        }
+    }
+
     @Test
     public void testAngleDifference_Double() {
         double TOLERANCE = 0.0001;
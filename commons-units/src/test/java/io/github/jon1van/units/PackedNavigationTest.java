@@ -0,0 +1,245 @@
+package io.github.jon1van.units;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+class PackedNavigationTest {
+
+    @Test
+    void distancesMatchNavigation() {
+
+        List<LatLong> locations = LatLongPathTest.randomLatLongs(5_000);
+        LatLong query = LatLong.of(38.9, -77.0);
+        long[] packed = pack(locations);
+
+        double[] out = new double[packed.length];
+        PackedNavigation.distancesInNM(query.toPrimitiveLong(), packed, out);
+
+        for (int i = 0; i < packed.length; i++) {
+            LatLong loc = locations.get(i);
+            double expected =
+                    Navigation.distanceInNM(query.latitude(), query.longitude(), loc.latitude(), loc.longitude());
+
+            assertThat(out[i]).isCloseTo(expected, within(1E-9));
+            assertThat(PackedNavigation.distanceInNM(query.toPrimitiveLong(), packed[i]))
+                    .isCloseTo(out[i], within(1E-9));
+        }
+    }
+
+    @Test
+    void distancesFromRadiansMatchNavigation() {
+
+        List<LatLong> locations = LatLongPathTest.randomLatLongs(5_000);
+        double latitude = Math.toRadians(38.9);
+        double longitude = Math.toRadians(-77.0);
+        double cosLatitude = Math.cos(latitude);
+        long[] packed = pack(locations);
+
+        for (int i = 0; i < packed.length; i++) {
+            LatLong loc = locations.get(i);
+            double expected = Navigation.primitiveDistanceInNM(38.9, -77.0, loc.latitude(), loc.longitude());
+
+            assertThat(PackedNavigation.distanceInNM(latitude, longitude, cosLatitude, packed[i]))
+                    .isCloseTo(expected, within(1E-9));
+        }
+    }
+
+    @Test
+    void coursesMatchNavigation() {
+
+        List<LatLong> locations = LatLongPathTest.randomLatLongs(5_000);
+        LatLong query = LatLong.of(-12.3, 45.6);
+        long[] packed = pack(locations);
+
+        double[] out = new double[packed.length];
+        PackedNavigation.coursesInDegrees(query.toPrimitiveLong(), packed, out);
+
+        for (int i = 0; i < packed.length; i++) {
+            LatLong loc = locations.get(i);
+            double expected =
+                    Navigation.courseInDegrees(query.latitude(), query.longitude(), loc.latitude(), loc.longitude());
+
+            assertThat(out[i]).isCloseTo(expected, within(1E-9));
+            assertThat(PackedNavigation.courseInDegrees(query.toPrimitiveLong(), packed[i]))
+                    .isCloseTo(out[i], within(1E-9));
+        }
+    }
+
+    @Test
+    void intArraysAndPackedLongsGiveTheSameResults() {
+
+        List<LatLong> locations = LatLongPathTest.randomLatLongs(1_000);
+        long[] packed = pack(locations);
+        int[] lats = new int[packed.length];
+        int[] lons = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            lats[i] = PackedNavigation.latitudeBits(packed[i]);
+            lons[i] = PackedNavigation.longitudeBits(packed[i]);
+        }
+        long query = LatLong.of(51.5, -0.1).toPrimitiveLong();
+        int queryLat = PackedNavigation.latitudeBits(query);
+        int queryLon = PackedNavigation.longitudeBits(query);
+
+        double[] fromLongs = new double[packed.length];
+        double[] fromInts = new double[packed.length];
+
+        PackedNavigation.distancesInNM(query, packed, fromLongs);
+        PackedNavigation.distancesInNM(queryLat, queryLon, lats, lons, fromInts);
+        assertThat(fromInts).containsExactly(fromLongs);
+
+        PackedNavigation.coursesInDegrees(query, packed, fromLongs);
+        PackedNavigation.coursesInDegrees(queryLat, queryLon, lats, lons, fromInts);
+        assertThat(fromInts).containsExactly(fromLongs);
+    }
+
+    @Test
+    void pairwiseDistancesAndSums() {
+
+        long[] a = pack(LatLongPathTest.randomLatLongs(100));
+        long[] b = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            b[i] = a[(i + 1) % a.length];
+        }
+
+        double[] out = new double[a.length];
+        PackedNavigation.distancesInNM(a, b, out);
+
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            assertThat(out[i]).isCloseTo(PackedNavigation.distanceInNM(a[i], b[i]), within(1E-9));
+            sum += out[i];
+        }
+        assertThat(PackedNavigation.sumOfDistancesInNM(a, b, a.length)).isCloseTo(sum, within(1E-6));
+        assertThat(PackedNavigation.sumOfDistancesInNM(a, b, 0)).isEqualTo(0.0);
+    }
+
+    @Test
+    void batchesOfEveryLengthMatchTheSinglePairMethods() {
+
+        // Covers arrays shorter than one vector and every possible scalar tail after the vector loop
+        List<LatLong> locations = LatLongPathTest.randomLatLongs(40);
+        long query = LatLong.of(-33.9, 151.2).toPrimitiveLong();
+        int queryLat = PackedNavigation.latitudeBits(query);
+        int queryLon = PackedNavigation.longitudeBits(query);
+
+        for (int n = 0; n <= 20; n++) {
+            long[] packed = pack(locations.subList(0, n));
+            long[] others = pack(locations.subList(20, 20 + n));
+            int[] lats = new int[n];
+            int[] lons = new int[n];
+            for (int i = 0; i < n; i++) {
+                lats[i] = PackedNavigation.latitudeBits(packed[i]);
+                lons[i] = PackedNavigation.longitudeBits(packed[i]);
+            }
+            double[] distances = new double[n];
+            double[] distancesFromInts = new double[n];
+            double[] pairwise = new double[n];
+            double[] courses = new double[n];
+            double[] coursesFromInts = new double[n];
+
+            PackedNavigation.distancesInNM(query, packed, distances);
+            PackedNavigation.distancesInNM(queryLat, queryLon, lats, lons, distancesFromInts);
+            PackedNavigation.distancesInNM(packed, others, pairwise);
+            PackedNavigation.coursesInDegrees(query, packed, courses);
+            PackedNavigation.coursesInDegrees(queryLat, queryLon, lats, lons, coursesFromInts);
+
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                double distance = PackedNavigation.distanceInNM(query, packed[i]);
+                double course = PackedNavigation.courseInDegrees(query, packed[i]);
+                double pairDistance = PackedNavigation.distanceInNM(packed[i], others[i]);
+                sum += pairDistance;
+
+                assertThat(distances[i]).isCloseTo(distance, within(1E-9));
+                assertThat(distancesFromInts[i]).isCloseTo(distance, within(1E-9));
+                assertThat(pairwise[i]).isCloseTo(pairDistance, within(1E-9));
+                assertThat(courses[i]).isCloseTo(course, within(1E-9));
+                assertThat(coursesFromInts[i]).isCloseTo(course, within(1E-9));
+            }
+            assertThat(PackedNavigation.sumOfDistancesInNM(packed, others, n)).isCloseTo(sum, within(1E-6));
+        }
+    }
+
+    @Test
+    void latLongPathDistanceIsUnchanged() {
+
+        List<LatLong> locations = LatLongPathTest.randomLatLongs(500);
+        LatLongPath p1 = LatLongPath.from(locations.subList(0, 250));
+        LatLongPath p2 = LatLongPath.from(locations.subList(250, 500));
+
+        double expected = 0;
+        for (int i = 0; i < 250; i++) {
+            expected += p1.get(i).distanceInNmTo(p2.get(i));
+        }
+
+        assertThat(LatLongPath.distanceBtw(p1, p2)).isCloseTo(expected, within(1E-6));
+        assertThat(LatLongPath.distanceBtw(p1, p2, 0)).isEqualTo(0.0);
+    }
+
+    @Test
+    void badInputIsRejected() {
+
+        long[] three = new long[3];
+
+        assertThrows(IllegalArgumentException.class, () -> PackedNavigation.distancesInNM(0L, three, new double[2]));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> PackedNavigation.distancesInNM(three, new long[2], new double[3]));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> PackedNavigation.distancesInNM(0, 0, new int[3], new int[2], new double[3]));
+        assertThrows(IllegalArgumentException.class, () -> PackedNavigation.sumOfDistancesInNM(three, three, 4));
+    }
+
+    @Disabled // not a rigorous benchmark, just a demo
+    @Test
+    void packedSweepIsFasterThanLatLongObjects() {
+
+        int n = 10_000_000;
+        Random rng = new Random(18L);
+        LatLong[] locations = new LatLong[n];
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            locations[i] = LatLong.of(rng.nextDouble() * 180 - 90, rng.nextDouble() * 360 - 180);
+            packed[i] = locations[i].toPrimitiveLong();
+        }
+        LatLong query = LatLong.of(38.9, -77.0);
+        double[] out = new double[n];
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            double sum1 = 0;
+            for (LatLong location : locations) {
+                sum1 += query.distanceInNmTo(location);
+            }
+            long objectTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            PackedNavigation.distancesInNM(query.toPrimitiveLong(), packed, out);
+            double sum2 = 0;
+            for (double distance : out) {
+                sum2 += distance;
+            }
+            long packedTime = System.nanoTime() - start;
+
+            assertThat(sum2).isCloseTo(sum1, within(1.0));
+            System.out.println("LatLong.distanceInNmTo:         " + objectTime / 1_000_000 + "ms");
+            System.out.println("PackedNavigation.distancesInNM: " + packedTime / 1_000_000 + "ms");
+        }
+    }
+
+    private static long[] pack(List<LatLong> locations) {
+        long[] packed = new long[locations.size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = locations.get(i).toPrimitiveLong();
+        }
+        return packed;
+    }
+}
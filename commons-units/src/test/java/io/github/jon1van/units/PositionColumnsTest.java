@@ -0,0 +1,159 @@
+package io.github.jon1van.units;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PositionColumnsTest {
+
+    @Test
+    void primitiveAccessorsReturnWhatWasAdded() {
+
+        PositionColumns columns = PositionColumns.builder()
+                .add(1_000L, 12.3456789, -45.6789012)
+                .add(2_000L, -1.5, 179.9999999, 35_000.0)
+                .build();
+
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.epochMsAt(1)).isEqualTo(2_000L);
+        assertThat(columns.timeAt(0)).isEqualTo(Instant.ofEpochMilli(1_000L));
+        assertThat(columns.latitudeAt(0)).isEqualTo(12.3456789);
+        assertThat(columns.longitudeAt(1)).isEqualTo(179.9999999);
+        assertThat(columns.latitudeBitsAt(1)).isEqualTo(-15_000_000);
+        assertThat(columns.latLongAt(0)).isEqualTo(LatLong.of(12.3456789, -45.6789012));
+        assertThat(columns.hasAltitudeAt(0)).isFalse();
+        assertThat(columns.hasAltitudeAt(1)).isTrue();
+        assertThat(columns.altitudeInFeetAt(1)).isEqualTo(35_000.0);
+        assertThrows(IllegalStateException.class, () -> columns.altitudeInFeetAt(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> columns.hasAltitudeAt(2));
+    }
+
+    @Test
+    void listViewMatchesTheSourcePositions() {
+
+        List<Position> positions = randomTrack(1_000);
+        PositionColumns columns = PositionColumns.from(positions);
+        List<Position> view = columns.asList();
+
+        assertThat(view).hasSize(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            Position expected = positions.get(i);
+            Position actual = view.get(i);
+
+            assertThat(actual.time()).isEqualTo(expected.time());
+            assertThat(actual.latLong()).isEqualTo(expected.latLong());
+            assertThat(actual.hasAltitude()).isEqualTo(expected.hasAltitude());
+            if (expected.hasAltitude()) {
+                assertThat(actual.altitude().inFeet())
+                        .isCloseTo(expected.altitude().inFeet(), within(0.01));
+            }
+        }
+        assertThat(columns).hasSize(positions.size());
+        assertThrows(UnsupportedOperationException.class, () -> view.add(positions.get(0)));
+    }
+
+    @Test
+    void positionsMustBeAddedInTimeOrder() {
+
+        PositionColumns.Builder builder = PositionColumns.builder().add(5L, 0.0, 0.0);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(4L, 0.0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(6L, 91.0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(6L, 0.0, -181.0));
+
+        builder.add(5L, 1.0, 1.0); // equal times are allowed
+        assertThat(builder.build().size()).isEqualTo(2);
+    }
+
+    @Test
+    void buildingDoesNotStopTheBuilder() {
+
+        PositionColumns.Builder builder = PositionColumns.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i, 0.0, i);
+        }
+        PositionColumns first = builder.build();
+        builder.add(100L, 0.0, 100.0, 5.0);
+        PositionColumns second = builder.build();
+
+        assertThat(first.size()).isEqualTo(100);
+        assertThat(second.size()).isEqualTo(101);
+        assertThat(second.hasAltitudeAt(100)).isTrue();
+        assertThat(first).isNotEqualTo(second);
+        assertThat(builder.build()).isEqualTo(second);
+        assertThat(builder.build().hashCode()).isEqualTo(second.hashCode());
+    }
+
+    @Test
+    void timeLookupsUseBinarySearch() {
+
+        PositionColumns columns = PositionColumns.builder()
+                .add(10L, 0.0, 0.0)
+                .add(20L, 0.0, 1.0)
+                .add(20L, 0.0, 2.0)
+                .add(30L, 0.0, 3.0)
+                .build();
+
+        assertThat(columns.indexOf(20L)).isEqualTo(1);
+        assertThat(columns.indexOf(5L)).isEqualTo(-1);
+        assertThat(columns.indexOf(25L)).isEqualTo(-4);
+        assertThat(columns.indexOf(31L)).isEqualTo(-5);
+        assertThat(columns.timeWindow()).isEqualTo(TimeWindow.of(Instant.ofEpochMilli(10L), Instant.ofEpochMilli(30L)));
+
+        List<Position> window =
+                columns.positionsWithin(TimeWindow.of(Instant.ofEpochMilli(20L), Instant.ofEpochMilli(30L)));
+        assertThat(window).extracting(Position::longitude).containsExactly(1.0, 2.0, 3.0);
+        assertThat(columns.positionsWithin(TimeWindow.of(Instant.ofEpochMilli(11L), Instant.ofEpochMilli(19L))))
+                .isEmpty();
+    }
+
+    @Test
+    void distancesAndPathsUseTheEncodedLocations() {
+
+        List<Position> positions = randomTrack(200);
+        PositionColumns columns = PositionColumns.from(positions);
+        LatLong query = LatLong.of(38.9, -77.0);
+
+        double[] out = new double[columns.size()];
+        columns.distancesInNM(query, out);
+
+        LatLongPath path = columns.toLatLongPath();
+        assertThat(path.size()).isEqualTo(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            assertThat(out[i]).isCloseTo(query.distanceInNmTo(positions.get(i)), within(1E-6));
+            assertThat(path.get(i)).isEqualTo(positions.get(i).latLong());
+        }
+    }
+
+    @Test
+    void emptyColumns() {
+
+        PositionColumns columns = PositionColumns.from(List.of());
+
+        assertThat(columns.isEmpty()).isTrue();
+        assertThat(columns.asList()).isEmpty();
+        assertThat(columns.indexOf(0L)).isEqualTo(-1);
+        assertThrows(IllegalStateException.class, columns::timeWindow);
+    }
+
+    private static List<Position> randomTrack(int n) {
+        Random rng = new Random(17L);
+        List<Position> positions = new ArrayList<>(n);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            time += rng.nextInt(5_000);
+            // the track's locations are already rounded to LatLong precision
+            LatLong location = LatLong.of(rng.nextDouble() * 180 - 90, rng.nextDouble() * 360 - 180);
+            Distance altitude = rng.nextBoolean() ? Distance.ofFeet(rng.nextDouble() * 40_000) : null;
+            positions.add(new Position(Instant.ofEpochMilli(time), location, altitude));
+        }
+        return positions;
+    }
+}
@@ -2,17 +2,16 @@ package io.github.jon1van.math;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Lists.newArrayList;
-import static io.github.jon1van.collect.HashedLinkedSequence.newHashedLinkedSequence;
 import static java.lang.Math.abs;
 import static org.apache.commons.math3.util.FastMath.hypot;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
 import java.util.PriorityQueue;
 
 import com.google.common.primitives.Doubles;
-import io.github.jon1van.collect.HashedLinkedSequence;
+import io.github.jon1van.collect.IndexLinkedSequence;
 
 /// A VisvalingamSimplifier removes "visually unimportant" data from a Dataset by applying
 /// Visvalingam’s algorithm.
@@ -44,8 +43,8 @@ public class VisvalingamSimplifier {
 
         ArrayList<XyPoint> points = dataset.asXyPointList();
 
-        // step 1 -- pipe all the x-y  data to a serachable linked dataset
-        HashedLinkedSequence<XyPoint> hashedSequence = newHashedLinkedSequence(points);
+        // step 1 -- link the positions of the x-y data so points can be removed in constant time
+        IndexLinkedSequence sequence = new IndexLinkedSequence(points.size());
 
         // step 2 -- Create initial triangles
         PriorityQueue<Triangle> triangleQueue = initalizeTriangles(points);
@@ -56,61 +55,57 @@ public class VisvalingamSimplifier {
             Triangle lowAreaTriangle = triangleQueue.poll();
 
             // do nothing if the lowAreaTriangle is invalid because one of its points has already been removed
-            if (!hashedSequence.containsAll(lowAreaTriangle.points())) {
+            if (!lowAreaTriangle.isIntact(sequence)) {
                 continue;
             }
 
-            XyPoint pointToRemove = lowAreaTriangle.center;
-            XyPoint left = hashedSequence.getElementBefore(pointToRemove); // always non-null
-            XyPoint right = hashedSequence.getElementAfter(pointToRemove); // always non-null
+            int left = lowAreaTriangle.left;
+            int right = lowAreaTriangle.right;
 
-            XyPoint leftOfLeft = (left == hashedSequence.getFirst()) ? null : hashedSequence.getElementBefore(left);
-
-            XyPoint rightOfRight = (right == hashedSequence.getLast()) ? null : hashedSequence.getElementAfter(right);
-
-            hashedSequence.remove(lowAreaTriangle.center);
+            sequence.remove(lowAreaTriangle.center);
 
             // add the new leftside Triangle
-            if (leftOfLeft != null) {
-                triangleQueue.add(new Triangle(leftOfLeft, left, right));
+            if (sequence.hasElementBefore(left)) {
+                triangleQueue.add(new Triangle(points, sequence.getElementBefore(left), left, right));
             } else {
                 // We just removed Point B from ABCDEFGHIJKL..., so there is no new leftside Triangle
             }
 
             // add the new rightside Triangle
-            if (rightOfRight != null) {
-                triangleQueue.add(new Triangle(left, right, rightOfRight));
+            if (sequence.hasElementAfter(right)) {
+                triangleQueue.add(new Triangle(points, left, right, sequence.getElementAfter(right)));
             } else {
                 // We just removed Point Y from ...NOPQRSTUVWXYZ, so there is no new rightside Triangle
             }
         }
 
-        return XyPoint.asDataset(hashedSequence);
+        return XyPoint.asDataset(Arrays.asList(sequence.retainedFrom(points.toArray(new XyPoint[0]))));
     }
 
     /* Create all initial "triangles" from ALL the XyPoint data. */
     private PriorityQueue<Triangle> initalizeTriangles(ArrayList<XyPoint> points) {
         PriorityQueue<Triangle> triangleQueue = new PriorityQueue<>();
         for (int i = 1; i < points.size() - 1; i++) {
-            Triangle tri = new Triangle(points.get(i - 1), points.get(i), points.get(i + 1));
+            Triangle tri = new Triangle(points, i - 1, i, i + 1);
             triangleQueue.add(tri);
         }
         return triangleQueue;
     }
 
+    /// A Triangle refers to its 3 points by their position in the input data.
     private static class Triangle implements Comparable<Triangle> {
 
-        XyPoint left;
-        XyPoint center;
-        XyPoint right;
+        final int left;
+        final int center;
+        final int right;
 
-        double area;
+        final double area;
 
-        Triangle(XyPoint left, XyPoint center, XyPoint right) {
-            this.left = checkNotNull(left);
-            this.center = checkNotNull(center);
-            this.right = checkNotNull(right);
-            this.area = computeTriangleArea(left, center, right);
+        Triangle(List<XyPoint> points, int left, int center, int right) {
+            this.left = left;
+            this.center = center;
+            this.right = right;
+            this.area = computeTriangleArea(points.get(left), points.get(center), points.get(right));
         }
 
         @Override
@@ -118,13 +113,14 @@ public class VisvalingamSimplifier {
             return Doubles.compare(area, other.area);
         }
 
-        public Collection<XyPoint> points() {
-            return newArrayList(left, center, right);
+        /// @return True when none of this Triangle's points have been removed from the sequence.
+        boolean isIntact(IndexLinkedSequence sequence) {
+            return sequence.contains(left) && sequence.contains(center) && sequence.contains(right);
         }
 
         @Override
         public String toString() {
-            return left.toString() + " to " + center.toString() + " to " + right.toString() + "\n area: " + area;
+            return left + " to " + center + " to " + right + "\n area: " + area;
         }
     }
 